@@ -2,6 +2,8 @@ package client.models;
 
 import client.exceptions.BoardChangeException;
 import commons.*;
+import commons.DTOs.BoardSummaryDTO;
+import commons.DTOs.CardPatchDTO;
 import commons.exceptions.CardNotFoundException;
 import commons.exceptions.ColumnNotFoundException;
 import lombok.Getter;
@@ -11,13 +13,14 @@ import javax.inject.Singleton;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 @Singleton
 public class BoardModel {
 
     @Getter
     @Setter
-    private List<Board> boardList;
+    private List<BoardSummaryDTO> boardList;
 
     @Getter
     @Setter
@@ -27,6 +30,12 @@ public class BoardModel {
     @Setter
     private Board currentBoard;
 
+    /**
+     * Boards that were opened before in this session, by join-key, so that only their changes have to be fetched again
+     */
+    @Getter
+    private final Map<String, Board> openedBoards = new HashMap<>();
+
 
     /**
      * Constructor for BoardModel
@@ -95,9 +104,9 @@ public class BoardModel {
 
     /**
      * Adds board to boardList
-     * @param board Board to add
+     * @param board Summary of the board to add
      */
-    public void addBoard(final Board board) throws BoardChangeException {
+    public void addBoard(final BoardSummaryDTO board) throws BoardChangeException {
         if (!boardList.add(board)) {
             throw new BoardChangeException("Failed to add board : " + board);
         }
@@ -170,12 +179,12 @@ public class BoardModel {
     }
 
     /**
-     * changes the contents of a card and then refreshes the overview of the card / any open card details modal
-     * @param card
-     * @throws CardNotFoundException
+     * changes the edited fields of a card
+     * @param patch Edited fields of the card
+     * @throws CardNotFoundException if the card is not in the current board
      */
-    public void editCard(final Card card) throws CardNotFoundException {
-        getCurrentBoard().updateCard(card);
+    public void editCard(final CardPatchDTO patch) throws CardNotFoundException {
+        getCurrentBoard().updateCard(patch);
     }
 
     /**
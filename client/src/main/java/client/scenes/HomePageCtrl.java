@@ -6,6 +6,7 @@ import client.scenes.components.modals.AppSettingsModal;
 import client.scenes.components.modals.JoinBoardModal;
 import client.services.BoardService;
 import commons.Board;
+import commons.DTOs.BoardSummaryDTO;
 import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
@@ -24,6 +25,11 @@ import java.util.List;
 
 public class HomePageCtrl implements Refreshable {
 
+    /**
+     * Time (ms) to wait before asking for changes to boards again after a request failed
+     */
+    private static final long RETRY_DELAY = 5000;
+
     @Getter
     private final MainCtrl mainCtrl;
 
@@ -44,7 +50,7 @@ public class HomePageCtrl implements Refreshable {
 
     private int lastRowSize;
 
-    private Thread checkBoardThread;
+    private volatile Thread checkBoardThread;
 
 
     /**
@@ -96,12 +102,23 @@ public class HomePageCtrl implements Refreshable {
         mainCtrl.refreshOverview();
     }
 
+    /**
+     * Fetches the full board of a summary shown on the home page and shows the overview
+     *
+     * @param summary The summary of the board to open
+     */
+    public void openBoard(final BoardSummaryDTO summary) {
+        final Board board = boardService.fetchBoard(summary.getJoinKey());
+        if (board == null) return;
+        loadBoard(board);
+    }
+
     /**
      * Removes the board from the list of boards
      *
      * @param board The board to remove
      */
-    public void removeBoard(final Board board) {
+    public void removeBoard(final BoardSummaryDTO board) {
         boardService.removeBoard(board);
         boardService.saveBoardsLocal();
         this.renderBoards();
@@ -120,7 +137,7 @@ public class HomePageCtrl implements Refreshable {
      *
      * @param board The board to delete
      */
-    public void deleteBoard(final Board board) {
+    public void deleteBoard(final BoardSummaryDTO board) {
         final Point2D p = new Point2D(MouseInfo.getPointerInfo().getLocation().getX(), MouseInfo.getPointerInfo().getLocation().getY());
 
         final Tooltip customTooltip = new Tooltip("Deleted board!");
@@ -159,7 +176,7 @@ public class HomePageCtrl implements Refreshable {
     protected void renderBoards() {
         this.innerBoardCardList.getChildren().clear();
 
-        final List<Board> boardList = boardService.getAllBoards();
+        final List<BoardSummaryDTO> boardList = boardService.getAllBoards();
 
         final int rowSize = this.getRowSize();
 
@@ -170,7 +187,7 @@ public class HomePageCtrl implements Refreshable {
 
             if (i < boardList.size()) { // if there are still boards to add
 
-                final Board board = boardList.get(i);
+                final BoardSummaryDTO board = boardList.get(i);
                 final BoardCardComponent boardCard = new BoardCardComponent(board, this);
                 if (Main.isAdmin()) {
                     boardCard.changeMode();
@@ -241,32 +258,37 @@ public class HomePageCtrl implements Refreshable {
     }
 
     /**
-     * Starts thread that periodically checks if boards are valid
+     * Starts thread that waits for boards to be deleted or renamed on the server.
+     * Every request is held by the server until a board changes, so the boards are updated as soon as that happens.
      */
     public void checkBoards() {
-        checkBoardThread = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                do {
-                    boardService.checkBoardsValidity();
-                    Platform.runLater(() -> { renderBoards(); });
-
+        stopCheckBoards();
+        checkBoardThread = new Thread(() -> {
+            final Thread current = Thread.currentThread();
+            while (checkBoardThread == current && boardService.isConnected()) {
+                try {
+                    if (boardService.checkBoardsValidity())
+                        Platform.runLater(this::renderBoards);
+                } catch (RuntimeException e) {
+                    // the server could not be reached, wait a little before asking again
                     try {
-                        Thread.sleep(5000);
-                    } catch (InterruptedException e) { }
+                        Thread.sleep(RETRY_DELAY);
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
                 }
-                while (boardService.isConnected());
-
-                stopCheckBoards();
             }
-        });
-//        checkBoardThread.start();
+        }, "check-boards");
+        checkBoardThread.setDaemon(true);
+        checkBoardThread.start();
     }
 
     /**
-     * Stops the thread checking if boards are valid upon disconnecting
+     * Stops the thread waiting for changes to boards, it ends once its current request is answered
      */
-    private void stopCheckBoards() {
-        checkBoardThread.stop();
+    public void stopCheckBoards() {
+        final Thread thread = checkBoardThread;
+        checkBoardThread = null;
+        if (thread != null) thread.interrupt();
     }
 }
@@ -137,6 +137,7 @@ public class MainCtrl {
      * Shows overview stage in primaryStage
      */
     public void showOverview() {
+        homePageCtrl.stopCheckBoards();
         saveStageSize();
         loadStageSize();
         primaryStage.setTitle("Talio: Overview");
@@ -2,7 +2,7 @@ package client.scenes.components;
 
 import client.Main;
 import client.scenes.HomePageCtrl;
-import commons.Board;
+import commons.DTOs.BoardSummaryDTO;
 import javafx.animation.PauseTransition;
 import javafx.fxml.FXML;
 import javafx.geometry.Point2D;
@@ -16,7 +16,7 @@ import java.awt.*;
 
 public class BoardCardComponent extends Pane implements UIComponent {
 
-    private final Board board;
+    private final BoardSummaryDTO board;
 
     private final HomePageCtrl parentCtrl;
 
@@ -31,10 +31,10 @@ public class BoardCardComponent extends Pane implements UIComponent {
 
     /**
      * Constructor for BoardCardComponent
-     * @param board Board instance
+     * @param board Summary of the board
      * @param parentCtrl HomePageCtrl instance
      */
-    public BoardCardComponent(final Board board, final HomePageCtrl parentCtrl) {
+    public BoardCardComponent(final BoardSummaryDTO board, final HomePageCtrl parentCtrl) {
         this.board = board;
         this.parentCtrl = parentCtrl;
 
@@ -60,7 +60,7 @@ public class BoardCardComponent extends Pane implements UIComponent {
     }
 
     private void onClick() {
-        parentCtrl.loadBoard(board);
+        parentCtrl.openBoard(board);
     }
 
     private void setBoardTitle() {
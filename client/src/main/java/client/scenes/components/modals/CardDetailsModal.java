@@ -121,8 +121,6 @@ public class CardDetailsModal extends Modal implements Refreshable {
     @FXML
     private void submitDetails() {
         if (!OverviewCtrl.isLocked()) {
-            this.card.setTitle(cardTitle.getText());
-            this.card.setDescription(cardDescription.getText());
             final List<Tag> selectedTags = this.getSelectedTags();
 
             for (final Tag tag : selectedTags) {
@@ -141,9 +139,7 @@ public class CardDetailsModal extends Modal implements Refreshable {
                 }
             }
 
-            this.card.setColorScheme(this.colorSchemeComboBox.getValue());
-
-            boardService.editCard(this.card, this.cardComponent.getColumnParent().getColumn());
+            boardService.editCard(this.card, cardTitle.getText(), cardDescription.getText(), this.colorSchemeComboBox.getValue());
         }
 
         this.closeModal();
@@ -6,6 +6,7 @@ import client.scenes.Refreshable;
 import client.scenes.components.CardComponent;
 import client.scenes.components.UIComponent;
 import client.services.BoardService;
+import commons.Card;
 import commons.ColorScheme;
 import javafx.fxml.FXML;
 import javafx.scene.Scene;
@@ -81,9 +82,8 @@ public class ColorShortcutModal extends Modal implements Refreshable, UIComponen
 
     @FXML
     private void submitDetails() {
-        cardComponent.getCard().setColorScheme(this.colorSchemeComboBox.getValue());
-
-        boardService.editCard(cardComponent.getCard(), cardComponent.getColumnParent().getColumn());
+        final Card card = cardComponent.getCard();
+        boardService.editCard(card, card.getTitle(), card.getDescription(), this.colorSchemeComboBox.getValue());
 
         cardComponent.refresh();
         this.closeModal();
@@ -5,6 +5,7 @@ import client.scenes.HomePageCtrl;
 import client.scenes.components.UIComponent;
 import client.services.BoardService;
 import commons.Board;
+import commons.DTOs.BoardSummaryDTO;
 import jakarta.ws.rs.NotFoundException;
 import javafx.fxml.FXML;
 import javafx.scene.Scene;
@@ -55,8 +56,10 @@ public class JoinBoardModal extends Modal implements UIComponent {
 
             try {
                 final Board serverBoard = boardService.fetchBoard(joinKey);
-                final List<Board> boards = boardService.getAllBoards();
-                if (!boards.contains(serverBoard)) boards.add(serverBoard);
+                if (serverBoard == null) return;
+                final List<BoardSummaryDTO> boards = boardService.getAllBoards();
+                if (boards.stream().noneMatch(b -> b.getJoinKey().equals(serverBoard.getJoinKey())))
+                    boards.add(BoardSummaryDTO.of(serverBoard));
 
                 parentCtrl.loadBoard(serverBoard);
             } catch (NotFoundException e) {
@@ -95,8 +95,6 @@ public class TagsShortcutModal extends Modal implements UIComponent, Refreshable
             }
         }
 
-        boardService.editCard(card, cardComponent.getColumnParent().getColumn());
-
         cardComponent.refresh();
         this.closeModal();
     }
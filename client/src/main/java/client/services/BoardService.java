@@ -5,7 +5,15 @@ import client.exceptions.ServerException;
 import client.models.BoardModel;
 import client.scenes.MainCtrl;
 import client.scenes.components.modals.InfoModal;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import commons.*;
+import commons.DTOs.BoardChangesDTO;
+import commons.DTOs.BoardEventDTO;
+import commons.DTOs.BoardOperationDTO;
+import commons.DTOs.BoardSummaryDTO;
+import commons.DTOs.CardPatchDTO;
 import commons.exceptions.CardNotFoundException;
 import commons.exceptions.ColumnNotFoundException;
 
@@ -23,6 +31,9 @@ public class BoardService {
 
     private final MainCtrl mainCtrl;
 
+    // reads the messages of changes the same way as the messages received over the socket
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
     /**
      * Constructs a board service
      *
@@ -149,7 +160,7 @@ public class BoardService {
     public Board addBoard(final Board board) {
         try {
             final Board serverBoard = serverService.addBoard(board);
-            boardModel.addBoard(serverBoard);
+            boardModel.addBoard(BoardSummaryDTO.of(serverBoard));
             return serverBoard;
         } catch (ServerException e) {
             final InfoModal errorModal = new InfoModal(this,
@@ -176,11 +187,11 @@ public class BoardService {
     }
 
     /**
-     * Returns all boards on the client
+     * Returns the summaries of all boards on the client
      *
-     * @return the boards present on the client
+     * @return the summaries of the boards present on the client
      */
-    public List<Board> getAllBoards() {
+    public List<BoardSummaryDTO> getAllBoards() {
         return boardModel.getBoardList();
     }
 
@@ -193,6 +204,11 @@ public class BoardService {
      */
     public Board fetchBoard(final String joinKey) {
         try {
+            final Board opened = boardModel.getOpenedBoards().get(joinKey);
+            if (opened != null) {
+                final Board updated = fetchChanges(opened);
+                if (updated != null) return updated;
+            }
             return serverService.getBoard(joinKey);
         } catch (ServerException e) {
             final InfoModal errorModal = new InfoModal(this,
@@ -204,15 +220,52 @@ public class BoardService {
     }
 
     /**
-     * Fetches all boards
+     * Brings a board that was opened before up to date with the changes the server made since
      *
-     * @param boards the join-keys used to identify the boards
+     * @param board the board as it was when it was last open
      *
-     * @return the boards that were retrieved
+     * @return the up-to-date board, or null if the changes could not be applied to it
      */
-    public List<Board> fetchAllBoards(final HashMap<String, String> boards) {
+    private Board fetchChanges(final Board board) {
         try {
-            return serverService.getAllBoards(boards);
+            final BoardChangesDTO changes = serverService.getBoardChanges(board.getJoinKey(), board.getSequence());
+            if (changes.board() != null) return changes.board();
+
+            applyEvents(board, changes.events());
+            return board;
+        } catch (ServerException | ColumnNotFoundException | CardNotFoundException | JsonProcessingException | RuntimeException e) {
+            // the board is fetched as a whole instead, which replaces this copy
+            boardModel.getOpenedBoards().remove(board.getJoinKey());
+            return null;
+        }
+    }
+
+    /**
+     * Applies logged changes to a board, skipping the ones it already contains
+     *
+     * @param board the board to change
+     * @param events the changes, in order
+     */
+    private void applyEvents(final Board board, final List<BoardEventDTO> events)
+            throws ColumnNotFoundException, CardNotFoundException, JsonProcessingException
+    {
+        for (final BoardEventDTO event : events) {
+            if (event.sequence() <= board.getSequence()) continue;
+            BoardEvents.apply(board, event.type(), objectMapper.readValue(event.payload(), event.type().getPayloadType()));
+            board.setSequence(event.sequence());
+        }
+    }
+
+    /**
+     * Fetches the summaries of all boards
+     *
+     * @param joinKeys the join-keys used to identify the boards
+     *
+     * @return the summaries of the boards that were retrieved
+     */
+    public List<BoardSummaryDTO> fetchBoardSummaries(final Collection<String> joinKeys) {
+        try {
+            return serverService.getBoardSummaries(joinKeys);
         } catch (ServerException e) {
             final InfoModal errorModal = new InfoModal(this,
                     "Server Exception", "The Boards couldn't be retrieved from the Server: " + serverService.getServerIP()
@@ -229,6 +282,87 @@ public class BoardService {
      */
     public void setCurrentBoard(final Board board) {
         boardModel.setCurrentBoard(board);
+        if (board != null) boardModel.getOpenedBoards().put(board.getJoinKey(), board);
+    }
+
+    /**
+     * Sets the sequence of the last change of the current board that was received from the server
+     *
+     * @param joinKey the join-key of the board that the change belongs to
+     * @param sequence the sequence of the change
+     */
+    public void setCurrentBoardSequence(final String joinKey, final long sequence) {
+        final Board board = boardModel.getCurrentBoard();
+        if (board != null && board.getJoinKey().equals(joinKey) && sequence > board.getSequence())
+            board.setSequence(sequence);
+    }
+
+    /**
+     * Wraps a change to the current board, so that it can be sent in a batch
+     *
+     * @param type the kind of change
+     * @param payload the message of the change, of the payload type of the kind of change
+     *
+     * @return the change
+     */
+    public BoardOperationDTO toOperation(final BoardEventType type, final Object payload) {
+        try {
+            return new BoardOperationDTO(type, objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("The " + type + " change couldn't be written", e);
+        }
+    }
+
+    /**
+     * Makes a list of changes to the currently selected board in one go (client initiated)
+     *
+     * @param operations the changes to make, in order, see {@link #toOperation(BoardEventType, Object)}
+     */
+    public void applyBatchToCurrentBoard(final List<BoardOperationDTO> operations) {
+        try {
+            serverService.applyBatch(this.boardModel.getCurrentBoard(), operations);
+        } catch (ServerException e) {
+            final InfoModal errorModal = new InfoModal(this, "Server Exception", "The changes couldn't be applied on the Server.", mainCtrl.getCurrentScene());
+            errorModal.showModal();
+        }
+    }
+
+    /**
+     * Makes a list of changes that were applied together to the currently selected board (server initiated).
+     * If they cannot be applied, the board is fetched again as a whole.
+     *
+     * @param changes the changes, in order
+     */
+    public void updateApplyBatch(final BoardChangesDTO changes) {
+        final Board board = boardModel.getCurrentBoard();
+        if (board == null || !board.getJoinKey().equals(changes.joinKey())) return;
+
+        try {
+            applyEvents(board, changes.events());
+        } catch (ColumnNotFoundException | CardNotFoundException | JsonProcessingException | RuntimeException e) {
+            final Board fetched = fetchBoard(board.getJoinKey());
+            if (fetched != null) setCurrentBoard(fetched);
+        }
+        mainCtrl.refreshOverview();
+        if (mainCtrl.getCardDetailsModal() != null) mainCtrl.getCardDetailsModal().refresh();
+    }
+
+    /**
+     * Loads the currently selected board again as a whole, after the server dropped changes meant for this client
+     * because it could not keep up (server initiated).
+     *
+     * @param joinKey the join-key of the board that changes were dropped for
+     */
+    public void updateResyncBoard(final String joinKey) {
+        final Board board = boardModel.getCurrentBoard();
+        if (board == null || !board.getJoinKey().equals(joinKey)) return;
+
+        // the sequence of the board may already be past the dropped changes, so only the whole board is trusted
+        boardModel.getOpenedBoards().remove(joinKey);
+        final Board fetched = fetchBoard(joinKey);
+        if (fetched != null) setCurrentBoard(fetched);
+        mainCtrl.refreshOverview();
+        if (mainCtrl.getCardDetailsModal() != null) mainCtrl.getCardDetailsModal().refresh();
     }
 
     /**
@@ -489,7 +623,7 @@ public class BoardService {
     public void updateRemoveTagFromBoard(final Tag tag) {
         boardModel.removeTag(tag, getCurrentBoard());
 
-        boardModel.getCurrentBoard().getColumns().forEach(column -> column.getCards().forEach(card -> card.removeTag(tag)));
+        for (final Card card : getCurrentBoard().getCardsWithTag(tag.getId())) card.removeTag(tag);
 
         mainCtrl.refreshOverview();
         if (mainCtrl.getTagsOverviewModal() != null) mainCtrl.getTagsOverviewModal().refresh();
@@ -569,7 +703,7 @@ public class BoardService {
     public void saveBoardsLocal() {
         final HashMap<String, String> currentBoardJoinKeys = boardModel.getSavedBoardPasswords();
 
-        for (final Board board : boardModel.getBoardList()) {
+        for (final BoardSummaryDTO board : boardModel.getBoardList()) {
             if (!currentBoardJoinKeys.containsKey(board.getJoinKey()))
                 currentBoardJoinKeys.put(board.getJoinKey(), null);
         }
@@ -595,7 +729,7 @@ public class BoardService {
      *
      * @return the list of boards for the current server
      */
-    public List<Board> loadBoardsForCurrentServer() {
+    public List<BoardSummaryDTO> loadBoardsForCurrentServer() {
         saveBoardsLocal();
 
         final Map<URI, HashMap<String, String>> allBoardJoinKeys = loadAllBoardsLocal();
@@ -611,7 +745,8 @@ public class BoardService {
             this.boardModel.setSavedBoardPasswords(new HashMap<>());
             return new ArrayList<>();
         }
-        final List<Board> boards = this.fetchAllBoards(joinKeys);
+        final List<BoardSummaryDTO> boards = this.fetchBoardSummaries(joinKeys.keySet());
+        if (boards == null) return new ArrayList<>();
 
         this.boardModel.setBoardList(boards.stream().filter(Objects::nonNull).collect(Collectors.toList()));
 
@@ -666,15 +801,23 @@ public class BoardService {
     }
 
     /**
-     * Currently not functional, but connects to socket.
-     * Changes card title, description, and tags (client initiated)
+     * Changes card title, description, and color scheme (client initiated).
+     * Only the fields that differ from the card are changed and sent to the server.
      *
-     * @param card   Card to edit
-     * @param column Column that card is in
+     * @param card        Card to edit
+     * @param title       New title of the card
+     * @param description New description of the card
+     * @param colorScheme New color scheme of the card
      */
-    public void editCard(final Card card, final Column column) {
+    public void editCard(final Card card, final String title, final String description, final ColorScheme colorScheme) {
+        final CardPatchDTO patch = CardPatchDTO.between(card, title, description, colorScheme);
+        if (patch.changesNothing()) return;
+
         try {
-            serverService.editCard(getCurrentBoard(), card, column);
+            boardModel.editCard(patch);
+            serverService.editCard(getCurrentBoard(), patch);
+        } catch (CardNotFoundException e) {
+            throw new RuntimeException(e);
         } catch (ServerException e) {
             final InfoModal errorModal = new InfoModal(this, "Server Exception", "The card couldn't be edited on the Server.", mainCtrl.getCurrentScene());
             errorModal.showModal();
@@ -683,13 +826,14 @@ public class BoardService {
     }
 
     /**
-     * Changes card title, description, and tags (server initiated)
+     * Changes card title, description, and color scheme (server initiated)
      *
-     * @param card   Card to edit
+     * @param patch  Edited fields of the card
+     * @throws CardNotFoundException if the card is not in the current board
      */
-    public void updateEditCard(final Card card) throws CardNotFoundException {
-        boardModel.editCard(card);
-        mainCtrl.getOverviewCtrl().refreshCard(card.getId());
+    public void updateEditCard(final CardPatchDTO patch) throws CardNotFoundException {
+        boardModel.editCard(patch);
+        mainCtrl.getOverviewCtrl().refreshCard(patch.cardId());
         if (mainCtrl.getCardDetailsModal() != null) mainCtrl.getCardDetailsModal().refresh();
         if (mainCtrl.getTagsOverviewModal() != null) mainCtrl.getTagsOverviewModal().refresh(); // update tag overview modal if its open
         if (mainCtrl.getTagsShortcutModal() != null) mainCtrl.getTagsShortcutModal().refresh(); // same
@@ -719,24 +863,24 @@ public class BoardService {
     /**
      * Removes a board from the client side
      *
-     * @param board Board to remove
+     * @param board Summary of the board to remove
      *
      * @return true if board was removed
      */
-    public boolean removeBoard(final Board board) {
-        return this.boardModel.getBoardList().remove(board);
+    public boolean removeBoard(final BoardSummaryDTO board) {
+        return this.boardModel.getBoardList().removeIf(b -> b.getJoinKey().equals(board.getJoinKey()));
     }
 
     /**
      * Deletes a board from the server and client side
      *
-     * @param board Board to delete
+     * @param board Summary of the board to delete
      *
      * @return true if board was deleted
      */
-    public boolean deleteBoard(final Board board) {
+    public boolean deleteBoard(final BoardSummaryDTO board) {
         this.removeBoard(board);
-        return serverService.deleteBoard(board);
+        return serverService.deleteBoard(board.getJoinKey());
     }
 
     /**
@@ -764,7 +908,7 @@ public class BoardService {
      */
     public void adminLoadAllBoards() {
         final List<Board> boards = this.adminGetAllBoards();
-        this.boardModel.setBoardList(boards.stream().filter(Objects::nonNull).collect(Collectors.toList()));
+        this.boardModel.setBoardList(boards.stream().filter(Objects::nonNull).map(BoardSummaryDTO::of).collect(Collectors.toList()));
     }
 
     /**
@@ -775,22 +919,34 @@ public class BoardService {
     }
 
     /**
-     * Checks if the boards are still valid
+     * Waits until one of the boards is deleted or renamed on the server,
+     * then drops the deleted boards and updates the titles of the renamed ones
+     *
+     * @return whether any board changed
      */
-    public void checkBoardsValidity() {
-        final List<String> validBoards = serverService.getBoardsStatus(
-                this.boardModel.getBoardList()
-                        .stream()
-                        .map(Board::getJoinKey)
-                        .toList());
+    public boolean checkBoardsValidity() {
+        final Map<String, String> shown = new HashMap<>();
+        for (final BoardSummaryDTO board : this.boardModel.getBoardList()) {
+            shown.put(board.getJoinKey(), board.getTitle());
+        }
+        if (shown.isEmpty()) return false;
+
+        final Map<String, String> changed = serverService.getBoardsStatus(shown);
+        if (changed.isEmpty()) return false;
 
         this.boardModel.setBoardList(
                 this.boardModel.getBoardList()
                         .stream()
-                        .filter(board -> validBoards.contains(board.getJoinKey()))
+                        .filter(board -> !changed.containsKey(board.getJoinKey()) || changed.get(board.getJoinKey()) != null)
+                        .map(board -> changed.containsKey(board.getJoinKey())
+                                ? new BoardSummaryDTO(board.getJoinKey(), changed.get(board.getJoinKey()), board.getCreated(),
+                                        board.passwordProtected(), board.getColumnCount(), board.getCardCount(),
+                                        board.getBoardColorScheme())
+                                : board)
                         .collect(Collectors.toList())
         );
         this.saveBoardsLocal();
+        return true;
     }
 
     /**
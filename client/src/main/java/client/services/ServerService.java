@@ -3,33 +3,69 @@ package client.services;
 import client.exceptions.ServerException;
 import client.utils.SessionHandler;
 import client.utils.SocketThread;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.jakarta.rs.smile.JacksonSmileProvider;
 import commons.*;
+import commons.DTOs.BatchDTO;
+import commons.DTOs.BoardChangesDTO;
+import commons.DTOs.BoardOperationDTO;
+import commons.DTOs.BoardPageDTO;
+import commons.DTOs.BoardSummaryDTO;
 import commons.DTOs.CardDTO;
+import commons.DTOs.CardPatchDTO;
 import commons.DTOs.ColorSchemeDTO;
 import commons.DTOs.SubTaskDTO;
 import commons.DTOs.TagDTO;
 import jakarta.ws.rs.client.Client;
 import jakarta.ws.rs.client.ClientBuilder;
+import jakarta.ws.rs.client.ClientResponseFilter;
 import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.client.WebTarget;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.Response;
 import lombok.Getter;
 import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.MediaType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.messaging.simp.stomp.StompHeaders;
 import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.util.MimeType;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.inject.Singleton;
+import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-
-import static jakarta.ws.rs.core.MediaType.APPLICATION_JSON;
+import java.util.Map;
 
 @Singleton
 public class ServerService {
 
+    private static final int ADMIN_PAGE_SIZE = 100;
+
+    /**
+     * Types the client asks for, Smile is preferred and JSON is the fallback for servers that do not offer Smile
+     */
+    private static final String[] ACCEPTED_TYPES = {WireEncoding.SMILE, WireEncoding.JSON + ";q=0.9"};
+
+    /**
+     * Number of boards whose last response is kept
+     */
+    private static final int BOARD_CACHE_SIZE = 16;
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final ObjectMapper SMILE_MAPPER = new ObjectMapper(new SmileFactory())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
     @Getter
     private URI serverIP;
 
@@ -40,6 +76,33 @@ public class ServerService {
 
     private SocketThread socketThread;
 
+    /**
+     * Whether the server answered in Smile, after which requests and socket messages are sent as Smile as well
+     */
+    private volatile boolean smileAccepted;
+
+    /**
+     * Last response to a board request per join key, with the ETag to revalidate it with.
+     * The bytes are kept instead of the board, since boards are changed in place once they are shown.
+     */
+    private final Map<String, CachedBoard> boardCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(BOARD_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, CachedBoard> eldest) {
+                    return size() > BOARD_CACHE_SIZE;
+                }
+            });
+
+    /**
+     * Response to a board request
+     * @param eTag ETag of the response
+     * @param smile Whether the bytes are Smile instead of JSON
+     * @param bytes Body of the response
+     */
+    private record CachedBoard(String eTag, boolean smile, byte[] bytes) {
+
+    }
+
     /**
      * Initializes client socket in a thread at the given serverIP
      *
@@ -95,45 +158,104 @@ public class ServerService {
      */
     public void setServerIP(final String ip) throws IllegalArgumentException {
         this.serverIP = URI.create(ip);
+        boardCache.clear();
         logger.info("Set IP to: " + serverIP);
     }
 
     /**
-     * Gets a board by join-key
+     * Gets a board by join-key. A board that was fetched before is only sent again by the server if it changed,
+     * otherwise the last response is read again.
      *
      * @param joinKey the join-key used to identify the board
      *
      * @return the board that was retrieved
      */
     public Board getBoard(final String joinKey) throws ServerException {
-        try (Client client = ClientBuilder.newClient()) {
-            final Board board = client.target(serverIP)
+        final CachedBoard cached = boardCache.get(joinKey);
+        try (Client client = newClient();
+             Response response = client.target(serverIP)
                     .path("/boards")
                     .path("/get")
                     .path(joinKey)
-                    .request(APPLICATION_JSON)
-                    .get(Board.class);
+                    .request(ACCEPTED_TYPES)
+                    .header(HttpHeaders.IF_NONE_MATCH, cached == null ? null : cached.eTag())
+                    .get()) {
             logger.info("Board request sent to server: " + joinKey);
-            return board;
+
+            if (cached != null && response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode()) {
+                logger.info("Board " + joinKey + " did not change since it was last fetched");
+                return readBoard(cached);
+            }
+            if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+                boardCache.remove(joinKey);
+                throw new ServerException("The Board couldn't be retrieved from the Server: \n" + getServerIP());
+            }
+
+            final MediaType type = response.getMediaType();
+            final CachedBoard fetched = new CachedBoard(response.getHeaderString(HttpHeaders.ETAG),
+                    type != null && WireEncoding.SMILE.equals(type.getType() + "/" + type.getSubtype()),
+                    response.readEntity(byte[].class));
+            if (fetched.eTag() == null) boardCache.remove(joinKey);
+            else boardCache.put(joinKey, fetched);
+            return readBoard(fetched);
         } catch (ResponseStatusException e) {
             throw new ServerException("The Board couldn't be retrieved from the Server: \n" + getServerIP());
         }
     }
 
     /**
-     * Gets multiple boards by join-keys
-     * @param localBoards the join-keys used to identify the boards
-     * @return the boards that were retrieved
+     * Reads a board from a response to a board request
+     *
+     * @param response the response
+     *
+     * @return a new board read from the response
+     */
+    private Board readBoard(final CachedBoard response) throws ServerException {
+        try {
+            return (response.smile() ? SMILE_MAPPER : JSON_MAPPER).readValue(response.bytes(), Board.class);
+        } catch (IOException e) {
+            throw new ServerException("The Board sent by the Server couldn't be read: \n" + getServerIP());
+        }
+    }
+
+    /**
+     * Gets the changes to a board since a version of it that the client already has
+     *
+     * @param joinKey the join-key used to identify the board
+     * @param since the sequence of the version of the board that the client has
+     *
+     * @return the changes, or the whole board if the server no longer has all of them
      */
-    public List<Board> getAllBoards(final HashMap<String, String> localBoards) throws ServerException {
-        try (Client client = ClientBuilder.newClient()) {
-            final List<Board> boards = client.target(serverIP)
+    public BoardChangesDTO getBoardChanges(final String joinKey, final long since) throws ServerException {
+        try (Client client = newClient()) {
+            final BoardChangesDTO changes = client.target(serverIP)
                     .path("/boards")
-                    .path("/getAll")
-                    .request(APPLICATION_JSON)
-                    .post(Entity.entity(localBoards, APPLICATION_JSON), new GenericType<>() { });
-            logger.info("Board request sent to server: " + localBoards);
-            return boards;
+                    .path("/changes")
+                    .path(joinKey)
+                    .queryParam("since", since)
+                    .request(ACCEPTED_TYPES)
+                    .get(BoardChangesDTO.class);
+            logger.info("Board changes request sent to server: " + joinKey + " since " + since);
+            return changes;
+        } catch (ResponseStatusException e) {
+            throw new ServerException("The Board changes couldn't be retrieved from the Server: \n" + getServerIP());
+        }
+    }
+
+    /**
+     * Gets the summaries of multiple boards by join-keys
+     * @param joinKeys the join-keys used to identify the boards
+     * @return the summaries of the boards that exist
+     */
+    public List<BoardSummaryDTO> getBoardSummaries(final Collection<String> joinKeys) throws ServerException {
+        try (Client client = newClient()) {
+            final List<BoardSummaryDTO> summaries = client.target(serverIP)
+                    .path("/boards")
+                    .path("/summaries")
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(joinKeys), new GenericType<>() { });
+            logger.info("Board summary request sent to server: " + joinKeys);
+            return summaries;
         } catch (ResponseStatusException e) {
             throw new ServerException("The Boards couldn't be retrieved from the Server: \n" + getServerIP());
         }
@@ -147,12 +269,12 @@ public class ServerService {
      * @return the board that was created by the server (with id)
      */
     public Board addBoard(final Board board) throws ServerException {
-        try (Client client = ClientBuilder.newClient()) {
+        try (Client client = newClient()) {
             final Board addedBoard = client.target(serverIP)
                     .path("/boards")
                     .path("/create")
-                    .request(APPLICATION_JSON)
-                    .post(Entity.entity(board, APPLICATION_JSON), Board.class);
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(board), Board.class);
             logger.info("Created board sent to server: " + board.getJoinKey());
             return addedBoard;
         } catch (ResponseStatusException e) {
@@ -160,6 +282,30 @@ public class ServerService {
         }
     }
 
+    /**
+     * Makes a list of changes to a board on the server in one go.
+     * The server applies either all of them or none, and broadcasts them together.
+     *
+     * @param board      the board to change
+     * @param operations the changes to make, in order
+     *
+     * @return the changes as they were logged by the server
+     */
+    public BoardChangesDTO applyBatch(final Board board, final List<BoardOperationDTO> operations) throws ServerException {
+        try (Client client = newClient()) {
+            final BoardChangesDTO changes = client.target(serverIP)
+                    .path("/boards")
+                    .path("/batch")
+                    .path(board.getJoinKey())
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(new BatchDTO(board.getPassword(), operations)), BoardChangesDTO.class);
+            logger.info("Batch of " + operations.size() + " changes sent to server: " + board.getJoinKey());
+            return changes;
+        } catch (RuntimeException e) {
+            throw new ServerException("The changes couldn't be applied on the server.");
+        }
+    }
+
     /**
      * Creates a column on the server
      *
@@ -169,7 +315,7 @@ public class ServerService {
      * @return the column that was created by the server (with id)
      */
     public Column addColumn(final Board board, final Column column) throws ServerException {
-        try (Client client = ClientBuilder.newClient()) {
+        try (Client client = newClient()) {
             final Column addedColumn = client.target(serverIP)
                     .path("/columns")
                     .path("/create")
@@ -177,8 +323,8 @@ public class ServerService {
                     .path(column.getHeading())
                     .path(Long.toString(column.getId()))
                     .queryParam("index", column.getIndex())
-                    .request(APPLICATION_JSON)
-                    .post(Entity.entity(board.getPassword(), APPLICATION_JSON), Column.class);
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(board.getPassword()), Column.class);
             logger.info("Added column sent to server: " + column.getHeading());
             return addedColumn;
         } catch (RuntimeException e) {
@@ -195,14 +341,14 @@ public class ServerService {
      * @return the column that was removed by the server
      */
     public Column removeColumn(final Board board, final Column column) throws ServerException {
-        try (Client client = ClientBuilder.newClient()) {
+        try (Client client = newClient()) {
             final Column removedColumn = client.target(serverIP)
                     .path("/columns")
                     .path("/remove")
                     .path(board.getJoinKey())
                     .path(String.valueOf(column.getId()))
-                    .request(APPLICATION_JSON)
-                    .post(Entity.entity(board.getPassword(), APPLICATION_JSON), Column.class);
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(board.getPassword()), Column.class);
             logger.info("Removed column sent to server: " + column.getHeading());
             return removedColumn;
         } catch (RuntimeException e) {
@@ -220,14 +366,14 @@ public class ServerService {
      * @return the card that was created by the server (with id)
      */
     public Card addCard(final Board board, final Column column, final Card card) throws ServerException {
-        try (Client client = ClientBuilder.newClient()) {
+        try (Client client = newClient()) {
             final Card addedCard = client.target(serverIP)
                     .path("/cards")
                     .path("/add")
                     .path(board.getJoinKey())
                     .path(String.valueOf(column.getId()))
-                    .request(APPLICATION_JSON)
-                    .post(Entity.entity(new CardDTO(card, board.getPassword()), APPLICATION_JSON), Card.class);
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(new CardDTO(card, board.getPassword())), Card.class);
             logger.info("Added card sent to server");
             return addedCard;
         } catch (RuntimeException e) {
@@ -245,14 +391,14 @@ public class ServerService {
      * @return The card that was removed by the server
      */
     public Card removeCard(final Board board, final Column column, final Card card) throws ServerException {
-        try (Client client = ClientBuilder.newClient()) {
+        try (Client client = newClient()) {
             final Card removedCard = client.target(serverIP)
                     .path("/cards")
                     .path("/remove")
                     .path(board.getJoinKey())
                     .path(String.valueOf(column.getId()))
-                    .request(APPLICATION_JSON)
-                    .post(Entity.entity(new CardDTO(card, board.getPassword()), APPLICATION_JSON), Card.class);
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(new CardDTO(card, board.getPassword())), Card.class);
             logger.info("Removed card sent to server");
             return removedCard;
         } catch (RuntimeException e) {
@@ -269,13 +415,13 @@ public class ServerService {
      * @return Tag from server
      */
     public Tag addTagToBoard(final Board board, final Tag tag) {
-        try (Client client = ClientBuilder.newClient()) {
+        try (Client client = newClient()) {
             final Tag addedTag = client.target(serverIP)
                     .path("/tags")
                     .path("/add")
                     .path(board.getJoinKey())
-                    .request(APPLICATION_JSON)
-                    .post(Entity.entity(new TagDTO(tag, board.getPassword()), APPLICATION_JSON), Tag.class);
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(new TagDTO(tag, board.getPassword())), Tag.class);
             logger.info("Added tag to board sent to server");
             return addedTag;
         }
@@ -290,13 +436,13 @@ public class ServerService {
      * @return Tag from server
      */
     public Tag removeTagFromBoard(final Board board, final Tag tag) {
-        try (Client client = ClientBuilder.newClient()) {
+        try (Client client = newClient()) {
             final Tag addedTag = client.target(serverIP)
                     .path("/tags")
                     .path("/remove")
                     .path(board.getJoinKey())
-                    .request(APPLICATION_JSON)
-                    .post(Entity.entity(new TagDTO(tag, board.getPassword()), APPLICATION_JSON), Tag.class);
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(new TagDTO(tag, board.getPassword())), Tag.class);
             logger.info("Removed tag from board sent to server");
             return addedTag;
         }
@@ -309,7 +455,7 @@ public class ServerService {
      * @param tag   Tag to edit
      */
     public void editTag(final Board board, final Tag tag) {
-        session.send("/app/tags/edit/" +
+        send("/app/tags/edit/" +
                         board.getJoinKey(),
                 new TagDTO(tag, board.getPassword()));
         logger.info("Edited tag sent to server");
@@ -325,14 +471,14 @@ public class ServerService {
      * @return Tag from server
      */
     public Tag addTagToCard(final Board board, final Card card, final Tag tag) {
-        try (Client client = ClientBuilder.newClient()) {
+        try (Client client = newClient()) {
             final Tag addedTag = client.target(serverIP)
                     .path("/tags")
                     .path("/addToCard")
                     .path(board.getJoinKey())
                     .path(Long.toString(card.getId()))
-                    .request(APPLICATION_JSON)
-                    .post(Entity.entity(new TagDTO(tag, board.getPassword()), APPLICATION_JSON), Tag.class);
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(new TagDTO(tag, board.getPassword())), Tag.class);
             logger.info("Added tag to card sent to server");
             return addedTag;
         }
@@ -348,14 +494,14 @@ public class ServerService {
      * @return Tag from server
      */
     public Tag removeTagFromCard(final Board board, final Card card, final Tag tag) {
-        try (Client client = ClientBuilder.newClient()) {
+        try (Client client = newClient()) {
             final Tag addedTag = client.target(serverIP)
                     .path("/tags")
                     .path("/removeFromCard")
                     .path(board.getJoinKey())
                     .path(Long.toString(card.getId()))
-                    .request(APPLICATION_JSON)
-                    .post(Entity.entity(new TagDTO(tag, board.getPassword()), APPLICATION_JSON), Tag.class);
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(new TagDTO(tag, board.getPassword())), Tag.class);
             logger.info("Removed tag from card sent to server");
             return addedTag;
         }
@@ -374,7 +520,7 @@ public class ServerService {
                                final Card card, final int newPosition) throws ServerException
     {
         try {
-            session.send("/app/cards/reposition/" +
+            send("/app/cards/reposition/" +
                             board.getJoinKey() + "/" +
                             column.getId() + "/" +
                             destinationColumn.getId() + "/" +
@@ -387,18 +533,16 @@ public class ServerService {
     }
 
     /**
-     * Edits the contents of a card by posting a request to editCard endpoint on server
+     * Edits the contents of a card by sending only the edited fields to the editCard endpoint on server
      *
      * @param board  Board for joinKey
-     * @param card   Card to edit
-     * @param column Column card is in
+     * @param patch  Edited fields of the card
      */
-    public void editCard(final Board board, final Card card, final Column column) throws ServerException {
+    public void editCard(final Board board, final CardPatchDTO patch) throws ServerException {
         try {
-            session.send("/app/cards/edit/" +
-                            board.getJoinKey() + "/" +
-                            column.getId(),
-                    new CardDTO(card, board.getPassword()));
+            send("/app/cards/patch/" +
+                            board.getJoinKey(),
+                    patch.withPassword(board.getPassword()));
             logger.info("Edited card sent to server");
         } catch (RuntimeException e) {
             throw new ServerException("The Card couldn't be edited on the Server: \n" + getServerIP());
@@ -414,7 +558,7 @@ public class ServerService {
      */
     public void renameColumn(final Board board, final Column column, final String newName) {
         try {
-            session.send("/app/columns/rename/" +
+            send("/app/columns/rename/" +
                             board.getJoinKey() + "/" +
                             column.getId() + "/" +
                             newName,
@@ -437,19 +581,19 @@ public class ServerService {
     /**
      * Deletes a board server-side
      *
-     * @param board Board to delete
+     * @param joinKey Join key of the board to delete
      *
      * @return True if successful
      */
-    public boolean deleteBoard(final Board board) {
-        try (Client client = ClientBuilder.newClient()) {
+    public boolean deleteBoard(final String joinKey) {
+        try (Client client = newClient()) {
             final Response response = client.target(serverIP)
                     .path("/boards")
                     .path("/delete")
-                    .path(board.getJoinKey())
-                    .request(APPLICATION_JSON)
+                    .path(joinKey)
+                    .request(ACCEPTED_TYPES)
                     .delete();
-            logger.info("Requested to delete board with join-key: " + board.getJoinKey());
+            logger.info("Requested to delete board with join-key: " + joinKey);
             return response.getStatus() == 200;
         }
     }
@@ -462,7 +606,7 @@ public class ServerService {
      */
     public void renameBoard(final Board board, final String newName) {
         try {
-            session.send("/app/boards/rename/" +
+            send("/app/boards/rename/" +
                             board.getJoinKey() + "/" +
                             newName,
                     board.getPassword());
@@ -480,12 +624,12 @@ public class ServerService {
      * @return correct/incorrect
      */
     public boolean verifyAdminPassword(final String adminPassword) {
-        try (Client client = ClientBuilder.newClient()) {
+        try (Client client = newClient()) {
             final Boolean isValid = client.target(serverIP)
                     .path("admin")
                     .path("verify")
-                    .request(APPLICATION_JSON)
-                    .post(Entity.entity(adminPassword, APPLICATION_JSON), Boolean.class);
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(adminPassword), Boolean.class);
             logger.info("Attempting to switch to god mode...\nPassword is valid ? " + isValid);
             return isValid != null && isValid;
         }
@@ -493,19 +637,27 @@ public class ServerService {
 
 
     /**
-     * Gets all boards from the server
+     * Gets all boards from the server, one page at a time
      *
      * @return the boards that were retrieved
      */
     public List<Board> adminGetAllBoards() {
-        try (Client client = ClientBuilder.newClient()) {
-            final List<Board> boards = client.target(serverIP)
-                    .path("/admin")
-                    .path("/getAllBoards")
-                    .request(APPLICATION_JSON)
-                    .get(new GenericType<>() {
-                    });
-            logger.info("(admin) Sending request to server to get all boards");
+        try (Client client = newClient()) {
+            final List<Board> boards = new ArrayList<>();
+            BoardPageDTO page = null;
+            do {
+                WebTarget target = client.target(serverIP)
+                        .path("/admin")
+                        .path("/boards")
+                        .queryParam("limit", ADMIN_PAGE_SIZE);
+                if (page != null) {
+                    target = target.queryParam("afterCreated", page.nextCreated())
+                            .queryParam("afterJoinKey", page.nextJoinKey());
+                }
+                logger.info("(admin) Sending request to server to get a page of boards");
+                page = target.request(ACCEPTED_TYPES).get(BoardPageDTO.class);
+                boards.addAll(page.boards());
+            } while (page.nextJoinKey() != null);
             return boards;
         }
     }
@@ -514,10 +666,10 @@ public class ServerService {
      * Checks if the server is responding
      */
     public void checkConnection() {
-        try (Client client = ClientBuilder.newClient()) {
+        try (Client client = newClient()) {
             final Response response = client.target(serverIP)
                     .path("/checkConnection")
-                    .request(APPLICATION_JSON)
+                    .request(ACCEPTED_TYPES)
                     .get();
             logger.info("Checking connection to server");
             if (response.getStatus() != 200) {
@@ -527,28 +679,23 @@ public class ServerService {
     }
 
     /**
-     * Gets all users from the server using long polling
+     * Waits until one of the boards is deleted or renamed, using long polling.
+     * The server holds the request until a board changes or its timeout ends.
      *
-     * @param boards List of boards to check
+     * @param boards Join keys of the boards to watch, with the title that is shown for each
      *
-     * @return List of boards that are still active
+     * @return the boards that changed with their new title, or null as title if they were deleted;
+     *         empty if nothing changed
      */
-    public List<String> getBoardsStatus(final List<String> boards) {
-        try (Client client = ClientBuilder.newClient()) {
-            final HashMap<String, Boolean> existingBoards = client.target(serverIP)
+    public HashMap<String, String> getBoardsStatus(final Map<String, String> boards) {
+        try (Client client = newClient()) {
+            logger.info("(long polling) Sending request to server to get status of boards");
+            return client.target(serverIP)
                     .path("/home")
                     .path("/getBoardsStatus")
-                    .request(APPLICATION_JSON)
-                    .post(Entity.entity(boards, APPLICATION_JSON), new GenericType<>() {
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(new HashMap<>(boards)), new GenericType<>() {
                     });
-            final List<String> activeBoards = new ArrayList<>();
-            for (final String board : boards) {
-                if (existingBoards.get(board)) {
-                    activeBoards.add(board);
-                }
-            }
-            logger.info("(long polling) Sending request to server to get status of boards");
-            return activeBoards;
         }
     }
 
@@ -562,17 +709,17 @@ public class ServerService {
      * @return added subtask
      */
     public SubTask addSubTask(final Board currentBoard, final Card card, final String description) {
-        try (Client client = ClientBuilder.newClient()) {
+        try (Client client = newClient()) {
             final SubTask subTask = client.target(serverIP)
                     .path("/subtasks")
                     .path("/add")
                     .path(currentBoard.getJoinKey())
-                    .request(APPLICATION_JSON)
-                    .post(Entity.entity(new SubTaskDTO(
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(new SubTaskDTO(
                             new SubTask(description, false),
                             card.getId(),
                             currentBoard.getPassword()
-                    ), APPLICATION_JSON), SubTask.class);
+                    )), SubTask.class);
             logger.info("Add SubTask to card sent to server");
             return subTask;
         }
@@ -588,18 +735,18 @@ public class ServerService {
      * @return removed subtask
      */
     public SubTask removeSubTask(final Board currentBoard, final Card card, final SubTask subTask) {
-        try (Client client = ClientBuilder.newClient()) {
+        try (Client client = newClient()) {
             final SubTask returnedSubTask = client.target(serverIP)
                     .path("/subtasks")
                     .path("/remove")
                     .path(currentBoard.getJoinKey())
-                    .request(APPLICATION_JSON)
-                    .post(Entity.entity(
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(
                             new SubTaskDTO(
                                     subTask,
                                     card.getId(),
                                     currentBoard.getPassword()
-                            ), APPLICATION_JSON), SubTask.class);
+                            )), SubTask.class);
             logger.info("Remove SubTask from card sent to server");
             return returnedSubTask;
         }
@@ -615,18 +762,18 @@ public class ServerService {
      * @return toggled subtask
      */
     public SubTask toggleSubTask(final Board currentBoard, final Card card, final SubTask subTask) {
-        try (Client client = ClientBuilder.newClient()) {
+        try (Client client = newClient()) {
             final SubTask resultSubTask = client.target(serverIP)
                     .path("/subtasks")
                     .path("/toggle")
                     .path(currentBoard.getJoinKey())
-                    .request(APPLICATION_JSON)
-                    .post(Entity.entity(
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(
                             new SubTaskDTO(
                                     subTask,
                                     card.getId(),
                                     currentBoard.getPassword()
-                            ), APPLICATION_JSON), SubTask.class);
+                            )), SubTask.class);
             logger.info("Toggle SubTask sent to server");
             return resultSubTask;
         }
@@ -642,7 +789,7 @@ public class ServerService {
      */
     public void moveSubTask(final Board currentBoard, final Card card, final SubTask subTask, final int index) {
         try {
-            session.send("/app/subtasks/move/" +
+            send("/app/subtasks/move/" +
                             currentBoard.getJoinKey(),
                     new SubTaskDTO(
                             subTask,
@@ -663,7 +810,7 @@ public class ServerService {
      * @param subTask    to be edited
      */
     public void editSubTask(final Board currentBoard, final Card card, final SubTask subTask) {
-        session.send("/app/subtasks/edit/" +
+        send("/app/subtasks/edit/" +
                         currentBoard.getJoinKey(),
                 new SubTaskDTO(subTask, card.getId(), currentBoard.getPassword()));
         logger.info("Edited sub task sent to server");
@@ -678,13 +825,13 @@ public class ServerService {
      * @return removed color preset
      */
     public ColorScheme removeColorPresetFromBoard(final Board currentBoard, final ColorScheme colorPreset) {
-        try (Client client = ClientBuilder.newClient()) {
+        try (Client client = newClient()) {
             final ColorScheme addedColorScheme = client.target(serverIP)
                     .path("/color-presets")
                     .path("/remove")
                     .path(currentBoard.getJoinKey())
-                    .request(APPLICATION_JSON)
-                    .post(Entity.entity(new ColorSchemeDTO(colorPreset, currentBoard.getPassword()), APPLICATION_JSON), ColorScheme.class);
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(new ColorSchemeDTO(colorPreset, currentBoard.getPassword())), ColorScheme.class);
             logger.info("Removed color preset from board sent to server");
             return addedColorScheme;
         }
@@ -699,13 +846,13 @@ public class ServerService {
      * @return added color preset
      */
     public ColorScheme addColorPresetToBoard(final Board currentBoard, final ColorScheme colorPreset) {
-        try (Client client = ClientBuilder.newClient()) {
+        try (Client client = newClient()) {
             final ColorScheme addedColorScheme = client.target(serverIP)
                     .path("/color-presets")
                     .path("/add")
                     .path(currentBoard.getJoinKey())
-                    .request(APPLICATION_JSON)
-                    .post(Entity.entity(new ColorSchemeDTO(colorPreset, currentBoard.getPassword()), APPLICATION_JSON), ColorScheme.class);
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(new ColorSchemeDTO(colorPreset, currentBoard.getPassword())), ColorScheme.class);
             logger.info("Added color preset to board sent to server");
             return addedColorScheme;
         }
@@ -718,7 +865,7 @@ public class ServerService {
      * @param colorPreset  color preset being edited
      */
     public void editColorPreset(final Board currentBoard, final ColorScheme colorPreset) {
-        session.send("/app/color-presets/edit/" +
+        send("/app/color-presets/edit/" +
                         currentBoard.getJoinKey(),
                 new ColorSchemeDTO(colorPreset, currentBoard.getPassword()));
         logger.info("Edited color preset sent to server");
@@ -731,7 +878,7 @@ public class ServerService {
      * @param colorPreset  color preset being set as default
      */
     public void setDefaultColorPresetCard(final Board currentBoard, final ColorScheme colorPreset) {
-        session.send("/app/color-presets/set-card/" +
+        send("/app/color-presets/set-card/" +
                         currentBoard.getJoinKey(),
                 new ColorSchemeDTO(colorPreset, currentBoard.getPassword()));
         logger.info("Default color preset for cards sent to server");
@@ -744,7 +891,7 @@ public class ServerService {
      * @param colorPreset  color preset being set as default
      */
     public void setDefaultColorPresetColumn(final Board currentBoard, final ColorScheme colorPreset) {
-        session.send("/app/color-presets/set-column/" +
+        send("/app/color-presets/set-column/" +
                         currentBoard.getJoinKey(),
                 new ColorSchemeDTO(colorPreset, currentBoard.getPassword()));
         logger.info("Default color preset for columns sent to server");
@@ -757,7 +904,7 @@ public class ServerService {
      * @param colorPreset  color preset being set as default
      */
     public void setDefaultColorPresetBoard(final Board currentBoard, final ColorScheme colorPreset) {
-        session.send("/app/color-presets/set-board/" +
+        send("/app/color-presets/set-board/" +
                         currentBoard.getJoinKey(),
                 new ColorSchemeDTO(colorPreset, currentBoard.getPassword()));
         logger.info("Default color preset for board sent to server");
@@ -770,15 +917,55 @@ public class ServerService {
      * @return true if password was set successfully
      */
     public boolean setPasswordForCurrentBoard(final Board currentBoard, final String password) {
-        try (Client client = ClientBuilder.newClient()) {
+        try (Client client = newClient()) {
             final Response resp = client.target(serverIP)
                     .path("/boards")
                     .path("/set-password")
                     .path(currentBoard.getJoinKey())
-                    .request(APPLICATION_JSON)
-                    .post(Entity.entity(password, APPLICATION_JSON));
+                    .request(ACCEPTED_TYPES)
+                    .post(entity(password));
             logger.info("Set password for board sent to server");
             return resp.getStatus() == 200;
         }
     }
+
+    /**
+     * Creates a client that can read and write Smile as well as JSON
+     *
+     * @return the client
+     */
+    private Client newClient() {
+        return ClientBuilder.newClient()
+                .register(JacksonSmileProvider.class)
+                .register((ClientResponseFilter) (request, response) -> {
+                    final MediaType type = response.getMediaType();
+                    if (type != null && WireEncoding.SMILE.equals(type.getType() + "/" + type.getSubtype()))
+                        smileAccepted = true;
+                });
+    }
+
+    /**
+     * Wraps the body of a request in the encoding that the server understands.
+     * Strings are sent as they are, since the server reads them without a converter.
+     *
+     * @param body Body of the request
+     * @param <T> Type of the body
+     * @return the entity to post
+     */
+    private <T> Entity<T> entity(final T body) {
+        return Entity.entity(body, smileAccepted && !(body instanceof String) ? WireEncoding.SMILE : WireEncoding.JSON);
+    }
+
+    /**
+     * Sends a message over the socket, as Smile if the server has shown that it understands Smile
+     *
+     * @param destination Destination of the message
+     * @param payload     Payload of the message
+     */
+    private void send(final String destination, final Object payload) {
+        final StompHeaders headers = new StompHeaders();
+        headers.setDestination(destination);
+        headers.setContentType(MimeType.valueOf(smileAccepted && !(payload instanceof String) ? WireEncoding.SMILE_FRAME : WireEncoding.JSON));
+        session.send(headers, payload);
+    }
 }
@@ -3,10 +3,13 @@ package client.utils;
 import client.exceptions.BoardChangeException;
 import client.services.BoardService;
 import client.services.ServerService;
+import commons.BoardEventType;
 import commons.Card;
 import commons.ColorScheme;
 import commons.Column;
+import commons.DTOs.BoardChangesDTO;
 import commons.DTOs.CardDTO;
+import commons.DTOs.CardPatchDTO;
 import commons.DTOs.ColumnDTO;
 import commons.DTOs.SubTaskDTO;
 import commons.DTOs.TagDTO;
@@ -16,6 +19,7 @@ import javafx.application.Platform;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.lang.Nullable;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
 import org.springframework.messaging.simp.stomp.StompHeaders;
 import org.springframework.messaging.simp.stomp.StompSession;
 import org.springframework.messaging.simp.stomp.StompSession.Subscription;
@@ -33,6 +37,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
 
     private StompSession session;
     private List<Subscription> subscriptions;
+    private String subscribedJoinKey;
 
     private final ServerService serverService;
 
@@ -73,6 +78,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
         // Unsubscribes from previous board, so that unnecessary traffic is avoided
         for (final Subscription subscription : subscriptions) subscription.unsubscribe();
         subscriptions.clear();
+        subscribedJoinKey = joinKey;
 
         subscribeToBoardUpdates(joinKey);
 
@@ -92,8 +98,29 @@ public class SessionHandler extends StompSessionHandlerAdapter {
         logger.info("Subscribed to board: " + joinKey);
     }
 
+    /**
+     * Subscribes to a topic of the current board. Every change that is received also moves the current board
+     * to the sequence of that change, so that only later changes have to be fetched when the board is opened again.
+     * @param destination the topic to subscribe to
+     * @param handler handles the changes that are received
+     * @return the subscription
+     */
+    private Subscription subscribe(final String destination, final StompFrameHandler handler) {
+        final String joinKey = subscribedJoinKey;
+        return session.subscribe(destination, new StompFrameHandler() {
+            public Type getPayloadType(final StompHeaders headers) { return handler.getPayloadType(headers); }
+
+            public void handleFrame(final StompHeaders headers, final Object payload) {
+                handler.handleFrame(headers, payload);
+                final String sequence = headers.getFirst(BoardEventType.SEQUENCE_HEADER);
+                if (sequence != null)
+                    Platform.runLater(() -> boardService.setCurrentBoardSequence(joinKey, Long.parseLong(sequence)));
+            }
+        });
+    }
+
     private void subscribeToBoardUpdates(final String joinKey) {
-        final Subscription boardRenameSub = session.subscribe(
+        final Subscription boardRenameSub = subscribe(
             "/topic/boards/" + joinKey + "/rename", new StompSessionHandlerAdapter() {
                 public Type getPayloadType(final StompHeaders headers) {  return String.class; }
 
@@ -105,7 +132,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
             });
         subscriptions.add(boardRenameSub);
 
-        final Subscription boardPasswordSub = session.subscribe(
+        final Subscription boardPasswordSub = subscribe(
                 "/topic/boards/" + joinKey + "/set-password", new StompSessionHandlerAdapter() {
                     public Type getPayloadType(final StompHeaders headers) {  return String.class; }
 
@@ -116,10 +143,36 @@ public class SessionHandler extends StompSessionHandlerAdapter {
                         }); }
                 });
         subscriptions.add(boardPasswordSub);
+
+        final Subscription boardBatchSub = subscribe(
+                "/topic/boards/" + joinKey + "/batch", new StompSessionHandlerAdapter() {
+                    public Type getPayloadType(final StompHeaders headers) {  return BoardChangesDTO.class; }
+
+                    public void handleFrame(final StompHeaders headers, final Object payload) {
+                        Platform.runLater( () -> {
+                            final BoardChangesDTO changes = (BoardChangesDTO) payload;
+                            boardService.updateApplyBatch(changes);
+                            logger.info("Batch of " + changes.events().size() + " changes applied to board: " + changes.joinKey());
+                        }); }
+                });
+        subscriptions.add(boardBatchSub);
+
+        // sent by the server when it had to drop changes for this client since it could not keep up
+        final Subscription boardResyncSub = subscribe(
+                "/topic/boards/" + joinKey + "/resync", new StompSessionHandlerAdapter() {
+                    public Type getPayloadType(final StompHeaders headers) {  return String.class; }
+
+                    public void handleFrame(final StompHeaders headers, final Object payload) {
+                        Platform.runLater( () -> {
+                            boardService.updateResyncBoard((String) payload);
+                            logger.info("Board reloaded after missed changes: " + payload);
+                        }); }
+                });
+        subscriptions.add(boardResyncSub);
     }
 
     private void subscribeToCardChangeUpdates(final String joinKey) {
-        final Subscription cardRepositionedSub = session.subscribe(
+        final Subscription cardRepositionedSub = subscribe(
             "/topic/cards/" + joinKey + "/reposition", new StompSessionHandlerAdapter() {
                 public Type getPayloadType(final StompHeaders headers) { return CardDTO.class; }
 
@@ -137,16 +190,16 @@ public class SessionHandler extends StompSessionHandlerAdapter {
             });
         subscriptions.add(cardRepositionedSub);
 
-        final Subscription cardEditedSub = session.subscribe(
-            "/topic/cards/" + joinKey + "/edit", new StompSessionHandlerAdapter() {
-                public Type getPayloadType(final StompHeaders headers) { return CardDTO.class; }
+        final Subscription cardEditedSub = subscribe(
+            "/topic/cards/" + joinKey + "/patch", new StompSessionHandlerAdapter() {
+                public Type getPayloadType(final StompHeaders headers) { return CardPatchDTO.class; }
 
                 public void handleFrame(final StompHeaders headers, final Object payload) {
                     Platform.runLater(() -> {
-                        final CardDTO cardDTO = (CardDTO) payload;
+                        final CardPatchDTO patch = (CardPatchDTO) payload;
                         try {
-                            boardService.updateEditCard(cardDTO.getCard());
-                            logger.info("Card edited: " + cardDTO.getCard().getTitle());
+                            boardService.updateEditCard(patch);
+                            logger.info("Card edited: " + patch.cardId());
                         }
                         catch (Exception e) {
                             logger.info("Couldn't edit card");
@@ -164,7 +217,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
      * @param joinKey String for board
      */
     public void subscribeToCardExistenceUpdates(final String joinKey) {
-        final Subscription cardAddedSub = session.subscribe(
+        final Subscription cardAddedSub = subscribe(
             "/topic/cards/" + joinKey + "/add", new StompSessionHandlerAdapter() {
                 public Type getPayloadType(final StompHeaders headers) { return CardDTO.class; }
 
@@ -181,7 +234,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
             });
         subscriptions.add(cardAddedSub);
 
-        final Subscription cardRemovedSub = session.subscribe(
+        final Subscription cardRemovedSub = subscribe(
             "/topic/cards/" + joinKey + "/remove", new StompSessionHandlerAdapter() {
                 public Type getPayloadType(final StompHeaders headers) { return CardDTO.class; }
 
@@ -201,7 +254,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
     }
 
     private void subscribeToColumnUpdates(final String joinKey) {
-        final Subscription columnAddedSub = session.subscribe(
+        final Subscription columnAddedSub = subscribe(
             "/topic/columns/" + joinKey + "/add", new StompSessionHandlerAdapter()  {
                 public Type getPayloadType(final StompHeaders headers) {  return Column.class; }
 
@@ -217,7 +270,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
             });
         subscriptions.add(columnAddedSub);
 
-        final Subscription columnRenamedSub = session.subscribe(
+        final Subscription columnRenamedSub = subscribe(
             "/topic/columns/" + joinKey + "/rename", new StompSessionHandlerAdapter() {
                 public Type getPayloadType(final StompHeaders headers) { return ColumnDTO.class; }
 
@@ -233,7 +286,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
             });
         subscriptions.add(columnRenamedSub);
 
-        final Subscription columnRemovedSub = session.subscribe(
+        final Subscription columnRemovedSub = subscribe(
             "/topic/columns/" + joinKey + "/remove", new StompSessionHandlerAdapter() {
                 public Type getPayloadType(final StompHeaders headers) { return Long.class; }
 
@@ -250,7 +303,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
     }
 
     private void subscribeToTagBoardUpdates(final String joinKey) {
-        final Subscription tagRemovedFromBoard = session.subscribe(
+        final Subscription tagRemovedFromBoard = subscribe(
             "/topic/tags/" + joinKey + "/remove", new StompSessionHandlerAdapter() {
                 public Type getPayloadType(final StompHeaders headers) { return Tag.class; }
 
@@ -264,7 +317,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
             });
         subscriptions.add(tagRemovedFromBoard);
 
-        final Subscription tagAddedToBoard = session.subscribe(
+        final Subscription tagAddedToBoard = subscribe(
             "/topic/tags/" + joinKey + "/add", new StompSessionHandlerAdapter() {
                 public Type getPayloadType(final StompHeaders headers) { return Tag.class; }
 
@@ -279,7 +332,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
             });
         subscriptions.add(tagAddedToBoard);
 
-        final Subscription tagEdited = session.subscribe(
+        final Subscription tagEdited = subscribe(
             "/topic/tags/" + joinKey + "/edit", new StompSessionHandlerAdapter() {
                 public Type getPayloadType(final StompHeaders headers) { return Tag.class; }
 
@@ -296,7 +349,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
     }
 
     private void subscribeToColorPresetUpdates(final String joinKey) {
-        final Subscription defaultColorPresetBoard = session.subscribe(
+        final Subscription defaultColorPresetBoard = subscribe(
                 "/topic/color-presets/" + joinKey + "/set-board", new StompSessionHandlerAdapter() {
                     public Type getPayloadType(final StompHeaders headers) { return ColorScheme.class; }
 
@@ -311,7 +364,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
                 });
         subscriptions.add(defaultColorPresetBoard);
 
-        final Subscription defaultColorPresetColumn = session.subscribe(
+        final Subscription defaultColorPresetColumn = subscribe(
                 "/topic/color-presets/" + joinKey + "/set-column", new StompSessionHandlerAdapter() {
                     public Type getPayloadType(final StompHeaders headers) { return ColorScheme.class; }
 
@@ -326,7 +379,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
                 });
         subscriptions.add(defaultColorPresetColumn);
 
-        final Subscription defaultColorPresetCard = session.subscribe(
+        final Subscription defaultColorPresetCard = subscribe(
                 "/topic/color-presets/" + joinKey + "/set-card", new StompSessionHandlerAdapter() {
                     public Type getPayloadType(final StompHeaders headers) { return ColorScheme.class; }
 
@@ -343,7 +396,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
     }
 
     private void subscribeToDefaultColorPresetUpdates(final String joinKey) {
-        final Subscription colorPresetRemovedFromBoard = session.subscribe(
+        final Subscription colorPresetRemovedFromBoard = subscribe(
                 "/topic/color-presets/" + joinKey + "/remove", new StompSessionHandlerAdapter() {
                     public Type getPayloadType(final StompHeaders headers) { return ColorScheme.class; }
 
@@ -357,7 +410,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
                 });
         subscriptions.add(colorPresetRemovedFromBoard);
 
-        final Subscription colorPresetAddedToBoard = session.subscribe(
+        final Subscription colorPresetAddedToBoard = subscribe(
                 "/topic/color-presets/" + joinKey + "/add", new StompSessionHandlerAdapter() {
                     public Type getPayloadType(final StompHeaders headers) { return ColorScheme.class; }
 
@@ -372,7 +425,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
                 });
         subscriptions.add(colorPresetAddedToBoard);
 
-        final Subscription colorPresetEdited = session.subscribe(
+        final Subscription colorPresetEdited = subscribe(
                 "/topic/color-presets/" + joinKey + "/edit", new StompSessionHandlerAdapter() {
                     public Type getPayloadType(final StompHeaders headers) { return ColorScheme.class; }
 
@@ -391,7 +444,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
     }
 
     private void subscribeToTagCardUpdates(final String joinKey) {
-        final Subscription tagRemovedFromCardSub = session.subscribe(
+        final Subscription tagRemovedFromCardSub = subscribe(
             "/topic/tags/" + joinKey + "/removeFromCard", new StompSessionHandlerAdapter() {
                 public Type getPayloadType(final StompHeaders headers) { return TagDTO.class; }
 
@@ -414,7 +467,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
             });
         subscriptions.add(tagRemovedFromCardSub);
 
-        final Subscription tagAddedToCardSub = session.subscribe(
+        final Subscription tagAddedToCardSub = subscribe(
             "/topic/tags/" + joinKey + "/addToCard", new StompSessionHandlerAdapter() {
                 public Type getPayloadType(final StompHeaders headers) { return TagDTO.class; }
 
@@ -454,7 +507,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
     }
 
     private Subscription addSubscriptionForSubTaskEdit(final String joinKey) {
-        return session.subscribe(
+        return subscribe(
                 "/topic/subtasks/" + joinKey + "/edit", new StompSessionHandlerAdapter() {
                     @Override
                     public Type getPayloadType(final StompHeaders headers) {
@@ -481,7 +534,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
     }
 
     private Subscription addSubscriptionForSubTaskMoving(final String joinKey) {
-        return session.subscribe(
+        return subscribe(
                 "/topic/subtasks/" + joinKey + "/move", new StompSessionHandlerAdapter() {
                     @Override
                     public Type getPayloadType(final StompHeaders headers) {
@@ -508,7 +561,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
     }
 
     private Subscription addSubscriptionForSubTaskAddition(final String joinKey) {
-        return session.subscribe(
+        return subscribe(
                 "/topic/subtasks/" + joinKey + "/add", new StompSessionHandlerAdapter() {
                     @Override
                     public Type getPayloadType(final StompHeaders headers) {
@@ -536,7 +589,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
 
     // split because of method length restrictions
     private Subscription addSubscriptionForSubTaskToggleSub(final String joinKey) {
-        return session.subscribe(
+        return subscribe(
                 "/topic/subtasks/" + joinKey + "/toggle", new StompSessionHandlerAdapter() {
                     @Override
                     public Type getPayloadType(final StompHeaders headers) {
@@ -563,7 +616,7 @@ public class SessionHandler extends StompSessionHandlerAdapter {
     }
 
     private Subscription addSubscriptionForSubTaskRemoval(final String joinKey) {
-        return session.subscribe(
+        return subscribe(
                 "/topic/subtasks/" + joinKey + "/remove", new StompSessionHandlerAdapter() {
                     @Override
                     public Type getPayloadType(final StompHeaders headers) {
@@ -3,6 +3,10 @@ package client.utils;
 
 import client.services.BoardService;
 import client.services.ServerService;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import commons.WireEncoding;
 import lombok.Getter;
 
 
@@ -10,6 +14,9 @@ import org.springframework.messaging.converter.CompositeMessageConverter;
 import org.springframework.messaging.converter.MappingJackson2MessageConverter;
 import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.util.MimeType;
+import org.springframework.web.socket.WebSocketHttpHeaders;
 import org.springframework.web.socket.client.WebSocketClient;
 import org.springframework.web.socket.client.standard.StandardWebSocketClient;
 import org.springframework.web.socket.messaging.WebSocketStompClient;
@@ -60,13 +67,29 @@ public class SocketThread implements  Runnable {
         this.stompClient = new WebSocketStompClient(webSocketClient);
 
         final List<MessageConverter> converters = new ArrayList<MessageConverter>();
+        converters.add(smileConverter()); // used to handle messages marked as smile
         converters.add(new MappingJackson2MessageConverter()); // used to handle json messages
         converters.add(new StringMessageConverter()); // used to handle raw strings
 
         stompClient.setMessageConverter(new CompositeMessageConverter(converters));
 
-        stompClient.connect(server, sessionHandler);
+        // the server sends the messages of the board as smile once it knows that the client can read them
+        final StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add(WireEncoding.ACCEPT_HEADER, WireEncoding.SMILE);
+        stompClient.connect(server, new WebSocketHttpHeaders(), connectHeaders, sessionHandler);
 
         while (runningFlag.get()) { }
     }
+
+    /**
+     * Creates the converter for frames holding Smile. It only takes frames that are marked as Smile,
+     * so that JSON frames are left to the JSON converter.
+     * @return the converter
+     */
+    private static MessageConverter smileConverter() {
+        final MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter(MimeType.valueOf(WireEncoding.SMILE_FRAME));
+        converter.setObjectMapper(new ObjectMapper(new SmileFactory()).configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false));
+        converter.setStrictContentTypeMatch(true);
+        return converter;
+    }
 }
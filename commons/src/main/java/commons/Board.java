@@ -1,5 +1,6 @@
 package commons;
 
+import commons.DTOs.CardPatchDTO;
 import commons.exceptions.CardNotFoundException;
 import commons.exceptions.ColumnNotFoundException;
 import lombok.Getter;
@@ -10,12 +11,34 @@ import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Size;
 import java.sql.Timestamp;
 import java.util.*;
+import java.util.stream.Collectors;
 
 @Entity
+@NamedEntityGraph(name = "Board.render", attributeNodes = {
+    @NamedAttributeNode("columns"),
+    @NamedAttributeNode("columnColorScheme"),
+    @NamedAttributeNode("boardColorScheme"),
+    @NamedAttributeNode("cardColorScheme")
+})
 public class Board {
     @Id
     @Getter
     private String joinKey;
+
+    // incremented on every write, so that saving an outdated copy of the board fails
+    @Version
+    @Getter
+    private long version;
+
+    // number of the last logged event that this state of the board contains
+    @Getter @Setter
+    private long sequence;
+
+    // number of the last event in the log of the board, only written together with the event itself,
+    // so that a board whose saved state lags behind its log can be recognized when it is loaded
+    @Getter @Setter
+    @javax.persistence.Column(updatable = false)
+    private long loggedSequence;
     @Getter
     private final Timestamp created;
     @NotBlank
@@ -24,11 +47,20 @@ public class Board {
     @Getter @Setter
     @Size(min = 1) // A password cannot be empty, but it can be null (non-existent).
     private String password;
-    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @OrderBy("index")
-    @Getter @Setter
+    @Getter
     private SortedSet<Column> columns;
 
+    // columns by id and by index, and the column of every card by card id. They are built on the first lookup
+    // and kept up to date by the methods that add and remove columns and cards; a lookup that misses rebuilds them
+    private transient LongMap<Column> columnIndex;
+    private transient LongMap<Column> columnPositions;
+    private transient LongMap<Column> cardOwners;
+
+    // cards that use each tag, by tag id. Built on first use and kept up to date as cards and their tags change
+    private transient LongMap<Set<Card>> tagCards;
+
     @Getter @Setter
     @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
     private ColorScheme columnColorScheme;
@@ -41,12 +73,12 @@ public class Board {
     @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
     private ColorScheme cardColorScheme;
 
-    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @Getter
     @Setter
     private Set<Tag> tags;
 
-    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @Getter
     private Set<ColorScheme> colorPresets;
 
@@ -170,16 +202,28 @@ public class Board {
      * @return The column with the id {@code columnId}
      */
     public Column getColumnById(final long columnId) throws ColumnNotFoundException {
-
-        for (final Column column : this.columns) {
-            if (column.getId() == columnId) {
-                return column;
-            }
+        Column column = columnIndex().get(columnId);
+        if (column == null || column.getId() != columnId) {
+            columnIndex = null;
+            column = columnIndex().get(columnId);
         }
+        if (column != null) return column;
 
         throw new ColumnNotFoundException("Column not found");
     }
 
+    /**
+     * Replaces the columns of the board
+     * @param columns The new columns of the board
+     */
+    public void setColumns(final SortedSet<Column> columns) {
+        this.columns = columns;
+        this.columnIndex = null;
+        this.columnPositions = null;
+        this.cardOwners = null;
+        this.tagCards = null;
+    }
+
     /**
      * Adds a card to the column with the name {@code columnName} in the current board
      * @param card The card to add
@@ -201,7 +245,15 @@ public class Board {
      * @return success/failure
      */
     public boolean addColumn(final Column column) {
-        return column != null && this.columns.add(column);
+        if (column == null || !this.columns.add(column)) return false;
+
+        column.setBoard(this);
+        if (columnIndex != null) columnIndex.put(column.getId(), column);
+        columnPositions = null;
+        if (cardOwners != null && column.getCards() != null)
+            for (final Card card : column.getCards()) cardOwners.put(card.getId(), column);
+        tagCards = null;
+        return true;
     }
 
     /**
@@ -214,7 +266,15 @@ public class Board {
      * @return success/failure
      */
     public boolean removeColumn(final Column column) {
-        return column != null && this.columns.remove(column);
+        if (column == null || !this.columns.remove(column)) return false;
+
+        column.setBoard(null);
+        if (columnIndex != null) columnIndex.remove(column.getId());
+        columnPositions = null;
+        if (cardOwners != null && column.getCards() != null)
+            for (final Card card : column.getCards()) cardOwners.remove(card.getId());
+        tagCards = null;
+        return true;
     }
 
 
@@ -269,13 +329,13 @@ public class Board {
      * @return The card with the id {@code cardId} or null if not found
      */
     public Card getCard(final long cardId) throws CardNotFoundException {
-        for (final Column column : this.columns) {
-            for (final Card card : column.getCards()) {
-                if (card.getId() == cardId) {
-                    return card;
-                }
-            }
+        Card card = findCard(cardId);
+        if (card == null) {
+            // the card may have been added or moved without going through its column
+            cardOwners = null;
+            card = findCard(cardId);
         }
+        if (card != null) return card;
 
         throw new CardNotFoundException("Card not found");
     }
@@ -287,13 +347,153 @@ public class Board {
      * @return The column with the index {@code columnIdx} or null if not found
      */
     public Column getColumn(final long columnIdx) {
-        for (final Column column : this.columns) {
-            if (column.getIndex() == columnIdx) {
-                return column;
-            }
+        Column column = columnPositions().get(columnIdx);
+        if (column == null || column.getIndex() != columnIdx) {
+            columnPositions = null;
+            column = columnPositions().get(columnIdx);
+        }
+        return column;
+    }
+
+    /**
+     * Called by a column of the board when a card is added to it
+     * @param card The added card
+     * @param column The column that the card was added to
+     */
+    void cardAdded(final Card card, final Column column) {
+        if (cardOwners != null) cardOwners.put(card.getId(), column);
+        if (tagCards != null && card.getTags() != null)
+            for (final Tag tag : card.getTags()) tagAdded(card, tag);
+    }
+
+    /**
+     * Called by a column of the board when a card is removed from it
+     * @param card The removed card
+     * @param column The column that the card was removed from
+     */
+    void cardRemoved(final Card card, final Column column) {
+        if (cardOwners != null && cardOwners.get(card.getId()) == column) cardOwners.remove(card.getId());
+        if (tagCards != null && card.getTags() != null)
+            for (final Tag tag : card.getTags()) tagRemoved(card, tag);
+    }
+
+    /**
+     * Called by a column of the board when all of its cards are replaced
+     */
+    void cardsReplaced() {
+        cardOwners = null;
+        tagCards = null;
+    }
+
+    /**
+     * Called by a card of the board when a tag is added to it
+     * @param card The card
+     * @param tag The added tag
+     */
+    void tagAdded(final Card card, final Tag tag) {
+        if (tagCards == null) return;
+
+        Set<Card> cards = tagCards.get(tag.getId());
+        if (cards == null) {
+            // cards are compared by identity, since their hash code changes when they are edited
+            cards = Collections.newSetFromMap(new IdentityHashMap<>());
+            tagCards.put(tag.getId(), cards);
+        }
+        cards.add(card);
+    }
+
+    /**
+     * Called by a card of the board when a tag is removed from it
+     * @param card The card
+     * @param tag The removed tag
+     */
+    void tagRemoved(final Card card, final Tag tag) {
+        if (tagCards == null) return;
+
+        final Set<Card> cards = tagCards.get(tag.getId());
+        if (cards != null) cards.remove(card);
+    }
+
+    /**
+     * Called by a card of the board when all of its tags are replaced
+     * @param card The card
+     * @param old The previous tags of the card
+     */
+    void cardTagsReplaced(final Card card, final Set<Tag> old) {
+        if (tagCards == null) return;
+
+        if (old != null)
+            for (final Tag tag : old) tagRemoved(card, tag);
+        if (card.getTags() != null)
+            for (final Tag tag : card.getTags()) tagAdded(card, tag);
+    }
+
+    /**
+     * Gets the cards of the board that use a tag, without going through all cards
+     * @param tagId The id of the tag
+     * @return the cards that use the tag
+     */
+    public List<Card> getCardsWithTag(final long tagId) {
+        final Set<Card> cards = tagCards().get(tagId);
+        return cards == null ? new ArrayList<>() : new ArrayList<>(cards);
+    }
+
+    private Card findCard(final long cardId) {
+        final Column owner = cardOwners().get(cardId);
+        if (owner == null || columnIndex().get(owner.getId()) != owner) return null;
+        return owner.getCardById(cardId);
+    }
+
+    private LongMap<Column> columnIndex() {
+        final int count = columns == null ? 0 : columns.size();
+        if (columnIndex == null || columnIndex.size() != count) {
+            columnIndex = new LongMap<>();
+            if (columns != null)
+                for (final Column column : columns) {
+                    column.setBoard(this);
+                    if (columnIndex.get(column.getId()) == null) columnIndex.put(column.getId(), column);
+                }
         }
+        return columnIndex;
+    }
 
-        return null;
+    private LongMap<Column> columnPositions() {
+        if (columnPositions == null) {
+            columnPositions = new LongMap<>();
+            columnIndex();
+            if (columns != null)
+                for (final Column column : columns)
+                    if (columnPositions.get(column.getIndex()) == null) columnPositions.put(column.getIndex(), column);
+        }
+        return columnPositions;
+    }
+
+    private LongMap<Set<Card>> tagCards() {
+        if (tagCards == null) {
+            tagCards = new LongMap<>();
+            if (columns != null)
+                for (final Column column : columns)
+                    if (column.getCards() != null)
+                        for (final Card card : column.getCards()) {
+                            card.setColumn(column);
+                            if (card.getTags() != null)
+                                for (final Tag tag : card.getTags()) tagAdded(card, tag);
+                        }
+        }
+        return tagCards;
+    }
+
+    private LongMap<Column> cardOwners() {
+        if (cardOwners == null) {
+            cardOwners = new LongMap<>();
+            columnIndex();
+            if (columns != null)
+                for (final Column column : columns)
+                    if (column.getCards() != null)
+                        for (final Card card : column.getCards())
+                            if (cardOwners.get(card.getId()) == null) cardOwners.put(card.getId(), column);
+        }
+        return cardOwners;
     }
 
     /**
@@ -308,23 +508,22 @@ public class Board {
 
     /**
      * Deletes the tag from the board. Also deletes the tag from all cards that use the tag
-     * Inefficient, yes.
      *
      * @param tag the tag to be deleted
      * @return success/failure
      */
     public boolean deleteTag(final Tag tag) {
         if (tag != null && tags.remove(tag)) {
-            for (final Column column : columns)
-                for (final Card card : column.getCards())
-                    card.removeTag(tag);
+            for (final Card card : getCardsWithTag(tag.getId()))
+                card.removeTag(tag);
+            tagCards.remove(tag.getId());
             return true;
         }
         return false;
     }
 
     /**
-     * Updates the tag in the board.
+     * Updates the tag in the board, and the copies of it on the cards that use it.
      * @param tag the tag to be updated
      */
     public void updateTag(final Tag tag) {
@@ -334,6 +533,13 @@ public class Board {
                 t.setTitle(tag.getTitle());
                 break;
             }
+
+        for (final Card card : getCardsWithTag(tag.getId()))
+            for (final Tag t : card.getTags())
+                if (t.getId() == tag.getId()) {
+                    t.setColorScheme(tag.getColorScheme());
+                    t.setTitle(tag.getTitle());
+                }
     }
 
     /**
@@ -343,6 +549,8 @@ public class Board {
      */
     public void addTagToCard(final long cardId, final Tag tag) throws CardNotFoundException {
         final Card card = this.getCard(cardId);
+        // the card has to use the tag of the board itself rather than a copy of it
+        card.addTag(tags.stream().filter(t -> t.getId() == tag.getId()).findFirst().orElse(tag));
     }
 
     /**
@@ -352,6 +560,20 @@ public class Board {
      */
     public void removeTagFromCard(final long cardId, final Tag tag) throws CardNotFoundException {
         final Card card = this.getCard(cardId);
+        card.removeTag(tag);
+    }
+
+    /**
+     * Makes every card refer to the tags of the board itself. A board that was read from JSON
+     * has separate copies of its tags in every card that uses them.
+     */
+    public void relinkTags() {
+        for (final Column column : columns) {
+            for (final Card card : column.getCards()) {
+                if (card.getTags() == null) continue;
+                card.setTags(tags.stream().filter(card.getTags()::contains).collect(Collectors.toCollection(HashSet::new)));
+            }
+        }
     }
 
     /**
@@ -359,6 +581,7 @@ public class Board {
      * @param removedIndex index of removed column
      */
     public void refreshIndices (final int removedIndex) {
+        columnPositions = null;
         int indexCount = 0;
         for (final Column col : columns) {
             if  (indexCount >= removedIndex ) {
@@ -416,4 +639,31 @@ public class Board {
         currentCard.setIsDefaultThemed(card.getIsDefaultThemed());
         currentCard.setSubtasks(card.getSubtasks());
     }
+
+    /**
+     * Updates only the fields of a card that were edited
+     * @param patch The edited fields of the card
+     * @throws CardNotFoundException if card is not found
+     */
+    public void updateCard(final CardPatchDTO patch) throws CardNotFoundException {
+        final Card currentCard = getCard(patch.cardId());
+
+        if (patch.title() != null) currentCard.setTitle(patch.title());
+        if (patch.description() != null) currentCard.setDescription(patch.description());
+        if (patch.colorSchemeChanged()) currentCard.setColorScheme(colorPreset(patch.colorScheme()));
+    }
+
+    /**
+     * Gets the color preset of the board with the same id as a color scheme, so that cards
+     * refer to the presets of the board itself rather than to copies of them
+     * @param colorScheme Color scheme to look up, may be null
+     * @return the preset of the board, or the color scheme itself if the board has no such preset
+     */
+    private ColorScheme colorPreset(final ColorScheme colorScheme) {
+        if (colorScheme == null || colorPresets == null) return colorScheme;
+        for (final ColorScheme preset : colorPresets) {
+            if (preset.getId() == colorScheme.getId()) return preset;
+        }
+        return colorScheme;
+    }
 }
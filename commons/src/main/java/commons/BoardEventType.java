@@ -0,0 +1,70 @@
+package commons;
+
+import commons.DTOs.CardDTO;
+import commons.DTOs.CardPatchDTO;
+import commons.DTOs.ColumnDTO;
+import commons.DTOs.SubTaskDTO;
+import commons.DTOs.TagDTO;
+import lombok.Getter;
+
+/**
+ * Kinds of changes to a board that are logged and broadcast to the clients of that board.
+ * Every kind belongs to the topic on which the change is broadcast, together with the type of the message that is sent.
+ */
+public enum BoardEventType {
+    BOARD_RENAMED("boards", "rename", String.class),
+    BOARD_PASSWORD_SET("boards", "set-password", String.class),
+    COLUMN_ADDED("columns", "add", Column.class),
+    COLUMN_RENAMED("columns", "rename", ColumnDTO.class),
+    COLUMN_REMOVED("columns", "remove", Long.class),
+    CARD_ADDED("cards", "add", CardDTO.class),
+    CARD_REMOVED("cards", "remove", CardDTO.class),
+    CARD_REPOSITIONED("cards", "reposition", CardDTO.class),
+    CARD_EDITED("cards", "edit", CardDTO.class),
+    CARD_PATCHED("cards", "patch", CardPatchDTO.class),
+    SUBTASK_ADDED("subtasks", "add", SubTaskDTO.class),
+    SUBTASK_EDITED("subtasks", "edit", SubTaskDTO.class),
+    SUBTASK_REMOVED("subtasks", "remove", SubTaskDTO.class),
+    SUBTASK_TOGGLED("subtasks", "toggle", SubTaskDTO.class),
+    SUBTASK_MOVED("subtasks", "move", SubTaskDTO.class),
+    TAG_ADDED("tags", "add", Tag.class),
+    TAG_REMOVED("tags", "remove", Tag.class),
+    TAG_EDITED("tags", "edit", Tag.class),
+    TAG_ADDED_TO_CARD("tags", "addToCard", TagDTO.class),
+    TAG_REMOVED_FROM_CARD("tags", "removeFromCard", TagDTO.class),
+    COLOR_PRESET_ADDED("color-presets", "add", ColorScheme.class),
+    COLOR_PRESET_REMOVED("color-presets", "remove", ColorScheme.class),
+    COLOR_PRESET_EDITED("color-presets", "edit", ColorScheme.class),
+    BOARD_COLOR_SET("color-presets", "set-board", ColorScheme.class),
+    COLUMN_COLOR_SET("color-presets", "set-column", ColorScheme.class),
+    CARD_COLOR_SET("color-presets", "set-card", ColorScheme.class);
+
+    /**
+     * Header of a broadcast message that holds the number of the change in the log of the board
+     */
+    public static final String SEQUENCE_HEADER = "sequence";
+
+    @Getter
+    private final String resource;
+
+    @Getter
+    private final String action;
+
+    @Getter
+    private final Class<?> payloadType;
+
+    BoardEventType(final String resource, final String action, final Class<?> payloadType) {
+        this.resource = resource;
+        this.action = action;
+        this.payloadType = payloadType;
+    }
+
+    /**
+     * Gets the topic on which changes of this kind are broadcast for a board
+     * @param joinKey Join key of the board
+     * @return the destination of the topic
+     */
+    public String getDestination(final String joinKey) {
+        return "/topic/" + resource + "/" + joinKey + "/" + action;
+    }
+}
@@ -0,0 +1,146 @@
+package commons;
+
+import commons.DTOs.CardDTO;
+import commons.DTOs.CardPatchDTO;
+import commons.DTOs.ColumnDTO;
+import commons.DTOs.SubTaskDTO;
+import commons.DTOs.TagDTO;
+import commons.exceptions.CardNotFoundException;
+import commons.exceptions.ColumnNotFoundException;
+
+import java.util.HashSet;
+import java.util.stream.Collectors;
+
+/**
+ * Applies logged changes to a board, the same way the server made them when they were logged.
+ * Used to replay the log of a board on the server, and to bring a board on a client up to date.
+ */
+public final class BoardEvents {
+
+    private BoardEvents() {
+
+    }
+
+    /**
+     * Makes a logged change to a board
+     * @param board Board to change
+     * @param type Kind of change
+     * @param payload Message that was broadcast for the change, of the payload type of the kind of change
+     * @throws ColumnNotFoundException if the change refers to a column that is not in the board
+     * @throws CardNotFoundException if the change refers to a card that is not in the board
+     * @throws IllegalStateException if the change refers to a subtask that is not in the board
+     */
+    public static void apply(final Board board, final BoardEventType type, final Object payload)
+            throws ColumnNotFoundException, CardNotFoundException
+    {
+        switch (type) {
+            case BOARD_RENAMED -> board.setTitle((String) payload);
+            case BOARD_PASSWORD_SET -> board.setPassword((String) payload);
+            case COLUMN_ADDED -> board.addColumn((Column) payload);
+            case COLUMN_RENAMED -> {
+                final ColumnDTO columnDTO = (ColumnDTO) payload;
+                board.getColumnById(columnDTO.columnId()).setHeading(columnDTO.newHeading());
+            }
+            case COLUMN_REMOVED -> {
+                final Column column = board.getColumnById((Long) payload);
+                board.removeColumn(column);
+                board.refreshIndices(column.getIndex());
+            }
+            case CARD_ADDED -> {
+                final CardDTO cardDTO = (CardDTO) payload;
+                board.addCardToColumn(cardDTO.card(), cardDTO.columnFromId());
+            }
+            case CARD_REMOVED -> {
+                final CardDTO cardDTO = (CardDTO) payload;
+                board.getColumnById(cardDTO.columnFromId()).removeCard(cardDTO.card());
+            }
+            case CARD_REPOSITIONED -> applyCardRepositioned(board, (CardDTO) payload);
+            case CARD_EDITED -> {
+                final CardDTO cardDTO = (CardDTO) payload;
+                final Card card = cardDTO.card();
+                // the card has to refer to the tags of the board itself, not to copies of them
+                card.setTags(board.getTags().stream().filter(card.getTags()::contains).collect(Collectors.toCollection(HashSet::new)));
+                board.getColumnById(cardDTO.columnFromId()).updateCard(card);
+            }
+            case CARD_PATCHED -> board.updateCard((CardPatchDTO) payload);
+            case SUBTASK_ADDED -> {
+                final SubTaskDTO subTaskDTO = (SubTaskDTO) payload;
+                board.getCard(subTaskDTO.cardId()).addSubTask(subTaskDTO.subTask());
+            }
+            case SUBTASK_EDITED -> {
+                final SubTaskDTO subTaskDTO = (SubTaskDTO) payload;
+                board.getCard(subTaskDTO.cardId()).updateSubTask(subTaskDTO.subTask());
+            }
+            case SUBTASK_REMOVED -> {
+                final SubTaskDTO subTaskDTO = (SubTaskDTO) payload;
+                board.getCard(subTaskDTO.cardId()).removeSubTask(subTaskDTO.subTask());
+            }
+            case SUBTASK_TOGGLED -> {
+                // the message holds the new state rather than the toggle, so that applying it twice does no harm
+                final SubTaskDTO subTaskDTO = (SubTaskDTO) payload;
+                final Card card = board.getCard(subTaskDTO.cardId());
+                final SubTask subTask = findSubTask(card, subTaskDTO.subTask());
+                if (subTask.isDone() != subTaskDTO.subTask().isDone())
+                    card.toggleSubtask(subTask);
+            }
+            case SUBTASK_MOVED -> {
+                final SubTaskDTO subTaskDTO = (SubTaskDTO) payload;
+                final Card card = board.getCard(subTaskDTO.cardId());
+                card.moveSubTask(findSubTask(card, subTaskDTO.subTask()), subTaskDTO.index());
+            }
+            case TAG_ADDED -> board.addTag((Tag) payload);
+            case TAG_REMOVED -> board.deleteTag((Tag) payload);
+            case TAG_EDITED -> board.updateTag((Tag) payload);
+            case TAG_ADDED_TO_CARD -> {
+                final TagDTO tagDTO = (TagDTO) payload;
+                board.addTagToCard(tagDTO.cardId(), tagDTO.tag());
+            }
+            case TAG_REMOVED_FROM_CARD -> {
+                final TagDTO tagDTO = (TagDTO) payload;
+                board.removeTagFromCard(tagDTO.cardId(), tagDTO.tag());
+            }
+            case COLOR_PRESET_ADDED -> board.addColorPreset((ColorScheme) payload);
+            case COLOR_PRESET_REMOVED -> board.deleteColorPreset((ColorScheme) payload);
+            case COLOR_PRESET_EDITED -> board.updateColorScheme((ColorScheme) payload);
+            case BOARD_COLOR_SET -> copyColors(board.getBoardColorScheme(), (ColorScheme) payload);
+            case COLUMN_COLOR_SET -> copyColors(board.getColumnColorScheme(), (ColorScheme) payload);
+            case CARD_COLOR_SET -> copyColors(board.getCardColorScheme(), (ColorScheme) payload);
+            default -> throw new IllegalStateException("Unknown event type " + type);
+        }
+    }
+
+    /**
+     * Moves a card the same way as the card controller does, so that the card and,
+     * if the column had to be ranked again, all other cards end up with the same ranks as before
+     * @param board Board containing the card
+     * @param cardDTO Moved card with its source and destination column and new position
+     */
+    private static void applyCardRepositioned(final Board board, final CardDTO cardDTO)
+            throws ColumnNotFoundException, CardNotFoundException
+    {
+        final Column source = board.getColumnById(cardDTO.columnFromId());
+        final Column destination = board.getColumnById(cardDTO.columnToId());
+        final Card card = board.getCard(cardDTO.card().getId());
+
+        if (source == destination) {
+            source.updateCardPosition(card, cardDTO.newPosition());
+        }
+        else {
+            source.removeCard(card);
+            destination.placeCard(card, cardDTO.newPosition());
+        }
+    }
+
+    private static SubTask findSubTask(final Card card, final SubTask subTask) {
+        final SubTask found = card.getSubTaskById(subTask.getId());
+        if (found == null)
+            throw new IllegalStateException("Card " + card.getId() + " has no subtask " + subTask.getId());
+        return found;
+    }
+
+    private static void copyColors(final ColorScheme target, final ColorScheme source) {
+        target.setBackgroundColor(source.getBackgroundColor());
+        target.setTextColor(source.getTextColor());
+        target.setName(source.getName());
+    }
+}
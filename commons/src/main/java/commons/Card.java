@@ -16,21 +16,35 @@ public class Card implements Comparable<Card> {
     @Getter
     private long id;
 
+    @Version
+    @Getter
+    private long version;
+
     @Getter @Setter
     private String title;
 
-    // priorities start from 0
+    // priorities start from 0. The priority is the position of the card in its column and follows from the rank,
+    // it is only stored when the card is created so that columns from before ranks existed keep their order
     @Getter @Setter
+    @javax.persistence.Column(updatable = false)
     private int priority;
+
+    // fractional rank that orders the cards in a column, see Rank
+    @Getter @Setter
+    private String rank;
+
     @Getter @Setter
     private String description;
 
     @OrderColumn
-    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @OrderBy("priority")
-    @Getter @Setter
+    @Getter
     private SortedSet<SubTask> subtasks;
 
+    // subtasks by id, built on the first lookup and kept up to date when subtasks are added and removed
+    private transient LongMap<SubTask> subTaskIndex;
+
     @Getter @Setter
     private Boolean isDefaultThemed;
 
@@ -38,10 +52,13 @@ public class Card implements Comparable<Card> {
     @Getter @Setter
     private ColorScheme colorScheme;
 
-    @ManyToMany(cascade = {CascadeType.PERSIST,CascadeType.REMOVE}, fetch = FetchType.EAGER)
-    @Getter @Setter
+    @ManyToMany(cascade = {CascadeType.PERSIST,CascadeType.REMOVE}, fetch = FetchType.LAZY)
+    @Getter
     private Set<Tag> tags;
 
+    // column that contains the card, so that the board can keep track of which cards use which tag
+    private transient Column column;
+
     /**
      * Empty constructor for the Card object
      */
@@ -138,7 +155,11 @@ public class Card implements Comparable<Card> {
          * @return success/failure
          */
     public boolean addTag(final Tag tag) {
-        return this.tags.add(tag);
+        if (!this.tags.add(tag)) return false;
+
+        final Board board = board();
+        if (board != null) board.tagAdded(this, tag);
+        return true;
     }
 
     /**
@@ -148,7 +169,35 @@ public class Card implements Comparable<Card> {
      * @return success/failure
      */
     public boolean removeTag(final Tag tag) {
-        return this.tags.remove(tag);
+        if (!this.tags.remove(tag)) return false;
+
+        final Board board = board();
+        if (board != null) board.tagRemoved(this, tag);
+        return true;
+    }
+
+    /**
+     * Replaces the tags of the card
+     * @param tags The new tags of the card
+     */
+    public void setTags(final Set<Tag> tags) {
+        final Set<Tag> old = this.tags;
+        this.tags = tags;
+
+        final Board board = board();
+        if (board != null) board.cardTagsReplaced(this, old);
+    }
+
+    /**
+     * Sets the column that contains the card
+     * @param column The column, or null if the card was removed from it
+     */
+    void setColumn(final Column column) {
+        this.column = column;
+    }
+
+    private Board board() {
+        return column == null ? null : column.board();
     }
 
     /**
@@ -158,7 +207,10 @@ public class Card implements Comparable<Card> {
      * @return success/failure
      */
     public boolean addSubTask(final SubTask subtask) {
-        return subtasks.add(subtask);
+        if (!subtasks.add(subtask)) return false;
+
+        if (subTaskIndex != null) subTaskIndex.put(subtask.getId(), subtask);
+        return true;
     }
 
     /**
@@ -168,7 +220,45 @@ public class Card implements Comparable<Card> {
      * @return success/failure
      */
     public boolean removeSubTask(final SubTask subtask) {
-        return subtasks.remove(subtask);
+        if (!subtasks.remove(subtask)) return false;
+
+        if (subTaskIndex != null) subTaskIndex.remove(subtask.getId());
+        return true;
+    }
+
+    /**
+     * Replaces the subtasks of the card
+     * @param subtasks The new subtasks of the card
+     */
+    public void setSubtasks(final SortedSet<SubTask> subtasks) {
+        this.subtasks = subtasks;
+        this.subTaskIndex = null;
+    }
+
+    /**
+     * Gets a subtask of the card by its id, without going through all subtasks
+     * @param subTaskId The id of the subtask
+     * @return the subtask, or null if the card does not have a subtask with that id
+     */
+    public SubTask getSubTaskById(final long subTaskId) {
+        if (subtasks == null) return null;
+
+        SubTask subTask = subTaskIndex().get(subTaskId);
+        if (subTask == null || subTask.getId() != subTaskId) {
+            subTaskIndex = null;
+            subTask = subTaskIndex().get(subTaskId);
+        }
+        return subTask;
+    }
+
+    private LongMap<SubTask> subTaskIndex() {
+        if (subTaskIndex == null || subTaskIndex.size() != subtasks.size()) {
+            subTaskIndex = new LongMap<>();
+            for (final SubTask subTask : subtasks) {
+                if (subTaskIndex.get(subTask.getId()) == null) subTaskIndex.put(subTask.getId(), subTask);
+            }
+        }
+        return subTaskIndex;
     }
 
 
@@ -220,16 +310,20 @@ public class Card implements Comparable<Card> {
     }
 
     /**
-     * Compares two cards on the basis of their priority
+     * Compares two cards on the basis of their rank, or their priority if one of them has no rank yet
      * @param o the object to be compared.
      *
-     * @return 0 if the objects have the same priority,
-     * 1 if this object has a higher priority,
-     * -1 if the other object has a higher priority
+     * @return 0 if the objects have the same rank and id or the same priority,
+     * 1 if this object comes after the other object,
+     * -1 if the other object comes after this object
      */
     @Override
     public int compareTo(final Card o) {
-        return Integer.compare(this.priority, o.priority);
+        if (this.rank == null || o.rank == null)
+            return Integer.compare(this.priority, o.priority);
+
+        final int result = this.rank.compareTo(o.rank);
+        return result != 0 ? result : Long.compare(this.id, o.id);
     }
 
     /**
@@ -241,7 +335,8 @@ public class Card implements Comparable<Card> {
         this.priority = card.priority;
         this.description = card.description;
         this.subtasks = card.subtasks;
-        this.tags = card.tags;
+        this.subTaskIndex = null;
+        setTags(card.tags);
         this.isDefaultThemed = card.isDefaultThemed;
         this.colorScheme = card.colorScheme;
     }
@@ -251,10 +346,9 @@ public class Card implements Comparable<Card> {
      * @param subTask Subtask to copy from
      */
     public void updateSubTask(final SubTask subTask) {
-        for (final SubTask task : this.subtasks) {
-            if (task.getId() == subTask.getId()) {
-                task.setDescription(subTask.getDescription());
-            }
+        final SubTask task = getSubTaskById(subTask.getId());
+        if (task != null) {
+            task.setDescription(subTask.getDescription());
         }
     }
 
@@ -264,10 +358,9 @@ public class Card implements Comparable<Card> {
      * @param index New index of the subtask
      */
     public void moveSubTask(final SubTask subTask, final int index) {
-        this.subtasks.stream().filter(s -> s.getId() == subTask.getId()).findFirst()
-                .ifPresentOrElse(subtasks::remove, () -> {
-                    throw new IllegalArgumentException("Subtask not found");
-                });
+        final SubTask current = getSubTaskById(subTask.getId());
+        if (current == null) throw new IllegalArgumentException("Subtask not found");
+        subtasks.remove(current);
         subTask.setPriority(index);
 
         int i = 0;
@@ -278,6 +371,7 @@ public class Card implements Comparable<Card> {
         if (index >= this.subtasks.size()) {
 
             this.subtasks.add(subTask);
+            if (subTaskIndex != null) subTaskIndex.put(subTask.getId(), subTask);
             return;
         }
 
@@ -288,6 +382,7 @@ public class Card implements Comparable<Card> {
         }
 
         this.subtasks.add(subTask);
+        if (subTaskIndex != null) subTaskIndex.put(subTask.getId(), subTask);
 
         i = 0;
         for (final SubTask task : this.subtasks) {
@@ -300,10 +395,12 @@ public class Card implements Comparable<Card> {
      * @param subTask Subtask to be toggled
      */
     public void toggleSubtask(final SubTask subTask) {
-        for (final SubTask task : this.subtasks) {
-            if (task.getId() == subTask.getId()) {
-                task.setDone(!task.isDone());
-            }
+        // the subtask is re-added, since its done status determines its place in the sorted set
+        final SubTask task = getSubTaskById(subTask.getId());
+        if (task != null) {
+            subtasks.remove(task);
+            task.setDone(!task.isDone());
+            subtasks.add(task);
         }
     }
 }
@@ -18,6 +18,10 @@ public class Column implements Comparable<Column> {
     @Getter
     private long id;
 
+    @Version
+    @Getter
+    private long version;
+
     @Getter @Setter
     @NotNull
     private int index;
@@ -25,11 +29,17 @@ public class Column implements Comparable<Column> {
     @Getter @Setter
     @NotBlank
     private String heading;
-    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
-    @OrderBy("priority")
-    @Getter @Setter
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @OrderBy("rank")
+    @Getter
     private SortedSet<Card> cards;
 
+    // cards by id, built when a card is first looked up and kept up to date by the methods that add and remove cards
+    private transient LongMap<Card> cardIndex;
+
+    // board that contains the column, told about every card that is added or removed so that it can index them as well
+    private transient Board board;
+
     /**
      * Empty constructor for the Column
      */
@@ -73,13 +83,23 @@ public class Column implements Comparable<Column> {
     }
 
     /**
-     * Add one single card to the column if not already in the column and not null
+     * Add one single card to the column if not already in the column and not null.
+     * A card without a rank is placed at the end of the column.
      * @param card Card to be added
      *
      * @return success/failure
      */
     public boolean addCard(final Card card) {
-        return card != null && this.cards.add(card);
+        if (card == null) return false;
+
+        if (card.getRank() == null) {
+            refreshRanks();
+            card.setRank(Rank.between(this.cards.isEmpty() ? null : this.cards.last().getRank(), null));
+        }
+        if (!this.cards.add(card)) return false;
+
+        indexCard(card);
+        return true;
     }
 
     /**
@@ -88,21 +108,82 @@ public class Column implements Comparable<Column> {
      * @return success/failure
      */
     public boolean insertCard(final Card card) {
-        if (card == null) return false;
+        if (card == null || this.cards.contains(card)) return false;
+
+        placeCard(card, card.getPriority());
+        return true;
+    }
+
+    /**
+     * Places a card that is not in the column yet at the given position.
+     * Only the rank of the placed card changes, unless there is no room left between its neighbours,
+     * in which case all cards in the column get new ranks.
+     * @param card Card to be placed
+     * @param position Position of the card in the column
+     * @return true if the ranks of other cards in the column changed as well
+     */
+    public boolean placeCard(final Card card, final int position) {
+        final boolean migrated = refreshRanks();
+
+        final List<Card> order = new ArrayList<>(this.cards);
+        final int index = Math.max(0, Math.min(position, order.size()));
+        final String before = index == 0 ? null : order.get(index - 1).getRank();
+        final String after = index == order.size() ? null : order.get(index).getRank();
+        order.add(index, card);
 
-        final int idx = card.getPriority();
-        for (final Card c : this.cards) {
-            if (c.getPriority() >= idx)
-                c.setPriority(c.getPriority() + 1);
+        if (before != null && after != null && before.compareTo(after) >= 0) {
+            rebalance(order);
+            indexCard(card);
+            return true;
         }
-        if (!this.cards.add(card)) return false;
 
-        int priority = 0;
-        for (final Card c : this.cards) {
-            c.setPriority(priority++);
+        final String rank = Rank.between(before, after);
+        if (rank.length() > Rank.MAX_LENGTH) {
+            rebalance(order);
+            indexCard(card);
+            return true;
         }
 
-        return true;
+        card.setRank(rank);
+        this.cards.add(card);
+        indexCard(card);
+        for (int i = 0; i < order.size(); i++) {
+            order.get(i).setPriority(i);
+        }
+        return migrated;
+    }
+
+    /**
+     * Ranks all cards in the column if some of them have no rank yet, keeping their current order,
+     * and sets the priority of every card to its position in the column
+     * @return true if the ranks of the cards changed
+     */
+    public boolean refreshRanks() {
+        final List<Card> order = new ArrayList<>(this.cards);
+        if (order.stream().anyMatch(c -> c.getRank() == null)) {
+            rebalance(order);
+            return true;
+        }
+
+        for (int i = 0; i < order.size(); i++) {
+            order.get(i).setPriority(i);
+        }
+        return false;
+    }
+
+    /**
+     * Gives the cards new evenly spaced ranks in the given order
+     * @param order All cards of the column in their new order
+     */
+    private void rebalance(final List<Card> order) {
+        // the ranks determine the place of the cards in the sorted set, so they can only change outside of it
+        this.cards.clear();
+        final List<String> ranks = Rank.spread(order.size());
+        for (int i = 0; i < order.size(); i++) {
+            order.get(i).setRank(ranks.get(i));
+            order.get(i).setPriority(i);
+        }
+        this.cards.addAll(order);
     }
 
     /**
@@ -114,16 +195,83 @@ public class Column implements Comparable<Column> {
      */
     public boolean removeCard(final Card card) {
         if (card == null) return false;
-        if (!this.cards.remove(card)) return false;
+        // the given card may be a copy, while the board keeps track of the card that is actually in the column
+        final Card current = getCardById(card.getId());
+        // the set is ordered by rank, so the card has to be removed by the instance that holds the rank it is filed under
+        final Card removed = current != null ? current : card;
+        if (!this.cards.remove(removed)) return false;
 
 //        int idx = 0;
 //        for (final Card c : this.cards) {
 //            c.setPriority(idx++);
 //        }
 
+        if (cardIndex != null) cardIndex.remove(card.getId());
+        removed.setColumn(null);
+        if (board != null) board.cardRemoved(removed, this);
         return true;
     }
 
+    /**
+     * Replaces the cards of the column
+     * @param cards The new cards of the column
+     */
+    public void setCards(final SortedSet<Card> cards) {
+        this.cards = cards;
+        this.cardIndex = null;
+        if (board != null) board.cardsReplaced();
+    }
+
+    /**
+     * Gets a card of the column by its id, without going through all cards
+     * @param cardId The id of the card
+     * @return the card, or null if the column does not contain a card with that id
+     */
+    public Card getCardById(final long cardId) {
+        if (cards == null) return null;
+
+        Card card = cardIndex().get(cardId);
+        if (card == null || card.getId() != cardId) {
+            // an id may have changed after its card was indexed
+            cardIndex = null;
+            card = cardIndex().get(cardId);
+        }
+        return card;
+    }
+
+    /**
+     * Sets the board that contains the column
+     * @param board The board, or null if the column was removed from it
+     */
+    void setBoard(final Board board) {
+        this.board = board;
+    }
+
+    /**
+     * Gets the board that contains the column
+     * @return the board, or null if the column is not known to be part of a board
+     */
+    Board board() {
+        return board;
+    }
+
+    private LongMap<Card> cardIndex() {
+        if (cardIndex == null || cardIndex.size() != cards.size()) {
+            cardIndex = new LongMap<>();
+            for (final Card card : cards) {
+                card.setColumn(this);
+                if (cardIndex.get(card.getId()) == null) cardIndex.put(card.getId(), card);
+            }
+        }
+        return cardIndex;
+    }
+
+    private void indexCard(final Card card) {
+        card.setColumn(this);
+        if (cardIndex != null) cardIndex.put(card.getId(), card);
+        if (board != null) board.cardAdded(card, this);
+    }
+
     /**
      * Checks for equality of two columns
      * @param o Other column
@@ -166,23 +314,11 @@ public class Column implements Comparable<Column> {
      * Updates the position of the card in the column according to the new position.
      * @param card card to be updated
      * @param newPriority new position of the card
+     * @return true if the ranks of other cards in the column changed as well
      */
-    public void updateCardPosition(final Card card, final int newPriority) {
+    public boolean updateCardPosition(final Card card, final int newPriority) {
         this.cards.remove(card);
-        card.setPriority(newPriority);
-        final List<Card> newOrder = new ArrayList<>();
-
-        for (final Card c : this.cards) {
-            if (c.getPriority() == newPriority)
-                newOrder.add(card);
-            newOrder.add(c);
-        }
-
-        for (int i = 0; i < newOrder.size(); i++) {
-            newOrder.get(i).setPriority(i);
-        }
-
-        this.cards.add(card);
+        return placeCard(card, newPriority);
     }
 
     /**
@@ -190,9 +326,8 @@ public class Column implements Comparable<Column> {
      * @param card card with new values but same id
      */
     public void updateCard(final Card card) {
-        for (final Card c : cards) {
-            if (c.getId() == card.getId())
-                c.update(card);
-        }
+        final Card current = getCardById(card.getId());
+        if (current != null)
+            current.update(card);
     }
 }
@@ -0,0 +1,13 @@
+package commons.DTOs;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Changes to a board that are made together: all of them in order, or none of them
+ * @param password Password of the board
+ * @param operations Changes to make, in order
+ */
+public record BatchDTO(@Getter String password, @Getter List<BoardOperationDTO> operations) {
+}
@@ -0,0 +1,18 @@
+package commons.DTOs;
+
+import commons.Board;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The changes to a board since a version that a client already has.
+ * If the client is too far behind, the whole board is sent instead of the changes.
+ * @param joinKey Join key of the board
+ * @param sequence Version of the board after the changes
+ * @param events Changes after the version of the client, in order, empty if the whole board is sent
+ * @param board The whole board, null if only the changes are sent
+ */
+public record BoardChangesDTO(@Getter String joinKey, @Getter long sequence, @Getter List<BoardEventDTO> events,
+                              @Getter Board board) {
+}
@@ -0,0 +1,13 @@
+package commons.DTOs;
+
+import commons.BoardEventType;
+import lombok.Getter;
+
+/**
+ * A logged change to a board
+ * @param sequence Number of the change in the log of the board
+ * @param type Kind of change
+ * @param payload Message that was broadcast for the change as JSON, of the payload type of the kind of change
+ */
+public record BoardEventDTO(@Getter long sequence, @Getter BoardEventType type, @Getter String payload) {
+}
@@ -0,0 +1,13 @@
+package commons.DTOs;
+
+import commons.BoardEventType;
+import lombok.Getter;
+
+/**
+ * A single change that a client asks to make to a board as part of a batch
+ * @param type Kind of change
+ * @param payload Message describing the change as JSON, of the payload type of the kind of change,
+ *                the same message that is broadcast when the change is made on its own
+ */
+public record BoardOperationDTO(@Getter BoardEventType type, @Getter String payload) {
+}
@@ -0,0 +1,15 @@
+package commons.DTOs;
+
+import commons.Board;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of boards, ordered by creation time and join key
+ * @param boards Boards on this page
+ * @param nextCreated Creation time (epoch millis) of the last board on this page, null if this is the last page
+ * @param nextJoinKey Join key of the last board on this page, null if this is the last page
+ */
+public record BoardPageDTO(@Getter List<Board> boards, @Getter Long nextCreated, @Getter String nextJoinKey) {
+}
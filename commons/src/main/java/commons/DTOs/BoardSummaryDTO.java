@@ -0,0 +1,57 @@
+package commons.DTOs;
+
+import commons.Board;
+import commons.Color;
+import commons.ColorScheme;
+import commons.Column;
+import lombok.Getter;
+
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * The metadata of a board that is shown on the home page, without its columns and cards
+ * @param joinKey Join key of the board
+ * @param title Title of the board
+ * @param created Creation time of the board
+ * @param passwordProtected Whether the board has a password
+ * @param columnCount Number of columns in the board
+ * @param cardCount Number of cards in the board
+ * @param boardColorScheme Color scheme of the board
+ */
+public record BoardSummaryDTO(@Getter String joinKey, @Getter String title, @Getter Timestamp created,
+                              @Getter boolean passwordProtected, @Getter long columnCount, @Getter long cardCount,
+                              @Getter ColorScheme boardColorScheme) {
+
+    /**
+     * Used by the JPQL constructor projection on the server, which can only pass plain columns and entities
+     * @param joinKey Join key of the board
+     * @param title Title of the board
+     * @param created Creation time of the board
+     * @param password Password of the board, only used to check whether it is set
+     * @param columnCount Number of columns in the board
+     * @param cardCount Number of cards in the board
+     * @param colorSchemeId Id of the color scheme of the board, null if it has none
+     * @param textColor Text color of the color scheme of the board
+     * @param backgroundColor Background color of the color scheme of the board
+     */
+    public BoardSummaryDTO(final String joinKey, final String title, final Date created, final String password,
+                           final Long columnCount, final Long cardCount, final Long colorSchemeId,
+                           final Color textColor, final Color backgroundColor)
+    {
+        this(joinKey, title, created == null ? null : new Timestamp(created.getTime()), password != null,
+                columnCount == null ? 0 : columnCount, cardCount == null ? 0 : cardCount,
+                colorSchemeId == null ? null : new ColorScheme(colorSchemeId, textColor, backgroundColor));
+    }
+
+    /**
+     * Creates the summary of a board that is already fully loaded
+     * @param board Board to summarize
+     * @return summary of the board
+     */
+    public static BoardSummaryDTO of(final Board board) {
+        final long cardCount = board.getColumns().stream().map(Column::getCards).mapToLong(cards -> cards.size()).sum();
+        return new BoardSummaryDTO(board.getJoinKey(), board.getTitle(), board.getCreated(), board.getPassword() != null,
+                board.getColumns().size(), cardCount, board.getBoardColorScheme());
+    }
+}
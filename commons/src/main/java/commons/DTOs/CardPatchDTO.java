@@ -0,0 +1,58 @@
+package commons.DTOs;
+
+import commons.Card;
+import commons.ColorScheme;
+import lombok.Getter;
+
+import java.util.Objects;
+
+/**
+ * The fields of a card that were edited, instead of the whole card with its subtasks and tags.
+ * Fields that are null were not changed. Tags and subtasks are changed through their own messages.
+ * Since only the edited fields are sent, edits of different fields of a card never undo each other,
+ * and of two edits of the same field the last one wins.
+ * @param cardId Id of the edited card
+ * @param password Password of the board, only sent from client to server
+ * @param title New title, null if it was not changed
+ * @param description New description, null if it was not changed
+ * @param colorScheme New color scheme, only used if colorSchemeChanged is set, since a card may have no color scheme
+ * @param colorSchemeChanged Whether the color scheme was changed
+ */
+public record CardPatchDTO(@Getter long cardId, @Getter String password, @Getter String title,
+                           @Getter String description, @Getter ColorScheme colorScheme, @Getter boolean colorSchemeChanged) {
+
+    /**
+     * Gets the fields of a card that an edit changes
+     * @param card Card before the edit
+     * @param title Title after the edit
+     * @param description Description after the edit
+     * @param colorScheme Color scheme after the edit
+     * @return the patch holding only the fields that differ from the card
+     */
+    public static CardPatchDTO between(final Card card, final String title, final String description,
+                                       final ColorScheme colorScheme)
+    {
+        final boolean colorSchemeChanged = !Objects.equals(card.getColorScheme(), colorScheme);
+        return new CardPatchDTO(card.getId(), null,
+                Objects.equals(card.getTitle(), title) ? null : title,
+                Objects.equals(card.getDescription(), description) ? null : description,
+                colorSchemeChanged ? colorScheme : null, colorSchemeChanged);
+    }
+
+    /**
+     * Copies the patch with the password of the board
+     * @param password Password of the board
+     * @return the patch with the password
+     */
+    public CardPatchDTO withPassword(final String password) {
+        return new CardPatchDTO(cardId, password, title, description, colorScheme, colorSchemeChanged);
+    }
+
+    /**
+     * Checks whether the patch changes anything
+     * @return true if no field was changed
+     */
+    public boolean changesNothing() {
+        return title == null && description == null && !colorSchemeChanged;
+    }
+}
@@ -0,0 +1,140 @@
+package commons;
+
+/**
+ * Hash map from primitive long keys to values, used for the id indexes of boards, columns and cards.
+ * Keys are stored unboxed in an open-addressing table with linear probing, so a lookup does not allocate.
+ * The key 0 marks an empty slot, so an entry with key 0 is kept separately.
+ * @param <V> Type of the values
+ */
+final class LongMap<V> {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    private boolean hasZero;
+    private V zeroValue;
+
+    /**
+     * Constructor for an empty map
+     */
+    LongMap() {
+        this.keys = new long[MIN_CAPACITY];
+        this.values = new Object[MIN_CAPACITY];
+    }
+
+    /**
+     * Gets the value of a key
+     * @param key Key to look up
+     * @return the value, or null if the map does not contain the key
+     */
+    @SuppressWarnings("unchecked")
+    V get(final long key) {
+        if (key == 0) return zeroValue;
+
+        final int mask = keys.length - 1;
+        for (int i = slot(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) return (V) values[i];
+        }
+        return null;
+    }
+
+    /**
+     * Sets the value of a key
+     * @param key Key to set
+     * @param value New value, not null
+     */
+    void put(final long key, final V value) {
+        if (key == 0) {
+            if (!hasZero) size++;
+            hasZero = true;
+            zeroValue = value;
+            return;
+        }
+
+        final int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        // keep the table at most half full, so that probe sequences stay short
+        if (++size * 2 > keys.length) resize(keys.length * 2);
+    }
+
+    /**
+     * Removes a key
+     * @param key Key to remove
+     * @return the value that was removed, or null if the map did not contain the key
+     */
+    @SuppressWarnings("unchecked")
+    V remove(final long key) {
+        if (key == 0) {
+            final V removed = zeroValue;
+            if (hasZero) size--;
+            hasZero = false;
+            zeroValue = null;
+            return removed;
+        }
+
+        final int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != key) {
+            if (keys[i] == 0) return null;
+            i = (i + 1) & mask;
+        }
+        final V removed = (V) values[i];
+        size--;
+
+        // move later entries of the probe sequence back, so that no lookup stops at the emptied slot
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            final int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = null;
+        return removed;
+    }
+
+    /**
+     * Gets the number of keys in the map
+     * @return number of keys
+     */
+    int size() {
+        return size;
+    }
+
+    private void resize(final int capacity) {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+
+        final int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == 0) continue;
+            int i = slot(oldKeys[j], mask);
+            while (keys[i] != 0) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    private static int slot(final long key, final int mask) {
+        // ids are often small or generated from the same random source, so their bits are mixed first
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
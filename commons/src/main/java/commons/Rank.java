@@ -0,0 +1,94 @@
+package commons;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fractional ranks for ordering cards. A rank is a string of base 36 digits that is compared lexicographically,
+ * and between any two ranks a new one can be generated, so that placing a card never changes the other cards.
+ * Ranks never end in a '0', since no rank could be placed directly before such a rank.
+ */
+public final class Rank {
+
+    /**
+     * Ranks longer than this should be spread out again
+     */
+    public static final int MAX_LENGTH = 24;
+
+    private static final String DIGITS = "0123456789abcdefghijklmnopqrstuvwxyz";
+    private static final int BASE = DIGITS.length();
+
+    private Rank() {
+
+    }
+
+    /**
+     * Generates a rank that lies strictly between two ranks
+     * @param before Rank that the new rank has to come after, null if there is no lower bound
+     * @param after Rank that the new rank has to come before, null if there is no upper bound
+     * @return the new rank
+     * @throws IllegalArgumentException if before does not come before after
+     */
+    public static String between(final String before, final String after) {
+        final String low = before == null ? "" : before;
+        String high = after;
+        if (high != null && low.compareTo(high) >= 0)
+            throw new IllegalArgumentException("Rank " + before + " does not come before " + after);
+
+        final StringBuilder rank = new StringBuilder();
+        for (int i = 0; ; i++) {
+            final int lowDigit = i < low.length() ? DIGITS.indexOf(low.charAt(i)) : 0;
+            final int highDigit = high == null ? BASE : i < high.length() ? DIGITS.indexOf(high.charAt(i)) : 0;
+
+            if (highDigit - lowDigit > 1) {
+                rank.append(DIGITS.charAt((lowDigit + highDigit) / 2));
+                return rank.toString();
+            }
+
+            rank.append(DIGITS.charAt(lowDigit));
+            // once the rank has a lower digit than the upper bound, the upper bound does not matter anymore
+            if (highDigit > lowDigit)
+                high = null;
+        }
+    }
+
+    /**
+     * Generates evenly spaced ranks, used for ranking a column from scratch
+     * @param count Number of ranks to generate
+     * @return ascending list of ranks
+     */
+    public static List<String> spread(final int count) {
+        int width = 1;
+        long capacity = BASE;
+        while (capacity <= count * 2L + 1) {
+            width++;
+            capacity *= BASE;
+        }
+
+        final long step = capacity / (count + 1);
+        final List<String> ranks = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            ranks.add(format(step * i, width));
+        }
+        return ranks;
+    }
+
+    /**
+     * Formats a number as a fixed width base 36 rank without trailing zeros
+     * @param value Number to format
+     * @param width Number of digits
+     * @return the rank
+     */
+    private static String format(final long value, final int width) {
+        final char[] digits = new char[width];
+        long rest = value;
+        for (int i = width - 1; i >= 0; i--) {
+            digits[i] = DIGITS.charAt((int) (rest % BASE));
+            rest /= BASE;
+        }
+
+        int length = width;
+        while (length > 1 && digits[length - 1] == '0') length--;
+        return new String(digits, 0, length);
+    }
+}
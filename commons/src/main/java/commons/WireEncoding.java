@@ -0,0 +1,33 @@
+package commons;
+
+/**
+ * Encodings of the messages between the clients and the server. JSON is always understood by both sides,
+ * Smile (Jackson's binary form of JSON) is only used once the other side has shown that it understands it.
+ */
+public final class WireEncoding {
+
+    /**
+     * Media type of JSON messages
+     */
+    public static final String JSON = "application/json";
+
+    /**
+     * Media type of Smile messages over HTTP
+     */
+    public static final String SMILE = "application/x-jackson-smile";
+
+    /**
+     * Content type of STOMP frames that hold Smile. Spring only sends frames of this type as binary WebSocket frames,
+     * a Smile payload in a text frame would be broken by the UTF-8 decoding of the frame.
+     */
+    public static final String SMILE_FRAME = "application/octet-stream";
+
+    /**
+     * Header of the STOMP connect frame in which a client tells that it can read frames holding Smile
+     */
+    public static final String ACCEPT_HEADER = "accept-content-type";
+
+    private WireEncoding() {
+
+    }
+}
@@ -1,5 +1,8 @@
 package commons;
 
+import commons.DTOs.CardPatchDTO;
+import commons.exceptions.CardNotFoundException;
+import commons.exceptions.ColumnNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -119,4 +122,139 @@ class BoardTest {
         assertNotEquals(board.hashCode(), board4.hashCode());
         assertNotEquals(board.hashCode(), board5.hashCode());
     }
+
+    private Board indexedBoard() {
+        final Board board = new Board("joinme", "title", new TreeSet<>());
+        board.addColumn(new Column(1, "todo", 0, new TreeSet<>()));
+        board.addColumn(new Column(2, "done", 1, new TreeSet<>()));
+        return board;
+    }
+
+    @Test
+    void getCardFollowsMovedCard() throws Exception {
+        final Board board = indexedBoard();
+        final Card card = new Card(5, "card", 0, "description", null);
+        board.addCardToColumn(card, 1);
+        assertSame(card, board.getCard(5));
+
+        board.getColumnById(1).removeCard(card);
+        board.getColumnById(2).placeCard(card, 0);
+
+        assertSame(card, board.getCard(5));
+        assertNull(board.getColumnById(1).getCardById(5));
+        assertSame(card, board.getColumnById(2).getCardById(5));
+    }
+
+    @Test
+    void getCardOfRemovedColumnFails() throws Exception {
+        final Board board = indexedBoard();
+        board.addCardToColumn(new Card(5, "card", 0, "description", null), 1);
+        board.getCard(5);
+
+        board.removeColumn(board.getColumnById(1));
+
+        assertThrows(CardNotFoundException.class, () -> board.getCard(5));
+        assertThrows(ColumnNotFoundException.class, () -> board.getColumnById(1));
+    }
+
+    @Test
+    void getCardAfterCardsAreReplaced() throws Exception {
+        final Board board = indexedBoard();
+        board.addCardToColumn(new Card(5, "card", 0, "description", null), 1);
+        board.getCard(5);
+
+        final Card replacement = new Card(6, "other", 0, "description", null);
+        final TreeSet<Card> cards = new TreeSet<>();
+        cards.add(replacement);
+        board.getColumnById(1).setCards(cards);
+
+        assertSame(replacement, board.getCard(6));
+        assertThrows(CardNotFoundException.class, () -> board.getCard(5));
+    }
+
+    @Test
+    void getColumnByIndexAfterRemoval() throws Exception {
+        final Board board = indexedBoard();
+        assertEquals(1, board.getColumn(0).getId());
+
+        final Column removed = board.getColumnById(1);
+        board.removeColumn(removed);
+        board.refreshIndices(removed.getIndex());
+
+        assertEquals(2, board.getColumn(0).getId());
+        assertNull(board.getColumn(1));
+    }
+
+    @Test
+    void getCardsWithTagFollowsCardChanges() throws Exception {
+        final Board board = indexedBoard();
+        final Tag tag = new Tag(7, "urgent", null);
+        board.addTag(tag);
+        final Card first = new Card(5, "first", 0, "description", null);
+        final Card second = new Card(6, "second", 0, "description", null);
+        board.addCardToColumn(first, 1);
+        board.addCardToColumn(second, 2);
+        assertTrue(board.getCardsWithTag(7).isEmpty());
+
+        board.addTagToCard(5, tag);
+        second.addTag(tag);
+        assertEquals(2, board.getCardsWithTag(7).size());
+
+        second.setTags(new HashSet<>());
+        board.getColumnById(1).removeCard(first);
+        assertTrue(board.getCardsWithTag(7).isEmpty());
+    }
+
+    @Test
+    void deleteTagRemovesItFromCards() throws Exception {
+        final Board board = indexedBoard();
+        final Tag tag = new Tag(7, "urgent", null);
+        board.addTag(tag);
+        final Card card = new Card(5, "card", 0, "description", null);
+        card.addTag(new Tag(7, "urgent", null));
+        board.addCardToColumn(card, 1);
+
+        assertTrue(board.deleteTag(tag));
+        assertTrue(card.getTags().isEmpty());
+        assertTrue(board.getCardsWithTag(7).isEmpty());
+    }
+
+    @Test
+    void updateTagUpdatesCopiesOnCards() throws Exception {
+        final Board board = indexedBoard();
+        board.addTag(new Tag(7, "urgent", null));
+        final Tag copy = new Tag(7, "urgent", null);
+        final Card card = new Card(5, "card", 0, "description", null);
+        card.addTag(copy);
+        board.addCardToColumn(card, 1);
+
+        board.updateTag(new Tag(7, "later", null));
+        assertEquals("later", copy.getTitle());
+    }
+
+    @Test
+    void updateCardOnlyChangesPatchedFields() throws Exception {
+        final Board board = indexedBoard();
+        final ColorScheme preset = new ColorScheme(3, new Color(0, 0, 0, 255), new Color(255, 255, 255, 255));
+        board.addColorPreset(preset);
+        final Card card = new Card(5, "card", 0, "description", null);
+        board.addCardToColumn(card, 1);
+
+        final CardPatchDTO patch = CardPatchDTO.between(card, "renamed", "description",
+                new ColorScheme(3, new Color(0, 0, 0, 255), new Color(255, 255, 255, 255)));
+        assertNull(patch.description());
+        assertTrue(patch.colorSchemeChanged());
+
+        board.updateCard(patch);
+        assertEquals("renamed", card.getTitle());
+        assertEquals("description", card.getDescription());
+        assertSame(preset, card.getColorScheme());
+    }
+
+    @Test
+    void patchWithoutChangesIsEmpty() {
+        final Card card = new Card(5, "card", 0, "description", null);
+        assertTrue(CardPatchDTO.between(card, "card", "description", null).changesNothing());
+        assertFalse(CardPatchDTO.between(card, "card", "other", null).changesNothing());
+    }
 }
\ No newline at end of file
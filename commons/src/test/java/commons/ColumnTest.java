@@ -4,7 +4,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import javax.persistence.MapKeyEnumerated;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.TreeSet;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -71,6 +73,21 @@ class ColumnTest {
         }
     }
 
+    @Test
+    void removeCardByCopyWithOutdatedRank() {
+        Column cl = new Column(1, "To-Do", 0, new TreeSet<>());
+        Card first = new Card(1, "first", 0, "description", new HashSet<>());
+        Card second = new Card(2, "second", 1, "description", new HashSet<>());
+        cl.addCard(first);
+        cl.addCard(second);
+
+        Card copy = new Card(1, "first", 0, "description", new HashSet<>());
+        copy.setRank(second.getRank() + "m");
+
+        assertTrue(cl.removeCard(copy));
+        assertEquals(List.of(second), new ArrayList<>(cl.getCards()));
+    }
+
     @Test
     void testComparison() {
         Column cl = new Column("To-Do", 1, c1);
@@ -112,4 +129,47 @@ class ColumnTest {
         assertNotEquals(cl.hashCode(), cl5.hashCode());
 
     }
+
+    @Test
+    void updateCardPositionOnlyRanksMovedCard() {
+        Column cl = new Column("To-Do", 0, c1);
+        cl.refreshRanks();
+        final Card moved = c1.last();
+        final Card first = c1.first();
+        final String firstRank = first.getRank();
+
+        assertFalse(cl.updateCardPosition(moved, 1));
+        assertEquals(firstRank, first.getRank());
+        assertEquals(moved, new ArrayList<>(cl.getCards()).get(1));
+        assertEquals(1, moved.getPriority());
+        assertEquals(4, cl.getCards().last().getPriority());
+    }
+
+    @Test
+    void refreshRanksKeepsOrder() {
+        Column cl = new Column("To-Do", 0, c1);
+        final ArrayList<Card> order = new ArrayList<>(c1);
+
+        assertTrue(cl.refreshRanks());
+        assertEquals(order, new ArrayList<>(cl.getCards()));
+        assertFalse(cl.refreshRanks());
+    }
+
+    @Test
+    void repeatedInsertsRebalance() {
+        Column cl = new Column("To-Do", 0, c1);
+        cl.refreshRanks();
+        boolean rebalanced = false;
+        for (int i = 0; i < 200 && !rebalanced; i++) {
+            rebalanced = cl.placeCard(new Card(100L + i, "new", 0, "new", new TreeSet<>()), 1);
+        }
+
+        assertTrue(rebalanced);
+        String previous = null;
+        for (final Card c : cl.getCards()) {
+            assertTrue(c.getRank().length() <= Rank.MAX_LENGTH);
+            assertTrue(previous == null || previous.compareTo(c.getRank()) < 0);
+            previous = c.getRank();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package commons;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongMapTest {
+
+    @Test
+    void putAndGet() {
+        final LongMap<String> map = new LongMap<>();
+        map.put(1, "one");
+        map.put(-5, "minus five");
+        map.put(Long.MAX_VALUE, "max");
+
+        assertEquals("one", map.get(1));
+        assertEquals("minus five", map.get(-5));
+        assertEquals("max", map.get(Long.MAX_VALUE));
+        assertNull(map.get(2));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    void putReplacesValue() {
+        final LongMap<String> map = new LongMap<>();
+        map.put(7, "old");
+        map.put(7, "new");
+
+        assertEquals("new", map.get(7));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void zeroIsAKey() {
+        final LongMap<String> map = new LongMap<>();
+        assertNull(map.get(0));
+
+        map.put(0, "zero");
+        assertEquals("zero", map.get(0));
+        assertEquals(1, map.size());
+
+        assertEquals("zero", map.remove(0));
+        assertNull(map.get(0));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void removeKeepsOtherKeysReachable() {
+        final LongMap<Long> map = new LongMap<>();
+        final Map<Long, Long> expected = new HashMap<>();
+        final Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            // a small key range gives many collisions and removals of keys that are present
+            final long key = random.nextInt(500);
+            if (random.nextBoolean()) {
+                map.put(key, (long) i);
+                expected.put(key, (long) i);
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 500; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package commons;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankTest {
+
+    @Test
+    void betweenIsStrictlyBetween() {
+        final String rank = Rank.between("a", "b");
+        assertTrue("a".compareTo(rank) < 0);
+        assertTrue(rank.compareTo("b") < 0);
+    }
+
+    @Test
+    void betweenOpenBounds() {
+        final String first = Rank.between(null, null);
+        assertTrue(Rank.between(null, first).compareTo(first) < 0);
+        assertTrue(Rank.between(first, null).compareTo(first) > 0);
+    }
+
+    @Test
+    void betweenAdjacentDigits() {
+        final String rank = Rank.between("a", "a1");
+        assertTrue("a".compareTo(rank) < 0);
+        assertTrue(rank.compareTo("a1") < 0);
+        assertNotEquals('0', rank.charAt(rank.length() - 1));
+    }
+
+    @Test
+    void betweenRepeatedlyStaysOrdered() {
+        String low = "a";
+        final String high = "b";
+        for (int i = 0; i < 100; i++) {
+            final String rank = Rank.between(low, high);
+            assertTrue(low.compareTo(rank) < 0);
+            assertTrue(rank.compareTo(high) < 0);
+            low = rank;
+        }
+    }
+
+    @Test
+    void betweenWrongOrder() {
+        assertThrows(IllegalArgumentException.class, () -> Rank.between("b", "a"));
+        assertThrows(IllegalArgumentException.class, () -> Rank.between("a", "a"));
+    }
+
+    @Test
+    void spreadIsAscending() {
+        final List<String> ranks = Rank.spread(1000);
+        assertEquals(1000, ranks.size());
+        for (int i = 1; i < ranks.size(); i++) {
+            assertTrue(ranks.get(i - 1).compareTo(ranks.get(i)) < 0);
+            assertNotEquals('0', ranks.get(i).charAt(ranks.get(i).length() - 1));
+        }
+    }
+}
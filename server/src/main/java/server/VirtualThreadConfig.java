@@ -0,0 +1,138 @@
+package server;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureTask;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs the requests of the server on virtual threads instead of on the bounded pool of Tomcat, when
+ * talio.threads.virtual is set. A request that waits on the database then only holds a virtual thread,
+ * which costs a few hundred bytes instead of a platform thread. The socket channels and the board workers
+ * read the same property, see {@link server.socket.SocketConfig} and {@link server.services.BoardExecutor}.
+ * The server is built for Java 17, so virtual threads are looked up when they are turned on, and the server
+ * then has to run on Java 21 or later.
+ */
+@Configuration
+@ConditionalOnProperty(name = "talio.threads.virtual", havingValue = "true")
+public class VirtualThreadConfig {
+
+    /**
+     * Gets a factory of virtual threads
+     * @param prefix Name of the threads, followed by a number
+     * @return the thread factory
+     * @throws IllegalStateException if the server does not run on Java 21 or later
+     */
+    public static ThreadFactory factory(final String prefix) {
+        try {
+            final Class<?> builder = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            final Object virtual = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Object named = builder.getMethod("name", String.class, long.class).invoke(virtual, prefix, 0L);
+            return (ThreadFactory) builder.getMethod("factory").invoke(named);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("talio.threads.virtual needs Java 21, the server runs on Java "
+                    + Runtime.version().feature(), e);
+        }
+    }
+
+    /**
+     * Gets an executor that starts a new virtual thread for every task
+     * @param prefix Name of the threads, followed by a number
+     * @return the executor
+     * @throws IllegalStateException if the server does not run on Java 21 or later
+     */
+    public static ExecutorService perTaskExecutor(final String prefix) {
+        final ThreadFactory factory = factory(prefix);
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("talio.threads.virtual needs Java 21, the server runs on Java "
+                    + Runtime.version().feature(), e);
+        }
+    }
+
+    /**
+     * Gets an executor of a socket channel that runs every message on a virtual thread of its own.
+     * Spring only takes a pool executor for its channels, so the executor is one in name only: the pool is
+     * never started and every task gets a new virtual thread, without a limit or a queue.
+     * @param prefix Name of the threads, followed by a number
+     * @return the executor
+     */
+    public static ThreadPoolTaskExecutor channelExecutor(final String prefix) {
+        return new ChannelExecutor(factory(prefix));
+    }
+
+    /**
+     * Lets Tomcat run every request on a virtual thread of its own
+     * @return the customizer of the protocol handler of Tomcat
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadRequests() {
+        return protocolHandler -> protocolHandler.setExecutor(perTaskExecutor("http-"));
+    }
+
+    /**
+     * Pool executor that starts a thread for every task instead of handing it to its pool
+     */
+    private static final class ChannelExecutor extends ThreadPoolTaskExecutor {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient ThreadFactory factory;
+
+        private ChannelExecutor(final ThreadFactory factory) {
+            this.factory = factory;
+            setThreadFactory(factory);
+        }
+
+        @Override
+        public void execute(final Runnable task) {
+            factory.newThread(task).start();
+        }
+
+        @Override
+        public void execute(final Runnable task, final long startTimeout) {
+            execute(task);
+        }
+
+        @Override
+        public Future<?> submit(final Runnable task) {
+            final FutureTask<Object> future = new FutureTask<>(task, null);
+            execute(future);
+            return future;
+        }
+
+        @Override
+        public <T> Future<T> submit(final Callable<T> task) {
+            final FutureTask<T> future = new FutureTask<>(task);
+            execute(future);
+            return future;
+        }
+
+        @Override
+        public ListenableFuture<?> submitListenable(final Runnable task) {
+            final ListenableFutureTask<Object> future = new ListenableFutureTask<>(task, null);
+            execute(future);
+            return future;
+        }
+
+        @Override
+        public <T> ListenableFuture<T> submitListenable(final Callable<T> task) {
+            final ListenableFutureTask<T> future = new ListenableFutureTask<>(task);
+            execute(future);
+            return future;
+        }
+    }
+}
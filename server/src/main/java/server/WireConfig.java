@@ -0,0 +1,87 @@
+package server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import commons.WireEncoding;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Lets clients that ask for Smile in their Accept header get Smile instead of JSON, and send Smile request bodies.
+ * The Smile converter comes right after the JSON converter, so JSON is still sent to clients that accept anything.
+ */
+@Configuration
+public class WireConfig implements WebMvcConfigurer {
+
+    private final ObjectMapper smileMapper;
+
+    /**
+     * Constructor for the wire configuration
+     * @param builder Builder of the object mapper of the server, so that Smile is written with the same settings as JSON
+     * @param smile Whether Smile is offered at all, otherwise everything is sent as JSON
+     */
+    public WireConfig(final Jackson2ObjectMapperBuilder builder, @Value("${talio.wire.smile:true}") final boolean smile) {
+        this.smileMapper = smile ? builder.factory(new SmileFactory()).build() : null;
+    }
+
+    /**
+     * Gets the object mapper that writes and reads Smile
+     * @return the object mapper, or null if Smile is turned off
+     */
+    public ObjectMapper getSmileMapper() {
+        return smileMapper;
+    }
+
+    /**
+     * Gets the encoding that a response to a request with the given Accept header is written in,
+     * the same way the converters are picked: the most specific and preferred type that JSON or Smile fits,
+     * where JSON wins when both fit, since its converter comes first
+     * @param accept Accept header of the request, may be null
+     * @return {@link WireEncoding#SMILE} or {@link WireEncoding#JSON}
+     */
+    public String negotiate(final String accept) {
+        if (smileMapper == null || accept == null) return WireEncoding.JSON;
+
+        final List<MediaType> types;
+        try {
+            types = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return WireEncoding.JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(types);
+        for (final MediaType type : types) {
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) return WireEncoding.JSON;
+            if (type.isCompatibleWith(MediaType.valueOf(WireEncoding.SMILE))) return WireEncoding.SMILE;
+        }
+        return WireEncoding.JSON;
+    }
+
+    /**
+     * Puts the Smile converter right after the JSON converter
+     * @param converters Converters of the server, in order of preference
+     */
+    @Override
+    public void extendMessageConverters(final List<HttpMessageConverter<?>> converters) {
+        // Spring adds a Smile converter of its own when Smile is on the class path, which does not use the settings of the server
+        converters.removeIf(MappingJackson2SmileHttpMessageConverter.class::isInstance);
+        if (smileMapper == null) return;
+
+        int json = converters.size() - 1;
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2HttpMessageConverter) {
+                json = i;
+                break;
+            }
+        }
+        converters.add(json + 1, new MappingJackson2SmileHttpMessageConverter(smileMapper));
+    }
+}
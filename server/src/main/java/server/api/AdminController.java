@@ -1,16 +1,23 @@
 package server.api;
 
-import commons.Board;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import server.services.AdminService;
+import server.services.BoardExecutor;
+import server.services.BoardPayloadCache;
+import server.services.BoardService;
+import server.socket.ShardedBrokerMessageHandler;
 
-import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static server.Main.validatePassword;
 
@@ -20,13 +27,27 @@ public class AdminController {
     private final Logger logger = LogManager.getLogger(AdminController.class);
 
     private final AdminService adminService;
+    private final BoardExecutor boardExecutor;
+    private final BoardService boardService;
+    private final BoardPayloadCache payloadCache;
+    private final Optional<ShardedBrokerMessageHandler> broker;
 
     /**
      * Constructor for AdminController
      * @param adminService BoardService dependency injection
+     * @param boardExecutor BoardExecutor dependency injection
+     * @param boardService BoardService dependency injection
+     * @param payloadCache BoardPayloadCache dependency injection
+     * @param broker Sharded broker dependency injection, empty when the simple broker serves the topics
      */
-    public AdminController (final AdminService adminService) {
+    public AdminController (final AdminService adminService, final BoardExecutor boardExecutor, final BoardService boardService,
+                            final BoardPayloadCache payloadCache, final Optional<ShardedBrokerMessageHandler> broker)
+    {
         this.adminService = adminService;
+        this.boardExecutor = boardExecutor;
+        this.boardService = boardService;
+        this.payloadCache = payloadCache;
+        this.broker = broker;
     }
 
     /**
@@ -41,13 +62,66 @@ public class AdminController {
     }
 
     /**
-     * gets all boards from the database
-     * @return List of all Boards
+     * Gets one page of boards from the database, ordered by creation time and join key.
+     * The boards are streamed to the client while they are read from the database.
+     * @param afterCreated creation time (epoch millis) of the last board of the previous page, omitted for the first page
+     * @param afterJoinKey join key of the last board of the previous page, omitted for the first page
+     * @param limit maximum number of boards on the page
+     * @return page of boards with the position of the next page
      */
-    @GetMapping("/admin/getAllBoards")
-    public ResponseEntity<List<Board>> getAllBoards () {
-        logger.info("received request to fetch all boards in server");
-        final List<Board> allBoards = adminService.getAllBoards();
-        return ResponseEntity.ok(allBoards);
+    @GetMapping("/admin/boards")
+    public ResponseEntity<StreamingResponseBody> getBoards(@RequestParam(required = false) final Long afterCreated,
+                                                           @RequestParam(required = false) final String afterJoinKey,
+                                                           @RequestParam(defaultValue = "100") final int limit)
+    {
+        logger.info("received request to fetch boards in server after " + afterCreated + "/" + afterJoinKey);
+        final StreamingResponseBody body = out -> adminService.writeBoardPage(afterCreated, afterJoinKey, limit, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Gets the number of changes that are waiting to be applied, for every board that currently has any
+     * @return number of waiting changes by join key
+     */
+    @GetMapping("/admin/queues")
+    public ResponseEntity<Map<String, Integer>> getQueueDepths() {
+        return ResponseEntity.ok(boardExecutor.getQueueDepths());
+    }
+
+    /**
+     * Gets the number of conflicting writes and of retried changes per board since the server started
+     * @return conflicts and retries by join key
+     */
+    @GetMapping("/admin/contention")
+    public ResponseEntity<Map<String, Map<String, Long>>> getContention() {
+        return ResponseEntity.ok(Map.of(
+                "conflicts", boardService.getConflictCounts(),
+                "retries", boardService.getRetryCounts()));
+    }
+
+    /**
+     * Gets how often boards were sent from the cache of encoded boards since the server started,
+     * and how many bytes did not have to be written because of it
+     * @return hits, misses, hit ratio, bytes saved and the number of cached boards
+     */
+    @GetMapping("/admin/payload-cache")
+    public ResponseEntity<Map<String, Object>> getPayloadCacheStats() {
+        return ResponseEntity.ok(payloadCache.getStats());
+    }
+
+    /**
+     * Gets how long the broker took to fan out the messages of every board, how often slow sessions lost messages
+     * or were disconnected, and how many messages are waiting per session
+     * @return broker statistics, or 404 when the simple broker serves the topics
+     */
+    @GetMapping("/admin/broker")
+    public ResponseEntity<Map<String, Object>> getBrokerStats() {
+        if (broker.isEmpty()) return ResponseEntity.notFound().build();
+
+        final ShardedBrokerMessageHandler handler = broker.get();
+        return ResponseEntity.ok(Map.of(
+                "fanout", handler.getFanoutStats(),
+                "slowConsumers", handler.getSlowConsumerCounts(),
+                "queues", handler.getQueueDepths()));
     }
 }
@@ -0,0 +1,88 @@
+package server.api;
+
+import commons.Board;
+import commons.DTOs.BatchDTO;
+import commons.DTOs.BoardChangesDTO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.server.ResponseStatusException;
+import server.services.BoardBatchService;
+import server.services.BoardEventPublisher;
+import server.services.BoardService;
+
+@Controller
+public class BatchController {
+
+    private final BoardService boardService;
+
+    private final BoardBatchService batchService;
+
+    private final BoardEventPublisher eventPublisher;
+    private final Logger logger = LogManager.getLogger(BatchController.class);
+
+    /**
+     * Constructor for the Batch Controller
+     *
+     * @param boardService      Dependency injection for the board service
+     * @param batchService      Applies the changes of a batch to a board
+     * @param eventPublisher    Dependency injection for the event publisher
+     */
+    public BatchController(final BoardService boardService, final BoardBatchService batchService,
+                           final BoardEventPublisher eventPublisher)
+    {
+        this.boardService = boardService;
+        this.batchService = batchService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Makes a list of changes to a board in order, as a whole. The board is saved once,
+     * and the changes are broadcast together in a single message.
+     *
+     * @param batchDTO Changes to make and password to board for authentication
+     * @param joinKey  Key of board to be changed
+     * @return The logged changes, in order
+     */
+    @PostMapping("/boards/batch/{joinKey}")
+    public ResponseEntity<BoardChangesDTO> applyBatch(@RequestBody final BatchDTO batchDTO, @PathVariable final String joinKey) {
+        if (batchDTO.operations() == null || batchDTO.operations().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A batch needs at least one operation");
+        }
+        if (batchDTO.operations().size() > BoardBatchService.MAX_OPERATIONS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A batch can hold at most " + BoardBatchService.MAX_OPERATIONS + " operations");
+        }
+
+        return boardService.mutate(joinKey, () -> {
+            final Board board = boardService.getBoardWithKeyAndPassword(joinKey, batchDTO.password());
+
+            final BoardChangesDTO changes;
+            try {
+                changes = batchService.apply(board, batchDTO.operations());
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+
+            updateBatchApplied(joinKey, changes);
+
+            return ResponseEntity.ok(changes);
+        });
+    }
+
+    /**
+     * Sends the changes of a batch to all clients subscribed to that board
+     *
+     * @param joinKey String of the board
+     * @param changes The logged changes of the batch
+     */
+    public void updateBatchApplied(final String joinKey, final BoardChangesDTO changes) {
+        logger.info("Propagating batch of " + changes.events().size() + " changes for: " + joinKey);
+        eventPublisher.publishChanges(changes);
+    }
+}
@@ -2,20 +2,31 @@ package server.api;
 
 
 import commons.Board;
+import commons.BoardEventType;
+import commons.DTOs.BoardChangesDTO;
+import commons.DTOs.BoardSummaryDTO;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import server.WireConfig;
+import server.longPolling.BoardLifecycleEvents;
+import server.services.BoardCopier;
+import server.services.BoardEventPublisher;
+import server.services.BoardPayloadCache;
 import server.services.BoardService;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.Timestamp;
 import java.time.Clock;
 import java.time.Instant;
@@ -28,22 +39,41 @@ import java.util.TreeSet;
 public class BoardController {
     private final BoardService boardService;
 
-    private final SimpMessageSendingOperations messagingTemplate;
+    private final BoardEventPublisher eventPublisher;
     private final Logger logger = LogManager.getLogger(BoardController.class);
 
     private final Clock clock;
 
+    private final WireConfig wireConfig;
+
+    private final BoardPayloadCache payloadCache;
+
+    private final BoardLifecycleEvents lifecycleEvents;
+
+    private final BoardCopier boardCopier;
+
     /**
      * Constructor for the Board Controller
      *
      * @param boardService      Dependency Injection for the board service
-     * @param messagingTemplate Template to send updates over socket
+     * @param eventPublisher    Dependency injection for the event publisher
      * @param clock             Dependency Injection for the clock
+     * @param wireConfig        Tells which encoding a response is written in
+     * @param payloadCache      Keeps the encoded boards that are sent
+     * @param lifecycleEvents   Tells waiting home pages about deleted and renamed boards
+     * @param boardCopier       Copies the created board out of the cache
      */
-    public BoardController(final BoardService boardService, final SimpMessageSendingOperations messagingTemplate, final Clock clock) {
+    public BoardController(final BoardService boardService, final BoardEventPublisher eventPublisher, final Clock clock,
+                           final WireConfig wireConfig, final BoardPayloadCache payloadCache,
+                           final BoardLifecycleEvents lifecycleEvents, final BoardCopier boardCopier)
+    {
         this.boardService = boardService;
-        this.messagingTemplate = messagingTemplate;
+        this.eventPublisher = eventPublisher;
         this.clock = clock;
+        this.wireConfig = wireConfig;
+        this.payloadCache = payloadCache;
+        this.lifecycleEvents = lifecycleEvents;
+        this.boardCopier = boardCopier;
     }
 
     /**
@@ -55,19 +85,34 @@ public class BoardController {
     }
 
     /**
-     * Returns a Board object with the given join key
+     * Returns a Board object with the given join key.
+     * The response carries an ETag of the version of the board, and a request whose If-None-Match holds that ETag
+     * gets 304 Not Modified without the board, once the password has been checked.
+     * The board is written once per version and encoding, and served from the {@link BoardPayloadCache} after that.
+     * The ETag and the body are read on the executor of the board, so that they always belong to the same version.
      * @param joinKey Join key of the board
      * @param password Optional password of the board
+     * @param accept Accept header of the request, which decides the encoding and with that the ETag
      * @return The board with the right joinKey if the board has the correct password provided, otherwise a
      */
     @GetMapping("/boards/get/{joinKey}")
-    public ResponseEntity<Board> getBoard(@PathVariable final String joinKey, @RequestBody(required = false) final String password) {
+    public ResponseEntity<byte[]> getBoard(@PathVariable final String joinKey, @RequestBody(required = false) final String password,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT, required = false) final String accept)
+    {
         try {
-            final Board board = password == null ?
-                    boardService.getBoardWithKey(joinKey) :
-                    boardService.getBoardWithKeyAndPassword(joinKey, password);
+            final String encoding = wireConfig.negotiate(accept);
+            return boardService.read(joinKey, () -> {
+                final Board board = password == null ?
+                        boardService.getBoardWithKey(joinKey) :
+                        boardService.getBoardWithKeyAndPassword(joinKey, password);
 
-            return ResponseEntity.ok(board);
+                // answers 304 instead of sending the board if the request holds the same ETag
+                return ResponseEntity.ok()
+                        .eTag(eTag(board, encoding))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .contentType(MediaType.parseMediaType(encoding))
+                        .body(encode(board, encoding));
+            });
         }
         catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.toString());
@@ -75,26 +120,95 @@ public class BoardController {
     }
 
     /**
-     * Returns a list of boards with the given join keys
+     * Gets the strong ETag of a board in an encoding. Every change to a board is logged and raises its event number,
+     * and the creation time tells apart a board that was deleted and created again under the same join key.
+     * @param board Board to get the ETag of
+     * @param encoding Media type the board is written in
+     * @return the ETag, quoted
+     */
+    static String eTag(final Board board, final String encoding) {
+        final long created = board.getCreated() == null ? 0 : board.getCreated().getTime();
+        final String suffix = encoding.substring(encoding.lastIndexOf('/') + 1);
+        return "\"" + created + "-" + board.getSequence() + "-" + suffix + "\"";
+    }
+
+    /**
+     * Returns the changes to a board since a version that the client already has,
+     * or the whole board if the client is too far behind
+     * @param joinKey Join key of the board
+     * @param since Version of the board that the client has
+     * @param password Optional password of the board
+     * @return The changes since that version
+     */
+    @GetMapping("/boards/changes/{joinKey}")
+    public ResponseEntity<BoardChangesDTO> getBoardChanges(@PathVariable final String joinKey, @RequestParam final long since,
+                                                           @RequestBody(required = false) final String password)
+    {
+        try {
+            return ResponseEntity.ok(boardService.getChangesSince(joinKey, password, since));
+        }
+        catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.toString());
+        }
+    }
+
+    /**
+     * Gets a board in an encoding from the {@link BoardPayloadCache}, called on the executor of the board
+     * @param board Board to encode
+     * @param encoding Media type to write the board in
+     * @return the encoded board
+     */
+    private byte[] encode(final Board board, final String encoding) {
+        try {
+            return payloadCache.encode(board, encoding);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns a list of boards with the given join keys, put together from the {@link BoardPayloadCache}.
+     * Every board is encoded on its own executor, so that none of them is written halfway through a change.
      * @param localBoards List of join keys
+     * @param accept Accept header of the request, which decides the encoding
      * @return List of boards
      */
     @PostMapping("/boards/getAll")
-    public ResponseEntity<List<Board>> getAllBoards(@RequestBody final HashMap<String, String> localBoards) {
+    public ResponseEntity<byte[]> getAllBoards(@RequestBody final HashMap<String, String> localBoards,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false) final String accept)
+    {
         try {
-            final List<Board> boards = new ArrayList<>();
+            final String encoding = wireConfig.negotiate(accept);
+            final List<byte[]> boards = new ArrayList<>();
 
             for (final String joinKey : localBoards.keySet()) {
-                boards.add(boardService.getBoardWithKeyUnsafe(joinKey));
+                boards.add(boardService.read(joinKey, () -> {
+                    final Board board = boardService.getBoardWithKeyUnsafe(joinKey);
+                    return board == null ? null : encode(board, encoding);
+                }));
             }
 
-            return ResponseEntity.ok(boards);
+            return ResponseEntity.ok()
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .contentType(MediaType.parseMediaType(encoding))
+                    .body(payloadCache.encodeAll(boards, encoding));
         }
         catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.toString());
         }
     }
 
+    /**
+     * Returns the summaries of the boards with the given join keys, for showing them on the home page.
+     * Boards that do not exist are left out.
+     * @param joinKeys List of join keys
+     * @return List of board summaries
+     */
+    @PostMapping("/boards/summaries")
+    public ResponseEntity<List<BoardSummaryDTO>> getBoardSummaries(@RequestBody final List<String> joinKeys) {
+        return ResponseEntity.ok(boardService.getBoardSummaries(joinKeys));
+    }
+
     /**
      * Creates a {@link Board}
      * @param boardDTO {@link Board} to create
@@ -108,7 +222,10 @@ public class BoardController {
             final Board board = new Board(boardJoinKey, boardDTO.getTitle(), boardDTO.getPassword(), new TreeSet<>(), Timestamp.from(Instant.now(clock)));
 
             final Board savedBoard = boardService.saveBoard(board);
-            return ResponseEntity.ok(savedBoard);
+            // the log of the new board starts from this empty state
+            boardService.snapshotBoard(savedBoard);
+            // the saved board is the cached one, so it is copied on its executor
+            return ResponseEntity.ok(boardService.read(boardJoinKey, () -> boardCopier.copy(savedBoard)));
         }
         catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.toString());
@@ -123,18 +240,20 @@ public class BoardController {
      */
     @PostMapping("/boards/set-password/{joinKey}")
     public ResponseEntity<Board> setBoardPassword(@Valid @RequestBody final String password, @PathVariable final String joinKey) {
-        try {
-            final Board board = boardService.getBoardWithKey(joinKey);
-            board.setPassword(password);
-            boardService.saveBoard(board);
+        return boardService.mutate(joinKey, () -> {
+            try {
+                final Board board = boardService.getBoardWithKey(joinKey);
+                board.setPassword(password);
+                boardService.saveBoard(board);
 
-            updateBoardPassword(joinKey, password);
+                updateBoardPassword(joinKey, password);
 
-            return ResponseEntity.ok().build();
-        }
-        catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.toString());
-        }
+                return ResponseEntity.ok().build();
+            }
+            catch (Exception e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.toString());
+            }
+        });
     }
 
     /**
@@ -144,10 +263,14 @@ public class BoardController {
      */
     @DeleteMapping("/boards/delete/{joinKey}")
     public ResponseEntity<Void> deleteBoard(@PathVariable final String joinKey) {
-        final Board board = boardService.getBoardWithKey(joinKey);
-        boardService.deleteBoard(board);
-        logger.info("Deleted board with join key: " + joinKey);
-        return ResponseEntity.ok().build();
+        return boardService.mutate(joinKey, () -> {
+            final Board board = boardService.getBoardWithKey(joinKey);
+            boardService.deleteBoard(board);
+            payloadCache.invalidate(joinKey);
+            lifecycleEvents.boardDeleted(joinKey);
+            logger.info("Deleted board with join key: " + joinKey);
+            return ResponseEntity.ok().build();
+        });
     }
 
     /**
@@ -155,25 +278,25 @@ public class BoardController {
      * @param joinKey String for board
      * @param newHeading  String for new name of board
      * @param password String password for board
-     * @return Board the renamed board
      */
     @MessageMapping("/boards/rename/{joinKey}/{newHeading}")
-    public Board renameBoard(@Payload(required = false) final String password, @DestinationVariable final String joinKey,
-                             @DestinationVariable final String newHeading)
+    public void renameBoard(@Payload(required = false) final String password, @DestinationVariable final String joinKey,
+                            @DestinationVariable final String newHeading)
     {
-        try {
-            final Board toBeRenamed = boardService.getBoardWithKeyAndPassword(joinKey, password);
-
-            toBeRenamed.setTitle(newHeading);
-            boardService.saveBoard(toBeRenamed);
+        boardService.mutateWithoutResult(joinKey, () -> {
+            try {
+                final Board toBeRenamed = boardService.getBoardWithKeyAndPassword(joinKey, password);
 
-            updateBoardRenamed(joinKey, newHeading);
+                toBeRenamed.setTitle(newHeading);
+                boardService.saveBoard(toBeRenamed);
 
-            return toBeRenamed;
-        }
-        catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.toString());
-        }
+                updateBoardRenamed(joinKey, newHeading);
+                lifecycleEvents.boardRenamed(joinKey, newHeading);
+            }
+            catch (Exception e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.toString());
+            }
+        });
     }
 
     /**
@@ -183,12 +306,12 @@ public class BoardController {
      */
     public void updateBoardRenamed(final String joinKey, final String newHeading) {
         logger.info("Propagating column renamed for: " + joinKey);
-        messagingTemplate.convertAndSend("/topic/boards/" + joinKey + "/rename", newHeading);
+        eventPublisher.publish(joinKey, BoardEventType.BOARD_RENAMED, newHeading);
     }
 
     private void updateBoardPassword(final String joinKey, final String password) {
         logger.info("Propagating password update for: " + joinKey);
-        messagingTemplate.convertAndSend("/topic/boards/" + joinKey + "/set-password", password);
+        eventPublisher.publish(joinKey, BoardEventType.BOARD_PASSWORD_SET, password);
     }
 
 }
@@ -1,10 +1,11 @@
 package server.api;
 
 import commons.Board;
+import commons.BoardEventType;
 import commons.Card;
 import commons.Column;
 import commons.DTOs.CardDTO;
-import commons.Tag;
+import commons.DTOs.CardPatchDTO;
 import commons.exceptions.CardNotFoundException;
 import commons.exceptions.ColumnNotFoundException;
 import org.apache.logging.log4j.LogManager;
@@ -13,18 +14,16 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.server.ResponseStatusException;
+import server.services.BoardCopier;
+import server.services.BoardEventPublisher;
 import server.services.BoardService;
 
 import javax.validation.Valid;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @Controller
 //@RequestMapping("/cards")
@@ -32,18 +31,22 @@ public class CardController {
 
     private final BoardService boardService;
 
-    private final SimpMessageSendingOperations messagingTemplate;
+    private final BoardEventPublisher eventPublisher;
+
+    private final BoardCopier boardCopier;
     private final Logger logger = LogManager.getLogger(CardController.class);
 
     /**
      * Constructor for the Card Controller
      *
      * @param boardService      Dependency injection for the board service
-     * @param messagingTemplate Template to send updates over socket
+     * @param eventPublisher    Dependency injection for the event publisher
+     * @param boardCopier       Copies the added card out of the board
      */
-    public CardController(final BoardService boardService, final SimpMessageSendingOperations messagingTemplate) {
+    public CardController(final BoardService boardService, final BoardEventPublisher eventPublisher, final BoardCopier boardCopier) {
         this.boardService = boardService;
-        this.messagingTemplate = messagingTemplate;
+        this.eventPublisher = eventPublisher;
+        this.boardCopier = boardCopier;
     }
 
     /**
@@ -57,25 +60,30 @@ public class CardController {
     public ResponseEntity<Card> addCard(@Valid @RequestBody final CardDTO cardDTO, @PathVariable final String joinKey,
                                         @PathVariable final long columnId)
     {
-        final String password = cardDTO.password();
+        return boardService.mutate(joinKey, () -> {
+            final String password = cardDTO.password();
 
-        final Board board =  boardService.getBoardWithKeyAndPassword(joinKey, password);
+            final Board board =  boardService.getBoardWithKeyAndPassword(joinKey, password);
 
-        final Card clientCard = cardDTO.card();
-        final Card card = new Card(clientCard.getTitle(), clientCard.getPriority(),
-                clientCard.getDescription(), clientCard.getSubtasks(), clientCard.getTags());
+            final Card clientCard = cardDTO.card();
+            final Card card = new Card(clientCard.getTitle(), clientCard.getPriority(),
+                    clientCard.getDescription(), clientCard.getSubtasks(), clientCard.getTags());
 
-        card.generateId();
-        try {
-            board.addCardToColumn(card, columnId);
-        } catch (ColumnNotFoundException e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The column with id" + columnId + " was not found in the board with join key " + joinKey);
-        }
-        boardService.saveBoard(board);
+            card.generateId();
+            final Column column;
+            try {
+                column = board.getColumnById(columnId);
+                board.addCardToColumn(card, columnId);
+            } catch (ColumnNotFoundException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The column with id" + columnId + " was not found in the board with join key " + joinKey);
+            }
+            boardService.saveCardAdded(board, column, card);
 
-        updateCardAdded(joinKey, columnId, card);
+            updateCardAdded(joinKey, columnId, card);
 
-        return ResponseEntity.ok(card);
+            // the response is written after the mutation, when the card may already be changed again
+            return ResponseEntity.ok(boardCopier.copy(card));
+        });
     }
 
     /**
@@ -90,21 +98,23 @@ public class CardController {
     public ResponseEntity<Card> removeCard(@Valid @RequestBody final CardDTO cardDTO, @PathVariable final String joinKey,
                                            @PathVariable final long columnId)
     {
-        final String password = cardDTO.password();
+        return boardService.mutate(joinKey, () -> {
+            final String password = cardDTO.password();
 
-        final Board board =  boardService.getBoardWithKeyAndPassword(joinKey, password);
+            final Board board =  boardService.getBoardWithKeyAndPassword(joinKey, password);
 
-        final Card card = cardDTO.getCard();
-        final Column column;
-        try { column = board.getColumnById(columnId); }
-        catch (ColumnNotFoundException e) { throw new RuntimeException(e); }
+            final Card card = cardDTO.getCard();
+            final Column column;
+            try { column = board.getColumnById(columnId); }
+            catch (ColumnNotFoundException e) { throw new RuntimeException(e); }
 
-        if (!column.removeCard(card)) throw new RuntimeException();
-        boardService.saveBoard(board);
+            if (!column.removeCard(card)) throw new RuntimeException();
+            boardService.saveBoard(board);
 
-        updateCardRemoved(joinKey, columnId, card);
+            updateCardRemoved(joinKey, columnId, card);
 
-        return ResponseEntity.ok(card);
+            return ResponseEntity.ok(card);
+        });
     }
 
     /**
@@ -114,99 +124,84 @@ public class CardController {
      * @param sourceColumnId ID of column to which card belongs
      * @param destinationColumnId ID of column to which card is to be moved
      * @param newPosition New position of card in column
-     *
-     * @return The column in which the card was updated
      */
     @MessageMapping("/cards/reposition/{joinKey}/{sourceColumnId}/{destinationColumnId}/{newPosition}")
-    public Column repositionCard(@RequestBody final CardDTO cardDTO, @DestinationVariable final String joinKey,
-                                 @DestinationVariable final long sourceColumnId, @DestinationVariable final int newPosition,
-                                 @PathVariable @DestinationVariable final long destinationColumnId)
+    public void repositionCard(@RequestBody final CardDTO cardDTO, @DestinationVariable final String joinKey,
+                               @DestinationVariable final long sourceColumnId, @DestinationVariable final int newPosition,
+                               @PathVariable @DestinationVariable final long destinationColumnId)
     {
-        if (newPosition < 0) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The new position must be a positive integer");
-        }
-
-        try {
-            final String password = cardDTO.password();
-
-            Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
-
-            final Card clientCard = cardDTO.getCard();
-            final Card card = new Card(clientCard.getId(), clientCard.getTitle(),
-                    newPosition, clientCard.getDescription(), clientCard.getSubtasks(), clientCard.getTags());
-            Column sourceColumn = board.getColumnById(sourceColumnId);
-            Column destinationColumn = board.getColumnById(destinationColumnId);
-
-            final Card serverCard = board.getCard(clientCard.getId());
-
-            if (sourceColumnId == destinationColumnId && newPosition != clientCard.getPriority()) {
-                sourceColumn.updateCardPosition(serverCard, newPosition);
+        boardService.mutateWithoutResult(joinKey, () -> {
+            if (newPosition < 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The new position must be a positive integer");
             }
-            else {
-                if (!sourceColumn.removeCard(serverCard))
-                    throw new RuntimeException("Could not remove card when trying to reposition");
 
-                boardService.saveBoard(board);
-                board = boardService.getBoardWithKeyAndPassword(joinKey, password);
+            try {
+                final String password = cardDTO.password();
 
-                sourceColumn = board.getColumnById(sourceColumnId);
-                destinationColumn = board.getColumnById(destinationColumnId);
+                final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
 
-                if (!destinationColumn.insertCard(card))
-                    throw new RuntimeException("Could not insert card when trying to reposition");
-            }
+                final Card clientCard = cardDTO.getCard();
+                final Card card = new Card(clientCard.getId(), clientCard.getTitle(),
+                        newPosition, clientCard.getDescription(), clientCard.getSubtasks(), clientCard.getTags());
+                final Column sourceColumn = board.getColumnById(sourceColumnId);
+                final Column destinationColumn = board.getColumnById(destinationColumnId);
 
+                final Card serverCard = board.getCard(clientCard.getId());
 
-            boardService.saveBoard(board);
+                // only the moved card gets a new rank, the other cards keep theirs
+                final boolean rebalanced;
+                if (sourceColumnId == destinationColumnId) {
+                    rebalanced = sourceColumn.updateCardPosition(serverCard, newPosition);
+                }
+                else {
+                    if (!sourceColumn.removeCard(serverCard))
+                        throw new RuntimeException("Could not remove card when trying to reposition");
+                    rebalanced = destinationColumn.placeCard(serverCard, newPosition);
+                }
 
-            updateCardRepositioned(joinKey, sourceColumnId, destinationColumnId, card, newPosition);
+                boardService.saveCardMoved(board, sourceColumn, destinationColumn, serverCard, rebalanced);
 
-            return sourceColumn;
-        }
-        catch (ColumnNotFoundException | CardNotFoundException e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.toString());
-        }
+                card.setRank(serverCard.getRank());
+                updateCardRepositioned(joinKey, sourceColumnId, destinationColumnId, card, newPosition);
+            }
+            catch (ColumnNotFoundException | CardNotFoundException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.toString());
+            }
+        });
     }
 
     /**
-     * Change the title, description, or tags of a card
+     * Change the title, description, or color scheme of a card.
+     * Only the edited fields are sent, tags and subtasks are changed through their own endpoints.
      *
-     * @param cardDTO  Containing card to be updated and password to board for authentication
+     * @param patch    Containing the edited fields of the card and password to board for authentication
      * @param joinKey  Key of board from which card is to be updated
-     * @param columnId Name of column from which card is to be updated
-     * @return The card updated in CardRepository
+     * @return The edited fields of the card
      */
-    @MessageMapping("/cards/edit/{joinKey}/{columnId}")
-    public Card editCard(@RequestBody final CardDTO cardDTO, @DestinationVariable final String joinKey,
-                                         @DestinationVariable final long columnId)
-    {
-        logger.info("Received edit card request for board: " + joinKey);
-        try {
-            final String password = cardDTO.getPassword();
-
-            final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
-
-            final Card clientCard = cardDTO.getCard();
-            final Column column = board.getColumnById(columnId);
+    @MessageMapping("/cards/patch/{joinKey}")
+    public CardPatchDTO editCard(@RequestBody final CardPatchDTO patch, @DestinationVariable final String joinKey) {
+        return boardService.mutate(joinKey, () -> {
+            logger.info("Received edit card request for board: " + joinKey);
+            try {
+                final Board board = boardService.getBoardWithKeyAndPassword(joinKey, patch.getPassword());
 
-            final Set<Tag> clientTags = clientCard.getTags();
-            final Set<Tag> dbTags = board.getTags();
+                final Card card = board.getCard(patch.cardId());
+                board.updateCard(patch);
 
-            final Set<Tag> tagsToBeAdded = dbTags.stream().filter(clientTags::contains).collect(Collectors.toCollection(HashSet::new));
+                if (patch.colorSchemeChanged())
+                    boardService.saveBoard(board);
+                else
+                    boardService.saveCardFields(board, card);
 
-            clientCard.setTags(tagsToBeAdded);
+                final CardPatchDTO message = patch.withPassword(null);
+                updateCardEdited(joinKey, message);
 
-            column.updateCard(clientCard);
-
-            boardService.saveBoard(board);
-
-            updateCardEdited(joinKey, columnId, clientCard);
-
-            return clientCard;
-        }
-        catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.toString());
-        }
+                return message;
+            }
+            catch (CardNotFoundException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.toString());
+            }
+        });
     }
 
     /**
@@ -220,19 +215,19 @@ public class CardController {
      */
     public void updateCardRepositioned(final String joinKey, final long columnId, final long destinationColumnId, final Card card, final int newPosition) {
         logger.info("Propagating card repositioned for: " + joinKey);
-        messagingTemplate.convertAndSend("/topic/cards/" + joinKey + "/reposition", new CardDTO(card, columnId, destinationColumnId, newPosition));
+        final CardDTO message = new CardDTO(card, columnId, destinationColumnId, newPosition);
+        eventPublisher.publish(joinKey, BoardEventType.CARD_REPOSITIONED, message);
     }
 
     /**
      * Notifies all subscribed client to alter contents of card
      *
      * @param joinKey  String of board
-     * @param columnId String column card is in
-     * @param card     Card to be edited
+     * @param patch    Edited fields of the card
      */
-    public void updateCardEdited(final String joinKey, final long columnId, final Card card) {
+    public void updateCardEdited(final String joinKey, final CardPatchDTO patch) {
         logger.info("Propagating card edited for: " + joinKey);
-        messagingTemplate.convertAndSend("/topic/cards/" + joinKey + "/edit", new CardDTO(card, columnId));
+        eventPublisher.publish(joinKey, BoardEventType.CARD_PATCHED, patch);
     }
 
     /**
@@ -244,7 +239,8 @@ public class CardController {
      */
     public void updateCardAdded(final String joinKey, final long columnId, final Card card) {
         logger.info("Propagating card added for: " + joinKey);
-        messagingTemplate.convertAndSend("/topic/cards/" + joinKey + "/add", new CardDTO(card, columnId));
+        final CardDTO message = new CardDTO(card, columnId);
+        eventPublisher.publish(joinKey, BoardEventType.CARD_ADDED, message);
     }
 
     /**
@@ -256,7 +252,8 @@ public class CardController {
      */
     public void updateCardRemoved(final String joinKey, final long columnId, final Card card) {
         logger.info("Propagating card removed for: " + joinKey);
-        messagingTemplate.convertAndSend("/topic/cards/" + joinKey + "/remove", new CardDTO(card, columnId));
+        final CardDTO message = new CardDTO(card, columnId);
+        eventPublisher.publish(joinKey, BoardEventType.CARD_REMOVED, message);
     }
 
 }
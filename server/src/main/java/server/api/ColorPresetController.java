@@ -1,6 +1,7 @@
 package server.api;
 
 import commons.Board;
+import commons.BoardEventType;
 import commons.ColorScheme;
 import commons.DTOs.ColorSchemeDTO;
 import org.apache.logging.log4j.LogManager;
@@ -8,11 +9,12 @@ import org.apache.logging.log4j.Logger;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import server.services.BoardCopier;
+import server.services.BoardEventPublisher;
 import server.services.BoardService;
 
 import javax.validation.Valid;
@@ -22,96 +24,100 @@ public class ColorPresetController {
 
     private final BoardService boardService;
 
-    private final SimpMessageSendingOperations messagingTemplate;
+    private final BoardEventPublisher eventPublisher;
+
+    private final BoardCopier boardCopier;
     private final Logger logger = LogManager.getLogger(CardController.class);
 
 
     /**
      * Constructor for the Card Controller
      * @param boardService Dependency injection for the board service
-     * @param messagingTemplate Template to send updates over socket
+     * @param eventPublisher Dependency injection for the event publisher
+     * @param boardCopier Copies the added color schemes out of the board
      */
-    public ColorPresetController(final BoardService boardService, final SimpMessageSendingOperations messagingTemplate) {
+    public ColorPresetController(final BoardService boardService, final BoardEventPublisher eventPublisher, final BoardCopier boardCopier) {
         this.boardService = boardService;
-        this.messagingTemplate = messagingTemplate;
+        this.eventPublisher = eventPublisher;
+        this.boardCopier = boardCopier;
     }
 
     /**
      * Sets the default color preset for the card
      * @param colorSchemeDTO The color scheme to set
      * @param joinKey The join key of the board
-     * @return The color scheme that was set
      */
     @MessageMapping("/color-presets/set-card/{joinKey}")
-    public ResponseEntity<ColorScheme> setCardColorPreset(@Valid final ColorSchemeDTO colorSchemeDTO,
-                                                          @DestinationVariable final String joinKey)
+    public void setCardColorPreset(@Valid final ColorSchemeDTO colorSchemeDTO,
+                                   @DestinationVariable final String joinKey)
     {
-        final String password = colorSchemeDTO.getPassword();
-        final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
-        final ColorScheme colorScheme = colorSchemeDTO.getColorScheme();
+        boardService.mutateWithoutResult(joinKey, () -> {
+            final String password = colorSchemeDTO.getPassword();
+            final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
+            final ColorScheme colorScheme = colorSchemeDTO.getColorScheme();
 
-        final ColorScheme existingColorScheme = board.getCardColorScheme();
+            final ColorScheme existingColorScheme = board.getCardColorScheme();
 
-        existingColorScheme.setBackgroundColor(colorScheme.getBackgroundColor());
-        existingColorScheme.setTextColor(colorScheme.getTextColor());
-        existingColorScheme.setName(colorScheme.getName());
+            existingColorScheme.setBackgroundColor(colorScheme.getBackgroundColor());
+            existingColorScheme.setTextColor(colorScheme.getTextColor());
+            existingColorScheme.setName(colorScheme.getName());
 
-        boardService.saveBoard(board);
+            boardService.saveBoard(board);
 
-        updateColorPresetCard(colorScheme, board);
-        return ResponseEntity.ok(colorScheme);
+            updateColorPresetCard(colorScheme, board);
+        });
     }
 
     /**
      * Sets the default color preset for the column
      * @param colorSchemeDTO The color scheme to set
      * @param joinKey The join key of the board
-     * @return The color scheme that was set
      */
     @MessageMapping("/color-presets/set-column/{joinKey}")
-    public ResponseEntity<ColorScheme> setColumnColorPreset(@Valid final ColorSchemeDTO colorSchemeDTO,
-                                                            @DestinationVariable final String joinKey)
+    public void setColumnColorPreset(@Valid final ColorSchemeDTO colorSchemeDTO,
+                                     @DestinationVariable final String joinKey)
     {
-        final String password = colorSchemeDTO.getPassword();
-        final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
-        final ColorScheme colorScheme = colorSchemeDTO.getColorScheme();
+        boardService.mutateWithoutResult(joinKey, () -> {
+            final String password = colorSchemeDTO.getPassword();
+            final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
+            final ColorScheme colorScheme = colorSchemeDTO.getColorScheme();
 
-        final ColorScheme existingColorScheme = board.getColumnColorScheme();
+            final ColorScheme existingColorScheme = board.getColumnColorScheme();
 
-        existingColorScheme.setBackgroundColor(colorScheme.getBackgroundColor());
-        existingColorScheme.setTextColor(colorScheme.getTextColor());
-        existingColorScheme.setName(colorScheme.getName());
+            existingColorScheme.setBackgroundColor(colorScheme.getBackgroundColor());
+            existingColorScheme.setTextColor(colorScheme.getTextColor());
+            existingColorScheme.setName(colorScheme.getName());
 
-        boardService.saveBoard(board);
+            boardService.saveBoard(board);
 
-        updateColorPresetColumn(colorScheme, board);
-        return ResponseEntity.ok(colorScheme);
+            updateColorPresetColumn(colorScheme, board);
+        });
     }
 
     /**
      * Sets the default color preset for the board
      * @param colorSchemeDTO The color scheme to set
      * @param joinKey The join key of the board
-     * @return The color scheme that was set
      */
     @MessageMapping("/color-presets/set-board/{joinKey}")
-    public ResponseEntity<ColorScheme> setBoardColorPreset(@Valid final ColorSchemeDTO colorSchemeDTO,
-                                                           @DestinationVariable final String joinKey)
+    public void setBoardColorPreset(@Valid final ColorSchemeDTO colorSchemeDTO,
+                                    @DestinationVariable final String joinKey)
     {
-        final String password = colorSchemeDTO.getPassword();
-        final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
-        final ColorScheme colorScheme = colorSchemeDTO.getColorScheme();
+        boardService.mutateWithoutResult(joinKey, () -> {
+            final String password = colorSchemeDTO.getPassword();
+            final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
+            final ColorScheme colorScheme = colorSchemeDTO.getColorScheme();
 
-        final ColorScheme existingColorScheme = board.getBoardColorScheme();
+            final ColorScheme existingColorScheme = board.getBoardColorScheme();
 
-        existingColorScheme.setBackgroundColor(colorScheme.getBackgroundColor());
-        existingColorScheme.setTextColor(colorScheme.getTextColor());
-        existingColorScheme.setName(colorScheme.getName());
+            existingColorScheme.setBackgroundColor(colorScheme.getBackgroundColor());
+            existingColorScheme.setTextColor(colorScheme.getTextColor());
+            existingColorScheme.setName(colorScheme.getName());
 
-        boardService.saveBoard(board);
+            boardService.saveBoard(board);
 
-        updateColorPresetBoard(colorScheme, board);
-        return ResponseEntity.ok(colorScheme);
+            updateColorPresetBoard(colorScheme, board);
+        });
     }
 
     /**
@@ -125,16 +131,18 @@ public class ColorPresetController {
     public ResponseEntity<ColorScheme> addColorPreset(@Valid @RequestBody final ColorSchemeDTO colorSchemeDTO,
                                        @PathVariable final String joinKey)
     {
-        final String password = colorSchemeDTO.getPassword();
-        final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
-        final ColorScheme colorScheme = colorSchemeDTO.getColorScheme();
-        final ColorScheme serverColorScheme = new ColorScheme(colorScheme.getName(), colorScheme.getBackgroundColor(), colorScheme.getTextColor());
-
-        board.addColorPreset(serverColorScheme);
-        boardService.saveBoard(board);
-
-        updateColorPresetAdded(serverColorScheme, board);
-        return ResponseEntity.ok(serverColorScheme);
+        return boardService.mutate(joinKey, () -> {
+            final String password = colorSchemeDTO.getPassword();
+            final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
+            final ColorScheme colorScheme = colorSchemeDTO.getColorScheme();
+            final ColorScheme serverColorScheme = new ColorScheme(colorScheme.getName(), colorScheme.getBackgroundColor(), colorScheme.getTextColor());
+
+            board.addColorPreset(serverColorScheme);
+            boardService.saveBoard(board);
+
+            updateColorPresetAdded(serverColorScheme, board);
+            return ResponseEntity.ok(boardCopier.copy(serverColorScheme));
+        });
     }
 
     /**
@@ -148,66 +156,67 @@ public class ColorPresetController {
     public ResponseEntity<ColorScheme> removeColorPreset(@Valid @RequestBody final ColorSchemeDTO colorSchemeDTO,
                                          @PathVariable final String joinKey)
     {
-        final String password = colorSchemeDTO.getPassword();
-        final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
-        final ColorScheme colorScheme = colorSchemeDTO.getColorScheme();
+        return boardService.mutate(joinKey, () -> {
+            final String password = colorSchemeDTO.getPassword();
+            final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
+            final ColorScheme colorScheme = colorSchemeDTO.getColorScheme();
 
-        board.deleteColorPreset(colorScheme);
-        boardService.saveBoard(board);
+            board.deleteColorPreset(colorScheme);
+            boardService.saveBoard(board);
 
-        updateColorPresetRemoved(colorScheme, board);
-        return ResponseEntity.ok(colorScheme);
+            updateColorPresetRemoved(colorScheme, board);
+            return ResponseEntity.ok(colorScheme);
+        });
     }
 
     /**
      * Updates a color scheme on a board
      * @param colorSchemeDTO Tag to be updated
      * @param joinKey Key used to identify board on which tag is to be updated
-     *
-     * @return The tag updated on board
      */
     @MessageMapping("/color-presets/edit/{joinKey}")
-    public ColorScheme editColorPreset(@Valid final ColorSchemeDTO colorSchemeDTO, @DestinationVariable final String joinKey) {
-        final String password = colorSchemeDTO.getPassword();
-        final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
-        final ColorScheme colorScheme = colorSchemeDTO.getColorScheme();
+    public void editColorPreset(@Valid final ColorSchemeDTO colorSchemeDTO, @DestinationVariable final String joinKey) {
+        boardService.mutateWithoutResult(joinKey, () -> {
+            final String password = colorSchemeDTO.getPassword();
+            final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
+            final ColorScheme colorScheme = colorSchemeDTO.getColorScheme();
 
-        board.updateColorScheme(colorScheme);
+            board.updateColorScheme(colorScheme);
 
-        boardService.saveBoard(board);
+            boardService.saveBoard(board);
 
-        editColorPresetUpdated(colorScheme, board);
-        return colorScheme;
+            editColorPresetUpdated(colorScheme, board);
+        });
     }
 
     private void editColorPresetUpdated(final ColorScheme colorScheme, final Board board) {
         logger.info("ColorPreset updated in board, propagating: " + board.getJoinKey() + " with name: " + colorScheme.getName());
-        messagingTemplate.convertAndSend("/topic/color-presets/" + board.getJoinKey() + "/edit", colorScheme);
+        eventPublisher.publish(board.getJoinKey(), BoardEventType.COLOR_PRESET_EDITED, colorScheme);
     }
 
     private void updateColorPresetRemoved(final ColorScheme colorScheme, final Board board) {
         logger.info("ColorPreset removed from board, propagating: " + board.getJoinKey() + " with name: " + colorScheme.getName());
-        messagingTemplate.convertAndSend("/topic/color-presets/" + board.getJoinKey() + "/remove", colorScheme);
+        eventPublisher.publish(board.getJoinKey(), BoardEventType.COLOR_PRESET_REMOVED, colorScheme);
     }
 
     private void updateColorPresetAdded(final ColorScheme colorScheme, final Board board) {
         logger.info("ColorPreset added to board, propagating: " + board.getJoinKey() + " with name: " + colorScheme.getName());
-        messagingTemplate.convertAndSend("/topic/color-presets/" + board.getJoinKey() + "/add", colorScheme);
+        eventPublisher.publish(board.getJoinKey(), BoardEventType.COLOR_PRESET_ADDED, colorScheme);
     }
 
     private void updateColorPresetBoard(final ColorScheme colorScheme, final Board board) {
         logger.info("Default ColorPreset set to board, propagating: " + board.getJoinKey());
-        messagingTemplate.convertAndSend("/topic/color-presets/" + board.getJoinKey() + "/set-board", colorScheme);
+        eventPublisher.publish(board.getJoinKey(), BoardEventType.BOARD_COLOR_SET, colorScheme);
 
     }
 
     private void updateColorPresetColumn(final ColorScheme colorScheme, final Board board) {
         logger.info("Default ColorPreset set to column of board, propagating: " + board.getJoinKey());
-        messagingTemplate.convertAndSend("/topic/color-presets/" + board.getJoinKey() + "/set-column", colorScheme);
+        eventPublisher.publish(board.getJoinKey(), BoardEventType.COLUMN_COLOR_SET, colorScheme);
     }
 
     private void updateColorPresetCard(final ColorScheme colorScheme, final Board board) {
         logger.info("Default ColorPreset set to card of board, propagating: " + board.getJoinKey());
-        messagingTemplate.convertAndSend("/topic/color-presets/" + board.getJoinKey() + "/set-card", colorScheme);
+        eventPublisher.publish(board.getJoinKey(), BoardEventType.CARD_COLOR_SET, colorScheme);
     }
 }
@@ -1,6 +1,7 @@
 package server.api;
 
 import commons.Board;
+import commons.BoardEventType;
 import commons.Column;
 import commons.DTOs.ColumnDTO;
 import org.apache.logging.log4j.LogManager;
@@ -10,10 +11,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import server.services.BoardCopier;
+import server.services.BoardEventPublisher;
 import server.services.BoardService;
 
 import java.util.TreeSet;
@@ -22,18 +24,21 @@ import java.util.TreeSet;
 public class ColumnController {
 
     private final BoardService boardService;
-    private final SimpMessageSendingOperations messagingTemplate;
+    private final BoardEventPublisher eventPublisher;
+    private final BoardCopier boardCopier;
     private final Logger logger;
 
     /**
      * Constructor for the Column Controller
      *
      * @param boardService      Dependency injection for the board service
-     * @param messagingTemplate Template to send updates over socket
+     * @param eventPublisher    Dependency injection for the event publisher
+     * @param boardCopier       Copies the added column out of the board
      */
-    public ColumnController(final BoardService boardService, final SimpMessageSendingOperations messagingTemplate) {
+    public ColumnController(final BoardService boardService, final BoardEventPublisher eventPublisher, final BoardCopier boardCopier) {
         this.boardService = boardService;
-        this.messagingTemplate = messagingTemplate;
+        this.eventPublisher = eventPublisher;
+        this.boardCopier = boardCopier;
         logger = LogManager.getLogger(ColumnController.class);
     }
 
@@ -52,24 +57,26 @@ public class ColumnController {
                                             @PathVariable final String columnId, @RequestBody(required = false) final String password,
                                             @RequestParam final int index)
     {
-        try {
-            final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
+        return boardService.mutate(joinKey, () -> {
+            try {
+                final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
 
 
-            final Column column = new Column(Long.valueOf(columnId), columnHeading, index, new TreeSet<>());
+                final Column column = new Column(Long.valueOf(columnId), columnHeading, index, new TreeSet<>());
 
-            if (!board.addColumn(column)) {
-                throw new Exception();
-            }
-            boardService.saveBoard(board);
+                if (!board.addColumn(column)) {
+                    throw new Exception();
+                }
+                boardService.saveBoard(board);
 
-            updateColumnAdded(joinKey, column);
+                updateColumnAdded(joinKey, column);
 
-            return ResponseEntity.ok(column);
-        }
-        catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.toString());
-        }
+                return ResponseEntity.ok(boardCopier.copy(column));
+            }
+            catch (Exception e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.toString());
+            }
+        });
     }
 
     /**
@@ -84,26 +91,28 @@ public class ColumnController {
     public ResponseEntity<Column> removeColumn(@PathVariable final String joinKey, @PathVariable final long columnId,
                                                @RequestBody(required = false) final String password)
     {
-        try {
-            final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
+        return boardService.mutate(joinKey, () -> {
+            try {
+                final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
 
-            final Column toBeRemoved = board.getColumnById(columnId);
+                final Column toBeRemoved = board.getColumnById(columnId);
 
-            if (!board.removeColumn(toBeRemoved)) {
-                throw new RuntimeException();
-            }
-            boardService.saveBoard(board);
+                if (!board.removeColumn(toBeRemoved)) {
+                    throw new RuntimeException();
+                }
+                boardService.saveBoard(board);
 
-            board.refreshIndices(toBeRemoved.getIndex());
-            boardService.saveBoard(board);
+                board.refreshIndices(toBeRemoved.getIndex());
+                boardService.saveBoard(board);
 
-            updateColumnRemoved(joinKey, columnId);
+                updateColumnRemoved(joinKey, columnId);
 
-            return ResponseEntity.ok(toBeRemoved);
-        }
-        catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.toString());
-        }
+                return ResponseEntity.ok(toBeRemoved);
+            }
+            catch (Exception e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.toString());
+            }
+        });
     }
 
     /**
@@ -113,26 +122,25 @@ public class ColumnController {
      * @param joinKey    String for board
      * @param columnId   Long Id of column to be renamed
      * @param newHeading String for new name of column
-     * @return Column the renamed column
      */
     @MessageMapping("/columns/rename/{joinKey}/{columnId}/{newHeading}")
-    public Column renameColumn(@DestinationVariable final String joinKey, @DestinationVariable final long columnId,
-                               @DestinationVariable final String newHeading, @Payload(required = false) final String password)
+    public void renameColumn(@DestinationVariable final String joinKey, @DestinationVariable final long columnId,
+                             @DestinationVariable final String newHeading, @Payload(required = false) final String password)
     {
-        try {
-            final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
-            final Column toBeRenamed = board.getColumnById(columnId);
-
-            toBeRenamed.setHeading(newHeading);
-            boardService.saveBoard(board);
+        boardService.mutateWithoutResult(joinKey, () -> {
+            try {
+                final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
+                final Column toBeRenamed = board.getColumnById(columnId);
 
-            updateColumnRenamed(joinKey, columnId, newHeading);
+                toBeRenamed.setHeading(newHeading);
+                boardService.saveBoard(board);
 
-            return toBeRenamed;
-        }
-        catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.toString());
-        }
+                updateColumnRenamed(joinKey, columnId, newHeading);
+            }
+            catch (Exception e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.toString());
+            }
+        });
     }
 
     /**
@@ -142,7 +150,7 @@ public class ColumnController {
      */
     public void updateColumnAdded(final String joinKey, final Column column) {
         logger.info("Propagating column added for: " + joinKey);
-        messagingTemplate.convertAndSend("/topic/columns/" + joinKey + "/add", column);
+        eventPublisher.publish(joinKey, BoardEventType.COLUMN_ADDED, column);
     }
 
     /**
@@ -153,7 +161,8 @@ public class ColumnController {
      */
     public void updateColumnRenamed(final String joinKey, final Long columnId, final String newHeading) {
         logger.info("Propagating column renamed for: " + joinKey);
-        messagingTemplate.convertAndSend("/topic/columns/" + joinKey + "/rename", new ColumnDTO(columnId, newHeading));
+        final ColumnDTO message = new ColumnDTO(columnId, newHeading);
+        eventPublisher.publish(joinKey, BoardEventType.COLUMN_RENAMED, message);
     }
 
     /**
@@ -164,6 +173,6 @@ public class ColumnController {
      */
     public void updateColumnRemoved(final String joinKey, final long columnId) {
         logger.info("Propagating column removed to: " + joinKey);
-        messagingTemplate.convertAndSend("/topic/columns/" + joinKey + "/remove", columnId);
+        eventPublisher.publish(joinKey, BoardEventType.COLUMN_REMOVED, columnId);
     }
 }
@@ -1,6 +1,7 @@
 package server.api;
 
 import commons.Board;
+import commons.BoardEventType;
 import commons.Card;
 import commons.DTOs.SubTaskDTO;
 import commons.SubTask;
@@ -11,31 +12,37 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.server.ResponseStatusException;
+import server.services.BoardCopier;
+import server.services.BoardEventPublisher;
 import server.services.BoardService;
 
+
 @Controller
 public class SubTaskController {
 
     private final BoardService boardService;
 
-    private final SimpMessageSendingOperations messagingTemplate;
+    private final BoardEventPublisher eventPublisher;
+
+    private final BoardCopier boardCopier;
     private final Logger logger = LogManager.getLogger(SubTaskController.class);
 
     /**
      * Constructor for SubTaskController
      *
      * @param boardService      dependency injection for boardService
-     * @param messagingTemplate Template to send updates over socket
+     * @param eventPublisher    Dependency injection for the event publisher
+     * @param boardCopier       Copies the added subtask out of the board
      */
-    public SubTaskController(final BoardService boardService, final SimpMessageSendingOperations messagingTemplate) {
+    public SubTaskController(final BoardService boardService, final BoardEventPublisher eventPublisher, final BoardCopier boardCopier) {
         this.boardService = boardService;
-        this.messagingTemplate = messagingTemplate;
+        this.eventPublisher = eventPublisher;
+        this.boardCopier = boardCopier;
     }
 
     /**
@@ -50,60 +57,65 @@ public class SubTaskController {
     public ResponseEntity<SubTask> addSubTask(@PathVariable final String joinKey,
                                               @RequestBody final SubTaskDTO subTaskDTO)
     {
+        return boardService.mutate(joinKey, () -> {
 
-        final SubTask subTask = subTaskDTO.subTask();
+            final SubTask subTask = subTaskDTO.subTask();
 
-        final Board board = boardService.getBoardWithKeyAndPassword(joinKey, subTaskDTO.password());
+            final Board board = boardService.getBoardWithKeyAndPassword(joinKey, subTaskDTO.password());
 
-        final Card card;
-        try {
-            card = board.getCard(subTaskDTO.cardId());
-        } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The card with id"
-                    + subTaskDTO.cardId()
-                    + " was not found in the board with join key " + joinKey);
-        }
+            final Card card;
+            try {
+                card = board.getCard(subTaskDTO.cardId());
+            } catch (Exception e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The card with id"
+                        + subTaskDTO.cardId()
+                        + " was not found in the board with join key " + joinKey);
+            }
 
-        subTask.setPriority(card.getSubtasks().size());
+            subTask.setPriority(card.getSubtasks().size());
 
-        if (!card.addSubTask(subTask)) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The subtask with id "
-                    + subTask.getId()
-                    + " already exists in the card with id " + subTaskDTO.cardId());
-        }
+            if (!card.addSubTask(subTask)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The subtask with id "
+                        + subTask.getId()
+                        + " already exists in the card with id " + subTaskDTO.cardId());
+            }
 
-        boardService.saveBoard(board);
+            boardService.saveBoard(board);
 
-        updateAddSubTask(subTask, subTaskDTO.cardId(), joinKey);
+            updateAddSubTask(subTask, subTaskDTO.cardId(), joinKey);
 
-        return ResponseEntity.ok(subTask);
+            return ResponseEntity.ok(boardCopier.copy(subTask));
+        });
     }
 
     private void updateAddSubTask(final SubTask subTask, final long cardId, final String joinKey) {
         logger.info("Subtask added to card, propagating - board joinKey: " + joinKey + ", cardId: " + cardId +
                 ", subTask description: " + subTask.getDescription());
-        messagingTemplate.convertAndSend("/topic/subtasks/"
-                + joinKey + "/add", new SubTaskDTO(subTask, cardId));
+        final SubTaskDTO message = new SubTaskDTO(subTask, cardId);
+        eventPublisher.publish(joinKey, BoardEventType.SUBTASK_ADDED, message);
     }
 
     @MessageMapping("/subtasks/edit/{joinKey}")
     private void editSubTask(final SubTaskDTO subTaskDTO, final @DestinationVariable String joinKey) {
-        final Board board = boardService.getBoardWithKeyAndPassword(joinKey, subTaskDTO.password());
-        final Card card;
-        try {
-            card = board.getCard(subTaskDTO.cardId());
-        } catch (CardNotFoundException e) {
-            throw new RuntimeException(e);
-        }
-        card.updateSubTask(subTaskDTO.subTask());
-        boardService.saveBoard(board);
-        updateSubTaskEdited(subTaskDTO.subTask(), subTaskDTO.cardId(), joinKey);
+        boardService.mutateWithoutResult(joinKey, () -> {
+            final Board board = boardService.getBoardWithKeyAndPassword(joinKey, subTaskDTO.password());
+            final Card card;
+            try {
+                card = board.getCard(subTaskDTO.cardId());
+            } catch (CardNotFoundException e) {
+                throw new RuntimeException(e);
+            }
+            card.updateSubTask(subTaskDTO.subTask());
+            boardService.saveBoard(board);
+            updateSubTaskEdited(subTaskDTO.subTask(), subTaskDTO.cardId(), joinKey);
+        });
     }
 
     private void updateSubTaskEdited(final SubTask subTask, final long cardId, final String joinKey) {
         logger.info("Subtask updated, propagating - board join key: " + joinKey + ", cardId: " + cardId +
                 ", subTask description: " + subTask.getDescription());
-        messagingTemplate.convertAndSend("/topic/subtasks/" + joinKey + "/edit", new SubTaskDTO(subTask, cardId));
+        final SubTaskDTO message = new SubTaskDTO(subTask, cardId);
+        eventPublisher.publish(joinKey, BoardEventType.SUBTASK_EDITED, message);
     }
 
     /**
@@ -118,32 +130,35 @@ public class SubTaskController {
     public ResponseEntity<SubTask> removeSubTask(@PathVariable final String joinkey,
                                                  @RequestBody final SubTaskDTO subTaskDTO)
     {
+        return boardService.mutate(joinkey, () -> {
 
-        final Board board = boardService.getBoardWithKeyAndPassword(joinkey, subTaskDTO.password());
+            final Board board = boardService.getBoardWithKeyAndPassword(joinkey, subTaskDTO.password());
 
-        final SubTask subTask = subTaskDTO.subTask();
+            final SubTask subTask = subTaskDTO.subTask();
 
-        final Card card;
-        try {
-            card = board.getCard(subTaskDTO.cardId());
-        } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The card with id" + subTaskDTO.cardId() +
-                    " was not found in the board with join key " + joinkey);
-        }
+            final Card card;
+            try {
+                card = board.getCard(subTaskDTO.cardId());
+            } catch (Exception e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The card with id" + subTaskDTO.cardId() +
+                        " was not found in the board with join key " + joinkey);
+            }
 
-        card.removeSubTask(subTask);
+            card.removeSubTask(subTask);
 
-        boardService.saveBoard(board);
+            boardService.saveBoard(board);
 
-        updateRemoveSubTask(subTask, card.getId(), joinkey);
+            updateRemoveSubTask(subTask, card.getId(), joinkey);
 
-        return ResponseEntity.ok(subTask);
+            return ResponseEntity.ok(subTask);
+        });
     }
 
     private void updateRemoveSubTask(final SubTask subTask, final long cardId, final String joinkey) {
         logger.info("Subtask removed from card, propogating - board joinkey: " + joinkey + ", cardId: " + cardId +
                 ", subTask description: " + subTask.getDescription());
-        messagingTemplate.convertAndSend("/topic/subtasks/" + joinkey + "/remove", new SubTaskDTO(subTask, cardId));
+        final SubTaskDTO message = new SubTaskDTO(subTask, cardId);
+        eventPublisher.publish(joinkey, BoardEventType.SUBTASK_REMOVED, message);
     }
 
     /**
@@ -158,33 +173,39 @@ public class SubTaskController {
     public ResponseEntity<SubTask> toggleSubTask(@PathVariable final String joinkey,
                                                  @RequestBody final SubTaskDTO subTaskDTO)
     {
-        final Board board = boardService.getBoardWithKeyAndPassword(joinkey, subTaskDTO.password());
-        final SubTask subTask = subTaskDTO.subTask();
+        return boardService.mutate(joinkey, () -> {
+            final Board board = boardService.getBoardWithKeyAndPassword(joinkey, subTaskDTO.password());
+            final SubTask subTask = subTaskDTO.subTask();
+
+            final Card card;
+            try {
+                card = board.getCard(subTaskDTO.cardId());
+            } catch (Exception e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The card with id " + subTaskDTO.cardId() +
+                        " was not found in the board with join key " + joinkey);
+            }
 
-        final Card card;
-        try {
-            card = board.getCard(subTaskDTO.cardId());
-        } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The card with id " + subTaskDTO.cardId() +
-                    " was not found in the board with join key " + joinkey);
-        }
+            final SubTask serverSubTask = card.getSubtasks().stream()
+                    .filter(s -> s.getId() == subTask.getId()).findFirst()
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "The card with id " + card.getId()
+                            + " does not contain the subtask being toggled"));
 
-        if (card.getSubtasks().contains(subTask))
-            subTask.setDone(!subTask.isDone());
-        else
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The card with id " + card.getId() + " does not contain the subtask being toggled");
+            card.toggleSubtask(serverSubTask);
+            subTask.setDone(serverSubTask.isDone());
 
-        boardService.saveBoard(board);
+            boardService.saveSubTaskToggled(board, serverSubTask);
 
-        updateToggleSubTask(subTask, card.getId(), joinkey);
+            updateToggleSubTask(subTask, card.getId(), joinkey);
 
-        return ResponseEntity.ok(subTask);
+            return ResponseEntity.ok(subTask);
+        });
     }
 
     private void updateToggleSubTask(final SubTask subTask, final long cardId, final String joinkey) {
         logger.info("Subtask state changed to " + subTask.isDone() + ", propogating - board joinkey: " + joinkey + ", cardId: " + cardId +
                 ", subTask description: " + subTask.getDescription());
-        messagingTemplate.convertAndSend("/topic/subtasks/" + joinkey + "/toggle", new SubTaskDTO(subTask, cardId));
+        final SubTaskDTO message = new SubTaskDTO(subTask, cardId);
+        eventPublisher.publish(joinkey, BoardEventType.SUBTASK_TOGGLED, message);
     }
 
     /**
@@ -197,41 +218,44 @@ public class SubTaskController {
     public void moveSubTask(final SubTaskDTO subTaskDTO,
                                                @DestinationVariable final String joinkey)
     {
-        final Board board = boardService.getBoardWithKeyAndPassword(joinkey, subTaskDTO.password());
-        final SubTask subTask;
-        try {
-            subTask = board.getCard(subTaskDTO.cardId()).getSubtasks()
-                    .stream().filter(x -> x.getId() == subTaskDTO.subTask().getId()).toList().get(0);
-        } catch (CardNotFoundException e) {
-            throw new RuntimeException(e);
-        }
-
-        final Card card;
-        try {
-            card = board.getCard(subTaskDTO.cardId());
-        } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The card with id " + subTaskDTO.cardId() +
-                    " was not found in the board with join key " + joinkey);
-        }
-
-        if (!card.getSubtasks().contains(subTask))
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The card with id " + card.getId() + " does not contain the subtask being moved");
-
-        if (subTaskDTO.index() < 0)
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "subtask cannot be moved to negative index");
-
-        final int newIndex = Math.min(card.getSubtasks().size() - 1, subTaskDTO.index());
-
-        card.moveSubTask(subTask, newIndex);
-
-        boardService.saveBoard(board);
-
-        updateMoveSubTask(subTask, card.getId(), joinkey, newIndex);
+        boardService.mutateWithoutResult(joinkey, () -> {
+            final Board board = boardService.getBoardWithKeyAndPassword(joinkey, subTaskDTO.password());
+            final SubTask subTask;
+            try {
+                subTask = board.getCard(subTaskDTO.cardId()).getSubtasks()
+                        .stream().filter(x -> x.getId() == subTaskDTO.subTask().getId()).toList().get(0);
+            } catch (CardNotFoundException e) {
+                throw new RuntimeException(e);
+            }
+
+            final Card card;
+            try {
+                card = board.getCard(subTaskDTO.cardId());
+            } catch (Exception e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The card with id " + subTaskDTO.cardId() +
+                        " was not found in the board with join key " + joinkey);
+            }
+
+            if (!card.getSubtasks().contains(subTask))
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The card with id " + card.getId() + " does not contain the subtask being moved");
+
+            if (subTaskDTO.index() < 0)
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "subtask cannot be moved to negative index");
+
+            final int newIndex = Math.min(card.getSubtasks().size() - 1, subTaskDTO.index());
+
+            card.moveSubTask(subTask, newIndex);
+
+            boardService.saveBoard(board);
+
+            updateMoveSubTask(subTask, card.getId(), joinkey, newIndex);
+        });
     }
 
     private void updateMoveSubTask(final SubTask subTask, final long cardId, final String joinkey, final int index) {
         logger.info("Subtask state changed to " + subTask.isDone() + ", propogating - board joinkey: " + joinkey + ", cardId: " + cardId +
                 ", subTask description: " + subTask.getDescription());
-        messagingTemplate.convertAndSend("/topic/subtasks/" + joinkey + "/move", new SubTaskDTO(subTask, cardId, index));
+        final SubTaskDTO message = new SubTaskDTO(subTask, cardId, index);
+        eventPublisher.publish(joinkey, BoardEventType.SUBTASK_MOVED, message);
     }
 }
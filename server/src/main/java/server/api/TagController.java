@@ -1,6 +1,7 @@
 package server.api;
 
 import commons.Board;
+import commons.BoardEventType;
 import commons.Tag;
 import commons.DTOs.TagDTO;
 import commons.exceptions.CardNotFoundException;
@@ -10,12 +11,13 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.server.ResponseStatusException;
+import server.services.BoardCopier;
+import server.services.BoardEventPublisher;
 import server.services.BoardService;
 
 import javax.validation.Valid;
@@ -25,18 +27,22 @@ public class TagController {
 
     private final BoardService boardService;
 
-    private final SimpMessageSendingOperations messagingTemplate;
+    private final BoardEventPublisher eventPublisher;
+
+    private final BoardCopier boardCopier;
     private final Logger logger = LogManager.getLogger(CardController.class);
 
 
     /**
      * Constructor for the Card Controller
      * @param boardService Dependency injection for the board service
-     * @param messagingTemplate Template to send updates over socket
+     * @param eventPublisher Dependency injection for the event publisher
+     * @param boardCopier Copies the added tags out of the board
      */
-    public TagController(final BoardService boardService, final SimpMessageSendingOperations messagingTemplate) {
+    public TagController(final BoardService boardService, final BoardEventPublisher eventPublisher, final BoardCopier boardCopier) {
         this.boardService = boardService;
-        this.messagingTemplate = messagingTemplate;
+        this.eventPublisher = eventPublisher;
+        this.boardCopier = boardCopier;
     }
 
     /**
@@ -50,14 +56,16 @@ public class TagController {
     public ResponseEntity<Tag> addTag(@Valid @RequestBody final TagDTO tagDTO,
                                        @PathVariable final String joinKey)
     {
-        final String password = tagDTO.password();
-        final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
-        final Tag tag = tagDTO.tag();
-        board.addTag(tag);
-        boardService.saveBoard(board);
-
-        updateTagAdded(tag, board);
-        return ResponseEntity.ok(tag);
+        return boardService.mutate(joinKey, () -> {
+            final String password = tagDTO.password();
+            final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
+            final Tag tag = tagDTO.tag();
+            board.addTag(tag);
+            boardService.saveBoard(board);
+
+            updateTagAdded(tag, board);
+            return ResponseEntity.ok(boardCopier.copy(tag));
+        });
     }
 
     /**
@@ -71,15 +79,17 @@ public class TagController {
     public ResponseEntity<Tag> removeTag(@Valid @RequestBody final TagDTO tagDTO ,
                                          @PathVariable final String joinKey)
     {
-        final String password = tagDTO.password();
-        final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
-        final Tag tag = tagDTO.tag();
+        return boardService.mutate(joinKey, () -> {
+            final String password = tagDTO.password();
+            final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
+            final Tag tag = tagDTO.tag();
 
-        board.deleteTag(tag);
-        boardService.saveBoard(board);
+            board.deleteTag(tag);
+            boardService.saveBoard(board);
 
-        updateTagRemoved(tag, board);
-        return ResponseEntity.ok(tag);
+            updateTagRemoved(tag, board);
+            return ResponseEntity.ok(tag);
+        });
     }
 
     /**
@@ -95,19 +105,21 @@ public class TagController {
                                             @PathVariable final String joinKey,
                                             @PathVariable final long cardId)
     {
-        final String password = tagDTO.getPassword();
-        final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
-        final Tag tag = tagDTO.getTag();
-
-        try {
-            board.addTagToCard(cardId, tag);
-        } catch (CardNotFoundException e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The card with id" + cardId + " was not found in the board with join key " + joinKey);
-        }
-        boardService.saveBoard(board);
-
-        updateTagAddedToCard(tag, cardId, board);
-        return ResponseEntity.ok(tag);
+        return boardService.mutate(joinKey, () -> {
+            final String password = tagDTO.getPassword();
+            final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
+            final Tag tag = tagDTO.getTag();
+
+            try {
+                board.addTagToCard(cardId, tag);
+            } catch (CardNotFoundException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The card with id" + cardId + " was not found in the board with join key " + joinKey);
+            }
+            boardService.saveBoard(board);
+
+            updateTagAddedToCard(tag, cardId, board);
+            return ResponseEntity.ok(boardCopier.copy(tag));
+        });
     }
 
     /**
@@ -123,64 +135,67 @@ public class TagController {
                                                  @PathVariable final String joinKey,
                                                  @PathVariable final long cardId)
     {
-        final String password = tagDTO.password();
-        final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
-        final Tag tag = tagDTO.tag();
-
-        try {
-            board.removeTagFromCard(cardId, tag);
-        } catch (CardNotFoundException e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The caed with id" + cardId + " was not found in the board with join key " + joinKey);
-        }
-        boardService.saveBoard(board);
-
-        updateTagRemovedFromCard(tag, cardId, board);
-        return ResponseEntity.ok(tag);
+        return boardService.mutate(joinKey, () -> {
+            final String password = tagDTO.password();
+            final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
+            final Tag tag = tagDTO.tag();
+
+            try {
+                board.removeTagFromCard(cardId, tag);
+            } catch (CardNotFoundException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The caed with id" + cardId + " was not found in the board with join key " + joinKey);
+            }
+            boardService.saveBoard(board);
+
+            updateTagRemovedFromCard(tag, cardId, board);
+            return ResponseEntity.ok(tag);
+        });
     }
 
     /**
      * Updates a tag on a board
      * @param tagDTO Tag to be updated
      * @param joinKey Key used to identify board on which tag is to be updated
-     *
-     * @return The tag updated on board
      */
     @MessageMapping("/tags/edit/{joinKey}")
-    public Tag editTag(@Valid final TagDTO tagDTO, @DestinationVariable final String joinKey) {
-        final String password = tagDTO.password();
-        final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
-        final Tag tag = tagDTO.tag();
+    public void editTag(@Valid final TagDTO tagDTO, @DestinationVariable final String joinKey) {
+        boardService.mutateWithoutResult(joinKey, () -> {
+            final String password = tagDTO.password();
+            final Board board = boardService.getBoardWithKeyAndPassword(joinKey, password);
+            final Tag tag = tagDTO.tag();
 
-        board.updateTag(tag);
+            board.updateTag(tag);
 
-        boardService.saveBoard(board);
+            boardService.saveBoard(board);
 
-        editTagUpdated(tag, board);
-        return tag;
+            editTagUpdated(tag, board);
+        });
     }
 
     private void updateTagRemovedFromCard(final Tag tag, final long cardId, final Board board) {
         logger.info("Tag removed from card, propagating: " + board.getJoinKey() + " with name: " + tag.getTitle());
-        messagingTemplate.convertAndSend("/topic/tags/" + board.getJoinKey() + "/removeFromCard", new TagDTO(tag, cardId));
+        final TagDTO message = new TagDTO(tag, cardId);
+        eventPublisher.publish(board.getJoinKey(), BoardEventType.TAG_REMOVED_FROM_CARD, message);
     }
 
     private void updateTagAddedToCard(final Tag tag, final long cardId, final Board board) {
         logger.info("Tag added to card, propagating: " + board.getJoinKey() + " with name: " + tag.getTitle());
-        messagingTemplate.convertAndSend("/topic/tags/" + board.getJoinKey() + "/addToCard", new TagDTO(tag, cardId));
+        final TagDTO message = new TagDTO(tag, cardId);
+        eventPublisher.publish(board.getJoinKey(), BoardEventType.TAG_ADDED_TO_CARD, message);
     }
 
     private void editTagUpdated(final Tag tag, final Board board) {
         logger.info("Tag updated in board, propagating: " + board.getJoinKey() + " with name: " + tag.getTitle());
-        messagingTemplate.convertAndSend("/topic/tags/" + board.getJoinKey() + "/edit", tag);
+        eventPublisher.publish(board.getJoinKey(), BoardEventType.TAG_EDITED, tag);
     }
 
     private void updateTagRemoved(final Tag tag, final Board board) {
         logger.info("Tag removed from board, propagating: " + board.getJoinKey() + " with name: " + tag.getTitle());
-        messagingTemplate.convertAndSend("/topic/tags/" + board.getJoinKey() + "/remove", tag);
+        eventPublisher.publish(board.getJoinKey(), BoardEventType.TAG_REMOVED, tag);
     }
 
     private void updateTagAdded(final Tag tag, final Board board) {
         logger.info("Tag added to board, propagating: " + board.getJoinKey() + " with name: " + tag.getTitle());
-        messagingTemplate.convertAndSend("/topic/tags/" + board.getJoinKey() + "/add", tag);
+        eventPublisher.publish(board.getJoinKey(), BoardEventType.TAG_ADDED, tag);
     }
 }
@@ -0,0 +1,17 @@
+package server.api.exceptions;
+
+public class ConflictingChangeException extends RuntimeException {
+
+    /**
+     * Constructor for the {@link ConflictingChangeException}
+     * @param resource the resource that was changed by someone else at the same time
+     * @param id the id of the changed resource
+     */
+    public ConflictingChangeException(final Class resource, final String id) {
+        super("409 - Conflicting change to resource " +
+            resource.getSimpleName() +
+            " with id " +
+            id
+        );
+    }
+}
@@ -4,6 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import server.api.exceptions.ConflictingChangeException;
 import server.api.exceptions.ResourceNotFoundException;
 import server.api.exceptions.UnauthorizedResourceException;
 
@@ -31,4 +32,15 @@ public class BoardExceptionHandler {
     public String unauthorizedResourceHandler(final UnauthorizedResourceException err) {
         return err.getMessage();
     }
+
+    /**
+     * Exception handler for when a resource kept being changed by someone else while it was being changed
+     * @param err the {@link ConflictingChangeException} that triggered the handler
+     * @return a response to the client specifying what resource could not be changed
+     */
+    @ExceptionHandler(ConflictingChangeException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public String conflictingChangeHandler(final ConflictingChangeException err) {
+        return err.getMessage();
+    }
 }
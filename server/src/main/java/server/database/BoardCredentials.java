@@ -0,0 +1,17 @@
+package server.database;
+
+/**
+ * Projection of a board containing only what is needed to check access to it
+ */
+public interface BoardCredentials {
+
+    /**
+     * @return join key of the board
+     */
+    String getJoinKey();
+
+    /**
+     * @return password of the board, null if the board has no password
+     */
+    String getPassword();
+}
@@ -0,0 +1,62 @@
+package server.database;
+
+import commons.BoardEventType;
+import lombok.Getter;
+
+import javax.persistence.*;
+
+/**
+ * A single change to a board, as it was broadcast to the clients of that board.
+ * Events are only ever appended, and are numbered per board without gaps, starting at 1.
+ */
+@Entity
+@Table(name = "board_event", uniqueConstraints = @UniqueConstraint(columnNames = { "joinKey", "sequence" }))
+public class BoardEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Getter
+    private long id;
+
+    @Getter
+    private String joinKey;
+
+    @Getter
+    private long sequence;
+
+    @Enumerated(EnumType.STRING)
+    @Getter
+    private BoardEventType type;
+
+    // the broadcast message as JSON
+    @Lob
+    @Getter
+    private String payload;
+
+    @Getter
+    private long timestamp;
+
+    /**
+     * Empty constructor for JPA
+     */
+    protected BoardEvent() {
+
+    }
+
+    /**
+     * Constructor for a board event
+     * @param joinKey Join key of the board that was changed
+     * @param sequence Number of the event within the log of the board
+     * @param type Kind of change
+     * @param payload Message that was broadcast for the change, as JSON
+     * @param timestamp Time of the change in epoch millis
+     */
+    public BoardEvent(final String joinKey, final long sequence, final BoardEventType type, final String payload,
+                      final long timestamp)
+    {
+        this.joinKey = joinKey;
+        this.sequence = sequence;
+        this.type = type;
+        this.payload = payload;
+        this.timestamp = timestamp;
+    }
+}
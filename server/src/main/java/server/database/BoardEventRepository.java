@@ -0,0 +1,47 @@
+package server.database;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BoardEventRepository extends JpaRepository<BoardEvent, Long> {
+
+    /**
+     * Loads the events of a board that came after the given event, in the order in which they happened
+     * @param joinKey Join key of the board
+     * @param sequence Number of the last event that is already known
+     * @return the later events
+     */
+    List<BoardEvent> findByJoinKeyAndSequenceGreaterThanOrderBySequence(String joinKey, long sequence);
+
+    /**
+     * Loads the events of a board within a range, in the order in which they happened
+     * @param joinKey Join key of the board
+     * @param from Number of the first event to load
+     * @param upTo Number of the last event to load
+     * @return the events in the range
+     */
+    List<BoardEvent> findByJoinKeyAndSequenceBetweenOrderBySequence(String joinKey, long from, long upTo);
+
+    /**
+     * Loads the last event in the log of a board
+     * @param joinKey Join key of the board
+     * @return the last event, if the board has any
+     */
+    Optional<BoardEvent> findFirstByJoinKeyOrderBySequenceDesc(String joinKey);
+
+    /**
+     * Deletes the whole log of a board
+     * @param joinKey Join key of the board
+     * @return number of deleted events
+     */
+    @Modifying
+    @Query("delete from BoardEvent e where e.joinKey = :joinKey")
+    int deleteByJoinKey(@Param("joinKey") String joinKey);
+}
@@ -1,9 +1,107 @@
 package server.database;
 
 import commons.Board;
+import commons.DTOs.BoardSummaryDTO;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
 public interface BoardRepository extends JpaRepository<Board, String> {
+
+    /**
+     * Loads a board together with its columns and color schemes in a single query.
+     * The remaining collections are lazy and are loaded in batches when they are first accessed.
+     * @param joinKey Join key of the board
+     * @return the board, if it exists
+     */
+    @EntityGraph("Board.render")
+    Optional<Board> findRenderGraphByJoinKey(String joinKey);
+
+    /**
+     * Loads only the join key and password of a board, for checking access without loading the board itself
+     * @param joinKey Join key of the board
+     * @return the credentials of the board, if it exists
+     */
+    Optional<BoardCredentials> findCredentialsByJoinKey(String joinKey);
+
+    /**
+     * Checks which of the given join keys belong to an existing board, using only the primary key index
+     * @param joinKeys Join keys to check, must not be empty
+     * @return the join keys of the boards that exist
+     */
+    @Query("select b.joinKey from Board b where b.joinKey in :joinKeys")
+    Set<String> findExistingJoinKeys(@Param("joinKeys") Collection<String> joinKeys);
+
+    /**
+     * Streams the join keys of all boards, using only the primary key index.
+     * The stream reads from an open cursor, so it has to be consumed and closed within a transaction.
+     * @return stream of join keys
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select b.joinKey from Board b")
+    Stream<String> streamJoinKeys();
+
+    /**
+     * Loads the boards that come after the given position, ordered by creation time and join key.
+     * Their columns and cards are loaded lazily, so the boards have to be used within a transaction.
+     * @param created Creation time of the last board that was already read
+     * @param joinKey Join key of the last board that was already read
+     * @param pageable Maximum number of boards to read
+     * @return page of boards
+     */
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query("select b from Board b where b.created > :created or (b.created = :created and b.joinKey > :joinKey)"
+            + " order by b.created, b.joinKey")
+    List<Board> findAfter(@Param("created") Timestamp created, @Param("joinKey") String joinKey, Pageable pageable);
+
+    /**
+     * Loads the summaries of the given boards in a single query, without loading their columns and cards
+     * @param joinKeys Join keys of the boards, must not be empty
+     * @return the summaries of the boards that exist
+     */
+    @Query("select new commons.DTOs.BoardSummaryDTO(b.joinKey, b.title, b.created, b.password,"
+            + " (select count(col) from Board b2 join b2.columns col where b2.joinKey = b.joinKey),"
+            + " (select count(card) from Board b3 join b3.columns col join col.cards card where b3.joinKey = b.joinKey),"
+            + " scheme.id, textColor, backgroundColor)"
+            + " from Board b left join b.boardColorScheme scheme"
+            + " left join scheme.textColor textColor left join scheme.backgroundColor backgroundColor"
+            + " where b.joinKey in :joinKeys")
+    List<BoardSummaryDTO> findSummaries(@Param("joinKeys") Collection<String> joinKeys);
+
+    /**
+     * Advances the log of a board to the given event, while its saved state still waits for a write of the whole board
+     * @param joinKey Join key of the board
+     * @param loggedSequence Number of the last event in the log of the board
+     * @return number of updated rows
+     */
+    @Modifying
+    @Query("update Board b set b.loggedSequence = :loggedSequence where b.joinKey = :joinKey")
+    int updateLoggedSequence(@Param("joinKey") String joinKey, @Param("loggedSequence") long loggedSequence);
+
+    /**
+     * Advances both the log and the saved state of a board to the given event, for a change that has already been written
+     * @param joinKey Join key of the board
+     * @param sequence Number of the last event in the log of the board
+     * @return number of updated rows
+     */
+    @Modifying
+    @Query("update Board b set b.sequence = :sequence, b.loggedSequence = :sequence where b.joinKey = :joinKey")
+    int updateSequence(@Param("joinKey") String joinKey, @Param("sequence") long sequence);
 }
@@ -0,0 +1,53 @@
+package server.database;
+
+import lombok.Getter;
+
+import javax.persistence.*;
+
+/**
+ * The complete state of a board after a given event, so that older states can be rebuilt
+ * without replaying the log of the board from its very beginning
+ */
+@Entity
+@Table(name = "board_snapshot", indexes = @Index(columnList = "joinKey, sequence"))
+public class BoardSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Getter
+    private long id;
+
+    @Getter
+    private String joinKey;
+
+    @Getter
+    private long sequence;
+
+    // the board as JSON
+    @Lob
+    @Getter
+    private String board;
+
+    @Getter
+    private long timestamp;
+
+    /**
+     * Empty constructor for JPA
+     */
+    protected BoardSnapshot() {
+
+    }
+
+    /**
+     * Constructor for a board snapshot
+     * @param joinKey Join key of the board
+     * @param sequence Number of the last event contained in the snapshot, 0 if it precedes all events
+     * @param board The board as JSON
+     * @param timestamp Time the snapshot was taken in epoch millis
+     */
+    public BoardSnapshot(final String joinKey, final long sequence, final String board, final long timestamp) {
+        this.joinKey = joinKey;
+        this.sequence = sequence;
+        this.board = board;
+        this.timestamp = timestamp;
+    }
+}
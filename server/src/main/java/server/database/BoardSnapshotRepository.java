@@ -0,0 +1,30 @@
+package server.database;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface BoardSnapshotRepository extends JpaRepository<BoardSnapshot, Long> {
+
+    /**
+     * Loads the latest snapshot of a board that does not contain any event after the given one
+     * @param joinKey Join key of the board
+     * @param sequence Number of the last event the snapshot may contain
+     * @return the snapshot, if the board has one
+     */
+    Optional<BoardSnapshot> findFirstByJoinKeyAndSequenceLessThanEqualOrderBySequenceDesc(String joinKey, long sequence);
+
+    /**
+     * Deletes all snapshots of a board
+     * @param joinKey Join key of the board
+     * @return number of deleted snapshots
+     */
+    @Modifying
+    @Query("delete from BoardSnapshot s where s.joinKey = :joinKey")
+    int deleteByJoinKey(@Param("joinKey") String joinKey);
+}
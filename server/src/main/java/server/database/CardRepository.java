@@ -2,8 +2,35 @@ package server.database;
 
 import commons.Card;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface CardRepository extends JpaRepository<Card, Long> {
+
+    /**
+     * Updates the scalar fields of a single card, leaving its subtasks, tags and color scheme untouched
+     * @param serializationId Database id of the card
+     * @param title New title
+     * @param description New description
+     * @param isDefaultThemed Whether the card uses the default theme
+     * @return number of updated rows
+     */
+    @Modifying
+    @Query("update Card c set c.title = :title, c.description = :description, c.isDefaultThemed = :isDefaultThemed"
+            + " where c.serializationId = :serializationId")
+    int updateFields(@Param("serializationId") long serializationId, @Param("title") String title, @Param("description") String description,
+                     @Param("isDefaultThemed") Boolean isDefaultThemed);
+
+    /**
+     * Sets the rank of a single card, which is all that changes when a card is moved
+     * @param serializationId Database id of the card
+     * @param rank New rank
+     * @return number of updated rows
+     */
+    @Modifying
+    @Query("update Card c set c.rank = :rank where c.serializationId = :serializationId")
+    int updateRank(@Param("serializationId") long serializationId, @Param("rank") String rank);
 }
@@ -2,8 +2,33 @@ package server.database;
 
 import commons.Column;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ColumnRepository extends JpaRepository<Column, Long> {
+
+    /**
+     * Links an already persisted card to a column, without loading the cards that are already in it
+     * @param columnSerializationId Database id of the column
+     * @param cardSerializationId Database id of the card
+     * @return number of inserted rows
+     */
+    @Modifying
+    @Query(value = "insert into column_cards (column_serialization_id, cards_serialization_id)"
+            + " values (:columnSerializationId, :cardSerializationId)", nativeQuery = true)
+    int addCard(@Param("columnSerializationId") long columnSerializationId, @Param("cardSerializationId") long cardSerializationId);
+
+    /**
+     * Unlinks a card from a column without deleting the card, so that it can be linked to another column
+     * @param columnSerializationId Database id of the column
+     * @param cardSerializationId Database id of the card
+     * @return number of deleted rows
+     */
+    @Modifying
+    @Query(value = "delete from column_cards where column_serialization_id = :columnSerializationId"
+            + " and cards_serialization_id = :cardSerializationId", nativeQuery = true)
+    int removeCard(@Param("columnSerializationId") long columnSerializationId, @Param("cardSerializationId") long cardSerializationId);
 }
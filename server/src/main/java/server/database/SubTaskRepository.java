@@ -2,6 +2,19 @@ package server.database;
 
 import commons.SubTask;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface SubTaskRepository extends JpaRepository<SubTask, Long> {
+
+    /**
+     * Sets whether a single subtask is done
+     * @param serializationId Database id of the subtask
+     * @param isDone New state of the subtask
+     * @return number of updated rows
+     */
+    @Modifying
+    @Query("update SubTask s set s.isDone = :isDone where s.serializationId = :serializationId")
+    int updateIsDone(@Param("serializationId") long serializationId, @Param("isDone") boolean isDone);
 }
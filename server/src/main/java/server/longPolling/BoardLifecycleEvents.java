@@ -0,0 +1,84 @@
+package server.longPolling;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Tells the home pages that wait for boards when one of them is deleted or renamed.
+ * A waiting home page is only a listener in this map, it does not hold a thread while it waits.
+ */
+@Component
+public class BoardLifecycleEvents {
+
+    /**
+     * Listeners per join key, which get the join key and the new title of the board, or null if it was deleted
+     */
+    private final ConcurrentHashMap<String, Set<BiConsumer<String, String>>> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * Starts telling a listener about changes to the given boards
+     * @param joinKeys Join keys of the boards
+     * @param listener Gets the join key and the new title of a board, or null as title if it was deleted
+     */
+    public void subscribe(final Collection<String> joinKeys, final BiConsumer<String, String> listener) {
+        for (final String joinKey : joinKeys) {
+            listeners.compute(joinKey, (key, current) -> {
+                final Set<BiConsumer<String, String>> updated = current == null ? ConcurrentHashMap.newKeySet() : current;
+                updated.add(listener);
+                return updated;
+            });
+        }
+    }
+
+    /**
+     * Stops telling a listener about changes to the given boards
+     * @param joinKeys Join keys of the boards the listener was subscribed to
+     * @param listener Listener to remove
+     */
+    public void unsubscribe(final Collection<String> joinKeys, final BiConsumer<String, String> listener) {
+        for (final String joinKey : joinKeys) {
+            listeners.computeIfPresent(joinKey, (key, current) -> {
+                current.remove(listener);
+                return current.isEmpty() ? null : current;
+            });
+        }
+    }
+
+    /**
+     * Tells the listeners of a board that it was deleted
+     * @param joinKey Join key of the board
+     */
+    public void boardDeleted(final String joinKey) {
+        notify(joinKey, null);
+    }
+
+    /**
+     * Tells the listeners of a board that it was renamed
+     * @param joinKey Join key of the board
+     * @param title New title of the board
+     */
+    public void boardRenamed(final String joinKey, final String title) {
+        notify(joinKey, title);
+    }
+
+    /**
+     * Gets the number of listeners that wait for a change, counting a listener once for every board it waits for
+     * @return number of waiting listeners
+     */
+    public int getListenerCount() {
+        return listeners.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void notify(final String joinKey, final String title) {
+        final Set<BiConsumer<String, String>> current = listeners.get(joinKey);
+        if (current == null) return;
+
+        for (final BiConsumer<String, String> listener : current) {
+            listener.accept(joinKey, title);
+        }
+    }
+}
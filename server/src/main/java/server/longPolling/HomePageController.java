@@ -1,60 +1,77 @@
 package server.longPolling;
 
+import commons.DTOs.BoardSummaryDTO;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.async.DeferredResult;
-import server.api.exceptions.ResourceNotFoundException;
 import server.services.BoardService;
 
 import javax.validation.Valid;
 import java.util.HashMap;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
 
 
 @RestController
 public class HomePageController {
     private final BoardService boardService;
+    private final BoardLifecycleEvents lifecycleEvents;
+    private final long timeout;
     private final Logger logger = LogManager.getLogger(HomePageController.class);
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(10);
-
     /**
      * Constructor for HomePageController
      * @param boardService BoardService dependency injection
+     * @param lifecycleEvents Tells when boards are deleted or renamed
+     * @param timeout Time (ms) that a request waits for a change before it is answered without changes
      */
-    public HomePageController(final BoardService boardService) {
+    public HomePageController(final BoardService boardService, final BoardLifecycleEvents lifecycleEvents,
+                              @Value("${talio.long-poll.timeout:30000}") final long timeout)
+    {
         this.boardService = boardService;
+        this.lifecycleEvents = lifecycleEvents;
+        this.timeout = timeout;
     }
 
     /**
-     * Checks if the boards exist
-     * @param joinKeys list of join keys to check
+     * Waits until one of the boards is deleted or renamed. Boards that were already deleted, or whose title differs
+     * from the one the client shows, are answered right away. A waiting request does not hold a thread,
+     * it is answered by the request that deletes or renames the board, or by the timeout.
+     * @param boards join keys of the boards to watch, with the title the client shows for each
      *
-     * @return list of key-value pairs where the key is the join key and the value is true if the board exists
+     * @return the boards that changed with their new title, or null as title if they were deleted;
+     *         empty if nothing changed before the timeout
      */
     @PostMapping("/home/getBoardsStatus")
-    public DeferredResult<HashMap<String, Boolean>> getBoardsStatus(
-            final @Valid @RequestBody List<String> joinKeys)
+    public DeferredResult<HashMap<String, String>> getBoardsStatus(
+            final @Valid @RequestBody HashMap<String, String> boards)
     {
-        logger.info("received request to check if boards exist: " + joinKeys.toString());
-        final DeferredResult<HashMap<String, Boolean>> deferredResult = new DeferredResult<>();
-
-        executorService.execute(() -> {
-            final HashMap<String, Boolean> result = new HashMap<>();
-            for (final String joinKey : joinKeys) {
-                try {
-                    boardService.getBoardWithKey(joinKey);
-                    result.put(joinKey, true);
-                } catch (ResourceNotFoundException e) {
-                    result.put(joinKey, false);
-                }
-            }
-            logger.info("returning result: " + result);
-            deferredResult.setResult(result);
-        });
+        logger.info("received request to wait for changes to boards: " + boards.keySet());
+        final DeferredResult<HashMap<String, String>> deferredResult = new DeferredResult<>(timeout, new HashMap<>());
+
+        final BiConsumer<String, String> listener = (joinKey, title) -> {
+            final HashMap<String, String> changed = new HashMap<>();
+            changed.put(joinKey, title);
+            deferredResult.setResult(changed);
+        };
+        // subscribed before the boards are checked, so that no change can fall between the check and the wait
+        lifecycleEvents.subscribe(boards.keySet(), listener);
+        deferredResult.onCompletion(() -> lifecycleEvents.unsubscribe(boards.keySet(), listener));
+
+        final HashMap<String, String> changed = new HashMap<>();
+        boards.forEach((joinKey, title) -> changed.put(joinKey, null));
+        for (final BoardSummaryDTO summary : boardService.getBoardSummaries(boards.keySet())) {
+            if (summary.getTitle().equals(boards.get(summary.getJoinKey())))
+                changed.remove(summary.getJoinKey());
+            else
+                changed.put(summary.getJoinKey(), summary.getTitle());
+        }
+
+        if (!changed.isEmpty()) {
+            logger.info("returning changed boards: " + changed);
+            deferredResult.setResult(changed);
+        }
         return deferredResult;
     }
 }
@@ -0,0 +1,42 @@
+package server.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import server.services.BoardExecutor;
+import server.services.BoardService;
+
+/**
+ * Reports how many boards the server holds, read from the services whenever the meters are scraped
+ */
+@Component
+public class BoardMeterBinder implements MeterBinder {
+
+    private final BoardService boardService;
+    private final BoardExecutor boardExecutor;
+
+    /**
+     * Constructor for the binder of the board gauges
+     * @param boardService Holds the boards that are in memory
+     * @param boardExecutor Runs the mutations of each board
+     */
+    public BoardMeterBinder(final BoardService boardService, final BoardExecutor boardExecutor) {
+        this.boardService = boardService;
+        this.boardExecutor = boardExecutor;
+    }
+
+    /**
+     * Registers the gauges of the boards
+     * @param registry Registry to register the gauges in
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("talio.boards.cached", boardService, BoardService::getCachedBoardCount)
+                .description("Number of boards held in memory")
+                .register(registry);
+        Gauge.builder("talio.boards.active", boardExecutor, executor -> executor.getQueueDepths().size())
+                .description("Number of boards that have mutations running or waiting")
+                .register(registry);
+    }
+}
@@ -0,0 +1,178 @@
+package server.metrics;
+
+import commons.Board;
+import commons.Column;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times every change to a board, split into the phases it goes through. A change is timed on the thread that runs it,
+ * which is the executor of the board, and is named after the first kind of change it logs, or batch for changes that are logged together.
+ * Work outside a change, like loading a board for a request that only reads it, is not timed here.
+ */
+@Component
+public class BoardMetrics {
+
+    /**
+     * Phases of a change to a board
+     */
+    public enum Phase {
+        /**
+         * Getting the board from memory or the database
+         */
+        LOAD,
+        /**
+         * Changing the board in memory, which is the time not spent in any of the other phases
+         */
+        MUTATE,
+        /**
+         * Saving the board and appending the change to its log
+         */
+        PERSIST,
+        /**
+         * Handing the change to the broker
+         */
+        BROADCAST;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final MeterRegistry registry;
+
+    private final DistributionSummary boardCards;
+
+    private final ThreadLocal<Operation> current;
+
+    /**
+     * Constructor for the board metrics
+     * @param registry Registry the meters are kept in
+     */
+    public BoardMetrics(final MeterRegistry registry) {
+        this.registry = registry;
+        this.boardCards = DistributionSummary.builder("talio.board.cards")
+                .description("Number of cards of the boards that are changed")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.current = new ThreadLocal<>();
+    }
+
+    /**
+     * Runs a change to a board and times it. A change that runs inside another change is timed as part of that one.
+     * @param change Reads, changes and saves the board
+     * @param <T> Type of the result of the change
+     * @return the result of the change
+     */
+    public <T> T operation(final Supplier<T> change) {
+        if (current.get() != null) return change.get();
+
+        final Operation operation = new Operation();
+        current.set(operation);
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            final T result = change.get();
+            failed = false;
+            return result;
+        } finally {
+            current.remove();
+            record(operation, System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Runs a phase of the current change and adds its time to that phase.
+     * A phase inside another phase counts towards the outer one only.
+     * @param phase Phase that is run
+     * @param work Work of the phase
+     * @param <T> Type of the result of the work
+     * @return the result of the work
+     */
+    public <T> T phase(final Phase phase, final Supplier<T> work) {
+        final Operation operation = current.get();
+        if (operation == null || operation.phase != null) return work.get();
+
+        operation.phase = phase;
+        final long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            operation.nanos[phase.ordinal()] += System.nanoTime() - start;
+            operation.phase = null;
+        }
+    }
+
+    /**
+     * Runs a phase of the current change without a result, see {@link #phase(Phase, Supplier)}
+     * @param phase Phase that is run
+     * @param work Work of the phase
+     */
+    public void phase(final Phase phase, final Runnable work) {
+        phase(phase, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Names the current change, if it has no name yet
+     * @param name Name of the kind of change
+     */
+    public void name(final String name) {
+        final Operation operation = current.get();
+        if (operation != null && operation.name == null) operation.name = name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Records the size of the board that the current change works on, once per change
+     * @param board Board that was loaded, may be null
+     */
+    public void loaded(final Board board) {
+        final Operation operation = current.get();
+        if (operation == null || operation.sized || board == null) return;
+
+        operation.sized = true;
+        boardCards.record(board.getColumns().stream().map(Column::getCards).mapToInt(cards -> cards.size()).sum());
+    }
+
+    private void record(final Operation operation, final long total, final boolean failed) {
+        final String name = operation.name == null ? "none" : operation.name;
+        Timer.builder("talio.board.operation")
+                .description("Time of a change to a board, from loading the board until the change is handed to the broker")
+                .tag("operation", name)
+                .tag("outcome", failed ? "failure" : "success")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(total, TimeUnit.NANOSECONDS);
+
+        long other = 0;
+        for (final Phase phase : Phase.values()) {
+            if (phase != Phase.MUTATE) other += operation.nanos[phase.ordinal()];
+        }
+        operation.nanos[Phase.MUTATE.ordinal()] = Math.max(0, total - other);
+
+        for (final Phase phase : Phase.values()) {
+            Timer.builder("talio.board.operation.phase")
+                    .description("Time of a change to a board spent in one phase")
+                    .tag("operation", name)
+                    .tag("phase", phase.tag)
+                    .register(registry)
+                    .record(operation.nanos[phase.ordinal()], TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Time spent so far in every phase of a running change
+     */
+    private static final class Operation {
+        private final long[] nanos = new long[Phase.values().length];
+        private String name;
+        private Phase phase;
+        private boolean sized;
+    }
+}
@@ -1,30 +1,96 @@
 package server.services;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import commons.Board;
 import org.springframework.stereotype.Service;
-import server.database.BoardRepository;
+import server.storage.BoardStore;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 public class AdminService {
 
-    private final BoardRepository boardRepository;
+    /**
+     * Maximum number of boards that can be requested in a single page
+     */
+    public static final int MAX_PAGE_SIZE = 500;
 
+    private final BoardStore boardStore;
+    private final BoardService boardService;
+    private final ObjectMapper objectMapper;
 
     /**
-     * Constructor for the Board Service
-     * @param boardRepository Dependency Injection for the board repository
+     * Constructor for the Admin Service
+     * @param boardStore Dependency Injection for the board store
+     * @param boardService Dependency Injection for the board service
+     * @param objectMapper Object mapper used to write the boards
      */
-    public AdminService(final BoardRepository boardRepository) {
-        this.boardRepository = boardRepository;
+    public AdminService(final BoardStore boardStore, final BoardService boardService, final ObjectMapper objectMapper) {
+        this.boardStore = boardStore;
+        this.boardService = boardService;
+        this.objectMapper = objectMapper;
     }
 
     /**
-     * method to get all the boards in the database
-     * @return all boards in database
+     * Writes one page of boards as JSON, ordered by creation time and join key.
+     * Boards are read from the store a page at a time, so memory use does not depend on the number of boards.
+     * The page is written as {"boards": [...], "nextCreated": ..., "nextJoinKey": ...},
+     * where the next position is null once the last page has been reached.
+     * @param afterCreated Creation time (epoch millis) of the last board of the previous page, null for the first page
+     * @param afterJoinKey Join key of the last board of the previous page, null for the first page
+     * @param limit Maximum number of boards on the page
+     * @param out Stream to write the page to
+     * @throws IOException if the page could not be written
      */
-    public List<Board> getAllBoards() {
-        return boardRepository.findAll();
+    public void writeBoardPage(final Long afterCreated, final String afterJoinKey, final int limit,
+                               final OutputStream out) throws IOException
+    {
+        // changes that are still waiting in the board cache have to be visible to the query. This is done once per listing,
+        // later pages see the changes that the cache has written in the background since
+        if (afterCreated == null && afterJoinKey == null)
+            boardService.flushAll();
+
+        final int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        final Timestamp created = new Timestamp(afterCreated == null ? 0 : afterCreated);
+        final String joinKey = afterJoinKey == null ? "" : afterJoinKey;
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("boards");
+
+            // the last board is only used for its position, which can still be read after the store has released it
+            final List<Board> last = new ArrayList<>(1);
+            final int[] count = {0};
+            try {
+                boardStore.forEachBoardAfter(created, joinKey, pageSize, board -> {
+                    try {
+                        objectMapper.writeValue(generator, board);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    last.clear();
+                    last.add(board);
+                    count[0]++;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.writeEndArray();
+
+            if (count[0] == pageSize) {
+                generator.writeNumberField("nextCreated", last.get(0).getCreated().getTime());
+                generator.writeStringField("nextJoinKey", last.get(0).getJoinKey());
+            } else {
+                generator.writeNullField("nextCreated");
+                generator.writeNullField("nextJoinKey");
+            }
+            generator.writeEndObject();
+        }
     }
 }
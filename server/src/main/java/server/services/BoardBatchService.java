@@ -0,0 +1,124 @@
+package server.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.Board;
+import commons.BoardEventType;
+import commons.BoardEvents;
+import commons.Column;
+import commons.DTOs.BoardChangesDTO;
+import commons.DTOs.BoardEventDTO;
+import commons.DTOs.BoardOperationDTO;
+import commons.DTOs.CardDTO;
+import commons.DTOs.CardPatchDTO;
+import commons.DTOs.SubTaskDTO;
+import commons.exceptions.CardNotFoundException;
+import commons.exceptions.ColumnNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies a list of changes to a board as a whole: either all of them are made, or none of them.
+ */
+@Service
+public class BoardBatchService {
+
+    /**
+     * Largest number of changes that are accepted in a single batch
+     */
+    public static final int MAX_OPERATIONS = 500;
+
+    private final BoardService boardService;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Constructor for the batch service
+     * @param boardService Saves the changed board and logs the changes
+     * @param objectMapper Reads and writes the messages of the changes
+     */
+    public BoardBatchService(final BoardService boardService, final ObjectMapper objectMapper) {
+        this.boardService = boardService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Makes changes to a board in order, then saves the board once and logs the changes together.
+     * The changes are made on a copy of the board, so that the board stays untouched if one of them fails.
+     * Has to be called by the executor of the board, see {@link BoardService#mutate(String, java.util.function.Supplier)}.
+     * @param board Board to change, as returned by the board service
+     * @param operations Changes to make, with their messages as JSON
+     * @return the logged changes, to be broadcast to the clients of the board
+     * @throws IllegalArgumentException if a change cannot be read or does not fit the board
+     */
+    public BoardChangesDTO apply(final Board board, final List<BoardOperationDTO> operations) {
+        final Board copy = copy(board);
+
+        final List<BoardOperationDTO> applied = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            final BoardOperationDTO operation = operations.get(i);
+            if (operation == null || operation.type() == null || operation.payload() == null)
+                throw new IllegalArgumentException("Operation " + i + " has no type or message");
+
+            final BoardEventType type = operation.type();
+            try {
+                final Object payload = prepare(type, objectMapper.readValue(operation.payload(), type.getPayloadType()));
+                BoardEvents.apply(copy, type, payload);
+                // written again after applying, so that the log holds the ids that were generated
+                applied.add(new BoardOperationDTO(type, objectMapper.writeValueAsString(payload)));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Operation " + i + " is not a valid " + type.getPayloadType().getSimpleName(), e);
+            } catch (ColumnNotFoundException | CardNotFoundException | RuntimeException e) {
+                throw new IllegalArgumentException("Operation " + i + " (" + type + ") does not fit the board: " + e.getMessage(), e);
+            }
+        }
+
+        boardService.saveBoard(copy);
+        final List<BoardEventDTO> events = boardService.recordEvents(copy.getJoinKey(), applied);
+        // the copy is replaced in memory once it is written, so the version is read from the board that is kept
+        final long sequence = boardService.getBoardWithKey(copy.getJoinKey()).getSequence();
+        return new BoardChangesDTO(copy.getJoinKey(), sequence, events, null);
+    }
+
+    /**
+     * Gives new columns, cards and subtasks an id, and drops the password that clients send along with some messages,
+     * since the batch is authenticated as a whole and the messages end up in the log of the board
+     * @param type Kind of change
+     * @param payload Message of the change
+     * @return the message to apply and log
+     */
+    private Object prepare(final BoardEventType type, final Object payload) {
+        if (payload instanceof Column column) {
+            if (type == BoardEventType.COLUMN_ADDED && column.getId() == 0) column.generateId();
+        } else if (payload instanceof CardDTO cardDTO) {
+            if (type == BoardEventType.CARD_ADDED && cardDTO.card() != null && cardDTO.card().getId() == 0) cardDTO.card().generateId();
+            return new CardDTO(cardDTO.card(), null, cardDTO.columnFromId(), cardDTO.columnToId(), cardDTO.newPosition());
+        } else if (payload instanceof CardPatchDTO patch) {
+            return patch.withPassword(null);
+        } else if (payload instanceof SubTaskDTO subTaskDTO) {
+            if (type == BoardEventType.SUBTASK_ADDED && subTaskDTO.subTask() != null && subTaskDTO.subTask().getId() == 0)
+                subTaskDTO.subTask().generateId();
+            return new SubTaskDTO(subTaskDTO.subTask(), subTaskDTO.cardId(), subTaskDTO.index(), null);
+        }
+        return payload;
+    }
+
+    /**
+     * Copies a board through its JSON form, including its version and event numbers
+     * @param board Board to copy
+     * @return the copy, sharing nothing with the board
+     */
+    private Board copy(final Board board) {
+        final Board copy;
+        try {
+            copy = objectMapper.readValue(objectMapper.writeValueAsBytes(board), Board.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not copy board " + board.getJoinKey(), e);
+        }
+        copy.relinkTags();
+        return copy;
+    }
+}
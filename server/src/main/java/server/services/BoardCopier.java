@@ -0,0 +1,43 @@
+package server.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+
+/**
+ * Makes detached copies of the parts of a cached board, so that a response can be written after the mutation that
+ * produced it has finished, without the executor of the board changing it while it is written.
+ */
+@Service
+public class BoardCopier {
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Constructor for the board copier
+     * @param objectMapper Object mapper of the server, which copies the values through JSON
+     */
+    public BoardCopier(final ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Copies a value out of a cached board. Has to be called on the executor of the board, inside the mutation
+     * or read that has the value.
+     * @param value Board, column, card or other part of a board to copy
+     * @param <T> Type of the value
+     * @return the copy, sharing nothing with the board, or null if the value is null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T copy(final T value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return (T) objectMapper.readValue(objectMapper.writeValueAsBytes(value), value.getClass());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not copy " + value.getClass().getSimpleName(), e);
+        }
+    }
+}
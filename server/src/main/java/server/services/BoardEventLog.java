@@ -0,0 +1,213 @@
+package server.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.Board;
+import commons.BoardEventType;
+import commons.BoardEvents;
+import commons.DTOs.BoardOperationDTO;
+import commons.exceptions.CardNotFoundException;
+import commons.exceptions.ColumnNotFoundException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import server.database.BoardEvent;
+import server.database.BoardEventRepository;
+import server.database.BoardSnapshot;
+import server.database.BoardSnapshotRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Append-only log of the changes to each board, together with snapshots of the boards at regular intervals.
+ * Any earlier state of a board can be rebuilt from the latest snapshot before it and the events that followed.
+ */
+@Service
+public class BoardEventLog {
+    private final BoardEventRepository er;
+    private final BoardSnapshotRepository sr;
+    private final ObjectMapper objectMapper;
+
+    private final Logger logger = LogManager.getLogger(BoardEventLog.class);
+
+    /**
+     * Number of events after which a new snapshot of a board is taken
+     */
+    private final int snapshotInterval;
+
+    /**
+     * Constructor for the Board Event Log
+     * @param er Dependency Injection for the board event repository
+     * @param sr Dependency Injection for the board snapshot repository
+     * @param objectMapper Object mapper used to write the events and snapshots
+     * @param snapshotInterval Number of events after which a new snapshot of a board is taken
+     */
+    public BoardEventLog(final BoardEventRepository er, final BoardSnapshotRepository sr, final ObjectMapper objectMapper,
+                         @Value("${talio.event-log.snapshot-interval:100}") final int snapshotInterval)
+    {
+        this.er = er;
+        this.sr = sr;
+        this.objectMapper = objectMapper;
+        this.snapshotInterval = Math.max(1, snapshotInterval);
+    }
+
+    /**
+     * Appends a change to the log of a board, and takes a snapshot of the board if one is due.
+     * The board has to contain the change already, and its sequence numbers are advanced to the new event.
+     * Has to be called by the executor of the board, within a transaction.
+     * @param board Board that was changed
+     * @param type Kind of change
+     * @param payload Message that is broadcast for the change
+     * @return the appended event
+     */
+    public BoardEvent append(final Board board, final BoardEventType type, final Object payload) {
+        final long sequence = board.getLoggedSequence() + 1;
+        final BoardEvent event = er.save(new BoardEvent(board.getJoinKey(), sequence, type, write(payload),
+                System.currentTimeMillis()));
+        board.setSequence(sequence);
+        board.setLoggedSequence(sequence);
+
+        if (sequence % snapshotInterval == 0)
+            snapshot(board);
+        return event;
+    }
+
+    /**
+     * Appends changes that were made together to the log of a board, in a single batch of inserts.
+     * The board only holds the state after the last of the changes, so a snapshot that falls due within the changes
+     * is taken of that state instead. Has to be called by the executor of the board, within a transaction.
+     * @param board Board that was changed
+     * @param operations Changes in the order in which they were made, with their messages as JSON
+     * @return the appended events
+     */
+    public List<BoardEvent> appendAll(final Board board, final List<BoardOperationDTO> operations) {
+        final long first = board.getLoggedSequence() + 1;
+        final long now = System.currentTimeMillis();
+        final List<BoardEvent> events = new ArrayList<>(operations.size());
+        for (final BoardOperationDTO operation : operations) {
+            events.add(new BoardEvent(board.getJoinKey(), first + events.size(), operation.type(), operation.payload(), now));
+        }
+        if (events.isEmpty()) return events;
+
+        final List<BoardEvent> saved = er.saveAll(events);
+        final long last = first + events.size() - 1;
+        board.setSequence(last);
+        board.setLoggedSequence(last);
+
+        if (last / snapshotInterval > (first - 1) / snapshotInterval)
+            snapshot(board);
+        return saved;
+    }
+
+    /**
+     * Stores the current state of a board as a snapshot
+     * @param board Board to store
+     */
+    public void snapshot(final Board board) {
+        sr.save(new BoardSnapshot(board.getJoinKey(), board.getSequence(), write(board), System.currentTimeMillis()));
+    }
+
+    /**
+     * Gets the events of a board that came after the given event
+     * @param joinKey Join key of the board
+     * @param sequence Number of the last event that is already known
+     * @return the later events, in order
+     */
+    public List<BoardEvent> getEventsSince(final String joinKey, final long sequence) {
+        return er.findByJoinKeyAndSequenceGreaterThanOrderBySequence(joinKey, sequence);
+    }
+
+    /**
+     * Gets the number of the last event in the log of a board
+     * @param joinKey Join key of the board
+     * @return the number of the last event, 0 if nothing has been logged for the board
+     */
+    public long getLastSequence(final String joinKey) {
+        return er.findFirstByJoinKeyOrderBySequenceDesc(joinKey).map(BoardEvent::getSequence).orElse(0L);
+    }
+
+    /**
+     * Rebuilds the state of a board directly after the given event, from the latest snapshot before it
+     * @param joinKey Join key of the board
+     * @param sequence Number of the last event the state has to contain
+     * @return the board, or empty if no snapshot of the board is old enough or its log could not be replayed
+     */
+    public Optional<Board> rebuild(final String joinKey, final long sequence) {
+        final Optional<BoardSnapshot> snapshot = sr.findFirstByJoinKeyAndSequenceLessThanEqualOrderBySequenceDesc(joinKey, sequence);
+        if (snapshot.isEmpty()) return Optional.empty();
+
+        final Board board = read(snapshot.get().getBoard(), Board.class);
+        final List<BoardEvent> events = sequence == snapshot.get().getSequence() ? List.of()
+                : er.findByJoinKeyAndSequenceBetweenOrderBySequence(joinKey, snapshot.get().getSequence() + 1, sequence);
+        if (replay(board, events) < events.size())
+            return Optional.empty();
+        return Optional.of(board);
+    }
+
+    /**
+     * Applies events to a board in order. Replaying stops at the first event that does not fit the board,
+     * since all later events depend on it.
+     * @param board Board to change
+     * @param events Events that came directly after the current state of the board
+     * @return number of events that were applied
+     */
+    public int replay(final Board board, final List<BoardEvent> events) {
+        int applied = 0;
+        for (final BoardEvent event : events) {
+            if (event.getSequence() != board.getSequence() + 1) {
+                logger.error("Event " + event.getSequence() + " of board " + board.getJoinKey()
+                        + " does not follow event " + board.getSequence());
+                break;
+            }
+            try {
+                apply(board, event);
+            } catch (ColumnNotFoundException | CardNotFoundException | RuntimeException e) {
+                logger.error("Could not replay event " + event.getSequence() + " of board " + board.getJoinKey(), e);
+                break;
+            }
+            board.setSequence(event.getSequence());
+            board.setLoggedSequence(Math.max(board.getLoggedSequence(), event.getSequence()));
+            applied++;
+        }
+        return applied;
+    }
+
+    /**
+     * Deletes the log and snapshots of a board. Has to be called within a transaction.
+     * @param joinKey Join key of the board
+     */
+    public void delete(final String joinKey) {
+        er.deleteByJoinKey(joinKey);
+        sr.deleteByJoinKey(joinKey);
+    }
+
+    /**
+     * Makes the same change to a board that the controllers made when the event was logged
+     * @param board Board to change
+     * @param event Event to apply
+     * @throws ColumnNotFoundException if the event refers to a column that is not in the board
+     * @throws CardNotFoundException if the event refers to a card that is not in the board
+     */
+    private void apply(final Board board, final BoardEvent event) throws ColumnNotFoundException, CardNotFoundException {
+        BoardEvents.apply(board, event.getType(), read(event.getPayload(), event.getType().getPayloadType()));
+    }
+
+    private String write(final Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not write " + value.getClass().getSimpleName(), e);
+        }
+    }
+
+    private <T> T read(final String json, final Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read " + type.getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package server.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.BoardEventType;
+import commons.ColorScheme;
+import commons.DTOs.BoardChangesDTO;
+import commons.DTOs.BoardEventDTO;
+import commons.DTOs.CardDTO;
+import commons.DTOs.CardPatchDTO;
+import commons.DTOs.ColumnDTO;
+import commons.DTOs.SubTaskDTO;
+import commons.Tag;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import server.metrics.BoardMetrics;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs the changes to boards and broadcasts them to the clients of each board.
+ * Changes of a board are held back for a short window, and everything that was changed within the window is sent
+ * as a single message on the batch topic of the board, leaving out changes that a later change in the window overrides.
+ * A change that is alone in its window is sent on its own topic, just like without a window.
+ */
+@Service
+public class BoardEventPublisher {
+
+    private final Logger logger = LogManager.getLogger(BoardEventPublisher.class);
+
+    private final BoardService boardService;
+    private final BoardPayloadCache payloadCache;
+    private final SimpMessageSendingOperations messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final BoardMetrics metrics;
+
+    /**
+     * Time (ms) that changes of a board are held back before they are broadcast, 0 sends every change directly
+     */
+    private final long window;
+
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Changes that are held back per board. A window is only changed while holding its lock,
+     * and is closed and removed once it has been sent, after which new changes open a new window.
+     */
+    private final ConcurrentHashMap<String, Window> windows;
+
+    /**
+     * Constructor for the event publisher
+     * @param boardService Logs the changes
+     * @param payloadCache Drops the encoded boards that a change makes outdated
+     * @param messagingTemplate Template to send updates over socket
+     * @param objectMapper Writes the changes that are sent together
+     * @param metrics Times the broadcast as a phase of the change
+     * @param window Time (ms) that changes of a board are held back before they are broadcast, 0 sends every change directly
+     */
+    public BoardEventPublisher(final BoardService boardService, final BoardPayloadCache payloadCache,
+                               final SimpMessageSendingOperations messagingTemplate, final ObjectMapper objectMapper,
+                               final BoardMetrics metrics, @Value("${talio.broadcast.window:20}") final long window)
+    {
+        this.boardService = boardService;
+        this.payloadCache = payloadCache;
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.window = window;
+        this.windows = new ConcurrentHashMap<>();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "broadcast-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Destination of the messages that hold several changes of a board
+     * @param joinKey Join key of the board
+     * @return the destination of the batch topic
+     */
+    public static String batchDestination(final String joinKey) {
+        return "/topic/boards/" + joinKey + "/batch";
+    }
+
+    /**
+     * Logs a change to a board and broadcasts it to the clients of the board.
+     * Has to be called by the executor of the board, right after the change was saved.
+     * @param joinKey Join key of the board that was changed
+     * @param type Kind of change
+     * @param payload Message of the change, of the payload type of the kind of change
+     */
+    public void publish(final String joinKey, final BoardEventType type, final Object payload) {
+        final Map<String, Object> headers = boardService.recordEvent(joinKey, type, payload);
+        payloadCache.invalidate(joinKey);
+        metrics.phase(BoardMetrics.Phase.BROADCAST, () -> broadcast(joinKey, type, payload, headers));
+    }
+
+    /**
+     * Broadcasts a logged change to the clients of the board, or holds it back until the window of the board ends
+     * @param joinKey Join key of the board that was changed
+     * @param type Kind of change
+     * @param payload Message of the change
+     * @param headers Headers returned by the log, which hold the new version of the board
+     */
+    private void broadcast(final String joinKey, final BoardEventType type, final Object payload, final Map<String, Object> headers) {
+        final Object sequence = headers.get(BoardEventType.SEQUENCE_HEADER);
+
+        if (window <= 0) {
+            messagingTemplate.convertAndSend(type.getDestination(joinKey), payload, headers);
+            return;
+        }
+        // a change that was not logged has no place among the logged ones, so it goes out on its own right away
+        if (sequence == null) {
+            withWindow(joinKey, current -> {
+                send(joinKey, current);
+                messagingTemplate.convertAndSend(type.getDestination(joinKey), payload, headers);
+            });
+            return;
+        }
+
+        final BoardEventDTO event = new BoardEventDTO(Long.parseLong(sequence.toString()), type, write(payload));
+        withWindow(joinKey, current -> current.add(new Pending(event, true, headers, supersedeKey(type, payload))));
+    }
+
+    /**
+     * Broadcasts changes that were logged together to the clients of the board, see {@link BoardBatchService}
+     * @param changes Logged changes of a board, in order
+     */
+    public void publishChanges(final BoardChangesDTO changes) {
+        final String joinKey = changes.joinKey();
+        payloadCache.invalidate(joinKey);
+        metrics.phase(BoardMetrics.Phase.BROADCAST, () -> {
+            if (window <= 0) {
+                messagingTemplate.convertAndSend(batchDestination(joinKey), changes,
+                        Map.of(BoardEventType.SEQUENCE_HEADER, Long.toString(changes.sequence())));
+                return;
+            }
+
+            withWindow(joinKey, current -> {
+                for (final BoardEventDTO event : changes.events()) {
+                    current.add(new Pending(event, false, Map.of(), null));
+                }
+            });
+        });
+    }
+
+    /**
+     * Sends all changes that are held back
+     */
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        for (final String joinKey : windows.keySet()) {
+            flush(joinKey);
+        }
+    }
+
+    /**
+     * Runs an action on the open window of a board, opening a window and scheduling its broadcast if there is none
+     * @param joinKey Join key of the board
+     * @param action Runs while holding the lock of the window
+     */
+    private void withWindow(final String joinKey, final WindowAction action) {
+        while (true) {
+            final boolean[] opened = new boolean[1];
+            final Window current = windows.computeIfAbsent(joinKey, key -> {
+                opened[0] = true;
+                return new Window();
+            });
+            synchronized (current) {
+                if (current.closed) continue;
+                action.run(current);
+            }
+            if (opened[0] && !flusher.isShutdown())
+                flusher.schedule(() -> flush(joinKey), window, TimeUnit.MILLISECONDS);
+            return;
+        }
+    }
+
+    /**
+     * Broadcasts the changes in the window of a board and closes the window
+     * @param joinKey Join key of the board
+     */
+    private void flush(final String joinKey) {
+        final Window current = windows.get(joinKey);
+        if (current == null) return;
+
+        synchronized (current) {
+            try {
+                send(joinKey, current);
+            } catch (RuntimeException e) {
+                logger.error("Could not broadcast the changes of board " + joinKey, e);
+            } finally {
+                current.closed = true;
+                windows.remove(joinKey, current);
+            }
+        }
+    }
+
+    /**
+     * Broadcasts the changes in a window and empties it. Has to be called while holding the lock of the window.
+     * @param joinKey Join key of the board
+     * @param current Window of the board
+     */
+    private void send(final String joinKey, final Window current) {
+        final List<Pending> pending = merge(current.pending);
+        current.pending.clear();
+        if (pending.isEmpty()) return;
+
+        final Pending last = pending.get(pending.size() - 1);
+        if (pending.size() == 1 && last.ownTopic()) {
+            // sent as it was written when it was published, since the board may have been changed again since
+            messagingTemplate.send(last.event().type().getDestination(joinKey), written(last.event().payload(), last.headers()));
+            return;
+        }
+
+        final long sequence = last.event().sequence();
+        final BoardChangesDTO changes = new BoardChangesDTO(joinKey, sequence, pending.stream().map(Pending::event).toList(), null);
+        logger.info("Propagating " + pending.size() + " changes together for: " + joinKey);
+        messagingTemplate.convertAndSend(batchDestination(joinKey), changes, Map.of(BoardEventType.SEQUENCE_HEADER, Long.toString(sequence)));
+    }
+
+    /**
+     * Leaves out the changes that a later change overrides, keeping the order of the others
+     * @param pending Changes in the order in which they were made
+     * @return the changes that still matter
+     */
+    static List<Pending> merge(final List<Pending> pending) {
+        final Set<String> seen = new HashSet<>();
+        final List<Pending> merged = new ArrayList<>(pending.size());
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            final Pending next = pending.get(i);
+            if (next.supersedeKey() == null || seen.add(next.supersedeKey()))
+                merged.add(next);
+        }
+        Collections.reverse(merged);
+        return merged;
+    }
+
+    /**
+     * Gets what a change sets, for the kinds of changes that replace a value as a whole, so that a later change
+     * of the same value makes it unnecessary to send the earlier one
+     * @param type Kind of change
+     * @param payload Message of the change
+     * @return the value that is set, or null if the change has to be sent even if a similar change follows
+     */
+    static String supersedeKey(final BoardEventType type, final Object payload) {
+        return switch (type) {
+            case BOARD_RENAMED, BOARD_PASSWORD_SET, BOARD_COLOR_SET, COLUMN_COLOR_SET, CARD_COLOR_SET -> type.name();
+            case COLUMN_RENAMED -> type + "/" + ((ColumnDTO) payload).columnId();
+            case CARD_EDITED -> type + "/" + ((CardDTO) payload).card().getId();
+            case CARD_PATCHED -> {
+                // a patch only overrides an earlier patch of the card if it sets the same fields
+                final CardPatchDTO patch = (CardPatchDTO) payload;
+                yield type + "/" + patch.cardId() + "/" + (patch.title() != null) + "/" + (patch.description() != null)
+                        + "/" + patch.colorSchemeChanged();
+            }
+            case SUBTASK_EDITED, SUBTASK_TOGGLED -> type + "/" + ((SubTaskDTO) payload).subTask().getId();
+            case TAG_EDITED -> type + "/" + ((Tag) payload).getId();
+            case COLOR_PRESET_EDITED -> type + "/" + ((ColorScheme) payload).getId();
+            default -> null;
+        };
+    }
+
+    /**
+     * Builds the message of a change that was already written as JSON, with its headers as native headers
+     * like {@link SimpMessageSendingOperations#convertAndSend(Object, Object, Map)} does
+     * @param json The written change
+     * @param headers Headers of the message
+     * @return the message
+     */
+    private static Message<byte[]> written(final String json, final Map<String, Object> headers) {
+        final SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        headers.forEach((name, value) -> accessor.setNativeHeader(name, value.toString()));
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(json.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+
+    private String write(final Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not write " + payload.getClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * A change that is held back
+     * @param event The logged change
+     * @param ownTopic Whether the change can be sent on its own topic, false for changes that were logged as part of a batch
+     * @param headers Headers of the message of the change when it is sent on its own
+     * @param supersedeKey What the change sets, see {@link #supersedeKey(BoardEventType, Object)}
+     */
+    record Pending(BoardEventDTO event, boolean ownTopic, Map<String, Object> headers, String supersedeKey) {
+    }
+
+    /**
+     * Changes of a board that are held back until the window ends
+     */
+    private static final class Window {
+        private final List<Pending> pending = new ArrayList<>();
+        private boolean closed;
+
+        void add(final Pending change) {
+            pending.add(change);
+        }
+    }
+
+    @FunctionalInterface
+    private interface WindowAction {
+        void run(Window window);
+    }
+}
@@ -0,0 +1,220 @@
+package server.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import server.VirtualThreadConfig;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the mutations of each board one at a time, in the order in which they were submitted.
+ * Every board has its own queue, and the queues of all boards share a fixed pool of workers,
+ * so different boards are changed in parallel while a single board never needs a lock.
+ */
+@Service
+public class BoardExecutor {
+
+    /**
+     * Number of mutations a worker runs for one board before giving other boards a turn
+     */
+    private static final int BATCH_SIZE = 32;
+
+    private final ExecutorService workers;
+
+    /**
+     * Mutations that are waiting per board. A board only has a queue while it has work,
+     * and the queue is only read and changed inside compute calls on the map, which lock the join key.
+     */
+    private final ConcurrentHashMap<String, Queue<Runnable>> queues;
+
+    /**
+     * Join key of the board whose mutation is running on the current thread
+     */
+    private final ThreadLocal<String> current;
+
+    /**
+     * Constructor for the Board Executor
+     * @param threads Number of worker threads, 0 uses one thread per available processor
+     * @param virtual Whether every drain of a board runs on a virtual thread of its own instead of on the fixed pool,
+     *                so that a board waiting on the database does not hold up the other boards
+     */
+    public BoardExecutor(@Value("${talio.board-executor.threads:0}") final int threads,
+                         @Value("${talio.threads.virtual:false}") final boolean virtual)
+    {
+        final int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        final AtomicInteger count = new AtomicInteger();
+        this.workers = virtual ? VirtualThreadConfig.perTaskExecutor("board-worker-") :
+                Executors.newFixedThreadPool(size, runnable -> {
+                    final Thread thread = new Thread(runnable, "board-worker-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.queues = new ConcurrentHashMap<>();
+        this.current = new ThreadLocal<>();
+    }
+
+    /**
+     * Queues a mutation of a board
+     * @param joinKey Join key of the board that is changed
+     * @param mutation Reads, changes and saves the board
+     * @param <T> Type of the result of the mutation
+     * @return future that completes with the result of the mutation once it has run
+     */
+    public <T> CompletableFuture<T> submit(final String joinKey, final Supplier<T> mutation) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final Runnable task = () -> {
+            try {
+                result.complete(mutation.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        };
+
+        final boolean[] start = new boolean[1];
+        queues.compute(joinKey, (key, queue) -> {
+            final Queue<Runnable> tasks = queue == null ? new ArrayDeque<>() : queue;
+            start[0] = queue == null;
+            tasks.add(task);
+            return tasks;
+        });
+
+        // a new queue has no worker yet, existing queues are drained by the worker that created them
+        if (start[0])
+            workers.execute(() -> drain(joinKey));
+        return result;
+    }
+
+    /**
+     * Runs a mutation of a board after all earlier mutations of that board, and waits for its result.
+     * A mutation that changes the same board again runs directly, since it already holds the board.
+     * @param joinKey Join key of the board that is changed
+     * @param mutation Reads, changes and saves the board
+     * @param <T> Type of the result of the mutation
+     * @return the result of the mutation
+     */
+    public <T> T execute(final String joinKey, final Supplier<T> mutation) {
+        if (isRunning(joinKey))
+            return mutation.get();
+
+        return join(submit(joinKey, mutation));
+    }
+
+    /**
+     * Checks whether the current thread is running a mutation of a board
+     * @param joinKey Join key of the board
+     * @return whether the current thread holds the board
+     */
+    public boolean isRunning(final String joinKey) {
+        return joinKey.equals(current.get());
+    }
+
+    /**
+     * Waits for the result of a submitted mutation
+     * @param future Future of the mutation, see {@link #submit(String, Supplier)}
+     * @param <T> Type of the result of the mutation
+     * @return the result of the mutation
+     */
+    static <T> T join(final CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // exceptions are passed on unchanged, so that the error handling of the caller still applies
+            if (e.getCause() instanceof RuntimeException runtimeException)
+                throw runtimeException;
+            if (e.getCause() instanceof Error error)
+                throw error;
+            throw e;
+        }
+    }
+
+    /**
+     * Runs a mutation of a board without a result after all earlier mutations of that board, and waits for it
+     * @param joinKey Join key of the board that is changed
+     * @param mutation Reads, changes and saves the board
+     */
+    public void run(final String joinKey, final Runnable mutation) {
+        execute(joinKey, () -> {
+            mutation.run();
+            return null;
+        });
+    }
+
+    /**
+     * Gets the number of mutations that are waiting for a board, not counting the one that is running
+     * @param joinKey Join key of the board
+     * @return number of waiting mutations
+     */
+    public int getQueueDepth(final String joinKey) {
+        final int[] depth = new int[1];
+        queues.computeIfPresent(joinKey, (key, queue) -> {
+            depth[0] = queue.size();
+            return queue;
+        });
+        return depth[0];
+    }
+
+    /**
+     * Gets the number of waiting mutations of every board that currently has work
+     * @return number of waiting mutations by join key
+     */
+    public Map<String, Integer> getQueueDepths() {
+        final Map<String, Integer> depths = new HashMap<>();
+        for (final String joinKey : queues.keySet()) {
+            depths.put(joinKey, getQueueDepth(joinKey));
+        }
+        return depths;
+    }
+
+    /**
+     * Stops the workers once the queued mutations have run
+     */
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    /**
+     * Runs the queued mutations of a board. The queue is removed once it is empty,
+     * and after a batch the board goes to the back of the pool, so that a busy board cannot starve the others.
+     * @param joinKey Join key of the board
+     */
+    private void drain(final String joinKey) {
+        current.set(joinKey);
+        try {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                final Runnable task = next(joinKey);
+                if (task == null) return;
+                task.run();
+            }
+        } finally {
+            current.remove();
+        }
+
+        workers.execute(() -> drain(joinKey));
+    }
+
+    /**
+     * Takes the next mutation of a board from its queue
+     * @param joinKey Join key of the board
+     * @return the next mutation, or null if the queue was empty and has been removed
+     */
+    private Runnable next(final String joinKey) {
+        final Runnable[] next = new Runnable[1];
+        queues.computeIfPresent(joinKey, (key, queue) -> {
+            next[0] = queue.poll();
+            return next[0] == null ? null : queue;
+        });
+        return next[0];
+    }
+}
@@ -0,0 +1,189 @@
+package server.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.Board;
+import commons.WireEncoding;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import server.WireConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the encoded form of boards, so that clients that load the same version of a board in the same encoding
+ * do not each make Jackson walk the whole board. A version is told apart by the creation time of the board and the
+ * number of its last logged change, which every change raises, and the entry of a board is dropped on every change.
+ */
+@Service
+public class BoardPayloadCache {
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper smileMapper;
+
+    /**
+     * Encoded boards in least-recently-used order. Every access has to synchronize on the map, since reads also reorder it.
+     */
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final int size;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder bytesSaved;
+
+    /**
+     * Constructor for the payload cache
+     * @param objectMapper Object mapper of the server, which writes JSON
+     * @param wireConfig Holds the object mapper that writes Smile
+     * @param size Maximum number of boards whose encoded form is kept, 0 turns the cache off
+     */
+    public BoardPayloadCache(final ObjectMapper objectMapper, final WireConfig wireConfig,
+                             @Value("${talio.payload-cache.size:256}") final int size)
+    {
+        this.jsonMapper = objectMapper;
+        this.smileMapper = wireConfig.getSmileMapper();
+        this.size = size;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.bytesSaved = new LongAdder();
+    }
+
+    /**
+     * Gets a board in an encoding, from the cache if this version of the board was encoded before.
+     * Has to be called on the executor of the board, see {@link BoardService#read(String, java.util.function.Supplier)},
+     * so that the version of the board and the bytes that are kept for it cannot come from different changes.
+     * @param board Board to encode
+     * @param encoding {@link WireEncoding#JSON} or {@link WireEncoding#SMILE}
+     * @return the encoded board
+     * @throws IOException if the board could not be written
+     */
+    public byte[] encode(final Board board, final String encoding) throws IOException {
+        final long created = board.getCreated() == null ? 0 : board.getCreated().getTime();
+        final long sequence = board.getSequence();
+
+        final Entry entry;
+        synchronized (entries) {
+            entry = entries.get(board.getJoinKey());
+        }
+        if (entry != null && entry.created() == created && entry.sequence() == sequence) {
+            final byte[] bytes = entry.bytes().get(encoding);
+            if (bytes != null) {
+                hits.increment();
+                bytesSaved.add(bytes.length);
+                return bytes;
+            }
+        }
+
+        misses.increment();
+        final byte[] bytes = mapper(encoding).writeValueAsBytes(board);
+        if (size <= 0) return bytes;
+
+        synchronized (entries) {
+            Entry current = entries.get(board.getJoinKey());
+            if (current == null || current.created() != created || current.sequence() < sequence) {
+                current = new Entry(created, sequence, new ConcurrentHashMap<>());
+                entries.put(board.getJoinKey(), current);
+                if (entries.size() > size)
+                    entries.remove(entries.keySet().iterator().next());
+            }
+            if (current.sequence() == sequence)
+                current.bytes().put(encoding, bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Puts a list of boards together in an encoding, where boards that do not exist are null. Every board has been
+     * encoded on its own executor by {@link #encode(Board, String)}, JSON boards are put together as they are and Smile
+     * boards are copied into the list without reading them as boards.
+     * @param boards Encoded boards, null for boards that do not exist
+     * @param encoding {@link WireEncoding#JSON} or {@link WireEncoding#SMILE}
+     * @return the encoded list
+     * @throws IOException if a board could not be copied
+     */
+    public byte[] encodeAll(final List<byte[]> boards, final String encoding) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (WireEncoding.SMILE.equals(encoding) && smileMapper != null) {
+            // a Smile document refers back to names it has already written, so boards cannot be put together as bytes
+            try (JsonGenerator generator = smileMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                for (final byte[] board : boards) {
+                    if (board == null) {
+                        generator.writeNull();
+                        continue;
+                    }
+                    try (JsonParser parser = smileMapper.getFactory().createParser(board)) {
+                        parser.nextToken();
+                        generator.copyCurrentStructure(parser);
+                    }
+                }
+                generator.writeEndArray();
+            }
+            return out.toByteArray();
+        }
+
+        out.write('[');
+        for (int i = 0; i < boards.size(); i++) {
+            if (i > 0) out.write(',');
+            out.write(boards.get(i) == null ? NULL : boards.get(i));
+        }
+        out.write(']');
+        return out.toByteArray();
+    }
+
+    /**
+     * Drops the encoded forms of a board, called on every change to it
+     * @param joinKey Join key of the board
+     */
+    public void invalidate(final String joinKey) {
+        synchronized (entries) {
+            entries.remove(joinKey);
+        }
+    }
+
+    /**
+     * Gets how often a board was served from the cache since the server started, and how many bytes did not
+     * have to be written because of it
+     * @return hits, misses, hit ratio, bytes saved and the number of boards in the cache
+     */
+    public Map<String, Object> getStats() {
+        final long hitCount = hits.sum();
+        final long missCount = misses.sum();
+        final int boardCount;
+        synchronized (entries) {
+            boardCount = entries.size();
+        }
+        return Map.of(
+                "hits", hitCount,
+                "misses", missCount,
+                "hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount),
+                "bytesSaved", bytesSaved.sum(),
+                "boards", boardCount);
+    }
+
+    private ObjectMapper mapper(final String encoding) {
+        return WireEncoding.SMILE.equals(encoding) && smileMapper != null ? smileMapper : jsonMapper;
+    }
+
+    /**
+     * Encoded forms of one version of a board
+     * @param created Creation time of the board
+     * @param sequence Number of the last logged change of the board
+     * @param bytes Encoded board by encoding
+     */
+    private record Entry(long created, long sequence, Map<String, byte[]> bytes) {
+
+    }
+}
@@ -1,30 +1,181 @@
 package server.services;
 
 import commons.Board;
-import org.apache.commons.lang3.RandomStringUtils;
+import commons.BoardEventType;
+import commons.Card;
+import commons.Column;
+import commons.DTOs.BoardChangesDTO;
+import commons.DTOs.BoardEventDTO;
+import commons.DTOs.BoardOperationDTO;
+import commons.DTOs.BoardSummaryDTO;
+import commons.SubTask;
+import commons.exceptions.CardNotFoundException;
+import commons.exceptions.ColumnNotFoundException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import server.api.exceptions.ConflictingChangeException;
 import server.api.exceptions.ResourceNotFoundException;
 import server.api.exceptions.UnauthorizedResourceException;
-import server.database.BoardRepository;
+import server.database.BoardCredentials;
+import server.database.BoardEvent;
+import server.metrics.BoardMetrics;
+import server.storage.BoardStore;
+import server.storage.TargetedBoardWrites;
 
-import java.util.Objects;
-import java.util.Optional;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 public class BoardService {
-    private final BoardRepository br;
+    /**
+     * Storage engine that holds the boards which are not in memory
+     */
+    private final BoardStore store;
+
+    /**
+     * Single-row writes of the store, empty if the store only writes whole boards
+     */
+    private final Optional<TargetedBoardWrites> targetedWrites;
+
+    /**
+     * Runs the targeted writes, which touch only a few rows, in a single transaction
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    private final Logger logger = LogManager.getLogger(BoardService.class);
+
+    /**
+     * Boards that are currently in use, in least-recently-used order.
+     * Every access has to synchronize on the map, since reads also reorder it.
+     */
+    private final LinkedHashMap<String, Board> cache;
+
+    /**
+     * Join keys of cached boards that have been changed but not yet written to the database
+     */
+    private final Set<String> dirty;
 
+    private final ScheduledExecutorService flusher;
 
+    /**
+     * Runs the mutations and writes of each board one at a time
+     */
+    private final BoardExecutor boardExecutor;
+
+    /**
+     * Keeps the log of changes and the snapshots of every board
+     */
+    private final BoardEventLog eventLog;
 
+    /**
+     * Hands out the join keys of new boards
+     */
+    private final JoinKeyPool joinKeyPool;
+
+    /**
+     * Times the mutations of the boards and their phases
+     */
+    private final BoardMetrics metrics;
+
+    /**
+     * Copies a cached board that is sent to a client as a whole
+     */
+    private final BoardCopier boardCopier;
+
+    /**
+     * Set on the thread that wrote a board which had been changed by someone else since it was loaded
+     */
+    private final ThreadLocal<Boolean> conflicted;
+
+    /**
+     * Join key of the board whose mutation runs on the current thread. When every save is written right away,
+     * the saves of a mutation are only written once it logs its change or ends, see {@link #flushMutated(String)}.
+     */
+    private final ThreadLocal<String> mutating;
+
+    /**
+     * Number of conflicting writes and of retried mutations per board
+     */
+    private final Map<String, LongAdder> conflicts;
+    private final Map<String, LongAdder> retries;
+
+    private final int cacheSize;
+    private final long flushDelay;
+    private final int maxRetries;
+    private final long retryBackoff;
+    private final int maxChanges;
 
     /**
      * Constructor for the Board Service
-     * @param br Dependency Injection for the board repository
+     * @param store Storage engine of the boards
+     * @param transactionManager Transaction manager used for targeted writes
+     * @param boardExecutor Runs the mutations of each board one at a time
+     * @param eventLog Log of the changes to every board
+     * @param joinKeyPool Pool of join keys that are not in use
+     * @param metrics Times the mutations of the boards
+     * @param boardCopier Copies a cached board that is sent to a client as a whole
+     * @param cacheSize Maximum number of boards that are kept in memory
+     * @param flushDelay Maximum time in milliseconds that a changed board is kept in memory before it is saved,
+     *                   0 saves every change immediately
+     * @param maxRetries Number of times a mutation is retried after a conflicting write
+     * @param retryBackoff Time in milliseconds to wait before the first retry, doubled for every next retry
+     * @param maxChanges Maximum number of changes sent to a client that is behind, instead of the whole board
      */
     @Autowired
-    public BoardService(final BoardRepository br) {
-        this.br = br;
+    public BoardService(final BoardStore store, final PlatformTransactionManager transactionManager,
+                        final BoardExecutor boardExecutor, final BoardEventLog eventLog, final JoinKeyPool joinKeyPool,
+                        final BoardMetrics metrics, final BoardCopier boardCopier,
+                        @Value("${talio.board-cache.size:256}") final int cacheSize,
+                        @Value("${talio.board-cache.flush-delay:500}") final long flushDelay,
+                        @Value("${talio.board-mutation.max-retries:3}") final int maxRetries,
+                        @Value("${talio.board-mutation.retry-backoff:20}") final long retryBackoff,
+                        @Value("${talio.delta-sync.max-changes:500}") final int maxChanges)
+    {
+        this.store = store;
+        this.targetedWrites = store instanceof TargetedBoardWrites writes ? Optional.of(writes) : Optional.empty();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // writes must never join a surrounding (possibly read-only) transaction of the caller
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.boardExecutor = boardExecutor;
+        this.eventLog = eventLog;
+        this.joinKeyPool = joinKeyPool;
+        this.metrics = metrics;
+        this.boardCopier = boardCopier;
+        this.cacheSize = cacheSize;
+        this.flushDelay = flushDelay;
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        this.maxChanges = maxChanges;
+        this.conflicted = new ThreadLocal<>();
+        this.mutating = new ThreadLocal<>();
+        this.conflicts = new ConcurrentHashMap<>();
+        this.retries = new ConcurrentHashMap<>();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+        this.dirty = ConcurrentHashMap.newKeySet();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "board-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
@@ -35,8 +186,9 @@ public class BoardService {
      * @throws ResourceNotFoundException if the board does not exist
      */
     public Board getBoardWithKey(final String joinKey) {
-        if (br.existsById(joinKey))
-            return br.findById(joinKey).get();
+        final Board board = loadBoard(joinKey);
+        if (board != null)
+            return board;
         throw new ResourceNotFoundException(Board.class, joinKey);
     }
 
@@ -46,8 +198,7 @@ public class BoardService {
      * @return The board with the right joinKey if exists, otherwise null
      */
     public Board getBoardWithKeyUnsafe(final String joinKey) {
-        final Optional<Board> board = br.findById(joinKey);
-        return board.isEmpty() ? null : board.get();
+        return loadBoard(joinKey);
     }
 
     /**
@@ -57,8 +208,23 @@ public class BoardService {
      * @return The board with the right joinKey and password if exists, otherwise null
      */
     public Board getBoardWithKeyAndPassword(final String joinKey, final String password) {
-        if (br.existsById(joinKey)) {
-            final Board board = br.findById(joinKey).get();
+        Board board;
+        synchronized (cache) {
+            board = cache.get(joinKey);
+        }
+
+        if (board == null) {
+            // only the credentials are loaded, so that a wrong password does not load the whole board
+            final Optional<BoardCredentials> credentials = metrics.phase(BoardMetrics.Phase.LOAD, () -> store.findCredentials(joinKey));
+            if (credentials.isEmpty())
+                throw new ResourceNotFoundException(Board.class, joinKey);
+            if (!Objects.equals(credentials.get().getPassword(), password))
+                throw new UnauthorizedResourceException(Board.class, joinKey);
+            board = metrics.phase(BoardMetrics.Phase.LOAD, () -> getCachedBoard(joinKey));
+        }
+
+        if (board != null) {
+            metrics.loaded(board);
             if (Objects.equals(board.getPassword(), password)) // null safe - Board.getPassword could return null
                 return board;
             throw new UnauthorizedResourceException(Board.class, joinKey);
@@ -67,12 +233,319 @@ public class BoardService {
     }
 
     /**
-     * Saves a board to the database
+     * Checks which of the given boards exist, in a single query for all boards that are not cached
+     * @param joinKeys Join keys of the boards to check
+     * @return the join keys of the boards that exist
+     */
+    public Set<String> getExistingJoinKeys(final Collection<String> joinKeys) {
+        final Set<String> existing = new HashSet<>();
+        final Set<String> unknown = new HashSet<>();
+        synchronized (cache) {
+            for (final String joinKey : joinKeys) {
+                if (cache.containsKey(joinKey))
+                    existing.add(joinKey);
+                else
+                    unknown.add(joinKey);
+            }
+        }
+
+        if (!unknown.isEmpty())
+            existing.addAll(store.findExistingJoinKeys(unknown));
+        return existing;
+    }
+
+    /**
+     * Gets the summaries of the given boards. Cached boards are summarized from memory on their executors,
+     * so that none of them is read halfway through a change, the others are loaded in a single query
+     * without their columns and cards.
+     * @param joinKeys Join keys of the boards
+     * @return the summaries of the boards that exist
+     */
+    public List<BoardSummaryDTO> getBoardSummaries(final Collection<String> joinKeys) {
+        final Map<String, CompletableFuture<BoardSummaryDTO>> cached = new LinkedHashMap<>();
+        final Set<String> unknown = new HashSet<>();
+        synchronized (cache) {
+            for (final String joinKey : joinKeys) {
+                if (cache.containsKey(joinKey))
+                    cached.put(joinKey, null);
+                else
+                    unknown.add(joinKey);
+            }
+        }
+
+        // submitted together, so that the boards are summarized in parallel
+        cached.replaceAll((joinKey, ignored) -> boardExecutor.submit(joinKey, () -> {
+            final Board board;
+            synchronized (cache) {
+                board = cache.get(joinKey);
+            }
+            return board == null ? null : BoardSummaryDTO.of(board);
+        }));
+
+        final List<BoardSummaryDTO> summaries = new ArrayList<>();
+        cached.forEach((joinKey, future) -> {
+            final BoardSummaryDTO summary = BoardExecutor.join(future);
+            // evicted in the meantime
+            if (summary == null)
+                unknown.add(joinKey);
+            else
+                summaries.add(summary);
+        });
+
+        if (!unknown.isEmpty())
+            summaries.addAll(store.findSummaries(unknown));
+        return summaries;
+    }
+
+    /**
+     * Reads a board after all earlier mutations of that board, on the executor of the board, so that the board in
+     * memory does not change while it is read. Everything that is taken from the board has to be read here,
+     * the board itself must not be handed on.
+     * @param joinKey Join key of the board that is read
+     * @param reader Reads the board
+     * @param <T> Type of what is read
+     * @return what the reader returned
+     */
+    public <T> T read(final String joinKey, final Supplier<T> reader) {
+        return boardExecutor.execute(joinKey, reader);
+    }
+
+    /**
+     * Runs a read-mutate-save of a board after all earlier mutations of that board.
+     * If the board turns out to have been changed by someone else when it is written, the cached board is dropped
+     * and the whole mutation is queued again to run on a freshly loaded board, waiting a little longer before every retry.
+     * A mutation that runs inside a mutation of the same board runs directly, and its conflicts are retried with
+     * the outer mutation.
+     * @param joinKey Join key of the board that is changed
+     * @param mutation Reads the board, changes it and saves it
+     * @param <T> Type of the result of the mutation
+     * @return the result of the mutation
+     * @throws ConflictingChangeException if the mutation still conflicted after the last retry
+     */
+    public <T> T mutate(final String joinKey, final Supplier<T> mutation) {
+        if (boardExecutor.isRunning(joinKey))
+            return mutation.get();
+        return BoardExecutor.join(submitMutation(joinKey, mutation, 0));
+    }
+
+    /**
+     * Runs a read-mutate-save of a board without a result, see {@link #mutate(String, Supplier)}
+     * @param joinKey Join key of the board that is changed
+     * @param mutation Reads the board, changes it and saves it
+     */
+    public void mutateWithoutResult(final String joinKey, final Runnable mutation) {
+        mutate(joinKey, () -> {
+            mutation.run();
+            return null;
+        });
+    }
+
+    /**
+     * Gets the number of conflicting writes per board since the server started
+     * @return number of conflicts by join key
+     */
+    public Map<String, Long> getConflictCounts() {
+        return snapshot(conflicts);
+    }
+
+    /**
+     * Gets the number of retried mutations per board since the server started
+     * @return number of retries by join key
+     */
+    public Map<String, Long> getRetryCounts() {
+        return snapshot(retries);
+    }
+
+    /**
+     * Saves a board. The board is kept in memory and written to the database in the background,
+     * so that repeated changes to the same board within the flush delay only cause a single write.
+     * Without a flush delay the board is written right away, or once the mutation that saves it logs its change or ends.
+     * Boards are only ever written on their executor.
      * @param board Board to save
-     * @return The saved board
+     * @return The saved board, which is the written copy if the board was written right away
      */
     public Board saveBoard(final Board board) {
-        return br.save(board);
+        return metrics.phase(BoardMetrics.Phase.PERSIST, () -> {
+            final String joinKey = board.getJoinKey();
+            synchronized (cache) {
+                cache.put(joinKey, board);
+            }
+
+            if (flushDelay <= 0) {
+                dirty.add(joinKey);
+                if (joinKey.equals(mutating.get()))
+                    return board;
+                boardExecutor.run(joinKey, () -> flush(joinKey));
+                return getCachedBoard(joinKey);
+            }
+
+            if (dirty.add(joinKey))
+                flusher.schedule(() -> scheduleFlush(joinKey), flushDelay, TimeUnit.MILLISECONDS);
+            return board;
+        });
+    }
+
+    /**
+     * Saves a card that was just added to a column of the board.
+     * Only the card and its link to the column are inserted, the rest of the board is not written.
+     * @param board Board containing the column
+     * @param column Column the card was added to
+     * @param card Card that was added
+     */
+    public void saveCardAdded(final Board board, final Column column, final Card card) {
+        metrics.phase(BoardMetrics.Phase.PERSIST, () -> {
+            // tags and color schemes are shared with the rest of the board, so these go through a full save
+            if (column.getSerializationId() == 0 || card.getColorScheme() != null
+                    || card.getTags() != null && !card.getTags().isEmpty()) {
+                saveBoard(board);
+                return;
+            }
+
+            saveTargeted(board, writes -> writes.insertCard(column, card), () -> saveBoard(board));
+        });
+    }
+
+    /**
+     * Saves the title, description and theme flag of a card, without writing the rest of the board
+     * @param board Board containing the card
+     * @param card Card whose fields were changed
+     */
+    public void saveCardFields(final Board board, final Card card) {
+        metrics.phase(BoardMetrics.Phase.PERSIST, () -> saveTargeted(board, writes -> writes.updateCardFields(card), () -> saveBoard(board)));
+    }
+
+    /**
+     * Saves a card that was moved to a new position, possibly in another column.
+     * Only the rank of the card and, for a move between columns, its link to the column are written,
+     * unless the other cards of the column had to be ranked again.
+     * @param board Board containing the columns
+     * @param source Column the card was moved from
+     * @param destination Column the card was moved to, may be the same as the source column
+     * @param card Card that was moved, with its new rank
+     * @param rebalanced Whether the ranks of other cards in the destination column changed as well
+     */
+    public void saveCardMoved(final Board board, final Column source, final Column destination, final Card card,
+                              final boolean rebalanced)
+    {
+        metrics.phase(BoardMetrics.Phase.PERSIST, () -> {
+            if (source == destination) {
+                if (rebalanced)
+                    saveBoard(board);
+                else
+                    saveTargeted(board, writes -> writes.updateCardRank(card), () -> saveBoard(board));
+                return;
+            }
+
+            // a card that is not in the database yet cannot be orphaned, so it can be moved by a merge
+            if (targetedWrites.isEmpty() || card.getSerializationId() == 0 || source.getSerializationId() == 0 || destination.getSerializationId() == 0) {
+                saveBoard(board);
+                return;
+            }
+
+            final Runnable fallback = () -> saveCardTransferred(targetedWrites.get(), board, source, destination, card);
+            if (rebalanced) {
+                fallback.run();
+                return;
+            }
+
+            saveTargeted(board, writes -> {
+                writes.relinkCard(source, destination, card);
+                writes.updateCardRank(card);
+            }, fallback);
+        });
+    }
+
+    /**
+     * Saves the done status of a subtask, without writing the rest of the board
+     * @param board Board containing the subtask
+     * @param subTask Subtask that was toggled
+     */
+    public void saveSubTaskToggled(final Board board, final SubTask subTask) {
+        metrics.phase(BoardMetrics.Phase.PERSIST, () -> saveTargeted(board, writes -> writes.updateSubTaskDone(subTask), () -> saveBoard(board)));
+    }
+
+    /**
+     * Appends a change that has just been saved to the log of the board.
+     * A board whose write is still pending keeps the new event number in memory until that write,
+     * otherwise the event number of the saved board is advanced together with the append.
+     * A store that cannot join the transaction of the log is only advanced once the append has been committed.
+     * Has to be called by the executor of the board.
+     * @param joinKey Join key of the board that was changed
+     * @param type Kind of change
+     * @param payload Message that is broadcast for the change
+     * @return headers to broadcast the change with, which tell clients the new version of the board
+     */
+    public Map<String, Object> recordEvent(final String joinKey, final BoardEventType type, final Object payload) {
+        metrics.name(type.name());
+        return metrics.phase(BoardMetrics.Phase.PERSIST, () -> {
+            final Board board = appendToLog(joinKey, type.toString(), logged -> eventLog.append(logged, type, payload));
+            if (board == null) return Map.of();
+            return Map.of(BoardEventType.SEQUENCE_HEADER, Long.toString(board.getSequence()));
+        });
+    }
+
+    /**
+     * Appends changes that were made together and have just been saved to the log of the board,
+     * in a single transaction, see {@link #recordEvent(String, BoardEventType, Object)}.
+     * Has to be called by the executor of the board.
+     * @param joinKey Join key of the board that was changed
+     * @param operations Changes in the order in which they were made, with their messages as JSON
+     * @return the logged changes, empty if the board is not in memory
+     */
+    public List<BoardEventDTO> recordEvents(final String joinKey, final List<BoardOperationDTO> operations) {
+        metrics.name("batch");
+        return metrics.phase(BoardMetrics.Phase.PERSIST, () -> {
+            final List<BoardEvent> events = new ArrayList<>();
+            appendToLog(joinKey, operations.size() + " changes", logged -> events.addAll(eventLog.appendAll(logged, operations)));
+            return events.stream().map(event -> new BoardEventDTO(event.getSequence(), event.getType(), event.getPayload())).toList();
+        });
+    }
+
+    /**
+     * Gets the changes to a board since a version that a client already has, or the whole board
+     * if the client is too far behind or its version is not in the log. Runs on the executor of the board,
+     * so that no change can happen between reading the version and reading the changes.
+     * @param joinKey Join key of the board
+     * @param password Password of the board, null to skip the check like when getting the whole board
+     * @param since Version of the board that the client has
+     * @return the changes since that version
+     */
+    public BoardChangesDTO getChangesSince(final String joinKey, final String password, final long since) {
+        return boardExecutor.execute(joinKey, () -> {
+            final Board board = password == null ? getBoardWithKey(joinKey) : getBoardWithKeyAndPassword(joinKey, password);
+            final long current = board.getSequence();
+            if (since == current)
+                return new BoardChangesDTO(joinKey, current, List.of(), null);
+
+            if (since >= 0 && since < current && current - since <= maxChanges) {
+                final List<BoardEventDTO> events = eventLog.getEventsSince(joinKey, since).stream()
+                        .map(event -> new BoardEventDTO(event.getSequence(), event.getType(), event.getPayload()))
+                        .toList();
+                // boards from before the log existed do not have their early changes logged
+                if (events.size() == current - since)
+                    return new BoardChangesDTO(joinKey, current, events, null);
+            }
+            // the response is written after this has left the executor, so the cached board must not be in it
+            return new BoardChangesDTO(joinKey, current, List.of(), boardCopier.copy(board));
+        });
+    }
+
+    /**
+     * Stores the current state of a board as the starting point of its log, used when a board is created
+     * @param board Board to store
+     */
+    public void snapshotBoard(final Board board) {
+        eventLog.snapshot(board);
+    }
+
+    /**
+     * Rebuilds the state of a board as it was directly after the given change
+     * @param joinKey Join key of the board
+     * @param sequence Number of the change in the log of the board
+     * @return the board as it was, or empty if that state can no longer be rebuilt
+     */
+    public Optional<Board> getBoardAt(final String joinKey, final long sequence) {
+        return eventLog.rebuild(joinKey, sequence);
     }
 
     /**
@@ -80,11 +553,7 @@ public class BoardService {
      * @return The join key
      */
     public String generateJoinKey() {
-        String joinKey = RandomStringUtils.random(6, "0123456789abcdef");
-        while (br.existsById(joinKey)) {
-            joinKey = RandomStringUtils.random(6, "0123456789abcdef");
-        }
-        return joinKey;
+        return joinKeyPool.take();
     }
 
     /**
@@ -92,6 +561,386 @@ public class BoardService {
      * @param board Board to delete
      */
     public void deleteBoard(final Board board) {
-        this.br.delete(board);
+        metrics.phase(BoardMetrics.Phase.PERSIST, () -> {
+            synchronized (cache) {
+                cache.remove(board.getJoinKey());
+                dirty.remove(board.getJoinKey());
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    this.store.delete(board);
+                    eventLog.delete(board.getJoinKey());
+                });
+            } catch (OptimisticLockingFailureException e) {
+                count(conflicts, board.getJoinKey());
+                conflicted.set(true);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Writes all changed boards to the database
+     */
+    public void flushAll() {
+        for (final String joinKey : new ArrayList<>(dirty)) {
+            try {
+                boardExecutor.run(joinKey, () -> flushOrReload(joinKey));
+            } catch (OptimisticLockingFailureException e) {
+                // the board conflicted again while its logged changes were replayed; already logged by the flush,
+                // the other boards still have to be written
+            }
+        }
+    }
+
+    /**
+     * Saves all pending changes before the application shuts down
+     */
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        flushAll();
+    }
+
+    /**
+     * Gets the number of boards that are currently held in memory
+     * @return number of cached boards
+     */
+    public int getCachedBoardCount() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Runs an append to the log of a cached board together with the update of its event number in the store.
+     * If the append fails, the board in memory differs from its log, so it is dropped and loaded again on next use.
+     * @param joinKey Join key of the board
+     * @param description What is appended, for the error message
+     * @param append Appends to the log of the board
+     * @return the board, or null if it is not in memory
+     */
+    private Board appendToLog(final String joinKey, final String description, final Consumer<Board> append) {
+        // the change is written before it is logged, so that a conflicting write is retried before anything is logged
+        flushMutated(joinKey);
+
+        final Board board;
+        synchronized (cache) {
+            board = cache.get(joinKey);
+        }
+        if (board == null) return null;
+
+        final boolean pending = dirty.contains(joinKey);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                append.accept(board);
+                if (store.joinsTransactions())
+                    advanceSequence(board, pending);
+            });
+            if (!store.joinsTransactions())
+                advanceSequence(board, pending);
+        } catch (RuntimeException e) {
+            logger.error("Could not log " + description + " for board " + joinKey, e);
+            evict(joinKey);
+            throw e;
+        }
+        return board;
+    }
+
+    /**
+     * Stores the new event number of a board after a change was logged
+     * @param board Board that was changed
+     * @param pending Whether the change still waits for a write of the whole board
+     */
+    private void advanceSequence(final Board board, final boolean pending) {
+        if (pending)
+            store.updateLoggedSequence(board.getJoinKey(), board.getLoggedSequence());
+        else
+            store.updateSequence(board.getJoinKey(), board.getSequence());
+    }
+
+    /**
+     * Runs a write that only touches the changed rows of a board. This is only possible if the store supports it
+     * and the cached board is in sync with the database, otherwise the whole board is saved instead.
+     * A failed targeted write also falls back to saving the whole board.
+     * @param board Board that was changed
+     * @param write Statements to run in a single transaction
+     * @param fallback Saves the whole board instead
+     */
+    private void saveTargeted(final Board board, final Consumer<TargetedBoardWrites> write, final Runnable fallback) {
+        final String joinKey = board.getJoinKey();
+        final boolean inSync;
+        synchronized (cache) {
+            inSync = targetedWrites.isPresent() && cache.get(joinKey) == board && !dirty.contains(joinKey);
+        }
+        if (!inSync) {
+            fallback.run();
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> write.accept(targetedWrites.get()));
+        } catch (RuntimeException e) {
+            logger.warn("Targeted write failed for board " + joinKey + ", saving the whole board", e);
+            fallback.run();
+        }
+    }
+
+    /**
+     * Saves the whole board after a card was moved to another column.
+     * A merge cannot move a card between columns, since removing it from the old column deletes it as an orphan,
+     * so the board is first written with the card still in its old column, and the card is then relinked.
+     * @param writes Targeted writes of the store
+     * @param board Board containing the columns
+     * @param source Column the card was moved from
+     * @param destination Column the card was moved to
+     * @param card Card that was moved
+     */
+    private void saveCardTransferred(final TargetedBoardWrites writes, final Board board, final Column source, final Column destination,
+                                     final Card card)
+    {
+        final String joinKey = board.getJoinKey();
+        destination.removeCard(card);
+        source.addCard(card);
+        synchronized (cache) {
+            cache.put(joinKey, board);
+        }
+        dirty.add(joinKey);
+        flush(joinKey);
+
+        // the flush replaced the cached board by the persisted copy, which holds the current versions
+        final Board saved = getCachedBoard(joinKey);
+        try {
+            final Column savedSource = saved.getColumnById(source.getId());
+            final Column savedDestination = saved.getColumnById(destination.getId());
+            final Card savedCard = saved.getCard(card.getId());
+            savedSource.removeCard(savedCard);
+            savedDestination.addCard(savedCard);
+
+            transactionTemplate.executeWithoutResult(status -> writes.relinkCard(savedSource, savedDestination, savedCard));
+        } catch (ColumnNotFoundException | CardNotFoundException | RuntimeException e) {
+            // the cached board no longer matches the database, so it is loaded again on next use
+            evict(joinKey);
+            throw new IllegalStateException("Could not move card " + card.getId() + " in board " + joinKey, e);
+        }
+    }
+
+    /**
+     * Queues a mutation of a board, and queues it again after a wait if it conflicted. The wait is not spent on the
+     * executor of the board, so that the other mutations of the board keep running in the meantime.
+     * @param joinKey Join key of the board that is changed
+     * @param mutation Reads the board, changes it and saves it
+     * @param attempt Number of earlier attempts of the mutation
+     * @param <T> Type of the result of the mutation
+     * @return future that completes with the result of the last attempt
+     */
+    private <T> CompletableFuture<T> submitMutation(final String joinKey, final Supplier<T> mutation, final int attempt) {
+        return boardExecutor.submit(joinKey, () -> attemptMutation(joinKey, mutation))
+                .handle((result, error) -> {
+                    final Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (!(cause instanceof ConflictingChangeException) || attempt >= maxRetries)
+                        return cause == null ? CompletableFuture.completedFuture(result) : CompletableFuture.<T>failedFuture(cause);
+
+                    count(retries, joinKey);
+                    final long backoff = retryBackoff << attempt;
+                    final Executor delayed = CompletableFuture.delayedExecutor(
+                            backoff + ThreadLocalRandom.current().nextLong(backoff + 1), TimeUnit.MILLISECONDS);
+                    return CompletableFuture.supplyAsync(() -> attempt + 1, delayed)
+                            .thenCompose(next -> submitMutation(joinKey, mutation, next));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Runs a mutation, turning a conflicting write of the board into a {@link ConflictingChangeException}.
+     * Has to be called by the executor of the board.
+     * @param joinKey Join key of the board that is changed
+     * @param mutation Reads the board, changes it and saves it
+     * @param <T> Type of the result of the mutation
+     * @return the result of the mutation
+     */
+    private <T> T attemptMutation(final String joinKey, final Supplier<T> mutation) {
+        conflicted.remove();
+        try {
+            return metrics.operation(() -> {
+                mutating.set(joinKey);
+                try {
+                    return mutation.get();
+                } finally {
+                    mutating.remove();
+                    flushMutated(joinKey);
+                }
+            });
+        } catch (RuntimeException e) {
+            // the conflict may have been wrapped by the error handling of the mutation, so it is tracked separately
+            if (Boolean.TRUE.equals(conflicted.get()))
+                throw new ConflictingChangeException(Board.class, joinKey);
+            throw e;
+        } finally {
+            conflicted.remove();
+        }
+    }
+
+    /**
+     * Queues the write of a changed board behind the mutations of that board, so that it is never written halfway
+     * @param joinKey Join key of the board
+     */
+    private void scheduleFlush(final String joinKey) {
+        boardExecutor.submit(joinKey, () -> {
+            flushOrReload(joinKey);
+            return null;
+        });
+    }
+
+    /**
+     * Writes a changed board outside of a mutation, which cannot be retried. If the board was changed by someone else,
+     * it is loaded again, which replays the changes that were logged since it was last written on top of the stored
+     * board and saves them again, so that they are not lost. Has to be called by the executor of the board.
+     * @param joinKey Join key of the board
+     */
+    private void flushOrReload(final String joinKey) {
+        try {
+            flush(joinKey);
+        } catch (OptimisticLockingFailureException e) {
+            conflicted.remove();
+            getCachedBoard(joinKey);
+        }
+    }
+
+    /**
+     * Writes the board of the current mutation if it was saved, when every save is written right away.
+     * A mutation writes its board only once: the written copy replaces the board in memory, and writing the board
+     * that the mutation holds a second time would store the rows it added twice.
+     * @param joinKey Join key of the board
+     */
+    private void flushMutated(final String joinKey) {
+        if (flushDelay <= 0 && dirty.contains(joinKey) && boardExecutor.isRunning(joinKey))
+            metrics.phase(BoardMetrics.Phase.PERSIST, () -> flush(joinKey));
+    }
+
+    /**
+     * Drops a board from memory, so that it is loaded from the database on next use
+     * @param joinKey Join key of the board
+     */
+    private void evict(final String joinKey) {
+        synchronized (cache) {
+            cache.remove(joinKey);
+            dirty.remove(joinKey);
+        }
+    }
+
+    private static void count(final Map<String, LongAdder> counters, final String joinKey) {
+        counters.computeIfAbsent(joinKey, key -> new LongAdder()).increment();
+    }
+
+    private static Map<String, Long> snapshot(final Map<String, LongAdder> counters) {
+        final Map<String, Long> snapshot = new HashMap<>();
+        counters.forEach((joinKey, counter) -> snapshot.put(joinKey, counter.sum()));
+        return snapshot;
+    }
+
+    /**
+     * Gets a board like {@link #getCachedBoard(String)}, timing it as the load of the current mutation
+     * @param joinKey Join key of the board
+     * @return the board, or null if it does not exist
+     */
+    private Board loadBoard(final String joinKey) {
+        final Board board = metrics.phase(BoardMetrics.Phase.LOAD, () -> getCachedBoard(joinKey));
+        metrics.loaded(board);
+        return board;
+    }
+
+    /**
+     * Gets a board from memory, loading it from the database if it is not cached yet
+     * @param joinKey Join key of the board
+     * @return the board, or null if it does not exist
+     */
+    private Board getCachedBoard(final String joinKey) {
+        synchronized (cache) {
+            final Board board = cache.get(joinKey);
+            if (board != null) return board;
+        }
+
+        // Loaded outside the lock, so that a slow query does not block other boards
+        final Optional<Board> loaded = store.load(joinKey);
+        if (loaded.isEmpty()) return null;
+
+        // a store outside the transaction of the log may have missed the last changes that were logged
+        if (!store.joinsTransactions())
+            loaded.get().setLoggedSequence(Math.max(loaded.get().getLoggedSequence(), eventLog.getLastSequence(joinKey)));
+
+        // cards from before ranks existed are ranked once, in the order of their stored priority
+        boolean ranked = false;
+        for (final Column column : loaded.get().getColumns()) {
+            ranked |= column.refreshRanks();
+        }
+
+        // changes that were logged but never written, because the server stopped before the board was flushed
+        int replayed = 0;
+        if (loaded.get().getLoggedSequence() > loaded.get().getSequence()) {
+            final List<BoardEvent> missed = eventLog.getEventsSince(joinKey, loaded.get().getSequence());
+            replayed = eventLog.replay(loaded.get(), missed);
+            logger.warn("Replayed " + replayed + " of " + missed.size() + " unsaved changes of board " + joinKey);
+        }
+
+        final Board board;
+        synchronized (cache) {
+            final Board existing = cache.putIfAbsent(joinKey, loaded.get());
+            evictOverflow();
+            board = existing == null ? loaded.get() : existing;
+        }
+        if ((ranked || replayed > 0) && board == loaded.get())
+            saveBoard(board);
+        return board;
+    }
+
+    /**
+     * Writes a changed board to the database. The persisted copy replaces the cached board
+     * unless the board was changed again in the meantime, so that generated ids and new versions are kept.
+     * If the board was changed by someone else since it was loaded, the cached board is dropped, and the caller
+     * either retries its mutation or reloads the board, see {@link #flushOrReload(String)}.
+     * @param joinKey Join key of the board to write
+     * @throws OptimisticLockingFailureException if the board was changed by someone else
+     */
+    private void flush(final String joinKey) {
+        if (!dirty.remove(joinKey)) return;
+
+        final Board board;
+        synchronized (cache) {
+            board = cache.get(joinKey);
+        }
+        if (board == null) return;
+
+        try {
+            final Board saved = transactionTemplate.execute(status -> store.save(board));
+            synchronized (cache) {
+                if (saved != null && !dirty.contains(joinKey) && cache.get(joinKey) == board)
+                    cache.put(joinKey, saved);
+                evictOverflow();
+            }
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Board " + joinKey + " was changed by someone else, dropping the cached board", e);
+            evict(joinKey);
+            count(conflicts, joinKey);
+            conflicted.set(true);
+            throw e;
+        } catch (RuntimeException e) {
+            logger.error("Could not save board " + joinKey + ", retrying later", e);
+            if (dirty.add(joinKey) && !flusher.isShutdown())
+                flusher.schedule(() -> scheduleFlush(joinKey), Math.max(flushDelay, 1000), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Evicts the least recently used boards until the cache fits its maximum size again.
+     * Changed boards are only evicted once they have been written to the database.
+     * Has to be called while holding the lock on the cache.
+     */
+    private void evictOverflow() {
+        final Iterator<Map.Entry<String, Board>> iterator = cache.entrySet().iterator();
+        while (cache.size() > cacheSize && iterator.hasNext()) {
+            if (!dirty.contains(iterator.next().getKey()))
+                iterator.remove();
+        }
     }
 }
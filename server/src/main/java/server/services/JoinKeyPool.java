@@ -0,0 +1,229 @@
+package server.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import server.storage.BoardStore;
+
+import javax.annotation.PreDestroy;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Hands out join keys for new boards that are guaranteed not to be in use.
+ * Every possible key has a bit in a bitmap, which is filled from the board store once and then claimed with compare-and-set,
+ * so taking a key never queries the store and two boards can never get the same key.
+ * A pool of claimed keys is refilled in the background, so that creating a board does not have to search for a free key.
+ */
+@Service
+public class JoinKeyPool {
+
+    /**
+     * Number of hexadecimal characters in a join key
+     */
+    static final int KEY_LENGTH = 6;
+
+    /**
+     * Number of different join keys, one bit per key
+     */
+    static final int KEY_COUNT = 1 << (4 * KEY_LENGTH);
+
+    /**
+     * Number of random keys that are tried before the bitmap is searched for a free key
+     */
+    private static final int RANDOM_ATTEMPTS = 16;
+
+    private final Logger logger = LogManager.getLogger(JoinKeyPool.class);
+
+    /**
+     * Keys that are in use or have been claimed. Keys of deleted boards stay claimed until the server restarts,
+     * so that an old link never opens a different board.
+     */
+    private final AtomicLongArray used;
+
+    private final Queue<String> pool;
+
+    /**
+     * Number of keys in the pool, since the size of the queue itself is not constant time
+     */
+    private final AtomicInteger available;
+
+    private final AtomicBoolean refilling;
+
+    private final ExecutorService refiller;
+
+    /**
+     * Completes once the keys of the existing boards have been marked as used
+     */
+    private final CompletableFuture<Void> loaded;
+
+    private final int poolSize;
+
+    /**
+     * Constructor for the Join Key Pool. The keys of the existing boards are read in the background.
+     * @param store Storage engine of the boards, used to read the existing join keys
+     * @param poolSize Number of keys that are kept ready
+     */
+    public JoinKeyPool(final BoardStore store, @Value("${talio.join-key-pool.size:64}") final int poolSize) {
+        this.used = new AtomicLongArray(KEY_COUNT / Long.SIZE);
+        this.pool = new ConcurrentLinkedQueue<>();
+        this.available = new AtomicInteger();
+        this.refilling = new AtomicBoolean();
+        this.poolSize = Math.max(1, poolSize);
+        this.refiller = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "join-key-refiller");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.loaded = CompletableFuture.runAsync(() -> {
+            store.forEachJoinKey(this::markUsed);
+            fillOrLog();
+        }, refiller);
+        this.loaded.exceptionally(e -> {
+            logger.error("Could not read the join keys of the existing boards", e);
+            return null;
+        });
+    }
+
+    /**
+     * Takes a join key that no board uses, from the pool if it has one ready
+     * @return the join key
+     * @throws IllegalStateException if every join key is in use, or the existing keys could not be read
+     */
+    public String take() {
+        String joinKey = pool.poll();
+        if (joinKey == null) {
+            try {
+                loaded.join();
+            } catch (CompletionException e) {
+                throw new IllegalStateException("The join keys of the existing boards could not be read", e.getCause());
+            }
+            joinKey = pool.poll();
+        }
+        if (joinKey == null) {
+            refill();
+            return claim();
+        }
+        if (available.decrementAndGet() < poolSize / 2)
+            refill();
+        return joinKey;
+    }
+
+    /**
+     * Marks a join key as used, so that it is never handed out.
+     * Keys that are not hexadecimal or have a different length can never be handed out, and are ignored.
+     * @param joinKey Join key of an existing board
+     */
+    public void markUsed(final String joinKey) {
+        final int index = indexOf(joinKey);
+        if (index >= 0)
+            tryClaim(index);
+    }
+
+    /**
+     * Stops refilling the pool
+     */
+    @PreDestroy
+    public void shutdown() {
+        refiller.shutdownNow();
+    }
+
+    private void refill() {
+        // until the existing keys are known, the pool is filled by the task that reads them
+        if (!loaded.isDone() || loaded.isCompletedExceptionally())
+            return;
+        if (refilling.compareAndSet(false, true))
+            refiller.execute(() -> {
+                try {
+                    fillOrLog();
+                } finally {
+                    refilling.set(false);
+                }
+            });
+    }
+
+    private void fillOrLog() {
+        try {
+            while (available.get() < poolSize) {
+                pool.add(claim());
+                available.incrementAndGet();
+            }
+        } catch (IllegalStateException e) {
+            logger.error("Could not refill the join key pool", e);
+        }
+    }
+
+    /**
+     * Claims a free key. Random keys are tried first, so that keys cannot be guessed from each other,
+     * and when the key space is almost full the bitmap is searched from a random position instead.
+     * @return the claimed key
+     */
+    private String claim() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < RANDOM_ATTEMPTS; i++) {
+            final int index = random.nextInt(KEY_COUNT);
+            if (tryClaim(index))
+                return format(index);
+        }
+
+        final int words = used.length();
+        final int start = random.nextInt(words);
+        for (int i = 0; i < words; i++) {
+            final int word = (start + i) % words;
+            long bits = used.get(word);
+            while (bits != -1L) {
+                final int bit = Long.numberOfTrailingZeros(~bits);
+                if (tryClaim(word * Long.SIZE + bit))
+                    return format(word * Long.SIZE + bit);
+                bits = used.get(word);
+            }
+        }
+        throw new IllegalStateException("Every join key is in use");
+    }
+
+    /**
+     * Sets the bit of a key
+     * @param index Index of the key
+     * @return true if the key was free and is now claimed by the caller
+     */
+    private boolean tryClaim(final int index) {
+        final int word = index / Long.SIZE;
+        final long mask = 1L << (index % Long.SIZE);
+        long bits = used.get(word);
+        while ((bits & mask) == 0) {
+            if (used.compareAndSet(word, bits, bits | mask))
+                return true;
+            bits = used.get(word);
+        }
+        return false;
+    }
+
+    static int indexOf(final String joinKey) {
+        if (joinKey == null || joinKey.length() != KEY_LENGTH)
+            return -1;
+        int index = 0;
+        for (int i = 0; i < KEY_LENGTH; i++) {
+            final char c = joinKey.charAt(i);
+            final int digit = c >= '0' && c <= '9' ? c - '0' : c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+            if (digit < 0)
+                return -1;
+            index = (index << 4) | digit;
+        }
+        return index;
+    }
+
+    static String format(final int index) {
+        final String hex = Integer.toHexString(index);
+        return "0".repeat(KEY_LENGTH - hex.length()) + hex;
+    }
+}
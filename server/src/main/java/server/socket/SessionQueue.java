@@ -0,0 +1,190 @@
+package server.socket;
+
+import commons.BoardEventType;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Bounded queue of the messages that still have to be sent to one session.
+ * At most one message of a session is handed to the outbound channel at a time, the next one follows once that one
+ * has been written to the socket. So a slow client only fills its own queue, and never holds up the other sessions.
+ */
+final class SessionQueue {
+
+    /**
+     * Kinds of topics whose every message replaces what the previous one set, like the title of the board.
+     * Only a queued message on one of these can be replaced by a newer one, replacing any other message,
+     * like an added card, would lose a change.
+     */
+    static final Set<String> CONFLATABLE_TOPICS = Stream.of(BoardEventType.BOARD_RENAMED, BoardEventType.BOARD_PASSWORD_SET,
+                    BoardEventType.BOARD_COLOR_SET, BoardEventType.COLUMN_COLOR_SET, BoardEventType.CARD_COLOR_SET)
+            .map(type -> type.getResource() + "/" + type.getAction())
+            .collect(Collectors.toUnmodifiableSet());
+
+    /**
+     * What happened to a message that was offered to the queue
+     */
+    enum Outcome {
+        QUEUED,
+        /**
+         * The message was queued, and an older message was dropped to make room for it
+         */
+        DROPPED,
+        /**
+         * The message replaced a queued message for the same destination, which is a topic that replaces state
+         */
+        CONFLATED,
+        /**
+         * The queue was full and the policy is to disconnect the session, the message was not queued
+         */
+        OVERFLOWED,
+        /**
+         * The session is gone, the message was not queued
+         */
+        CLOSED
+    }
+
+    private final String sessionId;
+    private final int capacity;
+    private final LinkedList<Message<?>> queued;
+
+    /**
+     * Message that was handed to the outbound channel and has not been written yet, null if there is none
+     */
+    private Message<?> inFlight;
+
+    /**
+     * Queued marker that tells the client to load its board again since messages were dropped, null if none is queued
+     */
+    private Message<?> resync;
+
+    private boolean closed;
+
+    SessionQueue(final String sessionId, final int capacity) {
+        this.sessionId = sessionId;
+        this.capacity = capacity;
+        this.queued = new LinkedList<>();
+    }
+
+    /**
+     * Adds a message to the end of the queue, making room for it according to the policy if the queue is full
+     * @param message Message for the session
+     * @param policy What to do if the queue is full
+     * @return what happened to the message
+     */
+    synchronized Outcome offer(final Message<?> message, final SlowConsumerPolicy policy) {
+        if (closed) return Outcome.CLOSED;
+        // the marker does not take the place of a message
+        if (queued.size() - (resync == null ? 0 : 1) < capacity) {
+            queued.add(message);
+            return Outcome.QUEUED;
+        }
+
+        if (policy == SlowConsumerPolicy.DISCONNECT) return Outcome.OVERFLOWED;
+        if (policy == SlowConsumerPolicy.CONFLATE && replace(message)) return Outcome.CONFLATED;
+
+        dropOldest();
+        queued.add(message);
+        return Outcome.DROPPED;
+    }
+
+    /**
+     * Checks whether a marker telling the client to load its board again is queued
+     * @return true if the marker is queued and has not been sent yet
+     */
+    synchronized boolean isResyncQueued() {
+        return resync != null;
+    }
+
+    /**
+     * Adds a marker to the end of the queue that tells the client it missed messages and has to load its board again.
+     * The marker is never dropped, and while it is queued it also covers messages that are dropped later, since the client
+     * only loads the board once it has read the marker.
+     * @param marker Message telling the client to load its board again
+     * @return true if the marker was queued, false if one already is or the session is gone
+     */
+    synchronized boolean queueResync(final Message<?> marker) {
+        if (closed || resync != null) return false;
+        resync = marker;
+        queued.add(marker);
+        return true;
+    }
+
+    /**
+     * Takes the next message to send, unless a message of the session is still being sent
+     * @return the message to hand to the outbound channel, or null if there is none or one is in flight
+     */
+    synchronized Message<?> poll() {
+        if (inFlight != null || closed) return null;
+        inFlight = queued.poll();
+        if (inFlight != null && inFlight == resync) resync = null;
+        return inFlight;
+    }
+
+    /**
+     * Marks a message as written, so that the next one can be sent
+     * @param message Message that was written, or could not be sent
+     * @return the next message to hand to the outbound channel, or null if there is none
+     */
+    synchronized Message<?> complete(final Message<?> message) {
+        if (message != inFlight) return null;
+        inFlight = null;
+        return poll();
+    }
+
+    /**
+     * Drops all queued messages and refuses new ones
+     */
+    synchronized void close() {
+        closed = true;
+        queued.clear();
+        inFlight = null;
+        resync = null;
+    }
+
+    synchronized int size() {
+        return queued.size();
+    }
+
+    String getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Drops the oldest queued message, other than the marker
+     */
+    private void dropOldest() {
+        for (final Iterator<Message<?>> iterator = queued.iterator(); iterator.hasNext();) {
+            if (iterator.next() != resync) {
+                iterator.remove();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replaces the latest queued message for the destination of a new message, keeping its place in the queue,
+     * so that messages for the same destination stay in order. Only messages on a topic that replaces state are replaced.
+     * @param message New message
+     * @return true if a message was replaced
+     */
+    private boolean replace(final Message<?> message) {
+        final String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null || !CONFLATABLE_TOPICS.contains(ShardedBrokerMessageHandler.topicOf(destination))) return false;
+        for (final ListIterator<Message<?>> iterator = queued.listIterator(queued.size()); iterator.hasPrevious();) {
+            if (Objects.equals(destination, SimpMessageHeaderAccessor.getDestination(iterator.previous().getHeaders()))) {
+                iterator.set(message);
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,614 @@
+package server.socket;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import commons.WireEncoding;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.InterceptableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.MultiValueMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Broker for the topics of the boards. Every board is assigned to one of a fixed set of dispatch threads by its join key,
+ * so the messages of a board are delivered in order while different boards are fanned out in parallel.
+ * Messages are not sent to the sessions directly, but through a bounded queue per session (see {@link SessionQueue}),
+ * and a session whose queue is full is handled according to the {@link SlowConsumerPolicy}. A session that had messages
+ * dropped gets a marker on the resync topic of its board, after which the client loads the board again.
+ * Sessions that said in their connect frame that they can read Smile get the messages as Smile,
+ * which is converted from the JSON once per message rather than once per session.
+ *
+ * <p>Only subscriptions and messages are handled here, connecting and heartbeats are left to the simple broker,
+ * see {@link SocketConfig}.
+ */
+@Component
+@ConditionalOnProperty(name = "talio.broker.engine", havingValue = "sharded", matchIfMissing = true)
+public class ShardedBrokerMessageHandler extends AbstractBrokerMessageHandler {
+
+    private static final byte[] EMPTY_PAYLOAD = new byte[0];
+
+    private static final MimeType SMILE_FRAME = MimeType.valueOf(WireEncoding.SMILE_FRAME);
+
+    /**
+     * Action of the topic of a board on which a session is told that messages were dropped, the payload is the join key
+     */
+    static final String RESYNC_ACTION = "resync";
+
+    private final Logger logger = LogManager.getLogger(ShardedBrokerMessageHandler.class);
+
+    private final DefaultSubscriptionRegistry subscriptionRegistry;
+
+    /**
+     * Send queues of the sessions that subscribed to a topic, by session id
+     */
+    private final Map<String, SessionQueue> sessions;
+
+    /**
+     * Ids of the sessions that read Smile, empty if Smile is turned off
+     */
+    private final Set<String> smileSessions;
+    private final boolean smile;
+    private final JsonFactory jsonFactory;
+    private final SmileFactory smileFactory;
+
+    /**
+     * Single-threaded executors that fan out the messages, a board always goes to the same one
+     */
+    private final ExecutorService[] shards;
+
+    private final int queueSize;
+    private final SlowConsumerPolicy policy;
+
+    /**
+     * Whether the outbound channel reports when a message has been written, otherwise messages are sent without waiting
+     */
+    private final boolean trackDelivery;
+
+    /**
+     * Fanout times of the boards that sessions subscribed to, by join key. A board is forgotten with its last subscription.
+     */
+    private final Map<String, FanoutStats> fanouts;
+
+    /**
+     * Join keys of the boards of the subscriptions of every session, by session id and subscription id,
+     * and the number of subscriptions to the topics of every board. Both are only used while holding the lock on the first.
+     */
+    private final Map<String, Map<String, String>> subscribedBoards;
+    private final Map<String, Integer> boardSubscriptions;
+
+    private final LongAdder dropped;
+    private final LongAdder conflated;
+    private final LongAdder disconnected;
+
+    private final MeterRegistry registry;
+
+    /**
+     * Number of subscribers a message was queued for, by kind of topic
+     */
+    private final Map<String, DistributionSummary> subscriberSummaries;
+
+    /**
+     * Bytes of the messages queued for the sessions, by encoding
+     */
+    private final Counter jsonBytes;
+    private final Counter smileBytes;
+
+    /**
+     * Constructor for the sharded broker
+     * @param clientInboundChannel Channel of the messages from the clients
+     * @param clientOutboundChannel Channel of the messages to the clients
+     * @param brokerChannel Channel of the messages that the server publishes
+     * @param shards Number of dispatch threads, 0 uses one thread per available processor
+     * @param queueSize Number of messages that can wait for a single session
+     * @param policy What to do with a session whose queue is full, see {@link SlowConsumerPolicy#parse(String)}
+     * @param smile Whether sessions that can read Smile get their messages as Smile
+     * @param registry Registry of the meters of the broadcasts
+     */
+    public ShardedBrokerMessageHandler(@Qualifier("clientInboundChannel") final SubscribableChannel clientInboundChannel,
+                                       @Qualifier("clientOutboundChannel") final MessageChannel clientOutboundChannel,
+                                       @Qualifier("brokerChannel") final SubscribableChannel brokerChannel,
+                                       @Value("${talio.broker.shards:0}") final int shards,
+                                       @Value("${talio.broker.session-queue-size:256}") final int queueSize,
+                                       @Value("${talio.broker.slow-consumer-policy:disconnect}") final String policy,
+                                       @Value("${talio.wire.smile:true}") final boolean smile,
+                                       final MeterRegistry registry)
+    {
+        super(clientInboundChannel, clientOutboundChannel, brokerChannel, List.of(SocketConfig.TOPIC_PREFIX));
+        this.subscriptionRegistry = new DefaultSubscriptionRegistry();
+        this.sessions = new ConcurrentHashMap<>();
+        this.smileSessions = ConcurrentHashMap.newKeySet();
+        this.smile = smile;
+        this.jsonFactory = new JsonFactory();
+        this.smileFactory = new SmileFactory();
+        this.queueSize = queueSize;
+        this.policy = SlowConsumerPolicy.parse(policy);
+        this.fanouts = new ConcurrentHashMap<>();
+        this.subscribedBoards = new HashMap<>();
+        this.boardSubscriptions = new HashMap<>();
+        this.dropped = new LongAdder();
+        this.conflated = new LongAdder();
+        this.disconnected = new LongAdder();
+        this.registry = registry;
+        this.subscriberSummaries = new ConcurrentHashMap<>();
+        this.jsonBytes = bytesCounter(registry, "json");
+        this.smileBytes = bytesCounter(registry, "smile");
+        Gauge.builder("talio.broadcast.sessions", sessions, Map::size)
+                .description("Number of sessions that subscribed to a topic")
+                .register(registry);
+
+        this.shards = new ExecutorService[shards > 0 ? shards : Runtime.getRuntime().availableProcessors()];
+        for (int i = 0; i < this.shards.length; i++) {
+            final String name = "broker-shard-" + (i + 1);
+            this.shards[i] = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        this.trackDelivery = clientOutboundChannel instanceof InterceptableChannel;
+        if (trackDelivery)
+            ((InterceptableChannel) clientOutboundChannel).addInterceptor(new DeliveryInterceptor());
+    }
+
+    @Override
+    protected void startInternal() {
+        publishBrokerAvailableEvent();
+    }
+
+    @Override
+    protected void stopInternal() {
+        for (final ExecutorService shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    @Override
+    protected void handleMessageInternal(final Message<?> message) {
+        final MessageHeaders headers = message.getHeaders();
+        final SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(headers);
+        final String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        final String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        if (type == null) return;
+
+        switch (type) {
+            case MESSAGE -> {
+                if (destination != null && checkDestinationPrefix(destination)) publish(destination, message);
+            }
+            case SUBSCRIBE -> {
+                if (sessionId == null || destination == null || !checkDestinationPrefix(destination)) return;
+                sessions.computeIfAbsent(sessionId, id -> new SessionQueue(id, queueSize));
+                subscriptionRegistry.registerSubscription(message);
+                subscribed(sessionId, SimpMessageHeaderAccessor.getSubscriptionId(headers), destination);
+            }
+            case CONNECT -> {
+                if (smile && sessionId != null && acceptsSmile(message)) smileSessions.add(sessionId);
+            }
+            case UNSUBSCRIBE -> {
+                subscriptionRegistry.unregisterSubscription(message);
+                if (sessionId != null) unsubscribed(sessionId, SimpMessageHeaderAccessor.getSubscriptionId(headers));
+            }
+            case DISCONNECT -> {
+                if (sessionId != null) removeSession(sessionId);
+            }
+            default -> {
+                // connecting and heartbeats are answered by the simple broker, a connect is only looked at for the encoding
+            }
+        }
+    }
+
+    /**
+     * Gets the time it took to fan out the messages of every board that sessions are subscribed to,
+     * since the first of its current subscriptions, measured from the moment a message was published until it was queued
+     * for every subscriber
+     * @return number of messages and subscribers reached, and the mean and maximum time in microseconds, by join key
+     */
+    public Map<String, Map<String, Long>> getFanoutStats() {
+        final Map<String, Map<String, Long>> stats = new HashMap<>();
+        fanouts.forEach((joinKey, fanout) -> stats.put(joinKey, fanout.snapshot()));
+        return stats;
+    }
+
+    /**
+     * Gets how often each slow consumer policy kicked in since the server started
+     * @return number of dropped and conflated messages and of disconnected sessions
+     */
+    public Map<String, Long> getSlowConsumerCounts() {
+        return Map.of(
+                "dropped", dropped.sum(),
+                "conflated", conflated.sum(),
+                "disconnected", disconnected.sum());
+    }
+
+    /**
+     * Gets the number of messages waiting for every session that has any
+     * @return number of waiting messages by session id
+     */
+    public Map<String, Integer> getQueueDepths() {
+        final Map<String, Integer> depths = new HashMap<>();
+        sessions.forEach((sessionId, queue) -> {
+            final int size = queue.size();
+            if (size > 0) depths.put(sessionId, size);
+        });
+        return depths;
+    }
+
+    /**
+     * Gets the join key of the board a topic belongs to. Topics of boards are laid out as /topic/{resource}/{joinKey}/{action}.
+     * @param destination Destination of a message
+     * @return the join key, or the whole destination for topics that do not belong to a board
+     */
+    static String boardOf(final String destination) {
+        final String[] parts = destination.substring(SocketConfig.TOPIC_PREFIX.length()).split("/");
+        return parts.length > 1 ? parts[1] : destination;
+    }
+
+    /**
+     * Gets the kind of a topic, which is the topic without the join key of the board, like cards/add
+     * @param destination Destination of a message
+     * @return the kind of topic, or the whole destination for topics that do not belong to a board
+     */
+    static String topicOf(final String destination) {
+        final String[] parts = destination.substring(SocketConfig.TOPIC_PREFIX.length()).split("/");
+        if (parts.length <= 1) return destination;
+
+        final StringBuilder topic = new StringBuilder(parts[0]);
+        for (int i = 2; i < parts.length; i++) topic.append('/').append(parts[i]);
+        return topic.toString();
+    }
+
+    /**
+     * Hands a message to the dispatch thread of its board
+     * @param destination Destination of the message
+     * @param message Message that was published
+     */
+    private void publish(final String destination, final Message<?> message) {
+        final long published = System.nanoTime();
+        final String joinKey = boardOf(destination);
+        try {
+            shards[Math.floorMod(joinKey.hashCode(), shards.length)].execute(() -> {
+                final int reached = fanOut(message);
+                final FanoutStats fanout = fanouts.get(joinKey);
+                if (fanout != null) fanout.record(System.nanoTime() - published, reached);
+                subscriberSummary(topicOf(destination)).record(reached);
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Dropped message to " + destination + " since the broker is stopping");
+        }
+    }
+
+    /**
+     * Gets the meter of the number of subscribers that the messages of a kind of topic were queued for,
+     * which is only registered for the first message
+     * @param topic Kind of topic, see {@link #topicOf(String)}
+     * @return the meter
+     */
+    private DistributionSummary subscriberSummary(final String topic) {
+        return subscriberSummaries.computeIfAbsent(topic, key -> DistributionSummary.builder("talio.broadcast.subscribers")
+                .description("Number of subscribers a message was queued for")
+                .tag("topic", key)
+                .register(registry));
+    }
+
+    /**
+     * Keeps track of a new subscription, so that the fanout of its board is measured while it has subscribers
+     * @param sessionId Id of the session that subscribed
+     * @param subscriptionId Id of the subscription within the session
+     * @param destination Topic that was subscribed to
+     */
+    private void subscribed(final String sessionId, final String subscriptionId, final String destination) {
+        if (subscriptionId == null) return;
+        final String joinKey = boardOf(destination);
+        synchronized (subscribedBoards) {
+            final String previous = subscribedBoards.computeIfAbsent(sessionId, id -> new HashMap<>()).put(subscriptionId, joinKey);
+            if (previous != null) release(previous);
+            boardSubscriptions.merge(joinKey, 1, Integer::sum);
+            fanouts.computeIfAbsent(joinKey, key -> new FanoutStats());
+        }
+    }
+
+    /**
+     * Forgets a subscription that was cancelled
+     * @param sessionId Id of the session that unsubscribed
+     * @param subscriptionId Id of the subscription within the session
+     */
+    private void unsubscribed(final String sessionId, final String subscriptionId) {
+        if (subscriptionId == null) return;
+        synchronized (subscribedBoards) {
+            final Map<String, String> boards = subscribedBoards.get(sessionId);
+            if (boards == null) return;
+            final String joinKey = boards.remove(subscriptionId);
+            if (joinKey != null) release(joinKey);
+            if (boards.isEmpty()) subscribedBoards.remove(sessionId);
+        }
+    }
+
+    /**
+     * Drops a subscription from the count of its board, and forgets the fanout of the board once it has no subscriptions left.
+     * Has to be called while holding the lock on the subscribed boards.
+     * @param joinKey Join key of the board of the subscription
+     */
+    private void release(final String joinKey) {
+        if (boardSubscriptions.compute(joinKey, (key, count) -> count == null || count <= 1 ? null : count - 1) == null)
+            fanouts.remove(joinKey);
+    }
+
+    /**
+     * Queues a copy of a message for every subscriber of its destination
+     * @param message Message that was published
+     * @return number of sessions the message was queued for
+     */
+    private int fanOut(final Message<?> message) {
+        final MultiValueMap<String, String> subscriptions = subscriptionRegistry.findSubscriptions(message);
+        final boolean json = !smileSessions.isEmpty() && isJson(message);
+        byte[] smilePayload = null;
+        int reached = 0;
+        for (final Map.Entry<String, List<String>> entry : subscriptions.entrySet()) {
+            final SessionQueue queue = sessions.get(entry.getKey());
+            if (queue == null) continue;
+
+            Object payload = message.getPayload();
+            if (json && smileSessions.contains(entry.getKey())) {
+                if (smilePayload == null) smilePayload = toSmile((byte[]) payload);
+                if (smilePayload.length > 0) payload = smilePayload;
+            }
+
+            for (final String subscriptionId : entry.getValue()) {
+                final SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+                accessor.setSessionId(entry.getKey());
+                accessor.setSubscriptionId(subscriptionId);
+                accessor.copyHeadersIfAbsent(message.getHeaders());
+                if (payload == smilePayload) accessor.setContentType(SMILE_FRAME);
+                accessor.setLeaveMutable(true);
+                if (enqueue(queue, MessageBuilder.createMessage(payload, accessor.getMessageHeaders()))) {
+                    reached++;
+                    if (payload instanceof byte[] bytes) (payload == smilePayload ? smileBytes : jsonBytes).increment(bytes.length);
+                }
+            }
+        }
+        return reached;
+    }
+
+    private static Counter bytesCounter(final MeterRegistry registry, final String encoding) {
+        return Counter.builder("talio.broadcast.bytes")
+                .description("Bytes of the messages queued for the sessions")
+                .baseUnit("bytes")
+                .tag("encoding", encoding)
+                .register(registry);
+    }
+
+    /**
+     * Checks whether a client said in its connect frame that it can read Smile
+     * @param message Connect message of the client
+     * @return true if the client accepts Smile
+     */
+    private static boolean acceptsSmile(final Message<?> message) {
+        final String accepted = SimpMessageHeaderAccessor.wrap(message).getFirstNativeHeader(WireEncoding.ACCEPT_HEADER);
+        return accepted != null && accepted.contains(WireEncoding.SMILE);
+    }
+
+    private static boolean isJson(final Message<?> message) {
+        final MimeType contentType = SimpMessageHeaderAccessor.wrap(message).getContentType();
+        return message.getPayload() instanceof byte[] && contentType != null && MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(contentType);
+    }
+
+    /**
+     * Converts a JSON payload to Smile token by token, without reading it into objects
+     * @param payload JSON payload of a message
+     * @return the Smile payload, or an empty array if the payload is not valid JSON, in which case it is sent as it is
+     */
+    private byte[] toSmile(final byte[] payload) {
+        try {
+            return transcode(jsonFactory, smileFactory, payload);
+        } catch (IOException e) {
+            logger.warn("Could not convert a message to Smile", e);
+            return EMPTY_PAYLOAD;
+        }
+    }
+
+    /**
+     * Converts a payload from one encoding of JSON to another
+     * @param from Encoding of the payload
+     * @param to Encoding to convert to
+     * @param payload Payload to convert
+     * @return the converted payload
+     * @throws IOException if the payload is not valid in its encoding
+     */
+    static byte[] transcode(final JsonFactory from, final JsonFactory to, final byte[] payload) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length);
+        try (JsonParser parser = from.createParser(payload); JsonGenerator generator = to.createGenerator(out)) {
+            while (parser.nextToken() != null) {
+                generator.copyCurrentEvent(parser);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Adds a message to the queue of a session and starts sending it if the session has nothing in flight
+     * @param queue Queue of the session
+     * @param message Message for the session
+     * @return true if the message was queued
+     */
+    private boolean enqueue(final SessionQueue queue, final Message<?> message) {
+        switch (queue.offer(message, policy)) {
+            case CLOSED -> {
+                return false;
+            }
+            case OVERFLOWED -> {
+                logger.warn("Disconnecting session " + queue.getSessionId() + " since it fell " + queueSize + " messages behind");
+                disconnected.increment();
+                disconnect(queue.getSessionId());
+                return false;
+            }
+            case DROPPED -> {
+                dropped.increment();
+                queueResync(queue, message);
+            }
+            case CONFLATED -> conflated.increment();
+            default -> { }
+        }
+        send(queue, queue.poll());
+        return true;
+    }
+
+    /**
+     * Queues a marker for a session that had messages dropped, on the resync topic of the board of the new message.
+     * A client only subscribes to the topics of the board it has open, so that is the board the dropped messages were for.
+     * Nothing is queued if the session did not subscribe to the resync topic or a marker is still queued.
+     * @param queue Queue of the session
+     * @param message Message that was queued in place of the dropped one
+     */
+    private void queueResync(final SessionQueue queue, final Message<?> message) {
+        final String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null || queue.isResyncQueued()) return;
+
+        final String joinKey = boardOf(destination);
+        final String resyncDestination = resyncDestination(joinKey);
+        final SimpMessageHeaderAccessor lookup = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        lookup.setDestination(resyncDestination);
+        final List<String> subscriptionIds = subscriptionRegistry
+                .findSubscriptions(MessageBuilder.createMessage(EMPTY_PAYLOAD, lookup.getMessageHeaders()))
+                .get(queue.getSessionId());
+        if (subscriptionIds == null || subscriptionIds.isEmpty()) return;
+
+        final SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(queue.getSessionId());
+        accessor.setSubscriptionId(subscriptionIds.get(0));
+        accessor.setDestination(resyncDestination);
+        accessor.setContentType(MimeTypeUtils.TEXT_PLAIN);
+        accessor.setLeaveMutable(true);
+        queue.queueResync(MessageBuilder.createMessage(joinKey.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders()));
+    }
+
+    /**
+     * Gets the topic on which the sessions of a board are told that messages were dropped
+     * @param joinKey Join key of the board
+     * @return the destination of the topic
+     */
+    static String resyncDestination(final String joinKey) {
+        return SocketConfig.TOPIC_PREFIX + "boards/" + joinKey + "/" + RESYNC_ACTION;
+    }
+
+    /**
+     * Hands messages of a session to the outbound channel. Once a message has been written, the delivery interceptor
+     * sends the next one. A message that could not be handed over is skipped.
+     * @param queue Queue of the session
+     * @param first Message to send, null if there is nothing to send yet
+     */
+    private void send(final SessionQueue queue, final Message<?> first) {
+        Message<?> message = first;
+        while (message != null) {
+            boolean sent;
+            try {
+                sent = getClientOutboundChannel().send(message);
+            } catch (MessagingException e) {
+                logger.warn("Could not send message to session " + queue.getSessionId(), e);
+                sent = false;
+            }
+            if (sent && trackDelivery) return;
+            message = queue.complete(message);
+        }
+    }
+
+    /**
+     * Closes a session that cannot keep up. The client receives an error frame, after which the socket is closed.
+     * @param sessionId Id of the session
+     */
+    private void disconnect(final String sessionId) {
+        removeSession(sessionId);
+
+        final SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.DISCONNECT_ACK);
+        accessor.setSessionId(sessionId);
+        getClientOutboundChannel().send(MessageBuilder.createMessage(EMPTY_PAYLOAD, accessor.getMessageHeaders()));
+    }
+
+    private void removeSession(final String sessionId) {
+        subscriptionRegistry.unregisterAllSubscriptions(sessionId);
+        synchronized (subscribedBoards) {
+            final Map<String, String> boards = subscribedBoards.remove(sessionId);
+            if (boards != null) boards.values().forEach(this::release);
+        }
+        smileSessions.remove(sessionId);
+        final SessionQueue queue = sessions.remove(sessionId);
+        if (queue != null) queue.close();
+    }
+
+    /**
+     * Sends the next message of a session once the outbound channel has written the previous one
+     */
+    private final class DeliveryInterceptor implements ExecutorChannelInterceptor {
+
+        @Override
+        public void afterMessageHandled(final Message<?> message, final MessageChannel channel, final MessageHandler handler,
+                                        final Exception ex)
+        {
+            final String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+            final SessionQueue queue = sessionId == null ? null : sessions.get(sessionId);
+            if (queue != null) send(queue, queue.complete(message));
+        }
+    }
+
+    /**
+     * Fanout times of the messages of one board
+     */
+    private static final class FanoutStats {
+        private final LongAdder messages = new LongAdder();
+        private final LongAdder subscribers = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(final long nanos, final int reached) {
+            messages.increment();
+            subscribers.add(reached);
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        Map<String, Long> snapshot() {
+            final long count = messages.sum();
+            return Map.of(
+                    "messages", count,
+                    "subscribers", subscribers.sum(),
+                    "meanMicros", count == 0 ? 0 : totalNanos.sum() / count / 1000,
+                    "maxMicros", maxNanos.get() / 1000);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package server.socket;
+
+import java.util.Locale;
+
+/**
+ * What the broker does with a new message for a session whose send queue is full,
+ * because the client reads its messages slower than they are published.
+ */
+public enum SlowConsumerPolicy {
+    /**
+     * Drops the oldest queued message to make room for the new one, and tells the client to load its board again
+     */
+    DROP_OLDEST,
+
+    /**
+     * Replaces the queued message for the same destination with the new one on topics where every message replaces
+     * the state the previous one set, like the title of the board, so only the latest of those is kept.
+     * Otherwise works like {@link #DROP_OLDEST}.
+     */
+    CONFLATE,
+
+    /**
+     * Closes the session, so that the client reconnects and loads the board again
+     */
+    DISCONNECT;
+
+    /**
+     * Reads a policy from its name in the configuration, such as "drop-oldest"
+     * @param name Name of the policy, in any case, with dashes or underscores
+     * @return the policy
+     * @throws IllegalArgumentException if there is no policy with that name
+     */
+    public static SlowConsumerPolicy parse(final String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
@@ -4,25 +4,112 @@
 
 package server.socket;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.WireEncoding;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.util.MimeType;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import server.VirtualThreadConfig;
+import server.WireConfig;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class SocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    /**
+     * Prefix of the topics that the clients subscribe to
+     */
+    public static final String TOPIC_PREFIX = "/topic/";
+
+    /**
+     * Prefix that is only served by the simple broker when the topics go through the sharded broker.
+     * The simple broker still answers connects and heartbeats, but no messages are published under this prefix.
+     */
+    private static final String SESSION_PREFIX = "/session/";
+
+    /**
+     * Broker that serves the topics, "sharded" for {@link ShardedBrokerMessageHandler} or "simple" for the broker of Spring
+     */
+    private final String engine;
+
+    /**
+     * Reads and writes frames holding Smile, null if Smile is turned off
+     */
+    private final ObjectMapper smileMapper;
+
+    /**
+     * Whether the messages from and to the clients are handled on virtual threads
+     */
+    private final boolean virtual;
+
+    /**
+     * Constructor for the socket configuration
+     * @param engine Broker that serves the topics
+     * @param wireConfig Configuration of the encodings that the server understands
+     * @param virtual Whether the messages from and to the clients are handled on virtual threads
+     */
+    public SocketConfig(@Value("${talio.broker.engine:sharded}") final String engine, final WireConfig wireConfig,
+                        @Value("${talio.threads.virtual:false}") final boolean virtual)
+    {
+        this.engine = engine;
+        this.smileMapper = wireConfig.getSmileMapper();
+        this.virtual = virtual;
+    }
+
+    /**
+     * Runs the message handlers on virtual threads if they are turned on, since most of them wait on the database
+     * @param registration Registration of the channel of the messages from the clients
+     */
+    @Override
+    public void configureClientInboundChannel(final ChannelRegistration registration) {
+        if (virtual) registration.taskExecutor(VirtualThreadConfig.channelExecutor("inbound-"));
+    }
+
+    /**
+     * Sends the messages to the clients on virtual threads if they are turned on
+     * @param registration Registration of the channel of the messages to the clients
+     */
+    @Override
+    public void configureClientOutboundChannel(final ChannelRegistration registration) {
+        if (virtual) registration.taskExecutor(VirtualThreadConfig.channelExecutor("outbound-"));
+    }
+
     /**
      * Configures server socket handler with paths
      * @param config Registry to configure
      */
     public void configureMessageBroker(final MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic/");
+        // Spring always sets up the simple broker, so it is moved out of the way of the sharded broker rather than left out
+        config.enableSimpleBroker("simple".equals(engine) ? TOPIC_PREFIX : SESSION_PREFIX);
         config.setApplicationDestinationPrefixes("/app/");
     }
 
+    /**
+     * Lets clients send frames holding Smile. The Smile converter only takes frames that are marked as Smile,
+     * everything else, including everything the server publishes, goes to the default JSON converter.
+     * @param messageConverters Converters to add to
+     * @return true, so that the default converters are added after the Smile converter
+     */
+    @Override
+    public boolean configureMessageConverters(final List<MessageConverter> messageConverters) {
+        if (smileMapper != null) {
+            final MappingJackson2MessageConverter smile = new MappingJackson2MessageConverter(MimeType.valueOf(WireEncoding.SMILE_FRAME));
+            smile.setObjectMapper(smileMapper);
+            smile.setStrictContentTypeMatch(true);
+            messageConverters.add(smile);
+        }
+        return true;
+    }
+
     /**
      * Configures server socket handler with path for greeting
      * @param registry Registry to configure
@@ -0,0 +1,103 @@
+package server.storage;
+
+import commons.Board;
+import commons.DTOs.BoardSummaryDTO;
+import server.database.BoardCredentials;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Storage engine behind the board service. The board service keeps the boards that are in use in memory,
+ * and only asks the store to load a whole board, to write a whole board, or to answer small queries about boards that are not loaded.
+ * A store that can also write single rows of a board implements {@link TargetedBoardWrites}.
+ * The engine is chosen with the property talio.storage.engine.
+ */
+public interface BoardStore {
+
+    /**
+     * Loads a board with all of its columns, cards, subtasks and tags, so that it can be used without the store
+     * @param joinKey Join key of the board
+     * @return the board, if it exists
+     */
+    Optional<Board> load(String joinKey);
+
+    /**
+     * Writes a whole board, replacing the stored version
+     * @param board Board to write
+     * @return the stored board, which may be a different instance holding generated ids and new versions
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the board was changed by someone else since it was loaded
+     */
+    Board save(Board board);
+
+    /**
+     * Deletes a board
+     * @param board Board to delete
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the board was changed by someone else since it was loaded
+     */
+    void delete(Board board);
+
+    /**
+     * Loads only the join key and password of a board, for checking access without loading the board itself
+     * @param joinKey Join key of the board
+     * @return the credentials of the board, if it exists
+     */
+    Optional<BoardCredentials> findCredentials(String joinKey);
+
+    /**
+     * Checks which of the given join keys belong to an existing board
+     * @param joinKeys Join keys to check, must not be empty
+     * @return the join keys of the boards that exist
+     */
+    Set<String> findExistingJoinKeys(Collection<String> joinKeys);
+
+    /**
+     * Loads the summaries of the given boards
+     * @param joinKeys Join keys of the boards, must not be empty
+     * @return the summaries of the boards that exist
+     */
+    List<BoardSummaryDTO> findSummaries(Collection<String> joinKeys);
+
+    /**
+     * Advances the log of a board to the given event, while its stored state still waits for a write of the whole board.
+     * Nothing happens if the board does not exist.
+     * @param joinKey Join key of the board
+     * @param loggedSequence Number of the last event in the log of the board
+     */
+    void updateLoggedSequence(String joinKey, long loggedSequence);
+
+    /**
+     * Advances both the log and the stored state of a board to the given event, for a change that has already been written.
+     * Nothing happens if the board does not exist.
+     * @param joinKey Join key of the board
+     * @param sequence Number of the last event in the log of the board
+     */
+    void updateSequence(String joinKey, long sequence);
+
+    /**
+     * Passes the join key of every stored board to an action, without loading the boards
+     * @param action Action to run for every join key
+     */
+    void forEachJoinKey(Consumer<String> action);
+
+    /**
+     * Passes the boards that come after the given position, ordered by creation time and join key, to an action one at a time.
+     * A board may not be used anymore once the action has returned.
+     * @param created Creation time of the last board that was already read
+     * @param joinKey Join key of the last board that was already read
+     * @param limit Maximum number of boards to read
+     * @param action Action to run for every board
+     */
+    void forEachBoardAfter(Timestamp created, String joinKey, int limit, Consumer<Board> action);
+
+    /**
+     * Whether writes to the store take part in the database transaction of the caller, so that they are committed
+     * or rolled back together with the log of changes. If not, every write is durable as soon as it returns.
+     * @return true if the store writes within the database transaction
+     */
+    boolean joinsTransactions();
+}
@@ -0,0 +1,192 @@
+package server.storage;
+
+import commons.Board;
+import commons.Card;
+import commons.Column;
+import commons.DTOs.BoardSummaryDTO;
+import commons.SubTask;
+import org.hibernate.Hibernate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import server.database.BoardCredentials;
+import server.database.BoardRepository;
+import server.database.CardRepository;
+import server.database.ColumnRepository;
+import server.database.SubTaskRepository;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Stores boards in the relational database through JPA, one row per board, column, card, subtask and tag.
+ * This is the default engine, and the only one that supports targeted writes of single rows.
+ */
+@Service
+@Transactional
+@ConditionalOnProperty(name = "talio.storage.engine", havingValue = "jpa", matchIfMissing = true)
+public class JpaBoardStore implements BoardStore, TargetedBoardWrites {
+    private final BoardRepository br;
+    private final CardRepository cr;
+    private final ColumnRepository colr;
+    private final SubTaskRepository sr;
+    private final EntityManager entityManager;
+
+    /**
+     * Constructor for the JPA Board Store
+     * @param br Dependency Injection for the board repository
+     * @param cr Dependency Injection for the card repository
+     * @param colr Dependency Injection for the column repository
+     * @param sr Dependency Injection for the subtask repository
+     * @param entityManager Entity manager used to release boards once they are read
+     */
+    public JpaBoardStore(final BoardRepository br, final CardRepository cr, final ColumnRepository colr,
+                         final SubTaskRepository sr, final EntityManager entityManager)
+    {
+        this.br = br;
+        this.cr = cr;
+        this.colr = colr;
+        this.sr = sr;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Board> load(final String joinKey) {
+        return br.findRenderGraphByJoinKey(joinKey).map(JpaBoardStore::initialize);
+    }
+
+    @Override
+    public Board save(final Board board) {
+        return initialize(br.save(board));
+    }
+
+    @Override
+    public void delete(final Board board) {
+        br.delete(board);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<BoardCredentials> findCredentials(final String joinKey) {
+        return br.findCredentialsByJoinKey(joinKey);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Set<String> findExistingJoinKeys(final Collection<String> joinKeys) {
+        return br.findExistingJoinKeys(joinKeys);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BoardSummaryDTO> findSummaries(final Collection<String> joinKeys) {
+        return br.findSummaries(joinKeys);
+    }
+
+    @Override
+    public void updateLoggedSequence(final String joinKey, final long loggedSequence) {
+        br.updateLoggedSequence(joinKey, loggedSequence);
+    }
+
+    @Override
+    public void updateSequence(final String joinKey, final long sequence) {
+        br.updateSequence(joinKey, sequence);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachJoinKey(final Consumer<String> action) {
+        try (Stream<String> joinKeys = br.streamJoinKeys()) {
+            joinKeys.forEach(action);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachBoardAfter(final Timestamp created, final String joinKey, final int limit,
+                                  final Consumer<Board> action)
+    {
+        // the whole page stays in the persistence context until it has been handled, so that the columns and cards
+        // of its boards are fetched in batches rather than board by board
+        try {
+            br.findAfter(created, joinKey, PageRequest.of(0, limit)).forEach(action);
+        } finally {
+            entityManager.clear();
+        }
+    }
+
+    @Override
+    public boolean joinsTransactions() {
+        return true;
+    }
+
+    @Override
+    public void insertCard(final Column column, final Card card) {
+        cr.save(card);
+        colr.addCard(column.getSerializationId(), card.getSerializationId());
+    }
+
+    @Override
+    public void updateCardFields(final Card card) {
+        expectOneRow(cr.updateFields(card.getSerializationId(), card.getTitle(), card.getDescription(), card.getIsDefaultThemed()),
+                "card " + card.getId());
+    }
+
+    @Override
+    public void updateCardRank(final Card card) {
+        expectOneRow(cr.updateRank(card.getSerializationId(), card.getRank()), "card " + card.getId());
+    }
+
+    @Override
+    public void relinkCard(final Column source, final Column destination, final Card card) {
+        expectOneRow(colr.removeCard(source.getSerializationId(), card.getSerializationId()), "link of card " + card.getId());
+        colr.addCard(destination.getSerializationId(), card.getSerializationId());
+    }
+
+    @Override
+    public void updateSubTaskDone(final SubTask subTask) {
+        expectOneRow(sr.updateIsDone(subTask.getSerializationId(), subTask.isDone()), "subtask " + subTask.getId());
+    }
+
+    /**
+     * Checks that a targeted write changed exactly the row it was meant for. A row that is not stored anymore,
+     * or not stored yet, would otherwise lose the change without anyone noticing.
+     * @param updated Number of rows that were changed
+     * @param row What was written, for the error message
+     * @throws IncorrectUpdateSemanticsDataAccessException if not exactly one row was changed
+     */
+    private static void expectOneRow(final int updated, final String row) {
+        if (updated != 1)
+            throw new IncorrectUpdateSemanticsDataAccessException("Writing " + row + " changed " + updated + " rows instead of 1");
+    }
+
+    /**
+     * Initializes all lazy collections of a board, so that it can be used after its transaction has ended.
+     * With batch fetching enabled this takes a fixed number of queries, regardless of the size of the board.
+     * Has to be called within a transaction.
+     * @param board Board to initialize
+     * @return the same board
+     */
+    private static Board initialize(final Board board) {
+        if (board == null) return null;
+
+        for (final Column column : board.getColumns()) {
+            for (final Card card : column.getCards()) {
+                Hibernate.initialize(card.getSubtasks());
+                Hibernate.initialize(card.getTags());
+            }
+        }
+        Hibernate.initialize(board.getTags());
+        Hibernate.initialize(board.getColorPresets());
+        return board;
+    }
+}
@@ -0,0 +1,577 @@
+package server.storage;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.Board;
+import commons.DTOs.BoardSummaryDTO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import server.database.BoardCredentials;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Stores every board as a single serialized record in an append-only log of memory-mapped segment files, for deployments
+ * that do not need SQL. Saving a board appends one record instead of merging every row of the board,
+ * and the position of the latest record of each board is kept in memory, so loading a board reads a single record.
+ * The index is rebuilt by scanning the segments when the server starts.
+ *
+ * <p>Records that have been replaced leave garbage behind, which a background task compacts: once the oldest segments
+ * hold too little live data, their live records are copied to the end of the log and the segments are deleted.
+ * Compaction always takes the oldest segments, so a deleted board can never come back from a segment that is left.
+ *
+ * <p>Writes are not part of the database transaction that logs the change, so the board service reads the last logged
+ * change from the event log when a board is loaded, see {@link #joinsTransactions()}.
+ */
+@Service
+@ConditionalOnProperty(name = "talio.storage.engine", havingValue = "log")
+public class LogBoardStore implements BoardStore {
+
+    private static final byte BOARD = 1;
+    private static final byte SEQUENCE = 2;
+    private static final byte DELETED = 3;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Logger logger = LogManager.getLogger(LogBoardStore.class);
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int segmentSize;
+    private final double compactionRatio;
+    private final boolean sync;
+
+    /**
+     * Guards the index and the segments. Reads only copy bytes out of a segment while holding it, and boards are
+     * serialized and parsed outside of it.
+     */
+    private final ReadWriteLock lock;
+
+    /**
+     * Latest records of every stored board, by join key
+     */
+    private final Map<String, Entry> index;
+
+    /**
+     * Segments by number, the last one is the one records are appended to
+     */
+    private final NavigableMap<Long, LogSegment> segments;
+
+    private final ScheduledExecutorService compactor;
+
+    /**
+     * Constructor for the Log Board Store. Opens the segments in the directory and rebuilds the index from them.
+     * @param objectMapper Object mapper used to serialize the boards
+     * @param directory Directory that holds the segment files, created if it does not exist
+     * @param segmentSize Size in bytes of a segment file
+     * @param compactionRatio Fraction of live data below which a segment is compacted
+     * @param compactionInterval Time in milliseconds between two checks whether segments have to be compacted
+     * @param sync Whether every write is forced to the disk before it returns, instead of leaving that to the operating system
+     * @throws IOException if the segments could not be opened
+     */
+    public LogBoardStore(final ObjectMapper objectMapper,
+                         @Value("${talio.storage.log.directory:./talio-boards}") final String directory,
+                         @Value("${talio.storage.log.segment-size:67108864}") final int segmentSize,
+                         @Value("${talio.storage.log.compaction-ratio:0.5}") final double compactionRatio,
+                         @Value("${talio.storage.log.compaction-interval:60000}") final long compactionInterval,
+                         @Value("${talio.storage.log.sync:false}") final boolean sync) throws IOException
+    {
+        // the board contains derived properties that are written but cannot be read back
+        this.objectMapper = objectMapper.copy().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.directory = Paths.get(directory);
+        this.segmentSize = Math.max(LogSegment.FILE_HEADER + LogSegment.RECORD_HEADER, segmentSize);
+        this.compactionRatio = compactionRatio;
+        this.sync = sync;
+        this.lock = new ReentrantReadWriteLock();
+        this.index = new HashMap<>();
+        this.segments = new TreeMap<>();
+        recover();
+
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "board-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (compactionInterval > 0)
+            compactor.scheduleWithFixedDelay(this::compactOrLog, compactionInterval, compactionInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Optional<Board> load(final String joinKey) {
+        final byte[] record;
+        final long sequence;
+        final long loggedSequence;
+        lock.readLock().lock();
+        try {
+            final Entry entry = index.get(joinKey);
+            if (entry == null) return Optional.empty();
+            record = read(entry.board);
+            sequence = entry.sequence;
+            loggedSequence = entry.loggedSequence;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        final Board board = decode(record);
+        board.setSequence(sequence);
+        board.setLoggedSequence(loggedSequence);
+        return Optional.of(board);
+    }
+
+    @Override
+    public Board save(final Board board) {
+        final byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(board);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write board " + board.getJoinKey(), e);
+        }
+        final byte[] password = board.getPassword() == null ? null : board.getPassword().getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer payload = ByteBuffer.allocate(3 * Long.BYTES + Integer.BYTES + (password == null ? 0 : password.length) + json.length);
+        payload.putLong(board.getSequence()).putLong(board.getLoggedSequence())
+                .putLong(board.getCreated() == null ? 0 : board.getCreated().getTime());
+        payload.putInt(password == null ? -1 : password.length);
+        if (password != null) payload.put(password);
+        payload.put(json);
+        final byte[] record = LogSegment.encode(BOARD, board.getJoinKey(), payload.array());
+
+        lock.writeLock().lock();
+        try {
+            indexBoard(board.getJoinKey(), append(record), record);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return board;
+    }
+
+    @Override
+    public void delete(final Board board) {
+        lock.writeLock().lock();
+        try {
+            final Entry entry = index.remove(board.getJoinKey());
+            if (entry == null) return;
+            append(LogSegment.encode(DELETED, board.getJoinKey(), new byte[0]));
+            release(entry.board);
+            release(entry.sequences);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<BoardCredentials> findCredentials(final String joinKey) {
+        lock.readLock().lock();
+        try {
+            final Entry entry = index.get(joinKey);
+            return entry == null ? Optional.empty() : Optional.of(new Credentials(joinKey, entry.password));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<String> findExistingJoinKeys(final Collection<String> joinKeys) {
+        lock.readLock().lock();
+        try {
+            return joinKeys.stream().filter(index::containsKey).collect(Collectors.toSet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<BoardSummaryDTO> findSummaries(final Collection<String> joinKeys) {
+        final List<BoardSummaryDTO> summaries = new ArrayList<>();
+        for (final String joinKey : new HashSet<>(joinKeys)) {
+            load(joinKey).map(BoardSummaryDTO::of).ifPresent(summaries::add);
+        }
+        return summaries;
+    }
+
+    @Override
+    public void updateLoggedSequence(final String joinKey, final long loggedSequence) {
+        lock.writeLock().lock();
+        try {
+            final Entry entry = index.get(joinKey);
+            if (entry != null) writeSequences(joinKey, entry, entry.sequence, loggedSequence);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateSequence(final String joinKey, final long sequence) {
+        lock.writeLock().lock();
+        try {
+            final Entry entry = index.get(joinKey);
+            if (entry != null) writeSequences(joinKey, entry, sequence, sequence);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEachJoinKey(final Consumer<String> action) {
+        final List<String> joinKeys;
+        lock.readLock().lock();
+        try {
+            joinKeys = new ArrayList<>(index.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+        joinKeys.forEach(action);
+    }
+
+    @Override
+    public void forEachBoardAfter(final Timestamp created, final String joinKey, final int limit,
+                                  final Consumer<Board> action)
+    {
+        final Comparator<Map.Entry<String, Entry>> order = Comparator.<Map.Entry<String, Entry>>comparingLong(e -> e.getValue().created)
+                .thenComparing(Map.Entry::getKey);
+        final List<String> page;
+        lock.readLock().lock();
+        try {
+            page = index.entrySet().stream()
+                    .filter(e -> e.getValue().created > created.getTime()
+                            || e.getValue().created == created.getTime() && e.getKey().compareTo(joinKey) > 0)
+                    .sorted(order)
+                    .limit(limit)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (final String key : page) {
+            load(key).ifPresent(action);
+        }
+    }
+
+    @Override
+    public boolean joinsTransactions() {
+        return false;
+    }
+
+    /**
+     * Copies the live records of the oldest segments to the end of the log and deletes those segments,
+     * if any segment that is no longer written to holds less live data than the compaction ratio.
+     * All segments up to the last such segment are compacted, so that no record survives that a dropped deletion applied to.
+     * @return number of compacted segments
+     * @throws IOException if a new segment could not be created or an old one could not be deleted
+     */
+    public int compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            final long activeId = segments.lastKey();
+            long lastId = -1;
+            for (final LogSegment segment : segments.headMap(activeId).values()) {
+                if (segment.getLiveBytes() < compactionRatio * segment.used())
+                    lastId = segment.getId();
+            }
+            if (lastId < 0) return 0;
+
+            for (final Map.Entry<String, Entry> e : index.entrySet()) {
+                final Entry entry = e.getValue();
+                if (entry.board.segment() > lastId && (entry.sequences == null || entry.sequences.segment() > lastId))
+                    continue;
+
+                // the board record is copied behind its sequence record, so the sequence record has to follow it again
+                if (entry.board.segment() <= lastId)
+                    entry.board = copy(entry.board);
+                if (entry.sequences != null)
+                    entry.sequences = copy(entry.sequences);
+            }
+
+            final List<LogSegment> compacted = new ArrayList<>(segments.headMap(lastId, true).values());
+            for (final LogSegment segment : compacted) {
+                segments.remove(segment.getId());
+                segment.delete();
+            }
+            logger.info("Compacted " + compacted.size() + " segments of the board log");
+            return compacted.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stops compacting and writes all segments through to the disk
+     */
+    @PreDestroy
+    public void shutdown() {
+        compactor.shutdownNow();
+        lock.writeLock().lock();
+        try {
+            for (final LogSegment segment : segments.values()) {
+                segment.force();
+                segment.close();
+            }
+        } catch (IOException e) {
+            logger.error("Could not close the board log", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Opens the segment files in order and replays their records into the index
+     * @throws IOException if the directory or a segment could not be opened
+     */
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (final Path file : files) {
+                final String name = file.getFileName().toString();
+                final long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                segments.put(id, LogSegment.open(file, id));
+            }
+        }
+
+        for (final LogSegment segment : segments.values()) {
+            final boolean intact = segment.scan((position, record) ->
+                    replay(new Location(segment.getId(), position, record.length), record));
+            // only the last segment can end in a partial write, anything else means records were lost
+            if (!intact && segment.getId() == segments.lastKey())
+                logger.warn("Ignoring a partly written record at the end of the board log");
+            else if (!intact)
+                logger.error("Segment " + segment.getId() + " of the board log is damaged, its remaining records are lost");
+        }
+
+        if (segments.isEmpty())
+            roll(0);
+        logger.info("Opened the board log with " + index.size() + " boards in " + segments.size() + " segments");
+    }
+
+    /**
+     * Applies a record that was read while recovering to the index
+     * @param location Location of the record
+     * @param record Encoded record
+     */
+    private void replay(final Location location, final byte[] record) {
+        final String joinKey = LogSegment.joinKeyOf(record);
+        switch (LogSegment.typeOf(record)) {
+            case BOARD -> indexBoard(joinKey, location, record);
+            case SEQUENCE -> {
+                final Entry entry = index.get(joinKey);
+                if (entry == null) return;
+                final ByteBuffer payload = LogSegment.payloadOf(record);
+                release(entry.sequences);
+                entry.sequences = location;
+                entry.sequence = payload.getLong();
+                entry.loggedSequence = payload.getLong();
+                retain(location);
+            }
+            case DELETED -> {
+                final Entry entry = index.remove(joinKey);
+                if (entry == null) return;
+                release(entry.board);
+                release(entry.sequences);
+            }
+            default -> logger.error("Skipping a record of unknown type " + LogSegment.typeOf(record) + " for board " + joinKey);
+        }
+    }
+
+    /**
+     * Makes a board record the latest version of its board.
+     * Has to be called while holding the write lock.
+     * @param joinKey Join key of the board
+     * @param location Location of the record
+     * @param record Encoded record
+     */
+    private void indexBoard(final String joinKey, final Location location, final byte[] record) {
+        final ByteBuffer payload = LogSegment.payloadOf(record);
+        final Entry entry = new Entry(location, payload.getLong(), payload.getLong(), payload.getLong());
+        final int passwordLength = payload.getInt();
+        if (passwordLength >= 0) {
+            final byte[] password = new byte[passwordLength];
+            payload.get(password);
+            entry.password = new String(password, StandardCharsets.UTF_8);
+        }
+
+        final Entry replaced = index.put(joinKey, entry);
+        if (replaced != null) {
+            release(replaced.board);
+            release(replaced.sequences);
+        }
+        retain(location);
+    }
+
+    /**
+     * Appends a record that holds new sequence numbers of a board.
+     * Has to be called while holding the write lock.
+     */
+    private void writeSequences(final String joinKey, final Entry entry, final long sequence, final long loggedSequence) {
+        final byte[] payload = ByteBuffer.allocate(2 * Long.BYTES).putLong(sequence).putLong(loggedSequence).array();
+        final Location location = append(LogSegment.encode(SEQUENCE, joinKey, payload));
+        release(entry.sequences);
+        entry.sequences = location;
+        entry.sequence = sequence;
+        entry.loggedSequence = loggedSequence;
+        retain(location);
+    }
+
+    /**
+     * Appends a live record to the end of the log, and releases it at its old location
+     * @param location Current location of the record
+     * @return the new location of the record
+     */
+    private Location copy(final Location location) {
+        final Location copied = append(read(location));
+        release(location);
+        retain(copied);
+        return copied;
+    }
+
+    /**
+     * Appends a record to the last segment, starting a new segment if it does not fit.
+     * Has to be called while holding the write lock.
+     * @param record Encoded record
+     * @return the location of the record
+     */
+    private Location append(final byte[] record) {
+        LogSegment segment = segments.lastEntry().getValue();
+        int position = segment.append(record);
+        if (position < 0) {
+            try {
+                segment = roll(segment.getId() + 1, record.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not start a new segment of the board log", e);
+            }
+            position = segment.append(record);
+        }
+        if (sync)
+            segment.force(position, record.length);
+        return new Location(segment.getId(), position, record.length);
+    }
+
+    private LogSegment roll(final long id) throws IOException {
+        return roll(id, 0);
+    }
+
+    /**
+     * Starts a new segment, which from then on receives all appended records
+     * @param id Number of the new segment
+     * @param recordLength Length of the record that has to fit, in case it is larger than a whole segment
+     * @return the new segment
+     * @throws IOException if the segment could not be created
+     */
+    private LogSegment roll(final long id, final int recordLength) throws IOException {
+        if (sync && !segments.isEmpty())
+            segments.lastEntry().getValue().force();
+
+        final Path path = directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        final LogSegment segment = LogSegment.create(path, id, Math.max(segmentSize, LogSegment.FILE_HEADER + recordLength));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private byte[] read(final Location location) {
+        return segments.get(location.segment()).read(location.position(), location.length());
+    }
+
+    private void retain(final Location location) {
+        segments.get(location.segment()).addLiveBytes(location.length());
+    }
+
+    private void release(final Location location) {
+        if (location == null) return;
+        final LogSegment segment = segments.get(location.segment());
+        if (segment != null) segment.addLiveBytes(-location.length());
+    }
+
+    /**
+     * Parses the board of a board record
+     * @param record Encoded record
+     * @return the board
+     */
+    private Board decode(final byte[] record) {
+        final ByteBuffer payload = LogSegment.payloadOf(record);
+        payload.position(3 * Long.BYTES);
+        final int passwordLength = payload.getInt();
+        payload.position(payload.position() + Math.max(0, passwordLength));
+
+        final Board board;
+        try {
+            board = objectMapper.readValue(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining(), Board.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read board " + LogSegment.joinKeyOf(record), e);
+        }
+
+        board.relinkTags();
+        return board;
+    }
+
+    private void compactOrLog() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Could not compact the board log", e);
+        }
+    }
+
+    /**
+     * Location of a record in the log
+     * @param segment Number of the segment
+     * @param position Position of the record in the segment
+     * @param length Length of the record
+     */
+    private record Location(long segment, int position, int length) {
+    }
+
+    /**
+     * Latest records of a board, together with what is needed to answer queries without reading them
+     */
+    private static final class Entry {
+        private Location board;
+        private Location sequences;
+        private long sequence;
+        private long loggedSequence;
+        private final long created;
+        private String password;
+
+        private Entry(final Location board, final long sequence, final long loggedSequence, final long created) {
+            this.board = board;
+            this.sequence = sequence;
+            this.loggedSequence = loggedSequence;
+            this.created = created;
+        }
+    }
+
+    /**
+     * Credentials of a board, read from the index
+     * @param joinKey Join key of the board
+     * @param password Password of the board, null if the board has no password
+     */
+    private record Credentials(String joinKey, String password) implements BoardCredentials {
+
+        @Override
+        public String getJoinKey() {
+            return joinKey;
+        }
+
+        @Override
+        public String getPassword() {
+            return password;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package server.storage;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Segment file of the board log, mapped into memory as a whole. Records are only appended and never changed,
+ * and a segment is deleted once compaction has copied its live records to the end of the log.
+ * Not thread safe, the board log guards every segment with its own lock.
+ *
+ * <p>A segment starts with a magic number, followed by records laid out as
+ * [int length][int checksum][byte type][short key length][key][payload], where the length counts the whole record
+ * and the checksum covers everything after it. The unused rest of the file is zero, so a length of 0 marks the end.
+ */
+final class LogSegment {
+
+    /**
+     * Marks a file as a segment of the board log
+     */
+    static final int MAGIC = 0x54424C47;
+
+    /**
+     * Number of bytes before the first record
+     */
+    static final int FILE_HEADER = Integer.BYTES;
+
+    /**
+     * Number of bytes of a record before its key
+     */
+    static final int RECORD_HEADER = 2 * Integer.BYTES + Byte.BYTES + Short.BYTES;
+
+    private final long id;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Position at which the next record is written
+     */
+    private int end;
+
+    /**
+     * Number of bytes of records that are still the current version of their board
+     */
+    private long liveBytes;
+
+    private LogSegment(final long id, final Path path, final FileChannel channel, final MappedByteBuffer buffer, final int end) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.end = end;
+    }
+
+    /**
+     * Creates an empty segment file
+     * @param path Path of the new file
+     * @param id Number of the segment, segments are read in the order of their numbers
+     * @param capacity Size of the file in bytes
+     * @return the segment
+     * @throws IOException if the file could not be created or mapped
+     */
+    static LogSegment create(final Path path, final long id, final int capacity) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        buffer.putInt(0, MAGIC);
+        return new LogSegment(id, path, channel, buffer, FILE_HEADER);
+    }
+
+    /**
+     * Opens an existing segment file. Its records have to be scanned before anything is appended.
+     * @param path Path of the file
+     * @param id Number of the segment
+     * @return the segment
+     * @throws IOException if the file could not be mapped or is not a segment
+     */
+    static LogSegment open(final Path path, final long id) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final long size = channel.size();
+        if (size < FILE_HEADER || size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("Segment " + path + " has an invalid size of " + size + " bytes");
+        }
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (buffer.getInt(0) != MAGIC) {
+            channel.close();
+            throw new IOException(path + " is not a segment of the board log");
+        }
+        return new LogSegment(id, path, channel, buffer, FILE_HEADER);
+    }
+
+    /**
+     * Reads all records of the segment in order, and moves the end of the segment behind the last valid record.
+     * A record that was only partly written, because the server stopped during a write, ends the scan.
+     * @param visitor Called for every valid record
+     * @return true if the scan reached the end of the written records, false if it stopped at a damaged record
+     */
+    boolean scan(final RecordVisitor visitor) {
+        int position = FILE_HEADER;
+        boolean intact = true;
+        while (position + RECORD_HEADER <= buffer.capacity()) {
+            final int length = buffer.getInt(position);
+            if (length == 0) break;
+
+            final byte[] record = length >= RECORD_HEADER && length <= buffer.capacity() - position ? read(position, length) : null;
+            if (record == null || checksum(record) != ByteBuffer.wrap(record).getInt(Integer.BYTES)) {
+                intact = false;
+                break;
+            }
+            visitor.visit(position, record);
+            position += length;
+        }
+        end = position;
+        return intact;
+    }
+
+    /**
+     * Appends a record at the end of the segment
+     * @param record Encoded record, see {@link #encode(byte, String, byte[])}
+     * @return the position of the record, or -1 if it does not fit
+     */
+    int append(final byte[] record) {
+        if (record.length > remaining()) return -1;
+
+        final int position = end;
+        buffer.put(position, record);
+        end += record.length;
+        return position;
+    }
+
+    /**
+     * Copies a record out of the segment
+     * @param position Position of the record
+     * @param length Length of the record
+     * @return the bytes of the record
+     */
+    byte[] read(final int position, final int length) {
+        final byte[] record = new byte[length];
+        buffer.get(position, record);
+        return record;
+    }
+
+    /**
+     * Writes the given range of the segment through to the disk
+     * @param position Start of the range
+     * @param length Length of the range
+     */
+    void force(final int position, final int length) {
+        buffer.force(position, length);
+    }
+
+    /**
+     * Writes the whole segment through to the disk
+     */
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Closes the file of the segment. The mapping itself stays valid until the buffer is garbage collected.
+     * @throws IOException if the file could not be closed
+     */
+    void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Closes, unmaps and deletes the file of the segment. The segment must not be used anymore afterwards.
+     * @throws IOException if the file could not be deleted
+     */
+    void delete() throws IOException {
+        close();
+        // Windows refuses to delete a file that is still mapped, and the mapping would otherwise only go away with the buffer
+        final Exception unmapFailure = unmap(buffer);
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            if (unmapFailure != null) e.addSuppressed(unmapFailure);
+            throw e;
+        }
+    }
+
+    long getId() {
+        return id;
+    }
+
+    int remaining() {
+        return buffer.capacity() - end;
+    }
+
+    /**
+     * Gets the number of bytes taken by records
+     * @return used bytes
+     */
+    int used() {
+        return end - FILE_HEADER;
+    }
+
+    long getLiveBytes() {
+        return liveBytes;
+    }
+
+    void addLiveBytes(final long bytes) {
+        liveBytes += bytes;
+    }
+
+    /**
+     * Encodes a record
+     * @param type Kind of record
+     * @param joinKey Join key of the board the record belongs to
+     * @param payload Contents of the record
+     * @return the encoded record, including its length and checksum
+     */
+    static byte[] encode(final byte type, final String joinKey, final byte[] payload) {
+        final byte[] key = joinKey.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + key.length + payload.length);
+        record.putInt(record.capacity()).putInt(0).put(type).putShort((short) key.length).put(key).put(payload);
+
+        final byte[] bytes = record.array();
+        record.putInt(Integer.BYTES, checksum(bytes));
+        return bytes;
+    }
+
+    /**
+     * Gets the kind of an encoded record
+     * @param record Encoded record
+     * @return the type byte
+     */
+    static byte typeOf(final byte[] record) {
+        return record[2 * Integer.BYTES];
+    }
+
+    /**
+     * Gets the join key of an encoded record
+     * @param record Encoded record
+     * @return the join key
+     */
+    static String joinKeyOf(final byte[] record) {
+        return new String(record, RECORD_HEADER, keyLength(record), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the contents of an encoded record, without copying them
+     * @param record Encoded record
+     * @return buffer positioned at the start of the payload
+     */
+    static ByteBuffer payloadOf(final byte[] record) {
+        final int start = RECORD_HEADER + keyLength(record);
+        return ByteBuffer.wrap(record, start, record.length - start).slice();
+    }
+
+    /**
+     * Releases the mapping of a buffer right away, through the cleaner that would otherwise run once the buffer is
+     * garbage collected. Any later access to the buffer crashes the JVM.
+     * @param buffer Buffer to unmap
+     * @return why the mapping could not be released, or null if it was released
+     */
+    private static Exception unmap(final MappedByteBuffer buffer) {
+        try {
+            final Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            final Object unsafe = field.get(null);
+            unsafe.getClass().getMethod("invokeCleaner", ByteBuffer.class).invoke(unsafe, buffer);
+            return null;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return e;
+        }
+    }
+
+    private static int keyLength(final byte[] record) {
+        return ByteBuffer.wrap(record).getShort(2 * Integer.BYTES + Byte.BYTES) & 0xFFFF;
+    }
+
+    private static int checksum(final byte[] record) {
+        final CRC32C crc = new CRC32C();
+        crc.update(record, 2 * Integer.BYTES, record.length - 2 * Integer.BYTES);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Receives the records of a segment while it is scanned
+     */
+    @FunctionalInterface
+    interface RecordVisitor {
+
+        /**
+         * Handles a record
+         * @param position Position of the record in the segment
+         * @param record Encoded record
+         */
+        void visit(int position, byte[] record);
+    }
+}
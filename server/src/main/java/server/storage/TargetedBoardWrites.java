@@ -0,0 +1,50 @@
+package server.storage;
+
+import commons.Card;
+import commons.Column;
+import commons.SubTask;
+
+/**
+ * Writes single changed rows of a stored board instead of the whole board. Only stores that keep the rows of a board
+ * apart implement this next to {@link BoardStore}, the board service saves the whole board with any other store.
+ * Every write has to run within a transaction of the caller.
+ */
+public interface TargetedBoardWrites {
+
+    /**
+     * Inserts a card that was just added to a column, together with its link to the column
+     * @param column Stored column the card was added to
+     * @param card Card that was added
+     */
+    void insertCard(Column column, Card card);
+
+    /**
+     * Writes the title, description and theme flag of a card
+     * @param card Card whose fields were changed
+     * @throws org.springframework.dao.IncorrectUpdateSemanticsDataAccessException if the row is not stored
+     */
+    void updateCardFields(Card card);
+
+    /**
+     * Writes the rank of a card
+     * @param card Card that was moved within its column
+     * @throws org.springframework.dao.IncorrectUpdateSemanticsDataAccessException if the row is not stored
+     */
+    void updateCardRank(Card card);
+
+    /**
+     * Moves the link of a stored card from one stored column to another
+     * @param source Column the card was moved from
+     * @param destination Column the card was moved to
+     * @param card Card that was moved
+     * @throws org.springframework.dao.IncorrectUpdateSemanticsDataAccessException if the card is not linked to the source column
+     */
+    void relinkCard(Column source, Column destination, Card card);
+
+    /**
+     * Writes the done status of a subtask
+     * @param subTask Subtask that was toggled
+     * @throws org.springframework.dao.IncorrectUpdateSemanticsDataAccessException if the row is not stored
+     */
+    void updateSubTaskDone(SubTask subTask);
+}
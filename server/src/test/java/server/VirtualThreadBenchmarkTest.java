@@ -0,0 +1,176 @@
+package server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares the throughput and the 99th percentile latency of the server with talio.threads.virtual off and on.
+ * Every run starts the whole server on a free port with an in-memory database, and the clients send HTTP requests
+ * that load a board and add a column to it, so that the requests pass through Tomcat, the board executor and the
+ * database. Every client sends its requests one after the other, and the latency includes the time a request waits
+ * for a thread. The numbers depend on the machine, so they are only logged, as rows of the results table in
+ * docs/virtual-threads-benchmark.md; the benchmark is left out of the tests and runs with
+ * {@code ./gradlew :server:benchmark -Pjava21}.
+ */
+@Tag("benchmark")
+class VirtualThreadBenchmarkTest {
+
+    private static final int BOARDS = 50;
+
+    private static final int REQUESTS_PER_CLIENT = 10;
+
+    private final Logger logger = LogManager.getLogger(VirtualThreadBenchmarkTest.class);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    /**
+     * Id and index of the next column that is added, unique over all boards
+     */
+    private final AtomicInteger columns = new AtomicInteger();
+
+    /**
+     * Starts the server
+     * @param virtual Whether the server handles requests on virtual threads
+     * @return the running server
+     */
+    private static ConfigurableApplicationContext start(final boolean virtual) {
+        return new SpringApplicationBuilder(Main.class).properties(
+                "server.port=0",
+                "management.server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:benchmark-" + virtual + ";DB_CLOSE_DELAY=-1",
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "talio.board-cache.flush-delay=0",
+                "talio.threads.virtual=" + virtual
+        ).run();
+    }
+
+    private HttpResponse<String> send(final HttpRequest request) throws Exception {
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String createBoard(final String server) throws Exception {
+        final HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(server + "/boards/create"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(Map.of("title", "benchmark"))))
+                .build());
+        assertEquals(200, response.statusCode());
+        return mapper.readTree(response.body()).get("joinKey").asText();
+    }
+
+    /**
+     * Sends a request that loads a board, or that adds a column to it
+     * @param server Address of the server
+     * @param joinKey Join key of the board
+     * @param write Whether the board is changed
+     * @return the status code of the response
+     */
+    private int request(final String server, final String joinKey, final boolean write) throws Exception {
+        if (!write) {
+            return send(HttpRequest.newBuilder(URI.create(server + "/boards/get/" + joinKey)).GET().build()).statusCode();
+        }
+        final int column = columns.incrementAndGet();
+        return send(HttpRequest.newBuilder(URI.create(server + "/columns/create/" + joinKey + "/column/" + column + "?index=" + column))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build()).statusCode();
+    }
+
+    /**
+     * Lets a number of clients send requests to the server, every client waiting for the answer to its last request
+     * @param server Address of the server
+     * @param joinKeys Join keys of the boards that the clients use
+     * @param clients Number of clients
+     * @return the number of requests per second, and the 99th percentile latency in milliseconds
+     */
+    private double[] load(final String server, final List<String> joinKeys, final int clients) throws Exception {
+        final long[] latencies = new long[clients * REQUESTS_PER_CLIENT];
+        final AtomicInteger failed = new AtomicInteger();
+        final List<Future<?>> done = new ArrayList<>();
+
+        final ExecutorService senders = Executors.newFixedThreadPool(clients);
+        final long start = System.nanoTime();
+        try {
+            for (int client = 0; client < clients; client++) {
+                final int first = client * REQUESTS_PER_CLIENT;
+                final String joinKey = joinKeys.get(client % joinKeys.size());
+                done.add(senders.submit(() -> {
+                    for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                        final long sent = System.nanoTime();
+                        if (request(server, joinKey, i % 2 == 1) != 200) failed.incrementAndGet();
+                        latencies[first + i] = System.nanoTime() - sent;
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> future : done) future.get();
+        } finally {
+            senders.shutdown();
+        }
+        final long elapsed = System.nanoTime() - start;
+        assertEquals(0, failed.get());
+
+        Arrays.sort(latencies);
+        final double throughput = latencies.length / (elapsed / 1e9);
+        final double p99 = latencies[(int) Math.ceil(latencies.length * 0.99) - 1] / 1e6;
+        return new double[] {throughput, p99};
+    }
+
+    /**
+     * Runs the clients against a server
+     * @param virtual Whether the server handles requests on virtual threads
+     * @param clients Numbers of clients to measure, one after the other
+     * @return the throughput and latency per number of clients
+     */
+    private List<double[]> run(final boolean virtual, final int[] clients) throws Exception {
+        try (ConfigurableApplicationContext context = start(virtual)) {
+            final String server = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            final List<String> joinKeys = new ArrayList<>();
+            for (int i = 0; i < BOARDS; i++) joinKeys.add(createBoard(server));
+
+            // warm up the server before measuring
+            load(server, joinKeys, 100);
+
+            final List<double[]> results = new ArrayList<>();
+            for (final int count : clients) results.add(load(server, joinKeys, count));
+            return results;
+        }
+    }
+
+    @Test
+    void platformAndVirtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21");
+
+        final int[] clients = {100, 1_000, 2_000};
+        final List<double[]> platform = run(false, clients);
+        final List<double[]> virtual = run(true, clients);
+
+        // rows of the results table in docs/virtual-threads-benchmark.md
+        for (int i = 0; i < clients.length; i++) {
+            logger.info(String.format(Locale.ROOT, "| %d | %.0f | %.1f | %.0f | %.1f |",
+                    clients[i], platform.get(i)[0], platform.get(i)[1], virtual.get(i)[0], virtual.get(i)[1]));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import commons.WireEncoding;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WireConfigTest {
+
+    private static List<HttpMessageConverter<?>> defaultConverters() {
+        final List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        converters.add(new StringHttpMessageConverter());
+        converters.add(new MappingJackson2HttpMessageConverter());
+        converters.add(new MappingJackson2SmileHttpMessageConverter(new ObjectMapper(new SmileFactory())));
+        return converters;
+    }
+
+    @Test
+    void smileComesRightAfterJson() {
+        final WireConfig config = new WireConfig(new Jackson2ObjectMapperBuilder(), true);
+        final List<HttpMessageConverter<?>> converters = defaultConverters();
+        config.extendMessageConverters(converters);
+
+        assertEquals(3, converters.size());
+        assertInstanceOf(MappingJackson2HttpMessageConverter.class, converters.get(1));
+        final MappingJackson2SmileHttpMessageConverter smile = assertInstanceOf(MappingJackson2SmileHttpMessageConverter.class, converters.get(2));
+        assertSame(config.getSmileMapper(), smile.getObjectMapper());
+    }
+
+    @Test
+    void smileCanBeTurnedOff() {
+        final WireConfig config = new WireConfig(new Jackson2ObjectMapperBuilder(), false);
+        final List<HttpMessageConverter<?>> converters = defaultConverters();
+        config.extendMessageConverters(converters);
+
+        assertNull(config.getSmileMapper());
+        assertEquals(2, converters.size());
+        assertTrue(converters.stream().noneMatch(MappingJackson2SmileHttpMessageConverter.class::isInstance));
+    }
+
+    @Test
+    void negotiatePicksTheEncodingOfTheResponse() {
+        final WireConfig config = new WireConfig(new Jackson2ObjectMapperBuilder(), true);
+
+        assertEquals(WireEncoding.JSON, config.negotiate(null));
+        assertEquals(WireEncoding.JSON, config.negotiate("*/*"));
+        assertEquals(WireEncoding.JSON, config.negotiate("not a type"));
+        assertEquals(WireEncoding.SMILE, config.negotiate(WireEncoding.SMILE + ", " + WireEncoding.JSON + ";q=0.9"));
+        assertEquals(WireEncoding.JSON, config.negotiate(WireEncoding.SMILE + ";q=0.5, " + WireEncoding.JSON));
+        assertEquals(WireEncoding.JSON, new WireConfig(new Jackson2ObjectMapperBuilder(), false).negotiate(WireEncoding.SMILE));
+    }
+}
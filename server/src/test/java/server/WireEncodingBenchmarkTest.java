@@ -0,0 +1,127 @@
+package server;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import commons.Board;
+import commons.Card;
+import commons.Color;
+import commons.ColorScheme;
+import commons.Column;
+import commons.SubTask;
+import commons.Tag;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the size of a board and the time it takes to write and read it as JSON and as Smile,
+ * on boards laid out like the ones teams use: a handful of columns, cards with a few sentences of description,
+ * some subtasks and tags each.
+ */
+class WireEncodingBenchmarkTest {
+
+    private static final int WARMUP = 200;
+    private static final int ROUNDS = 500;
+
+    private final Logger logger = LogManager.getLogger(WireEncodingBenchmarkTest.class);
+
+    private final ObjectMapper json = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final ObjectMapper smile = new ObjectMapper(new SmileFactory()).configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static Board board(final int columns, final int cardsPerColumn) {
+        final List<Tag> tags = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            tags.add(new Tag("tag " + i, new ColorScheme(new Color(0, 0, 0, 255), new Color(40 * i, 120, 200, 255))));
+        }
+
+        final Board board = new Board("bench1", "Sprint board", "password", new TreeSet<>(), new HashSet<>(tags));
+        for (int i = 0; i < 4; i++) {
+            board.addColorPreset(new ColorScheme("preset " + i, new Color(0, 0, 0, 255), new Color(60 * i, 60 * i, 60 * i, 255)));
+        }
+
+        final String description = "As a user I want to see the progress of the sprint at a glance, so that I know what to pick up next. "
+                + "The card should link the related issue and mention who reviewed it before it is moved to done.";
+        for (int i = 0; i < columns; i++) {
+            final Column column = new Column("column " + i, i, new TreeSet<>());
+            column.generateId();
+            for (int j = 0; j < cardsPerColumn; j++) {
+                final TreeSet<SubTask> subTasks = new TreeSet<>();
+                for (int k = 0; k < 4; k++) {
+                    final SubTask subTask = new SubTask("check step " + k + " of card " + j, k % 2 == 0);
+                    subTask.setPriority(k);
+                    subTasks.add(subTask);
+                }
+
+                final Set<Tag> cardTags = new HashSet<>();
+                cardTags.add(tags.get(j % tags.size()));
+                cardTags.add(tags.get((j + 1) % tags.size()));
+
+                final Card card = new Card("card " + j + " of column " + i, j, description, subTasks, cardTags);
+                card.generateId();
+                column.addCard(card);
+            }
+            board.addColumn(column);
+        }
+        return board;
+    }
+
+    /**
+     * Measures the mean time of writing and reading a board
+     * @param mapper Mapper of the encoding
+     * @param board Board to write
+     * @return the size in bytes, and the mean time to write and to read in microseconds
+     */
+    private long[] measure(final ObjectMapper mapper, final Board board) throws Exception {
+        final byte[] bytes = mapper.writeValueAsBytes(board);
+        for (int i = 0; i < WARMUP; i++) {
+            mapper.readValue(mapper.writeValueAsBytes(board), Board.class);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            mapper.writeValueAsBytes(board);
+        }
+        final long write = (System.nanoTime() - start) / ROUNDS / 1000;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            mapper.readValue(bytes, Board.class);
+        }
+        final long read = (System.nanoTime() - start) / ROUNDS / 1000;
+
+        return new long[] {bytes.length, write, read};
+    }
+
+    @Test
+    void smileIsSmallerThanJson() throws Exception {
+        for (final int[] size : new int[][] {{3, 5}, {5, 20}, {8, 50}}) {
+            final Board board = board(size[0], size[1]);
+            final long[] jsonResult = measure(json, board);
+            final long[] smileResult = measure(smile, board);
+
+            logger.info(String.format("%d columns x %d cards: JSON %d bytes, write %d us, read %d us | Smile %d bytes (%d%%), write %d us, read %d us",
+                    size[0], size[1], jsonResult[0], jsonResult[1], jsonResult[2],
+                    smileResult[0], 100 * smileResult[0] / jsonResult[0], smileResult[1], smileResult[2]));
+
+            assertTrue(smileResult[0] < jsonResult[0]);
+        }
+    }
+
+    @Test
+    void smileReadsBackTheSameBoard() throws Exception {
+        final Board board = board(3, 5);
+        final Board fromJson = json.readValue(json.writeValueAsBytes(board), Board.class);
+        final Board fromSmile = smile.readValue(smile.writeValueAsBytes(board), Board.class);
+
+        assertEquals(json.writeValueAsString(fromJson), json.writeValueAsString(fromSmile));
+    }
+}
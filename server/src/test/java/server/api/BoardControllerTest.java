@@ -3,26 +3,41 @@ package server.api;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import commons.Board;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import org.springframework.test.web.servlet.MockMvc;
+import server.longPolling.BoardLifecycleEvents;
+import server.services.BoardCopier;
+import server.services.BoardEventPublisher;
+import server.services.BoardPayloadCache;
 import server.services.BoardService;
 
 import java.sql.Timestamp;
 import java.time.Clock;
 import java.util.TreeSet;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(BoardController.class)
+@Import({BoardPayloadCache.class, BoardLifecycleEvents.class, BoardCopier.class})
 public class BoardControllerTest {
 
     @Autowired
@@ -36,11 +51,16 @@ public class BoardControllerTest {
     private Clock clock;
 
     @MockBean
-    private SimpMessageSendingOperations messagingTemplate;
+    private BoardEventPublisher eventPublisher;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @BeforeEach
+    public void setup() {
+        when(boardService.read(anyString(), any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+    }
+
     @Test
     public void contextLoads() {
         assertNotNull(boardController);
@@ -90,4 +110,49 @@ public class BoardControllerTest {
                 .andExpect(content().json(objectMapper.writeValueAsString(boardServerOutput)));
     }
 
+    @Test
+    public void getBoardAnswersUnchangedBoardWith304() throws Exception {
+        final Board board = new Board("joinkey", "title", null, new TreeSet<>(), new Timestamp(12345L));
+        board.setSequence(7);
+        when(boardService.getBoardWithKey("joinkey")).thenReturn(board);
+
+        final String eTag = "\"12345-7-json\"";
+        this.mockMvc.perform(get("/boards/get/joinkey").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().json(objectMapper.writeValueAsString(board)));
+
+        this.mockMvc.perform(get("/boards/get/joinkey").accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // a change to the board makes the old ETag stale
+        board.setSequence(8);
+        this.mockMvc.perform(get("/boards/get/joinkey").accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"12345-8-json\""));
+    }
+
+    @Test
+    public void getBoardIsReadOnItsExecutor() throws Exception {
+        final Board board = new Board("joinkey", "title", null, new TreeSet<>(), new Timestamp(12345L));
+        when(boardService.getBoardWithKey("joinkey")).thenReturn(board);
+
+        this.mockMvc.perform(get("/boards/get/joinkey").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        // the ETag and the body are both taken inside the read, so they cannot belong to different versions
+        verify(boardService, times(1)).read(eq("joinkey"), any());
+    }
+
+    @Test
+    public void getBoardETagDependsOnEncoding() throws Exception {
+        final Board board = new Board("joinkey", "title", null, new TreeSet<>(), new Timestamp(12345L));
+        when(boardService.getBoardWithKey("joinkey")).thenReturn(board);
+
+        this.mockMvc.perform(get("/boards/get/joinkey").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"12345-0-x-jackson-smile\""));
+    }
+
 }
@@ -10,14 +10,17 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
-import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import org.springframework.test.web.servlet.MockMvc;
+import server.services.BoardCopier;
+import server.services.BoardEventPublisher;
 import server.services.BoardService;
 
 import java.sql.Timestamp;
 import java.util.HashSet;
 import java.util.TreeSet;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -29,6 +32,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(CardController.class)
+@Import(BoardCopier.class)
 public class CardControllerTest {
 
     @Autowired
@@ -41,7 +45,7 @@ public class CardControllerTest {
     private BoardService boardService;
 
     @MockBean
-    private SimpMessageSendingOperations messagingTemplate;
+    private BoardEventPublisher eventPublisher;
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -52,6 +56,8 @@ public class CardControllerTest {
 
     @BeforeEach
     public void setup() { // exectued before each test
+        // mutations run directly, the executor and retries of the real board service are not part of these tests
+        when(boardService.mutate(anyString(), any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
 
         actualBoard = new Board("joinkey", "Board 1", "password", new TreeSet<>(), new Timestamp(12345L));
         expectedBoard = new Board("joinkey", "Board 1", "password", new TreeSet<>(), new Timestamp(12345L));
@@ -3,17 +3,21 @@ package server.api;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import commons.Board;
 import commons.Column;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
-import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import org.springframework.test.web.servlet.MockMvc;
+import server.services.BoardCopier;
+import server.services.BoardEventPublisher;
 import server.services.BoardService;
 
 import java.sql.Timestamp;
 import java.util.TreeSet;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -24,6 +28,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(ColumnController.class)
+@Import(BoardCopier.class)
 public class ColumnControllerTest {
 
     @Autowired
@@ -37,7 +42,12 @@ public class ColumnControllerTest {
     private ObjectMapper objectMapper;
 
     @MockBean
-    private SimpMessageSendingOperations messagingTemplate;
+    private BoardEventPublisher eventPublisher;
+
+    @BeforeEach
+    public void setup() {
+        when(boardService.mutate(anyString(), any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+    }
 
     @Test
     public void contextLoads() {
@@ -0,0 +1,187 @@
+package server.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.*;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Counts the SQL statements that are needed to serve an endpoint from an empty board cache
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:querycount;DB_CLOSE_DELAY=-1",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "talio.board-cache.flush-delay=0"
+})
+@AutoConfigureMockMvc
+class QueryCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private void createBoard(final String joinKey, final int columns, final int cardsPerColumn) {
+        final Tag tag = new Tag("tag", new ColorScheme());
+        final Set<Tag> tags = new HashSet<>();
+        tags.add(tag);
+
+        final Board board = new Board(joinKey, "title", "password", new TreeSet<>(), tags);
+        for (int i = 0; i < columns; i++) {
+            final Column column = new Column("column " + i, i, new TreeSet<>());
+            column.generateId();
+            for (int j = 0; j < cardsPerColumn; j++) {
+                final TreeSet<SubTask> subTasks = new TreeSet<>();
+                subTasks.add(new SubTask("first", false, 2L * j));
+                subTasks.add(new SubTask("second", true, 2L * j + 1));
+
+                final Card card = new Card("card " + j, j, "description", subTasks, new HashSet<>(tags));
+                card.generateId();
+                column.addCard(card);
+            }
+            board.addColumn(column);
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> entityManager.persist(board));
+    }
+
+    private long countStatements(final String joinKey, final String password, final boolean authorized) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/boards/get/" + joinKey).content(password))
+                .andExpect(authorized ? status().isOk() : status().isBadRequest());
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    void renderBoardDoesNotDependOnBoardSize() throws Exception {
+        createBoard("small1", 1, 1);
+        createBoard("large1", 5, 10);
+
+        final long small = countStatements("small1", "password", true);
+        final long large = countStatements("large1", "password", true);
+
+        assertEquals(small, large);
+        assertTrue(large <= 8, "Rendering a board took " + large + " statements");
+    }
+
+    @Test
+    void cachedBoardNeedsNoStatements() throws Exception {
+        createBoard("cached", 3, 3);
+
+        countStatements("cached", "password", true);
+        assertEquals(0, countStatements("cached", "password", true));
+    }
+
+    @Test
+    void wrongPasswordOnlyLoadsCredentials() throws Exception {
+        createBoard("locked", 5, 10);
+
+        assertEquals(1, countStatements("locked", "wrong", false));
+    }
+
+    @Test
+    void boardsStatusIsSingleQuery() throws Exception {
+        final Map<String, String> boards = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            createBoard("status" + i, 1, 1);
+            boards.put("status" + i, "title");
+            boards.put("missing" + i, "title");
+        }
+
+        statistics.clear();
+        final MvcResult result = mockMvc.perform(post("/home/getBoardsStatus")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(boards)))
+                .andReturn();
+        // the boards are checked once, right after the request subscribed to their changes
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        // the missing boards are answered right away as deleted, the others are unchanged
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(jsonPath("$.status0").doesNotExist());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void unchangedBoardsStatusWaitsAfterSingleQuery() throws Exception {
+        final Map<String, String> boards = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            createBoard("waiting" + i, 1, 1);
+            boards.put("waiting" + i, "title");
+        }
+
+        statistics.clear();
+        final MvcResult result = mockMvc.perform(post("/home/getBoardsStatus")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(boards)))
+                .andReturn();
+
+        assertTrue(result.getRequest().isAsyncStarted());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void boardSummariesAreSingleQuery() throws Exception {
+        final List<String> joinKeys = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            createBoard("summary" + i, i + 1, 3);
+            joinKeys.add("summary" + i);
+        }
+
+        statistics.clear();
+        mockMvc.perform(post("/boards/summaries")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"" + String.join("\",\"", joinKeys) + "\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(jsonPath("$[?(@.joinKey == 'summary4')].columnCount").value(5))
+                .andExpect(jsonPath("$[?(@.joinKey == 'summary4')].cardCount").value(15))
+                .andExpect(jsonPath("$[?(@.joinKey == 'summary4')].passwordProtected").value(true));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
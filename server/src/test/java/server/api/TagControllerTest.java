@@ -9,14 +9,17 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
-import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import org.springframework.test.web.servlet.MockMvc;
+import server.services.BoardCopier;
+import server.services.BoardEventPublisher;
 import server.services.BoardService;
 
 import java.sql.Timestamp;
 import java.util.HashSet;
 import java.util.TreeSet;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -28,6 +31,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(TagController.class)
+@Import(BoardCopier.class)
 public class TagControllerTest {
     @Autowired
     private MockMvc mockMvc;
@@ -36,7 +40,7 @@ public class TagControllerTest {
     @MockBean
     private BoardService boardService;
     @MockBean
-    private SimpMessageSendingOperations messagingTemplate;
+    private BoardEventPublisher eventPublisher;
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -49,6 +53,7 @@ public class TagControllerTest {
 
     @BeforeEach
     public void setup() { // executed before each test
+        when(boardService.mutate(anyString(), any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
         actualBoard = new Board("joinkey", "Board 1", "password", new TreeSet<>(), new Timestamp(12345L));
         expectedBoard = new Board("joinkey", "Board 1", "password", new TreeSet<>(), new Timestamp(12345L));
 
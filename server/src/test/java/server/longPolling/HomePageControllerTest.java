@@ -0,0 +1,94 @@
+package server.longPolling;
+
+import commons.DTOs.BoardSummaryDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.context.request.async.DeferredResult;
+import server.services.BoardService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HomePageControllerTest {
+
+    private BoardService boardService;
+    private BoardLifecycleEvents lifecycleEvents;
+    private HomePageController controller;
+
+    @BeforeEach
+    void setUp() {
+        boardService = mock(BoardService.class);
+        lifecycleEvents = new BoardLifecycleEvents();
+        controller = new HomePageController(boardService, lifecycleEvents, 30000);
+    }
+
+    private static BoardSummaryDTO summary(final String joinKey, final String title) {
+        return new BoardSummaryDTO(joinKey, title, null, false, 0, 0, null);
+    }
+
+    private static HashMap<String, String> boards(final String... joinKeysAndTitles) {
+        final HashMap<String, String> boards = new HashMap<>();
+        for (int i = 0; i < joinKeysAndTitles.length; i += 2) {
+            boards.put(joinKeysAndTitles[i], joinKeysAndTitles[i + 1]);
+        }
+        return boards;
+    }
+
+    @Test
+    void unchangedBoardsWait() {
+        when(boardService.getBoardSummaries(any())).thenReturn(List.of(summary("aaaaaa", "first"), summary("bbbbbb", "second")));
+
+        final DeferredResult<HashMap<String, String>> result = controller.getBoardsStatus(boards("aaaaaa", "first", "bbbbbb", "second"));
+
+        assertFalse(result.hasResult());
+        assertEquals(2, lifecycleEvents.getListenerCount());
+    }
+
+    @Test
+    void deletedAndRenamedBoardsAreAnsweredRightAway() {
+        when(boardService.getBoardSummaries(any())).thenReturn(List.of(summary("aaaaaa", "renamed")));
+
+        final DeferredResult<HashMap<String, String>> result = controller.getBoardsStatus(boards("aaaaaa", "first", "bbbbbb", "second"));
+
+        assertTrue(result.hasResult());
+        final Map<String, String> changed = new HashMap<>();
+        changed.put("aaaaaa", "renamed");
+        changed.put("bbbbbb", null);
+        assertEquals(changed, result.getResult());
+    }
+
+    @Test
+    void waitingRequestIsAnsweredByTheChange() {
+        when(boardService.getBoardSummaries(any())).thenReturn(List.of(summary("aaaaaa", "first"), summary("bbbbbb", "second")));
+        final DeferredResult<HashMap<String, String>> result = controller.getBoardsStatus(boards("aaaaaa", "first", "bbbbbb", "second"));
+
+        lifecycleEvents.boardRenamed("cccccc", "other");
+        assertFalse(result.hasResult());
+
+        lifecycleEvents.boardDeleted("bbbbbb");
+        assertTrue(result.hasResult());
+        final Map<String, String> changed = new HashMap<>();
+        changed.put("bbbbbb", null);
+        assertEquals(changed, result.getResult());
+    }
+
+    @Test
+    void unsubscribedListenerIsForgotten() {
+        final int[] calls = {0};
+        final BiConsumer<String, String> listener = (joinKey, title) -> calls[0]++;
+        lifecycleEvents.subscribe(List.of("aaaaaa", "bbbbbb"), listener);
+        lifecycleEvents.boardRenamed("aaaaaa", "renamed");
+        lifecycleEvents.unsubscribe(List.of("aaaaaa", "bbbbbb"), listener);
+        lifecycleEvents.boardDeleted("bbbbbb");
+
+        assertEquals(1, calls[0]);
+        assertEquals(0, lifecycleEvents.getListenerCount());
+    }
+}
@@ -0,0 +1,127 @@
+package server.metrics;
+
+import commons.Board;
+import commons.Card;
+import commons.Column;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private BoardMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new BoardMetrics(registry);
+    }
+
+    private Timer phase(final String operation, final String phase) {
+        return registry.get("talio.board.operation.phase").tag("operation", operation).tag("phase", phase).timer();
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void operationIsSplitIntoPhases() {
+        final String result = metrics.operation(() -> {
+            metrics.phase(BoardMetrics.Phase.LOAD, () -> sleep(20));
+            metrics.name("CARD_ADDED");
+            sleep(20);
+            metrics.phase(BoardMetrics.Phase.PERSIST, () -> sleep(20));
+            metrics.phase(BoardMetrics.Phase.BROADCAST, () -> sleep(20));
+            return "done";
+        });
+
+        assertEquals("done", result);
+        final Timer total = registry.get("talio.board.operation").tag("operation", "card_added").tag("outcome", "success").timer();
+        assertEquals(1, total.count());
+        for (final String phase : new String[] {"load", "mutate", "persist", "broadcast"}) {
+            assertEquals(1, phase("card_added", phase).count());
+            assertTrue(phase("card_added", phase).totalTime(TimeUnit.MILLISECONDS) >= 15, phase);
+        }
+        final double phases = phase("card_added", "load").totalTime(TimeUnit.NANOSECONDS)
+                + phase("card_added", "mutate").totalTime(TimeUnit.NANOSECONDS)
+                + phase("card_added", "persist").totalTime(TimeUnit.NANOSECONDS)
+                + phase("card_added", "broadcast").totalTime(TimeUnit.NANOSECONDS);
+        assertEquals(total.totalTime(TimeUnit.NANOSECONDS), phases, 1e6);
+    }
+
+    @Test
+    void nestedCallsCountTowardsTheOuterOne() {
+        metrics.operation(() -> {
+            metrics.name("BOARD_RENAMED");
+            metrics.name("CARD_ADDED");
+            return metrics.operation(() -> metrics.phase(BoardMetrics.Phase.PERSIST,
+                    () -> metrics.phase(BoardMetrics.Phase.LOAD, () -> sleep(10))));
+        });
+
+        assertEquals(1, registry.get("talio.board.operation").timers().size());
+        assertEquals(1, registry.get("talio.board.operation").tag("operation", "board_renamed").timer().count());
+        assertEquals(0, phase("board_renamed", "load").totalTime(TimeUnit.NANOSECONDS));
+        assertTrue(phase("board_renamed", "persist").totalTime(TimeUnit.MILLISECONDS) >= 5);
+    }
+
+    @Test
+    void failedOperationIsRecorded() {
+        assertThrows(IllegalStateException.class, () -> metrics.operation(() -> {
+            throw new IllegalStateException("failed");
+        }));
+
+        assertEquals(1, registry.get("talio.board.operation").tag("operation", "none").tag("outcome", "failure").timer().count());
+        // the next operation on this thread starts afresh
+        metrics.operation(() -> {
+            metrics.name("CARD_EDITED");
+            return null;
+        });
+        assertEquals(1, registry.get("talio.board.operation").tag("operation", "card_edited").timer().count());
+    }
+
+    @Test
+    void phasesOutsideOperationAreNotRecorded() {
+        assertEquals(3, metrics.phase(BoardMetrics.Phase.LOAD, () -> 3));
+        metrics.name("CARD_ADDED");
+
+        assertTrue(registry.find("talio.board.operation").timers().isEmpty());
+        assertTrue(registry.find("talio.board.operation.phase").timers().isEmpty());
+    }
+
+    @Test
+    void boardSizeIsRecordedOncePerOperation() {
+        final Board board = new Board("aaaaaa", "title", "password", new TreeSet<>(), new HashSet<>());
+        final Column column = new Column("column", 0, new TreeSet<>());
+        column.generateId();
+        for (int i = 0; i < 3; i++) {
+            final Card card = new Card("card " + i, i, "description", new TreeSet<>(), new HashSet<>());
+            card.generateId();
+            column.addCard(card);
+        }
+        board.addColumn(column);
+
+        metrics.operation(() -> {
+            metrics.loaded(board);
+            metrics.loaded(board);
+            metrics.loaded(null);
+            return null;
+        });
+        metrics.loaded(board);
+
+        assertEquals(1, registry.get("talio.board.cards").summary().count());
+        assertEquals(3, registry.get("talio.board.cards").summary().totalAmount());
+    }
+}
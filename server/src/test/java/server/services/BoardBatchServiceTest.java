@@ -0,0 +1,91 @@
+package server.services;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.Board;
+import commons.BoardEventType;
+import commons.Card;
+import commons.Column;
+import commons.DTOs.BoardChangesDTO;
+import commons.DTOs.BoardEventDTO;
+import commons.DTOs.BoardOperationDTO;
+import commons.DTOs.CardDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class BoardBatchServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private BoardService boardService;
+    private BoardBatchService batchService;
+    private Board board;
+
+    @BeforeEach
+    void setUp() {
+        boardService = mock(BoardService.class);
+        when(boardService.saveBoard(any(Board.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(boardService.recordEvents(anyString(), anyList())).thenAnswer(invocation -> {
+            final List<BoardOperationDTO> operations = invocation.getArgument(1);
+            return operations.stream().map(operation -> new BoardEventDTO(1, operation.type(), operation.payload())).toList();
+        });
+        batchService = new BoardBatchService(boardService, objectMapper);
+
+        board = new Board("aaaaaa", "title", "password", new TreeSet<>());
+        board.addColumn(new Column(1, "todo", 0, new TreeSet<>()));
+        when(boardService.getBoardWithKey("aaaaaa")).thenReturn(board);
+    }
+
+    private BoardOperationDTO operation(final BoardEventType type, final Object payload) throws Exception {
+        return new BoardOperationDTO(type, objectMapper.writeValueAsString(payload));
+    }
+
+    @Test
+    void operationsAreAppliedInOrderAndSavedOnce() throws Exception {
+        final Card card = new Card("card", 0, "description", new TreeSet<>(), new HashSet<>());
+        final List<BoardOperationDTO> operations = List.of(
+                operation(BoardEventType.BOARD_RENAMED, "renamed"),
+                operation(BoardEventType.CARD_ADDED, new CardDTO(card, "password", 1L, null, null)));
+
+        final BoardChangesDTO changes = batchService.apply(board, operations);
+
+        verify(boardService, times(1)).saveBoard(any(Board.class));
+        verify(boardService, times(1)).recordEvents(eq("aaaaaa"), anyList());
+        assertEquals(2, changes.events().size());
+
+        final CardDTO logged = objectMapper.readValue(changes.events().get(1).payload(), CardDTO.class);
+        assertNotEquals(0, logged.card().getId());
+        assertNull(logged.password());
+    }
+
+    @Test
+    void failingOperationLeavesBoardUntouched() throws Exception {
+        final List<BoardOperationDTO> operations = List.of(
+                operation(BoardEventType.BOARD_RENAMED, "renamed"),
+                operation(BoardEventType.COLUMN_REMOVED, 42L));
+
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> batchService.apply(board, operations));
+
+        assertTrue(e.getMessage().startsWith("Operation 1"));
+        assertEquals("title", board.getTitle());
+        verify(boardService, never()).saveBoard(any());
+        verify(boardService, never()).recordEvents(anyString(), anyList());
+    }
+
+    @Test
+    void unreadableOperationIsRejected() {
+        final List<BoardOperationDTO> operations = List.of(new BoardOperationDTO(BoardEventType.CARD_ADDED, "{not json"));
+
+        assertThrows(IllegalArgumentException.class, () -> batchService.apply(board, operations));
+        verify(boardService, never()).saveBoard(any());
+    }
+}
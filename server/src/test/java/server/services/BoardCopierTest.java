@@ -0,0 +1,40 @@
+package server.services;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.Card;
+import commons.Column;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardCopierTest {
+
+    private final BoardCopier boardCopier =
+            new BoardCopier(new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false));
+
+    @Test
+    void copyIsEqualButSharesNothing() {
+        final Column column = new Column(1, "Column 1", 0, new TreeSet<>());
+        column.addCard(new Card(2, "card", 0, "description", new HashSet<>()));
+
+        final Column copy = boardCopier.copy(column);
+
+        assertEquals(column, copy);
+        assertNotSame(column, copy);
+        assertNotSame(column.getCards().first(), copy.getCards().first());
+
+        column.setHeading("renamed");
+        column.addCard(new Card(3, "other card", 1, "description", new HashSet<>()));
+        assertEquals("Column 1", copy.getHeading());
+        assertEquals(1, copy.getCards().size());
+    }
+
+    @Test
+    void nullIsCopiedAsNull() {
+        assertNull(boardCopier.copy(null));
+    }
+}
@@ -0,0 +1,180 @@
+package server.services;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.Board;
+import commons.BoardEventType;
+import commons.Card;
+import commons.Column;
+import commons.DTOs.BoardOperationDTO;
+import commons.DTOs.CardDTO;
+import commons.DTOs.ColumnDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.database.BoardEvent;
+import server.database.BoardEventRepository;
+import server.database.BoardSnapshot;
+import server.database.BoardSnapshotRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BoardEventLogTest {
+
+    private BoardEventRepository eventRepository;
+    private BoardSnapshotRepository snapshotRepository;
+    private List<BoardEvent> events;
+    private List<BoardSnapshot> snapshots;
+
+    @BeforeEach
+    void setUp() {
+        events = new ArrayList<>();
+        snapshots = new ArrayList<>();
+        eventRepository = mock(BoardEventRepository.class);
+        snapshotRepository = mock(BoardSnapshotRepository.class);
+        when(eventRepository.save(any(BoardEvent.class))).thenAnswer(invocation -> {
+            events.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        when(snapshotRepository.save(any(BoardSnapshot.class))).thenAnswer(invocation -> {
+            snapshots.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+    }
+
+    private BoardEventLog eventLog(final int snapshotInterval) {
+        // like the object mapper of Spring Boot, which ignores properties that only have a getter
+        final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        return new BoardEventLog(eventRepository, snapshotRepository, objectMapper, snapshotInterval);
+    }
+
+    private Board board() {
+        final Board board = new Board("aaaaaa", "title", "password", new TreeSet<>());
+        board.addColumn(new Column(1, "todo", 0, new TreeSet<>()));
+        board.addColumn(new Column(2, "done", 1, new TreeSet<>()));
+        return board;
+    }
+
+    @Test
+    void eventsAreNumberedPerBoard() {
+        final BoardEventLog eventLog = eventLog(100);
+        final Board board = board();
+
+        eventLog.append(board, BoardEventType.BOARD_RENAMED, "first");
+        eventLog.append(board, BoardEventType.BOARD_RENAMED, "second");
+
+        assertEquals(List.of(1L, 2L), events.stream().map(BoardEvent::getSequence).toList());
+        assertEquals(2, board.getSequence());
+        assertEquals(2, board.getLoggedSequence());
+        assertEquals("\"second\"", events.get(1).getPayload());
+    }
+
+    @Test
+    void batchIsNumberedAfterLoggedEvents() {
+        when(eventRepository.saveAll(any())).thenAnswer(invocation -> {
+            final List<BoardEvent> batch = invocation.getArgument(0);
+            events.addAll(batch);
+            return batch;
+        });
+        final BoardEventLog eventLog = eventLog(4);
+        final Board board = board();
+        eventLog.append(board, BoardEventType.BOARD_RENAMED, "first");
+
+        final List<BoardEvent> appended = eventLog.appendAll(board, List.of(
+                new BoardOperationDTO(BoardEventType.BOARD_RENAMED, "\"second\""),
+                new BoardOperationDTO(BoardEventType.BOARD_RENAMED, "\"third\""),
+                new BoardOperationDTO(BoardEventType.BOARD_RENAMED, "\"fourth\""),
+                new BoardOperationDTO(BoardEventType.BOARD_RENAMED, "\"fifth\"")));
+
+        assertEquals(List.of(2L, 3L, 4L, 5L), appended.stream().map(BoardEvent::getSequence).toList());
+        assertEquals(5, board.getSequence());
+        assertEquals(5, board.getLoggedSequence());
+        // the snapshot that fell due within the batch holds the state after the whole batch
+        assertEquals(List.of(5L), snapshots.stream().map(BoardSnapshot::getSequence).toList());
+        verify(eventRepository, times(1)).saveAll(any());
+    }
+
+    @Test
+    void snapshotIsTakenEveryInterval() {
+        final BoardEventLog eventLog = eventLog(2);
+        final Board board = board();
+
+        for (int i = 0; i < 5; i++) {
+            eventLog.append(board, BoardEventType.BOARD_RENAMED, "title " + i);
+        }
+
+        assertEquals(List.of(2L, 4L), snapshots.stream().map(BoardSnapshot::getSequence).toList());
+    }
+
+    @Test
+    void rebuildReplaysEventsAfterSnapshot() throws Exception {
+        final BoardEventLog eventLog = eventLog(100);
+        final Board board = board();
+        eventLog.snapshot(board);
+
+        board.setTitle("renamed");
+        eventLog.append(board, BoardEventType.BOARD_RENAMED, "renamed");
+
+        board.getColumnById(1).setHeading("later");
+        eventLog.append(board, BoardEventType.COLUMN_RENAMED, new ColumnDTO(1L, "later"));
+
+        final Card card = new Card("card", 0, "description", null, null);
+        card.generateId();
+        board.addCardToColumn(card, 1);
+        eventLog.append(board, BoardEventType.CARD_ADDED, new CardDTO(card, 1L));
+
+        board.getColumnById(1).removeCard(card);
+        board.getColumnById(2).placeCard(card, 0);
+        eventLog.append(board, BoardEventType.CARD_REPOSITIONED, new CardDTO(card, 1L, 2L, 0));
+
+        when(snapshotRepository.findFirstByJoinKeyAndSequenceLessThanEqualOrderBySequenceDesc("aaaaaa", 4))
+                .thenReturn(Optional.of(snapshots.get(0)));
+        when(eventRepository.findByJoinKeyAndSequenceBetweenOrderBySequence("aaaaaa", 1, 4)).thenReturn(events);
+
+        final Board rebuilt = eventLog.rebuild("aaaaaa", 4).orElseThrow();
+        assertEquals("renamed", rebuilt.getTitle());
+        assertEquals("later", rebuilt.getColumnById(1).getHeading());
+        assertTrue(rebuilt.getColumnById(1).getCards().isEmpty());
+        assertEquals(card.getRank(), rebuilt.getColumnById(2).getCards().first().getRank());
+        assertEquals(4, rebuilt.getSequence());
+    }
+
+    @Test
+    void rebuildWithoutSnapshotIsEmpty() {
+        when(snapshotRepository.findFirstByJoinKeyAndSequenceLessThanEqualOrderBySequenceDesc("aaaaaa", 3))
+                .thenReturn(Optional.empty());
+
+        assertTrue(eventLog(100).rebuild("aaaaaa", 3).isEmpty());
+    }
+
+    @Test
+    void replayStopsAtMissingEvent() {
+        final BoardEventLog eventLog = eventLog(100);
+        final Board source = board();
+        eventLog.append(source, BoardEventType.BOARD_RENAMED, "first");
+        eventLog.append(source, BoardEventType.BOARD_RENAMED, "second");
+
+        final Board board = board();
+        assertEquals(0, eventLog.replay(board, List.of(events.get(1))));
+        assertEquals("title", board.getTitle());
+        assertEquals(0, board.getSequence());
+    }
+
+    @Test
+    void replayStopsAtEventThatDoesNotFit() {
+        final BoardEventLog eventLog = eventLog(100);
+        final Board source = board();
+        eventLog.append(source, BoardEventType.COLUMN_RENAMED, new ColumnDTO(3L, "missing"));
+        eventLog.append(source, BoardEventType.BOARD_RENAMED, "renamed");
+
+        final Board board = board();
+        assertEquals(0, eventLog.replay(board, events));
+        assertEquals("title", board.getTitle());
+    }
+}
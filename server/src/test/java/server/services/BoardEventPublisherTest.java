@@ -0,0 +1,141 @@
+package server.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.BoardEventType;
+import commons.DTOs.BoardChangesDTO;
+import commons.DTOs.BoardEventDTO;
+import commons.DTOs.ColumnDTO;
+import commons.Tag;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.util.MimeTypeUtils;
+import server.metrics.BoardMetrics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class BoardEventPublisherTest {
+
+    private BoardService boardService;
+    private SimpMessageSendingOperations messagingTemplate;
+    private BoardPayloadCache payloadCache;
+    private BoardEventPublisher eventPublisher;
+
+    @BeforeEach
+    void setUp() {
+        final AtomicLong sequence = new AtomicLong();
+        boardService = mock(BoardService.class);
+        when(boardService.recordEvent(anyString(), any(), any()))
+                .thenAnswer(invocation -> Map.of(BoardEventType.SEQUENCE_HEADER, Long.toString(sequence.incrementAndGet())));
+        messagingTemplate = mock(SimpMessageSendingOperations.class);
+        payloadCache = mock(BoardPayloadCache.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (eventPublisher != null) eventPublisher.shutdown();
+    }
+
+    private BoardEventPublisher eventPublisher(final long window) {
+        // windows do not end on their own during a test, they are sent when the publisher shuts down
+        eventPublisher = new BoardEventPublisher(boardService, payloadCache, messagingTemplate, new ObjectMapper(),
+                new BoardMetrics(new SimpleMeterRegistry()), window);
+        return eventPublisher;
+    }
+
+    @Test
+    void withoutWindowEveryChangeIsSentDirectly() {
+        eventPublisher(0).publish("aaaaaa", BoardEventType.BOARD_RENAMED, "first");
+        eventPublisher.publish("aaaaaa", BoardEventType.BOARD_RENAMED, "second");
+
+        verify(boardService, times(2)).recordEvent(eq("aaaaaa"), eq(BoardEventType.BOARD_RENAMED), any());
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/boards/aaaaaa/rename"), eq((Object) "first"), anyMap());
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/boards/aaaaaa/rename"), eq((Object) "second"), anyMap());
+        verify(payloadCache, times(2)).invalidate("aaaaaa");
+    }
+
+    /**
+     * Gets the message that was sent on its own to a destination
+     * @param destination Destination of the message
+     * @return the message
+     */
+    private Message<?> sentTo(final String destination) {
+        final ArgumentCaptor<Message<?>> sent = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate, times(1)).send(eq(destination), sent.capture());
+        return sent.getValue();
+    }
+
+    @Test
+    void singleChangeInWindowIsSentOnItsOwnTopic() {
+        eventPublisher(60_000).publish("aaaaaa", BoardEventType.BOARD_RENAMED, "renamed");
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class), anyMap());
+        verify(messagingTemplate, never()).send(anyString(), any());
+
+        eventPublisher.shutdown();
+        final Message<?> message = sentTo("/topic/boards/aaaaaa/rename");
+        assertEquals("\"renamed\"", new String((byte[]) message.getPayload(), StandardCharsets.UTF_8));
+        assertEquals("1", SimpMessageHeaderAccessor.wrap(message).getFirstNativeHeader(BoardEventType.SEQUENCE_HEADER));
+        assertEquals(MimeTypeUtils.APPLICATION_JSON, SimpMessageHeaderAccessor.wrap(message).getContentType());
+    }
+
+    @Test
+    void singleChangeInWindowIsSentAsItWasWhenPublished() throws Exception {
+        final Tag tag = new Tag("first", null);
+        eventPublisher(60_000).publish("aaaaaa", BoardEventType.TAG_EDITED, tag);
+        // the board is changed again before the window ends
+        tag.setTitle("second");
+
+        eventPublisher.shutdown();
+        final Message<?> message = sentTo("/topic/tags/aaaaaa/edit");
+        assertEquals("first", new ObjectMapper().readTree((byte[]) message.getPayload()).get("title").asText());
+    }
+
+    @Test
+    void changesInWindowAreSentTogetherWithoutOverriddenOnes() throws Exception {
+        eventPublisher(60_000);
+        eventPublisher.publish("aaaaaa", BoardEventType.COLUMN_RENAMED, new ColumnDTO(1L, "first"));
+        eventPublisher.publish("aaaaaa", BoardEventType.COLUMN_RENAMED, new ColumnDTO(2L, "other"));
+        eventPublisher.publish("aaaaaa", BoardEventType.COLUMN_RENAMED, new ColumnDTO(1L, "second"));
+        eventPublisher.publish("aaaaaa", BoardEventType.COLUMN_REMOVED, 2L);
+        eventPublisher.publish("bbbbbb", BoardEventType.BOARD_RENAMED, "other board");
+        eventPublisher.shutdown();
+
+        final ArgumentCaptor<Object> sent = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/boards/aaaaaa/batch"), sent.capture(),
+                eq(Map.<String, Object>of(BoardEventType.SEQUENCE_HEADER, "4")));
+        assertEquals("5", SimpMessageHeaderAccessor.wrap(sentTo("/topic/boards/bbbbbb/rename"))
+                .getFirstNativeHeader(BoardEventType.SEQUENCE_HEADER));
+
+        final BoardChangesDTO changes = (BoardChangesDTO) sent.getValue();
+        assertEquals(4, changes.sequence());
+        assertEquals(List.of(2L, 3L, 4L), changes.events().stream().map(BoardEventDTO::sequence).toList());
+        assertEquals("second", new ObjectMapper().readValue(changes.events().get(1).payload(), ColumnDTO.class).newHeading());
+    }
+
+    @Test
+    void batchJoinsTheWindowInOrder() {
+        eventPublisher(60_000).publish("aaaaaa", BoardEventType.BOARD_RENAMED, "renamed");
+        eventPublisher.publishChanges(new BoardChangesDTO("aaaaaa", 3, List.of(
+                new BoardEventDTO(2, BoardEventType.COLUMN_REMOVED, "1"),
+                new BoardEventDTO(3, BoardEventType.COLUMN_REMOVED, "2")), null));
+        eventPublisher.shutdown();
+
+        final ArgumentCaptor<Object> sent = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/boards/aaaaaa/batch"), sent.capture(), anyMap());
+        assertEquals(List.of(1L, 2L, 3L), ((BoardChangesDTO) sent.getValue()).events().stream().map(BoardEventDTO::sequence).toList());
+    }
+}
@@ -0,0 +1,146 @@
+package server.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class BoardExecutorTest {
+
+    private BoardExecutor boardExecutor;
+
+    @BeforeEach
+    void setUp() {
+        boardExecutor = new BoardExecutor(4, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        boardExecutor.shutdown();
+    }
+
+    @Test
+    void mutationsOfOneBoardRunInOrder() {
+        final List<Integer> order = new ArrayList<>();
+        final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            final int index = i;
+            futures.add(boardExecutor.submit("aaaaaa", () -> {
+                order.add(index);
+                return index;
+            }));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    void differentBoardsRunInParallel() throws InterruptedException {
+        final CountDownLatch both = new CountDownLatch(2);
+        final Runnable waitForOther = () -> {
+            both.countDown();
+            try {
+                assertTrue(both.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        };
+
+        final CompletableFuture<Void> first = boardExecutor.submit("aaaaaa", () -> {
+            waitForOther.run();
+            return null;
+        });
+        final CompletableFuture<Void> second = boardExecutor.submit("bbbbbb", () -> {
+            waitForOther.run();
+            return null;
+        });
+
+        first.join();
+        second.join();
+        assertEquals(0, both.getCount());
+    }
+
+    @Test
+    void queueDepthCountsWaitingMutations() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        boardExecutor.submit("aaaaaa", () -> {
+            started.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        final CompletableFuture<Integer> waiting = boardExecutor.submit("aaaaaa", () -> 1);
+        boardExecutor.submit("aaaaaa", () -> 2);
+
+        assertEquals(2, boardExecutor.getQueueDepth("aaaaaa"));
+        assertEquals(0, boardExecutor.getQueueDepth("bbbbbb"));
+
+        release.countDown();
+        assertEquals(1, waiting.join());
+    }
+
+    @Test
+    void executePassesExceptionsOn() {
+        assertThrows(IllegalStateException.class, () -> boardExecutor.execute("aaaaaa", () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(1, boardExecutor.execute("aaaaaa", () -> 1));
+    }
+
+    @Test
+    void nestedMutationOfSameBoardRunsDirectly() {
+        final int result = boardExecutor.execute("aaaaaa", () -> boardExecutor.execute("aaaaaa", () -> 2));
+        assertEquals(2, result);
+    }
+
+    /**
+     * Checks whether the current thread is virtual; the tests are compiled for Java 17, which has no virtual threads
+     * @return whether the current thread is virtual
+     */
+    private static boolean onVirtualThread() {
+        try {
+            return (boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread());
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    @Test
+    void virtualWorkersKeepTheOrderOfABoard() {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21");
+        final BoardExecutor virtualExecutor = new BoardExecutor(0, true);
+        try {
+            final List<Integer> order = new ArrayList<>();
+            final List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                final int index = i;
+                futures.add(virtualExecutor.submit("aaaaaa", () -> {
+                    order.add(index);
+                    return onVirtualThread();
+                }));
+            }
+
+            futures.forEach(future -> assertTrue(future.join()));
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i, order.get(i));
+            }
+        } finally {
+            virtualExecutor.shutdown();
+        }
+    }
+}
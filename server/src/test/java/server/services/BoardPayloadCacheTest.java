@@ -0,0 +1,108 @@
+package server.services;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import commons.Board;
+import commons.WireEncoding;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import server.WireConfig;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardPayloadCacheTest {
+
+    private final ObjectMapper json = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final ObjectMapper smile = new ObjectMapper(new SmileFactory()).configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private BoardPayloadCache payloadCache;
+
+    @BeforeEach
+    void setUp() {
+        payloadCache = new BoardPayloadCache(json, new WireConfig(new Jackson2ObjectMapperBuilder(), true), 2);
+    }
+
+    private static Board board(final String joinKey) {
+        return new Board(joinKey, "title " + joinKey, null, new TreeSet<>(), new Timestamp(12345L));
+    }
+
+    @Test
+    void sameVersionIsEncodedOnce() throws Exception {
+        final Board board = board("aaaaaa");
+        final byte[] first = payloadCache.encode(board, WireEncoding.JSON);
+        final byte[] second = payloadCache.encode(board, WireEncoding.JSON);
+
+        assertSame(first, second);
+        assertEquals(1L, payloadCache.getStats().get("hits"));
+        assertEquals(1L, payloadCache.getStats().get("misses"));
+        assertEquals((long) first.length, payloadCache.getStats().get("bytesSaved"));
+        assertEquals(0.5, payloadCache.getStats().get("hitRatio"));
+    }
+
+    @Test
+    void encodingsAreKeptApart() throws Exception {
+        final Board board = board("aaaaaa");
+        final byte[] asJson = payloadCache.encode(board, WireEncoding.JSON);
+        final byte[] asSmile = payloadCache.encode(board, WireEncoding.SMILE);
+
+        assertEquals(json.writeValueAsString(board), new String(asJson));
+        assertEquals("title aaaaaa", smile.readValue(asSmile, Board.class).getTitle());
+        assertEquals(0L, payloadCache.getStats().get("hits"));
+    }
+
+    @Test
+    void newVersionIsEncodedAgain() throws Exception {
+        final Board board = board("aaaaaa");
+        final byte[] first = payloadCache.encode(board, WireEncoding.JSON);
+
+        board.setTitle("renamed");
+        board.setSequence(1);
+        final byte[] second = payloadCache.encode(board, WireEncoding.JSON);
+
+        assertNotSame(first, second);
+        assertEquals("renamed", json.readValue(second, Board.class).getTitle());
+    }
+
+    @Test
+    void invalidateDropsTheBoard() throws Exception {
+        final Board board = board("aaaaaa");
+        payloadCache.encode(board, WireEncoding.JSON);
+        payloadCache.invalidate("aaaaaa");
+        payloadCache.encode(board, WireEncoding.JSON);
+
+        assertEquals(0L, payloadCache.getStats().get("hits"));
+        assertEquals(2L, payloadCache.getStats().get("misses"));
+    }
+
+    @Test
+    void leastRecentlyUsedBoardIsDropped() throws Exception {
+        payloadCache.encode(board("aaaaaa"), WireEncoding.JSON);
+        payloadCache.encode(board("bbbbbb"), WireEncoding.JSON);
+        payloadCache.encode(board("cccccc"), WireEncoding.JSON);
+
+        assertEquals(2, payloadCache.getStats().get("boards"));
+    }
+
+    @Test
+    void listIsPutTogetherFromEncodedBoards() throws Exception {
+        final List<Board> boards = Arrays.asList(board("aaaaaa"), null, board("bbbbbb"));
+        final List<byte[]> asJson = new ArrayList<>();
+        final List<byte[]> asSmile = new ArrayList<>();
+        for (final Board board : boards) {
+            asJson.add(board == null ? null : payloadCache.encode(board, WireEncoding.JSON));
+            asSmile.add(board == null ? null : payloadCache.encode(board, WireEncoding.SMILE));
+        }
+
+        assertEquals(json.writeValueAsString(boards), new String(payloadCache.encodeAll(asJson, WireEncoding.JSON)));
+        final Board[] fromSmile = smile.readValue(payloadCache.encodeAll(asSmile, WireEncoding.SMILE), Board[].class);
+        assertEquals(json.writeValueAsString(boards), json.writeValueAsString(fromSmile));
+    }
+}
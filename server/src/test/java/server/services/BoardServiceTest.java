@@ -0,0 +1,644 @@
+package server.services;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.Board;
+import commons.BoardEventType;
+import commons.Card;
+import commons.Column;
+import commons.DTOs.BoardChangesDTO;
+import commons.DTOs.BoardEventDTO;
+import commons.DTOs.BoardSummaryDTO;
+import commons.SubTask;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import server.api.exceptions.ConflictingChangeException;
+import server.api.exceptions.ResourceNotFoundException;
+import server.api.exceptions.UnauthorizedResourceException;
+import server.database.BoardCredentials;
+import server.database.BoardEvent;
+import server.database.BoardRepository;
+import server.database.CardRepository;
+import server.database.ColumnRepository;
+import server.database.SubTaskRepository;
+import server.metrics.BoardMetrics;
+import server.storage.BoardStore;
+import server.storage.JpaBoardStore;
+
+import javax.persistence.EntityManager;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class BoardServiceTest {
+
+    private BoardRepository repository;
+    private CardRepository cardRepository;
+    private ColumnRepository columnRepository;
+    private SubTaskRepository subTaskRepository;
+    private BoardExecutor boardExecutor;
+    private BoardEventLog eventLog;
+    private BoardService boardService;
+
+    private final BoardCopier boardCopier =
+            new BoardCopier(new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false));
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(BoardRepository.class);
+        when(repository.findRenderGraphByJoinKey(anyString())).thenReturn(Optional.empty());
+        when(repository.save(any(Board.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        cardRepository = mock(CardRepository.class);
+        columnRepository = mock(ColumnRepository.class);
+        subTaskRepository = mock(SubTaskRepository.class);
+        boardExecutor = new BoardExecutor(2, false);
+        eventLog = mock(BoardEventLog.class);
+        boardService = boardService(2, 50);
+    }
+
+    @AfterEach
+    void tearDown() {
+        boardExecutor.shutdown();
+    }
+
+    private BoardService boardService(final int cacheSize, final long flushDelay) {
+        final JpaBoardStore store = new JpaBoardStore(repository, cardRepository, columnRepository, subTaskRepository,
+                mock(EntityManager.class));
+        return new BoardService(store, mock(PlatformTransactionManager.class), boardExecutor, eventLog, mock(JoinKeyPool.class),
+                new BoardMetrics(new SimpleMeterRegistry()), boardCopier, cacheSize, flushDelay, 2, 1, 3);
+    }
+
+    private String rename(final String joinKey, final String title) {
+        return boardService.mutate(joinKey, () -> {
+            final Board board = boardService.getBoardWithKey(joinKey);
+            board.setTitle(title);
+            boardService.saveBoard(board);
+            return board.getTitle();
+        });
+    }
+
+    private Board board(final String joinKey) {
+        return new Board(joinKey, "title", "password", new TreeSet<>());
+    }
+
+    @Test
+    void getBoardIsLoadedOnce() {
+        final Board board = board("aaaaaa");
+        when(repository.findRenderGraphByJoinKey("aaaaaa")).thenReturn(Optional.of(board));
+
+        assertSame(board, boardService.getBoardWithKey("aaaaaa"));
+        assertSame(board, boardService.getBoardWithKeyAndPassword("aaaaaa", "password"));
+        assertSame(board, boardService.getBoardWithKeyUnsafe("aaaaaa"));
+
+        verify(repository, times(1)).findRenderGraphByJoinKey("aaaaaa");
+    }
+
+    @Test
+    void getBoardNotFound() {
+        assertThrows(ResourceNotFoundException.class, () -> boardService.getBoardWithKey("bbbbbb"));
+        assertNull(boardService.getBoardWithKeyUnsafe("bbbbbb"));
+    }
+
+    @Test
+    void getBoardWrongPassword() {
+        boardService.saveBoard(board("aaaaaa"));
+        assertThrows(UnauthorizedResourceException.class, () -> boardService.getBoardWithKeyAndPassword("aaaaaa", "wrong"));
+    }
+
+    @Test
+    void getBoardWrongPasswordDoesNotLoadBoard() {
+        final BoardCredentials credentials = mock(BoardCredentials.class);
+        when(credentials.getPassword()).thenReturn("password");
+        when(repository.findCredentialsByJoinKey("aaaaaa")).thenReturn(Optional.of(credentials));
+        when(repository.findRenderGraphByJoinKey("aaaaaa")).thenReturn(Optional.of(board("aaaaaa")));
+
+        assertThrows(UnauthorizedResourceException.class, () -> boardService.getBoardWithKeyAndPassword("aaaaaa", "wrong"));
+        verify(repository, never()).findRenderGraphByJoinKey("aaaaaa");
+
+        assertNotNull(boardService.getBoardWithKeyAndPassword("aaaaaa", "password"));
+        verify(repository, times(1)).findRenderGraphByJoinKey("aaaaaa");
+    }
+
+    @Test
+    void getExistingJoinKeys() {
+        boardService.saveBoard(board("aaaaaa"));
+        when(repository.findExistingJoinKeys(Set.of("bbbbbb", "cccccc"))).thenReturn(Set.of("bbbbbb"));
+
+        assertEquals(Set.of("aaaaaa", "bbbbbb"), boardService.getExistingJoinKeys(List.of("aaaaaa", "bbbbbb", "cccccc")));
+        verify(repository, times(1)).findExistingJoinKeys(any());
+    }
+
+    @Test
+    void getExistingJoinKeysCachedOnly() {
+        boardService.saveBoard(board("aaaaaa"));
+
+        assertEquals(Set.of("aaaaaa"), boardService.getExistingJoinKeys(List.of("aaaaaa")));
+        verify(repository, never()).findExistingJoinKeys(any());
+    }
+
+    @Test
+    void saveBoardIsServedFromMemory() {
+        final Board board = board("aaaaaa");
+        boardService.saveBoard(board);
+
+        assertSame(board, boardService.getBoardWithKey("aaaaaa"));
+        verify(repository, never()).findRenderGraphByJoinKey("aaaaaa");
+    }
+
+    @Test
+    void saveBoardWritesAreMerged() {
+        final Board board = board("aaaaaa");
+        boardService.saveBoard(board);
+        boardService.saveBoard(board);
+        boardService.saveBoard(board);
+
+        verify(repository, timeout(1000).times(1)).save(board);
+        verify(repository, after(200).times(1)).save(board);
+    }
+
+    @Test
+    void saveBoardWriteThrough() {
+        boardService = boardService(2, 0);
+        final Board board = board("aaaaaa");
+        boardService.saveBoard(board);
+
+        verify(repository, times(1)).save(board);
+    }
+
+    @Test
+    void boardSavedTwiceInMutationIsWrittenOnce() {
+        boardService = boardService(2, 0);
+        final Board board = board("aaaaaa");
+        when(repository.findRenderGraphByJoinKey("aaaaaa")).thenReturn(Optional.of(board));
+
+        boardService.mutateWithoutResult("aaaaaa", () -> {
+            final Board loaded = boardService.getBoardWithKey("aaaaaa");
+            loaded.setTitle("first");
+            boardService.saveBoard(loaded);
+            loaded.setTitle("second");
+            boardService.saveBoard(loaded);
+            verify(repository, never()).save(any(Board.class));
+        });
+
+        verify(repository, times(1)).save(board);
+        assertEquals("second", boardService.getBoardWithKey("aaaaaa").getTitle());
+    }
+
+    @Test
+    void summaryOfCachedBoardWaitsForRunningMutation() throws Exception {
+        final Board board = board("aaaaaa");
+        boardService.saveBoard(board);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<Void> mutation = CompletableFuture.runAsync(() -> boardService.mutateWithoutResult("aaaaaa", () -> {
+            board.setTitle("halfway");
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            board.setTitle("renamed");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        final CompletableFuture<List<BoardSummaryDTO>> summaries =
+                CompletableFuture.supplyAsync(() -> boardService.getBoardSummaries(List.of("aaaaaa")));
+        release.countDown();
+
+        mutation.get(5, TimeUnit.SECONDS);
+        assertEquals("renamed", summaries.get(5, TimeUnit.SECONDS).get(0).getTitle());
+    }
+
+    @Test
+    void flushAll() {
+        final Board board = board("aaaaaa");
+        boardService = boardService(2, 60_000);
+        boardService.saveBoard(board);
+        verify(repository, never()).save(board);
+
+        boardService.flushAll();
+        verify(repository, times(1)).save(board);
+
+        boardService.flushAll();
+        verify(repository, times(1)).save(board);
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvicted() {
+        final Board first = board("aaaaaa");
+        final Board second = board("bbbbbb");
+        final Board third = board("cccccc");
+        when(repository.findRenderGraphByJoinKey("aaaaaa")).thenReturn(Optional.of(first));
+        when(repository.findRenderGraphByJoinKey("bbbbbb")).thenReturn(Optional.of(second));
+        when(repository.findRenderGraphByJoinKey("cccccc")).thenReturn(Optional.of(third));
+
+        boardService.getBoardWithKey("aaaaaa");
+        boardService.getBoardWithKey("bbbbbb");
+        boardService.getBoardWithKey("aaaaaa");
+        boardService.getBoardWithKey("cccccc");
+
+        assertEquals(2, boardService.getCachedBoardCount());
+        boardService.getBoardWithKey("aaaaaa");
+        boardService.getBoardWithKey("bbbbbb");
+        verify(repository, times(1)).findRenderGraphByJoinKey("aaaaaa");
+        verify(repository, times(2)).findRenderGraphByJoinKey("bbbbbb");
+    }
+
+    @Test
+    void changedBoardIsNotEvicted() {
+        boardService = boardService(1, 60_000);
+        final Board changed = board("aaaaaa");
+        final Board other = board("bbbbbb");
+        when(repository.findRenderGraphByJoinKey("bbbbbb")).thenReturn(Optional.of(other));
+
+        boardService.saveBoard(changed);
+        boardService.getBoardWithKey("bbbbbb");
+
+        assertSame(changed, boardService.getBoardWithKey("aaaaaa"));
+        verify(repository, never()).findRenderGraphByJoinKey("aaaaaa");
+    }
+
+    @Test
+    void deleteBoardDropsPendingWrite() {
+        boardService = boardService(2, 60_000);
+        final Board board = board("aaaaaa");
+        boardService.saveBoard(board);
+        boardService.deleteBoard(board);
+        boardService.flushAll();
+
+        verify(repository, never()).save(board);
+        verify(repository, times(1)).delete(board);
+        assertNull(boardService.getBoardWithKeyUnsafe("aaaaaa"));
+    }
+
+    /**
+     * Gives an entity the database id it would have after it was stored
+     * @param entity Card or subtask
+     * @param serializationId Database id
+     * @param <T> Type of the entity
+     * @return the same entity
+     */
+    private static <T> T stored(final T entity, final long serializationId) {
+        ReflectionTestUtils.setField(entity, "serializationId", serializationId);
+        return entity;
+    }
+
+    @Test
+    void saveCardFieldsOnlyUpdatesCard() {
+        final Board board = board("aaaaaa");
+        final Card card = stored(new Card(1L, "card", 0, "description", new TreeSet<>(), new HashSet<>()), 11L);
+        when(repository.findRenderGraphByJoinKey("aaaaaa")).thenReturn(Optional.of(board));
+        when(cardRepository.updateFields(anyLong(), any(), any(), any())).thenReturn(1);
+
+        boardService.saveCardFields(boardService.getBoardWithKey("aaaaaa"), card);
+
+        verify(cardRepository, times(1)).updateFields(11L, "card", "description", card.getIsDefaultThemed());
+        verify(repository, after(200).never()).save(any(Board.class));
+    }
+
+    @Test
+    void targetedWriteOfRowThatIsNotStoredSavesWholeBoard() {
+        final Board board = board("aaaaaa");
+        final Card card = new Card(1L, "card", 0, "description", new TreeSet<>(), new HashSet<>());
+        when(repository.findRenderGraphByJoinKey("aaaaaa")).thenReturn(Optional.of(board));
+
+        boardService.saveCardFields(boardService.getBoardWithKey("aaaaaa"), card);
+
+        verify(cardRepository, times(1)).updateFields(0L, "card", "description", card.getIsDefaultThemed());
+        verify(repository, timeout(1000).times(1)).save(board);
+    }
+
+    @Test
+    void saveSubTaskToggledOnlyUpdatesSubTask() {
+        final Board board = board("aaaaaa");
+        final SubTask subTask = stored(new SubTask("task", true, 3L), 13L);
+        when(repository.findRenderGraphByJoinKey("aaaaaa")).thenReturn(Optional.of(board));
+        when(subTaskRepository.updateIsDone(anyLong(), anyBoolean())).thenReturn(1);
+
+        boardService.saveSubTaskToggled(boardService.getBoardWithKey("aaaaaa"), subTask);
+
+        verify(subTaskRepository, times(1)).updateIsDone(13L, true);
+        verify(repository, after(200).never()).save(any(Board.class));
+    }
+
+    @Test
+    void saveCardMovedOnlyUpdatesRank() {
+        final Board board = board("aaaaaa");
+        final Column column = new Column(5L, "column", 0, new TreeSet<>());
+        final Card card = stored(new Card(1L, "card", 1, "description", new TreeSet<>(), new HashSet<>()), 11L);
+        card.setRank("i");
+        when(repository.findRenderGraphByJoinKey("aaaaaa")).thenReturn(Optional.of(board));
+        when(cardRepository.updateRank(anyLong(), any())).thenReturn(1);
+
+        boardService.saveCardMoved(boardService.getBoardWithKey("aaaaaa"), column, column, card, false);
+
+        verify(cardRepository, times(1)).updateRank(11L, "i");
+        verify(columnRepository, never()).removeCard(anyLong(), anyLong());
+        verify(repository, after(200).never()).save(any(Board.class));
+    }
+
+    @Test
+    void saveCardMovedRebalancedSavesWholeBoard() {
+        final Board board = board("aaaaaa");
+        final Column column = new Column(5L, "column", 0, new TreeSet<>());
+        final Card card = new Card(1L, "card", 1, "description", new TreeSet<>(), new HashSet<>());
+        when(repository.findRenderGraphByJoinKey("aaaaaa")).thenReturn(Optional.of(board));
+
+        boardService.saveCardMoved(boardService.getBoardWithKey("aaaaaa"), column, column, card, true);
+
+        verify(cardRepository, never()).updateRank(anyLong(), any());
+        verify(repository, timeout(1000).times(1)).save(board);
+    }
+
+    @Test
+    void targetedWriteOnChangedBoardSavesWholeBoard() {
+        final Board board = board("aaaaaa");
+        final Card card = new Card(1L, "card", 0, "description", new TreeSet<>(), new HashSet<>());
+        boardService.saveBoard(board);
+
+        boardService.saveCardFields(board, card);
+
+        verify(cardRepository, never()).updateFields(anyLong(), anyString(), anyString(), any());
+        verify(repository, timeout(1000).times(1)).save(board);
+    }
+
+    @Test
+    void failedTargetedWriteSavesWholeBoard() {
+        final Board board = board("aaaaaa");
+        final Card card = new Card(1L, "card", 0, "description", new TreeSet<>(), new HashSet<>());
+        when(repository.findRenderGraphByJoinKey("aaaaaa")).thenReturn(Optional.of(board));
+        when(cardRepository.updateFields(anyLong(), any(), any(), any())).thenThrow(new IllegalStateException());
+
+        boardService.saveCardFields(boardService.getBoardWithKey("aaaaaa"), card);
+
+        verify(repository, timeout(1000).times(1)).save(board);
+    }
+
+    @Test
+    void conflictingMutationIsRetriedOnReloadedBoard() {
+        boardService = boardService(2, 0);
+        when(repository.findRenderGraphByJoinKey("aaaaaa")).thenAnswer(invocation -> Optional.of(board("aaaaaa")));
+        when(repository.save(any(Board.class)))
+                .thenThrow(new OptimisticLockingFailureException("conflict"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        boardService.getBoardWithKey("aaaaaa");
+
+        assertEquals("renamed", rename("aaaaaa", "renamed"));
+
+        verify(repository, times(2)).findRenderGraphByJoinKey("aaaaaa");
+        assertEquals(1L, boardService.getConflictCounts().get("aaaaaa"));
+        assertEquals(1L, boardService.getRetryCounts().get("aaaaaa"));
+        assertEquals("renamed", boardService.getBoardWithKey("aaaaaa").getTitle());
+    }
+
+    @Test
+    void conflictingMutationGivesUp() {
+        boardService = boardService(2, 0);
+        when(repository.findRenderGraphByJoinKey("aaaaaa")).thenAnswer(invocation -> Optional.of(board("aaaaaa")));
+        when(repository.save(any(Board.class))).thenThrow(new OptimisticLockingFailureException("conflict"));
+
+        assertThrows(ConflictingChangeException.class, () -> rename("aaaaaa", "renamed"));
+
+        assertEquals(3L, boardService.getConflictCounts().get("aaaaaa"));
+        assertEquals(2L, boardService.getRetryCounts().get("aaaaaa"));
+    }
+
+    @Test
+    void wrappedConflictIsRetried() {
+        boardService = boardService(2, 0);
+        when(repository.findRenderGraphByJoinKey("aaaaaa")).thenAnswer(invocation -> Optional.of(board("aaaaaa")));
+        when(repository.save(any(Board.class)))
+                .thenThrow(new OptimisticLockingFailureException("conflict"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // like the controllers, the mutation turns every failure into its own exception without a cause
+        final String title = boardService.mutate("aaaaaa", () -> {
+            try {
+                final Board board = boardService.getBoardWithKey("aaaaaa");
+                board.setTitle("renamed");
+                boardService.saveBoard(board);
+                return board.getTitle();
+            } catch (RuntimeException e) {
+                throw new IllegalStateException(e.toString());
+            }
+        });
+
+        assertEquals("renamed", title);
+    }
+
+    @Test
+    void nestedConflictIsRetriedWithOuterMutation() {
+        boardService = boardService(2, 0);
+        when(repository.findRenderGraphByJoinKey("aaaaaa")).thenAnswer(invocation -> Optional.of(board("aaaaaa")));
+        when(repository.save(any(Board.class)))
+                .thenThrow(new OptimisticLockingFailureException("conflict"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertEquals("renamed", boardService.mutate("aaaaaa", () -> rename("aaaaaa", "renamed")));
+
+        assertEquals(1L, boardService.getRetryCounts().get("aaaaaa"));
+        assertEquals("renamed", boardService.getBoardWithKey("aaaaaa").getTitle());
+    }
+
+    @Test
+    void conflictingBackgroundWriteReplaysLoggedChanges() {
+        boardService = boardService(2, 60_000);
+        final Board stored = board("aaaaaa");
+        stored.setSequence(1);
+        stored.setLoggedSequence(3);
+        final List<BoardEvent> missed = List.of(mock(BoardEvent.class), mock(BoardEvent.class));
+        when(repository.findRenderGraphByJoinKey("aaaaaa")).thenReturn(Optional.of(stored));
+        when(eventLog.getEventsSince("aaaaaa", 1)).thenReturn(missed);
+        when(eventLog.replay(stored, missed)).thenReturn(2);
+
+        final Board changed = board("aaaaaa");
+        when(repository.save(same(changed))).thenThrow(new OptimisticLockingFailureException("conflict"));
+        boardService.saveBoard(changed);
+        boardService.flushAll();
+
+        // the logged changes are replayed onto the board that someone else stored, which is written in their place
+        verify(eventLog, times(1)).replay(stored, missed);
+        assertSame(stored, boardService.getBoardWithKeyUnsafe("aaaaaa"));
+        boardService.flushAll();
+        verify(repository, times(1)).save(same(stored));
+        assertEquals(1L, boardService.getConflictCounts().get("aaaaaa"));
+    }
+
+    @Test
+    void otherFailuresAreNotRetried() {
+        assertThrows(IllegalStateException.class, () -> boardService.mutate("aaaaaa", () -> {
+            throw new IllegalStateException();
+        }));
+        assertNull(boardService.getRetryCounts().get("aaaaaa"));
+    }
+
+    @Test
+    void recordEventOnSavedBoardAdvancesSavedSequence() {
+        boardService = boardService(2, 0);
+        final Board board = board("aaaaaa");
+        boardService.saveBoard(board);
+        doAnswer(invocation -> {
+            board.setSequence(1);
+            board.setLoggedSequence(1);
+            return null;
+        }).when(eventLog).append(board, BoardEventType.BOARD_RENAMED, "renamed");
+
+        boardService.recordEvent("aaaaaa", BoardEventType.BOARD_RENAMED, "renamed");
+
+        verify(repository, times(1)).updateSequence("aaaaaa", 1);
+        verify(repository, never()).updateLoggedSequence(anyString(), anyLong());
+    }
+
+    @Test
+    void recordEventOnPendingBoardOnlyAdvancesLog() {
+        boardService = boardService(2, 60_000);
+        final Board board = board("aaaaaa");
+        boardService.saveBoard(board);
+        doAnswer(invocation -> {
+            board.setSequence(1);
+            board.setLoggedSequence(1);
+            return null;
+        }).when(eventLog).append(board, BoardEventType.BOARD_RENAMED, "renamed");
+
+        boardService.recordEvent("aaaaaa", BoardEventType.BOARD_RENAMED, "renamed");
+
+        verify(repository, times(1)).updateLoggedSequence("aaaaaa", 1);
+        verify(repository, never()).updateSequence(anyString(), anyLong());
+    }
+
+    @Test
+    void failedRecordEventEvictsBoard() {
+        boardService.saveBoard(board("aaaaaa"));
+        when(eventLog.append(any(), any(), any())).thenThrow(new IllegalStateException("log unavailable"));
+
+        assertThrows(IllegalStateException.class, () -> boardService.recordEvent("aaaaaa", BoardEventType.BOARD_RENAMED, "renamed"));
+        assertEquals(0, boardService.getCachedBoardCount());
+    }
+
+    @Test
+    void loadingBoardReplaysUnsavedEvents() {
+        boardService = boardService(2, 0);
+        final Board board = board("aaaaaa");
+        board.setSequence(1);
+        board.setLoggedSequence(3);
+        final List<BoardEvent> missed = List.of(mock(BoardEvent.class), mock(BoardEvent.class));
+        when(repository.findRenderGraphByJoinKey("aaaaaa")).thenReturn(Optional.of(board));
+        when(eventLog.getEventsSince("aaaaaa", 1)).thenReturn(missed);
+        when(eventLog.replay(board, missed)).thenReturn(2);
+
+        assertSame(board, boardService.getBoardWithKey("aaaaaa"));
+        verify(eventLog, times(1)).replay(board, missed);
+        verify(repository, times(1)).save(board);
+    }
+
+    @Test
+    void loadingFromStoreOutsideTransactionReplaysLoggedEvents() {
+        final BoardStore store = mock(BoardStore.class);
+        final Board board = board("aaaaaa");
+        board.setSequence(1);
+        board.setLoggedSequence(1);
+        final List<BoardEvent> missed = List.of(mock(BoardEvent.class));
+        when(store.load("aaaaaa")).thenReturn(Optional.of(board));
+        when(store.save(board)).thenReturn(board);
+        when(eventLog.getLastSequence("aaaaaa")).thenReturn(2L);
+        when(eventLog.getEventsSince("aaaaaa", 1)).thenReturn(missed);
+        when(eventLog.replay(board, missed)).thenReturn(1);
+        boardService = new BoardService(store, mock(PlatformTransactionManager.class), boardExecutor, eventLog,
+                mock(JoinKeyPool.class), new BoardMetrics(new SimpleMeterRegistry()), boardCopier, 2, 0, 2, 1, 3);
+
+        assertSame(board, boardService.getBoardWithKey("aaaaaa"));
+        assertEquals(2, board.getLoggedSequence());
+        verify(eventLog, times(1)).replay(board, missed);
+        verify(store, times(1)).save(board);
+    }
+
+    @Test
+    void loadingSavedBoardDoesNotReadLog() {
+        final Board board = board("aaaaaa");
+        board.setSequence(3);
+        board.setLoggedSequence(3);
+        when(repository.findRenderGraphByJoinKey("aaaaaa")).thenReturn(Optional.of(board));
+
+        boardService.getBoardWithKey("aaaaaa");
+        verify(eventLog, never()).getEventsSince(anyString(), anyLong());
+    }
+
+    private Board boardAt(final long sequence) {
+        final Board board = board("aaaaaa");
+        board.setSequence(sequence);
+        board.setLoggedSequence(sequence);
+        when(repository.findRenderGraphByJoinKey("aaaaaa")).thenReturn(Optional.of(board));
+        return board;
+    }
+
+    private BoardEvent event(final long sequence) {
+        return new BoardEvent("aaaaaa", sequence, BoardEventType.BOARD_RENAMED, "\"title " + sequence + "\"", 0);
+    }
+
+    @Test
+    void changesSinceKnownVersionAreEvents() {
+        boardAt(3);
+        when(eventLog.getEventsSince("aaaaaa", 1)).thenReturn(List.of(event(2), event(3)));
+
+        final BoardChangesDTO changes = boardService.getChangesSince("aaaaaa", null, 1);
+        assertNull(changes.board());
+        assertEquals(3, changes.sequence());
+        assertEquals(List.of(2L, 3L), changes.events().stream().map(BoardEventDTO::sequence).toList());
+    }
+
+    @Test
+    void changesSinceCurrentVersionAreEmpty() {
+        boardAt(3);
+
+        final BoardChangesDTO changes = boardService.getChangesSince("aaaaaa", null, 3);
+        assertNull(changes.board());
+        assertTrue(changes.events().isEmpty());
+        verify(eventLog, never()).getEventsSince(anyString(), anyLong());
+    }
+
+    @Test
+    void changesTooFarBehindAreWholeBoard() {
+        final Board board = boardAt(5);
+
+        final BoardChangesDTO changes = boardService.getChangesSince("aaaaaa", null, 1);
+        assertEquals(board, changes.board());
+        assertEquals(5, changes.board().getSequence());
+        // the board that is sent is a copy, the cached board may change while the response is written
+        assertNotSame(board, changes.board());
+        verify(eventLog, never()).getEventsSince(anyString(), anyLong());
+    }
+
+    @Test
+    void changesMissingFromLogAreWholeBoard() {
+        final Board board = boardAt(3);
+        when(eventLog.getEventsSince("aaaaaa", 0)).thenReturn(List.of(event(3)));
+
+        assertEquals(board, boardService.getChangesSince("aaaaaa", null, 0).board());
+    }
+
+    @Test
+    void changesSinceUnknownVersionAreWholeBoard() {
+        final Board board = boardAt(3);
+
+        assertEquals(board, boardService.getChangesSince("aaaaaa", null, 7).board());
+    }
+}
@@ -0,0 +1,86 @@
+package server.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import server.storage.BoardStore;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class JoinKeyPoolTest {
+
+    private JoinKeyPool joinKeyPool;
+
+    @AfterEach
+    void tearDown() {
+        if (joinKeyPool != null) joinKeyPool.shutdown();
+    }
+
+    private JoinKeyPool joinKeyPool(final Stream<String> existing, final int poolSize) {
+        final BoardStore store = mock(BoardStore.class);
+        doAnswer(invocation -> {
+            existing.forEach(invocation.<Consumer<String>>getArgument(0));
+            return null;
+        }).when(store).forEachJoinKey(any());
+        joinKeyPool = new JoinKeyPool(store, poolSize);
+        return joinKeyPool;
+    }
+
+    @Test
+    void keysAreHexadecimal() {
+        final String joinKey = joinKeyPool(Stream.empty(), 4).take();
+
+        assertEquals(6, joinKey.length());
+        assertTrue(joinKey.matches("[0-9a-f]{6}"));
+    }
+
+    @Test
+    void keysAreNeverHandedOutTwice() {
+        final JoinKeyPool pool = joinKeyPool(Stream.empty(), 8);
+        final Set<String> joinKeys = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(joinKeys.add(pool.take()));
+        }
+    }
+
+    @Test
+    void concurrentTakesGetDifferentKeys() {
+        final JoinKeyPool pool = joinKeyPool(Stream.empty(), 16);
+        final List<CompletableFuture<List<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> IntStream.range(0, 1000).mapToObj(j -> pool.take()).toList()));
+        }
+
+        final Set<String> joinKeys = new HashSet<>();
+        futures.forEach(future -> joinKeys.addAll(future.join()));
+        assertEquals(8000, joinKeys.size());
+    }
+
+    @Test
+    void existingKeysAreNotHandedOut() {
+        // every key except the last one already belongs to a board
+        final JoinKeyPool pool = joinKeyPool(IntStream.range(0, JoinKeyPool.KEY_COUNT - 1).mapToObj(JoinKeyPool::format), 1);
+
+        assertEquals("ffffff", pool.take());
+        assertThrows(IllegalStateException.class, pool::take);
+    }
+
+    @Test
+    void keysOfOtherFormatsAreIgnored() {
+        assertEquals(-1, JoinKeyPool.indexOf("joinkey"));
+        assertEquals(-1, JoinKeyPool.indexOf("ABCDEF"));
+        assertEquals(0xabcdef, JoinKeyPool.indexOf("abcdef"));
+        assertEquals("00000a", JoinKeyPool.format(10));
+    }
+}
@@ -0,0 +1,341 @@
+package server.socket;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import commons.WireEncoding;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedBrokerMessageHandlerTest {
+
+    private ExecutorService outboundExecutor;
+    private ExecutorSubscribableChannel outbound;
+    private ShardedBrokerMessageHandler broker;
+    private SimpleMeterRegistry registry;
+
+    /**
+     * Payloads of the messages that were written to each session, in order
+     */
+    private List<String> fast;
+    private List<String> slow;
+    private CountDownLatch slowReleased;
+
+    /**
+     * Number of messages that were written as Smile, the payloads of those messages are converted back to JSON above
+     */
+    private AtomicInteger smileFrames;
+
+    @BeforeEach
+    void setUp() {
+        fast = Collections.synchronizedList(new ArrayList<>());
+        slow = Collections.synchronizedList(new ArrayList<>());
+        slowReleased = new CountDownLatch(1);
+        smileFrames = new AtomicInteger();
+        registry = new SimpleMeterRegistry();
+
+        outboundExecutor = Executors.newFixedThreadPool(4);
+        outbound = new ExecutorSubscribableChannel(outboundExecutor);
+        outbound.subscribe(message -> {
+            final SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+            if (accessor.getMessageType() != SimpMessageType.MESSAGE) return;
+            if ("fast".equals(accessor.getSessionId())) {
+                fast.add(read(accessor.getContentType(), (byte[]) message.getPayload()));
+                return;
+            }
+            // the slow client does not read anything until it is released
+            try {
+                slowReleased.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            slow.add(new String((byte[]) message.getPayload()));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        slowReleased.countDown();
+        if (broker != null) broker.stop();
+        outboundExecutor.shutdownNow();
+    }
+
+    private void start(final int queueSize, final String policy) {
+        broker = new ShardedBrokerMessageHandler(new ExecutorSubscribableChannel(), outbound, new ExecutorSubscribableChannel(),
+                2, queueSize, policy, true, registry);
+        broker.start();
+    }
+
+    private String read(final MimeType contentType, final byte[] payload) {
+        if (contentType == null || !MimeType.valueOf(WireEncoding.SMILE_FRAME).equals(contentType)) return new String(payload);
+        smileFrames.incrementAndGet();
+        try {
+            return new String(ShardedBrokerMessageHandler.transcode(new SmileFactory(), new JsonFactory(), payload));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void connect(final String sessionId, final String accepted) {
+        final SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+        accessor.setSessionId(sessionId);
+        if (accepted != null) accessor.setNativeHeader(WireEncoding.ACCEPT_HEADER, accepted);
+        broker.handleMessage(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+    }
+
+    private void subscribe(final String sessionId, final String destination) {
+        final SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(sessionId + destination);
+        accessor.setDestination(destination);
+        broker.handleMessage(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+    }
+
+    private void unsubscribe(final String sessionId, final String destination) {
+        final SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(sessionId + destination);
+        broker.handleMessage(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+    }
+
+    private void disconnect(final String sessionId) {
+        final SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.DISCONNECT);
+        accessor.setSessionId(sessionId);
+        broker.handleMessage(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+    }
+
+    private void publish(final String destination, final String payload) {
+        final SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        final Message<byte[]> message = MessageBuilder.createMessage(payload.getBytes(), accessor.getMessageHeaders());
+        broker.handleMessage(message);
+    }
+
+    private static void awaitSize(final List<String> received, final int size) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (received.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(size, received.size());
+    }
+
+    private void awaitCount(final String counter, final long count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (broker.getSlowConsumerCounts().get(counter) < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, broker.getSlowConsumerCounts().get(counter));
+    }
+
+    @Test
+    void messagesOfBoardArriveInOrder() throws InterruptedException {
+        start(1000, "disconnect");
+        subscribe("fast", "/topic/cards/aaaaaa/add");
+
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            publish("/topic/cards/aaaaaa/add", "card " + i);
+            expected.add("card " + i);
+        }
+
+        awaitSize(fast, 500);
+        assertEquals(expected, fast);
+
+        // the fanout of the last message is recorded right after it was queued
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (broker.getFanoutStats().get("aaaaaa").get("messages") < 500 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(500, broker.getFanoutStats().get("aaaaaa").get("messages"));
+    }
+
+    @Test
+    void fanoutOfBoardIsForgottenWithItsLastSubscription() {
+        start(100, "disconnect");
+        subscribe("fast", "/topic/cards/aaaaaa/add");
+        subscribe("fast", "/topic/cards/aaaaaa/remove");
+        subscribe("slow", "/topic/cards/aaaaaa/add");
+        subscribe("slow", "/topic/cards/bbbbbb/add");
+        assertEquals(Set.of("aaaaaa", "bbbbbb"), broker.getFanoutStats().keySet());
+
+        unsubscribe("fast", "/topic/cards/aaaaaa/add");
+        disconnect("fast");
+        assertEquals(Set.of("aaaaaa", "bbbbbb"), broker.getFanoutStats().keySet());
+
+        unsubscribe("slow", "/topic/cards/aaaaaa/add");
+        assertEquals(Set.of("bbbbbb"), broker.getFanoutStats().keySet());
+
+        disconnect("slow");
+        assertTrue(broker.getFanoutStats().isEmpty());
+    }
+
+    @Test
+    void slowSessionDoesNotHoldUpOthers() throws InterruptedException {
+        start(100, "disconnect");
+        subscribe("fast", "/topic/cards/aaaaaa/add");
+        subscribe("slow", "/topic/cards/aaaaaa/add");
+
+        for (int i = 0; i < 20; i++) {
+            publish("/topic/cards/aaaaaa/add", "card " + i);
+        }
+
+        awaitSize(fast, 20);
+        assertTrue(slow.isEmpty());
+
+        slowReleased.countDown();
+        awaitSize(slow, 20);
+    }
+
+    @Test
+    void slowSessionIsDisconnected() throws InterruptedException {
+        start(4, "disconnect");
+        subscribe("slow", "/topic/cards/aaaaaa/add");
+
+        for (int i = 0; i < 10; i++) {
+            publish("/topic/cards/aaaaaa/add", "card " + i);
+        }
+
+        awaitCount("disconnected", 1);
+        assertTrue(broker.getQueueDepths().isEmpty());
+    }
+
+    @Test
+    void slowSessionDropsOldestMessages() throws InterruptedException {
+        start(2, "drop-oldest");
+        subscribe("slow", "/topic/cards/aaaaaa/add");
+
+        // the first message is in flight, the next ones wait in the queue of two
+        for (int i = 0; i < 5; i++) {
+            publish("/topic/cards/aaaaaa/add", "card " + i);
+        }
+        awaitCount("dropped", 2);
+
+        slowReleased.countDown();
+        awaitSize(slow, 3);
+        assertEquals(List.of("card 0", "card 3", "card 4"), slow);
+    }
+
+    @Test
+    void slowSessionConflatesMessagesPerTopic() throws InterruptedException {
+        start(2, "conflate");
+        subscribe("slow", "/topic/boards/aaaaaa/rename");
+        subscribe("slow", "/topic/boards/aaaaaa/set-password");
+
+        publish("/topic/boards/aaaaaa/rename", "first");
+        publish("/topic/boards/aaaaaa/rename", "second");
+        publish("/topic/boards/aaaaaa/set-password", "password");
+        publish("/topic/boards/aaaaaa/rename", "third");
+        awaitCount("conflated", 1);
+
+        slowReleased.countDown();
+        awaitSize(slow, 3);
+        assertEquals(List.of("first", "third", "password"), slow);
+    }
+
+    @Test
+    void slowSessionDoesNotConflateAddedCardsButIsToldToResync() throws InterruptedException {
+        start(2, "conflate");
+        subscribe("slow", "/topic/cards/aaaaaa/add");
+        subscribe("slow", ShardedBrokerMessageHandler.resyncDestination("aaaaaa"));
+
+        // the first message is in flight, the next ones wait in the queue of two
+        for (int i = 0; i < 5; i++) {
+            publish("/topic/cards/aaaaaa/add", "card " + i);
+        }
+        awaitCount("dropped", 2);
+        assertEquals(0, broker.getSlowConsumerCounts().get("conflated"));
+
+        // a single marker is queued after the messages that are left, and is not dropped for the last message
+        slowReleased.countDown();
+        awaitSize(slow, 4);
+        assertEquals(List.of("card 0", "card 3", "aaaaaa", "card 4"), slow);
+    }
+
+    @Test
+    void sessionThatAcceptsSmileGetsSmile() throws InterruptedException {
+        start(100, "disconnect");
+        connect("fast", WireEncoding.SMILE);
+        subscribe("fast", "/topic/cards/aaaaaa/add");
+
+        publish("/topic/cards/aaaaaa/add", "{\"title\":\"card\",\"subtasks\":[1,2,3]}");
+        publish("/topic/cards/aaaaaa/add", "not json");
+
+        awaitSize(fast, 2);
+        assertEquals(List.of("{\"title\":\"card\",\"subtasks\":[1,2,3]}", "not json"), fast);
+        assertEquals(1, smileFrames.get());
+    }
+
+    @Test
+    void broadcastsAreMeasuredPerTopicAndEncoding() throws InterruptedException {
+        start(100, "disconnect");
+        connect("fast", WireEncoding.SMILE);
+        subscribe("fast", "/topic/cards/aaaaaa/add");
+        subscribe("slow", "/topic/cards/aaaaaa/add");
+
+        publish("/topic/cards/aaaaaa/add", "{\"title\":\"card\"}");
+
+        // the fan out is measured once the message was queued for every subscriber
+        final long deadline = System.currentTimeMillis() + 5000;
+        DistributionSummary subscribers = registry.find("talio.broadcast.subscribers").tag("topic", "cards/add").summary();
+        while ((subscribers == null || subscribers.count() == 0) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+            subscribers = registry.find("talio.broadcast.subscribers").tag("topic", "cards/add").summary();
+        }
+        assertNotNull(subscribers);
+        assertEquals(1, subscribers.count());
+        assertEquals(2, subscribers.totalAmount());
+        assertEquals(16, registry.get("talio.broadcast.bytes").tag("encoding", "json").counter().count());
+        assertTrue(registry.get("talio.broadcast.bytes").tag("encoding", "smile").counter().count() > 0);
+        assertEquals(2, registry.get("talio.broadcast.sessions").gauge().value());
+    }
+
+    @Test
+    void sessionWithoutSmileGetsJson() throws InterruptedException {
+        start(100, "disconnect");
+        connect("fast", null);
+        subscribe("fast", "/topic/cards/aaaaaa/add");
+
+        publish("/topic/cards/aaaaaa/add", "{\"title\":\"card\"}");
+
+        awaitSize(fast, 1);
+        assertEquals("{\"title\":\"card\"}", fast.get(0));
+        assertEquals(0, smileFrames.get());
+    }
+
+    @Test
+    void boardIsReadFromTopic() {
+        assertEquals("aaaaaa", ShardedBrokerMessageHandler.boardOf("/topic/cards/aaaaaa/add"));
+        assertEquals("/topic/greeting", ShardedBrokerMessageHandler.boardOf("/topic/greeting"));
+    }
+
+    @Test
+    void kindIsReadFromTopic() {
+        assertEquals("cards/add", ShardedBrokerMessageHandler.topicOf("/topic/cards/aaaaaa/add"));
+        assertEquals("boards/batch", ShardedBrokerMessageHandler.topicOf("/topic/boards/aaaaaa/batch"));
+        assertEquals("/topic/greeting", ShardedBrokerMessageHandler.topicOf("/topic/greeting"));
+    }
+}
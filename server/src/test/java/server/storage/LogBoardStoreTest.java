@@ -0,0 +1,149 @@
+package server.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.Board;
+import commons.Card;
+import commons.ColorScheme;
+import commons.Column;
+import commons.Tag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import server.database.BoardCredentials;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogBoardStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private LogBoardStore store;
+
+    @AfterEach
+    void tearDown() {
+        if (store != null) store.shutdown();
+    }
+
+    private LogBoardStore open(final int segmentSize) throws IOException {
+        if (store != null) store.shutdown();
+        store = new LogBoardStore(new ObjectMapper(), directory.toString(), segmentSize, 0.5, 0, false);
+        return store;
+    }
+
+    private Board board(final String joinKey, final String title) {
+        final Board board = new Board(joinKey, title, "password", new TreeSet<>(), new Timestamp(1000), new HashSet<>());
+        final Tag tag = new Tag("tag", new ColorScheme());
+        board.addTag(tag);
+
+        final Column column = new Column("column", 0, new TreeSet<>());
+        column.generateId();
+        final Card card = new Card("card", 0, "description", new TreeSet<>(), new HashSet<>(Set.of(tag)));
+        card.generateId();
+        column.addCard(card);
+        board.addColumn(column);
+        return board;
+    }
+
+    @Test
+    void savedBoardIsLoaded() throws Exception {
+        final Board board = board("aaaaaa", "title");
+        open(1 << 16).save(board);
+
+        final Board loaded = store.load("aaaaaa").orElseThrow();
+        assertEquals(board, loaded);
+        assertNotSame(board, loaded);
+
+        // cards refer to the tags of the loaded board itself
+        final Tag tag = loaded.getTags().iterator().next();
+        assertSame(tag, loaded.getColumns().first().getCards().first().getTags().iterator().next());
+        assertTrue(store.load("bbbbbb").isEmpty());
+    }
+
+    @Test
+    void latestVersionIsLoadedAfterRestart() throws Exception {
+        open(1 << 16);
+        final Board first = board("aaaaaa", "first");
+        store.save(first);
+        first.setTitle("second");
+        store.save(first);
+        store.save(board("bbbbbb", "other"));
+        store.delete(board("bbbbbb", "other"));
+        store.updateLoggedSequence("aaaaaa", 4);
+
+        open(1 << 16);
+        final Board loaded = store.load("aaaaaa").orElseThrow();
+        assertEquals("second", loaded.getTitle());
+        assertEquals(4, loaded.getLoggedSequence());
+        assertEquals(0, loaded.getSequence());
+        assertTrue(store.load("bbbbbb").isEmpty());
+        assertEquals(Set.of("aaaaaa"), store.findExistingJoinKeys(List.of("aaaaaa", "bbbbbb")));
+    }
+
+    @Test
+    void credentialsAreReadFromIndex() throws Exception {
+        open(1 << 16).save(board("aaaaaa", "title"));
+
+        final BoardCredentials credentials = store.findCredentials("aaaaaa").orElseThrow();
+        assertEquals("aaaaaa", credentials.getJoinKey());
+        assertEquals("password", credentials.getPassword());
+        assertTrue(store.findCredentials("bbbbbb").isEmpty());
+    }
+
+    @Test
+    void boardsArePagedInOrder() throws Exception {
+        open(1 << 16);
+        store.save(board("cccccc", "title"));
+        store.save(board("aaaaaa", "title"));
+        store.save(board("bbbbbb", "title"));
+
+        final List<String> page = new ArrayList<>();
+        store.forEachBoardAfter(new Timestamp(1000), "aaaaaa", 10, board -> page.add(board.getJoinKey()));
+        assertEquals(List.of("bbbbbb", "cccccc"), page);
+    }
+
+    @Test
+    void compactionKeepsLatestVersions() throws Exception {
+        open(4096);
+        final Board board = board("aaaaaa", "title");
+        store.save(board("bbbbbb", "untouched"));
+        for (int i = 0; i < 100; i++) {
+            board.setTitle("title " + i);
+            store.save(board);
+        }
+        store.updateSequence("aaaaaa", 7);
+        store.save(board("cccccc", "deleted"));
+        store.delete(board("cccccc", "deleted"));
+
+        assertTrue(store.compact() > 0);
+        assertEquals("title 99", store.load("aaaaaa").orElseThrow().getTitle());
+        assertEquals(7, store.load("aaaaaa").orElseThrow().getSequence());
+
+        open(4096);
+        assertEquals("title 99", store.load("aaaaaa").orElseThrow().getTitle());
+        assertEquals(7, store.load("aaaaaa").orElseThrow().getSequence());
+        assertEquals("untouched", store.load("bbbbbb").orElseThrow().getTitle());
+        assertTrue(store.load("cccccc").isEmpty());
+    }
+
+    @Test
+    void deletedSegmentIsUnmappedAndRemoved() throws Exception {
+        final Path path = directory.resolve("deleted.log");
+        final LogSegment segment = LogSegment.create(path, 0, 4096);
+        segment.append(LogSegment.encode((byte) 1, "aaaaaa", new byte[] {1, 2, 3}));
+
+        segment.delete();
+
+        assertFalse(Files.exists(path));
+    }
+}